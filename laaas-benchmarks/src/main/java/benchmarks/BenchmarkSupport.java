@@ -0,0 +1,40 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Common helpers of benchmarks
+ */
+public class BenchmarkSupport {
+
+    private static PrintStream originalOut;
+
+    /**
+     * Discard standard output while measuring
+     * Library logs each step by System.out, so writing to console would be measured instead of mapping itself.
+     * Building log messages is still measured.
+     */
+    public static synchronized void silenceStdout() {
+        if (originalOut != null) return;
+        originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+            }
+        }));
+    }
+
+    /**
+     * Restore standard output
+     */
+    public static synchronized void restoreStdout() {
+        if (originalOut == null) return;
+        System.setOut(originalOut);
+        originalOut = null;
+    }
+}
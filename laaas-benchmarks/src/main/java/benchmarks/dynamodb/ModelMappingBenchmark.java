@@ -0,0 +1,101 @@
+package benchmarks.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import awsutil.dynamodb.tabledefinition.TableRelation;
+import benchmarks.BenchmarkSupport;
+import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.openjdk.jmh.annotations.*;
+import samples.*;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of mapping between table models and DynamoDB items
+ * Cost of DdbRecordCollection is measured by RecordCollectionBenchmark.
+ * Run with allocation profiler to guard allocation rate of mapping:
+ *  java -jar laaas-benchmarks/target/benchmarks.jar ModelMappingBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelMappingBenchmark {
+
+    /**
+     * flat: Only scalar fields
+     * nested: Embedded model and list ( DynamoDbSampleTableI with SampleNestedTableI )
+     * gsi: Keys of GSI
+     * relational: External relation by GSI
+     */
+    @Param({"flat", "nested", "gsi", "relational"})
+    public String model;
+
+    private IGenericDynamoDbTable record;
+    private Map<String, AttributeValue> attributes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkSupport.silenceStdout();
+        record = sampleOf(model);
+        AbstractMap.SimpleEntry<String, Item> item = record.toItem();
+        attributes = ItemUtils.toAttributeValues(item.getValue());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.restoreStdout();
+    }
+
+    static IGenericDynamoDbTable sampleOf(String model) {
+        switch (model) {
+            case "flat":
+                return new SimpleTableForQuery("partition", "sort", "value");
+            case "nested":
+                return new DynamoDbSampleTableI("partition", "sort", "2022-01-01", 1,
+                        new ArrayList<>(Arrays.asList("a", "b", "c")),
+                        new SampleNestedTableI("embedded", new ArrayList<>(Arrays.asList("x", "y"))),
+                        "additional");
+            case "gsi":
+                return new SimpleGsiTable("id", "hash", "sort");
+            case "relational":
+                return new SampleRelationalTable("parent", "relation");
+            default:
+                throw new IllegalArgumentException("Unknown model: " + model);
+        }
+    }
+
+    @Benchmark
+    public AbstractMap.SimpleEntry<String, Item> toItem() throws Exception {
+        return record.toItem();
+    }
+
+    @Benchmark
+    public Map<String, Object> toMap() throws Exception {
+        return record.toMap();
+    }
+
+    @Benchmark
+    public IGenericDynamoDbTable insertResultIntoModel() throws Exception {
+        return record.insertResultIntoModel(attributes);
+    }
+
+    @Benchmark
+    public TableDefinition toTableDefinition() throws Exception {
+        return record.toTableDefinition();
+    }
+
+    @Benchmark
+    public List<TableRelation> toRelationTree() throws Exception {
+        return record.toRelationTree(null, 0, null);
+    }
+}
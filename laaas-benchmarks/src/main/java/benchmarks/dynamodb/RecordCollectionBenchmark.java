@@ -0,0 +1,51 @@
+package benchmarks.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.DdbRecordCollection;
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import benchmarks.BenchmarkSupport;
+import org.openjdk.jmh.annotations.*;
+import samples.SimpleGsiTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of adding records into DdbRecordCollection
+ * Each addition compares new record with all records in collection, so cost grows by square of size.
+ *  java -jar laaas-benchmarks/target/benchmarks.jar RecordCollectionBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordCollectionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private List<IGenericDynamoDbTable> records;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.silenceStdout();
+        records = new ArrayList<>();
+        for (int index = 0; index < size; index++) {
+            records.add(new SimpleGsiTable("id-" + index, "hash-" + (index % 10), "sort-" + index));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.restoreStdout();
+    }
+
+    @Benchmark
+    public DdbRecordCollection addAll() {
+        DdbRecordCollection collection = new DdbRecordCollection();
+        collection.addAll(records);
+        return collection;
+    }
+}
@@ -0,0 +1,94 @@
+package benchmarks.facade;
+
+import benchmarks.BenchmarkSupport;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import facade.ApiFacade;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of routing and dispatching by ApiFacade#doExecuteApi
+ * Each benchmark contains routing, deserialization of body, invocation and serialization of response.
+ * Routes are registered by count of apiCount classes with 4 methods ( See SyntheticApis ).
+ *  java -jar laaas-benchmarks/target/benchmarks.jar ApiFacadeBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiFacadeBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int apiCount;
+
+    private ApiFacade facade;
+    private APIGatewayProxyRequestEvent firstHit;
+    private APIGatewayProxyRequestEvent lastHit;
+    private APIGatewayProxyRequestEvent miss;
+    private APIGatewayProxyRequestEvent pathParameter;
+    private APIGatewayProxyRequestEvent largeBody;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.silenceStdout();
+        // No logger: building log messages is measured, but writing them is not
+        facade = new ApiFacade(SyntheticApis.generate(apiCount), null, null);
+
+        String smallBody = SyntheticApis.bodyOf(4);
+        int last = apiCount - 1;
+        firstHit = SyntheticApis.requestOf("POST", "/service0/items", smallBody);
+        lastHit = SyntheticApis.requestOf("POST", "/service" + last + "/items", smallBody);
+        miss = SyntheticApis.requestOf("POST", "/unknown/items", smallBody);
+        pathParameter = SyntheticApis.requestOf("PUT", "/service" + last + "/items/item-01", "item-01", smallBody);
+        largeBody = SyntheticApis.requestOf("POST", "/service" + last + "/items", SyntheticApis.bodyOf(10000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.restoreStdout();
+    }
+
+    /**
+     * Route of first registered class
+     */
+    @Benchmark
+    public APIGatewayProxyResponseEvent hitFirst() {
+        return facade.doExecuteApi(firstHit);
+    }
+
+    /**
+     * Route of last registered class ( All other routes are evaluated before it )
+     */
+    @Benchmark
+    public APIGatewayProxyResponseEvent hitLast() {
+        return facade.doExecuteApi(lastHit);
+    }
+
+    /**
+     * No route matches
+     */
+    @Benchmark
+    public APIGatewayProxyResponseEvent miss() {
+        return facade.doExecuteApi(miss);
+    }
+
+    /**
+     * Route with path parameter in last registered class
+     */
+    @Benchmark
+    public APIGatewayProxyResponseEvent pathParameter() {
+        return facade.doExecuteApi(pathParameter);
+    }
+
+    /**
+     * Route of last registered class with body of about 130KB
+     */
+    @Benchmark
+    public APIGatewayProxyResponseEvent largeBody() {
+        return facade.doExecuteApi(largeBody);
+    }
+}
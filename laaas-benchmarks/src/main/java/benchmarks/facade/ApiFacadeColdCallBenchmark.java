@@ -0,0 +1,47 @@
+package benchmarks.facade;
+
+import benchmarks.BenchmarkSupport;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import facade.ApiFacade;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of first call of ApiFacade#doExecuteApi ( Like as first request on cold start of Lambda )
+ * API classes are synthesized again before each iteration, so reflection data of them are not cached.
+ *  java -jar laaas-benchmarks/target/benchmarks.jar ApiFacadeColdCallBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(3)
+@State(Scope.Thread)
+public class ApiFacadeColdCallBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int apiCount;
+
+    private ApiFacade facade;
+    private APIGatewayProxyRequestEvent request;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        BenchmarkSupport.silenceStdout();
+        facade = new ApiFacade(SyntheticApis.generate(apiCount), null, null);
+        request = SyntheticApis.requestOf("PUT", "/service" + (apiCount - 1) + "/items/item-01", "item-01",
+                SyntheticApis.bodyOf(4));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.restoreStdout();
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent firstCall() {
+        return facade.doExecuteApi(request);
+    }
+}
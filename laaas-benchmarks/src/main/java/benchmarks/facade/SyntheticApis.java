@@ -0,0 +1,128 @@
+package benchmarks.facade;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import enums.ApiRequestType;
+import facade.AbsGenericResponse;
+import facade.ApiGwEvents;
+import facade.ApiGwFunction;
+import facade.IGenericApi;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.bind.annotation.Argument;
+import utils.PathParameter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * API classes synthesized for benchmarks of ApiFacade
+ * Each class is annotated by ApiGwFunction( basePath = "/service{index}" ) and has following methods:
+ *  GET    /service{index}/items/{itemId}
+ *  POST   /service{index}/items
+ *  PUT    /service{index}/items/{itemId}
+ *  GET    /service{index}/status
+ */
+public class SyntheticApis {
+
+    /**
+     * Request body of synthesized APIs
+     */
+    public static class BenchmarkRequest {
+        public String name;
+        public List<String> values;
+    }
+
+    /**
+     * Implementation of all synthesized methods ( Returns request as response )
+     */
+    public static class EchoApi {
+        public static AbsGenericResponse handle(@Argument(0) Object request, @Argument(1) PathParameter param) {
+            AbsGenericResponse response = new AbsGenericResponse();
+            response.returnedCode = 200;
+            response.apiResponseModel = request;
+            return response;
+        }
+    }
+
+    /**
+     * Synthesize API classes
+     * Classes are loaded by new class loader at each calling, so reflection data of them are not cached yet.
+     * @param count count of classes
+     * @return API classes
+     */
+    public static List<Class<? extends IGenericApi>> generate(int count) {
+        List<Class<? extends IGenericApi>> apis = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            DynamicType.Builder<Object> builder = new ByteBuddy()
+                    .subclass(Object.class)
+                    .implement(IGenericApi.class)
+                    .name("benchmarks.facade.generated.Api" + index)
+                    .annotateType(AnnotationDescription.Builder.ofType(ApiGwFunction.class)
+                            .define("basePath", "/service" + index).build());
+            builder = defineRoute(builder, "getItem", "/items/{itemId}", ApiRequestType.GET);
+            builder = defineRoute(builder, "postItem", "/items", ApiRequestType.POST);
+            builder = defineRoute(builder, "putItem", "/items/{itemId}", ApiRequestType.PUT);
+            builder = defineRoute(builder, "getStatus", "/status", ApiRequestType.GET);
+            apis.add(builder.make()
+                    .load(SyntheticApis.class.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+                    .getLoaded()
+                    .asSubclass(IGenericApi.class));
+        }
+        return apis;
+    }
+
+    private static DynamicType.Builder<Object> defineRoute(DynamicType.Builder<Object> builder, String methodName,
+                                                           String path, ApiRequestType requestType) {
+        return builder.defineMethod(methodName, AbsGenericResponse.class, Visibility.PUBLIC)
+                .withParameters(Object.class, PathParameter.class)
+                .intercept(MethodDelegation.to(EchoApi.class))
+                .annotateMethod(AnnotationDescription.Builder.ofType(ApiGwEvents.class)
+                        .define("basePath", path)
+                        .define("requestMethodType", requestType)
+                        .define("requestPayloadDataModel", BenchmarkRequest.class)
+                        .build());
+    }
+
+    /**
+     * @param httpMethod HTTP method
+     * @param path requested path
+     * @param body request body or null
+     * @return request from API GW
+     */
+    public static APIGatewayProxyRequestEvent requestOf(String httpMethod, String path, String body) {
+        return new APIGatewayProxyRequestEvent()
+                .withHttpMethod(httpMethod)
+                .withPath(path)
+                .withBody(body);
+    }
+
+    /**
+     * @param httpMethod HTTP method
+     * @param path requested path
+     * @param itemId value of path parameter itemId
+     * @param body request body or null
+     * @return request from API GW with path parameter
+     */
+    public static APIGatewayProxyRequestEvent requestOf(String httpMethod, String path, String itemId, String body) {
+        return requestOf(httpMethod, path, body)
+                .withPathParameters(Collections.singletonMap("itemId", itemId));
+    }
+
+    /**
+     * @param countOfValues count of elements in values
+     * @return JSON of BenchmarkRequest
+     */
+    public static String bodyOf(int countOfValues) {
+        StringBuilder body = new StringBuilder("{\"name\":\"benchmark\",\"values\":[");
+        for (int index = 0; index < countOfValues; index++) {
+            if (index > 0) body.append(',');
+            body.append("\"value-").append(index).append('"');
+        }
+        return body.append("]}").toString();
+    }
+}
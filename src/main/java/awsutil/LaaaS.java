@@ -0,0 +1,75 @@
+package awsutil;
+
+import awsutil.dynamodb.DynamoClientProvider;
+import awsutil.dynamodb.DynamoMetrics;
+import awsutil.dynamodb.exceptions.ExistsCircularReferenceException;
+import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.RelationGraph;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+
+/**
+ * Bootstrap hooks of LaaaS
+ * Clients are created lazily at first request, so call LaaaS#prime from static initializer of handler
+ * or before-checkpoint hook of SnapStart ( CRaC ) to move cost of first request to initialization phase.
+ */
+public class LaaaS {
+
+    /**
+     * Prepare clients and table models before first request
+     *  1. Create DynamoDB client and resolve credentials
+     *  2. Describe each table ( Opens connection and loads table metadata )
+     *  3. Build table definition and relation graph of each model ( Circular reference is checked )
+     * @param models table models annotated by DynamoDBTable
+     * @throws InvalidParametersInDynamoDbException Throws when model is not table model
+     * @throws IllegalAccessException Throws when can not access to field of model
+     * @throws InstantiationException Throws when can not create new instance of model
+     * @throws ExistsCircularReferenceException Throws when relation tree of model has circular reference
+     */
+    @SuppressWarnings("unchecked")
+    public static void prime(Class<?>... models) throws InvalidParametersInDynamoDbException, IllegalAccessException,
+            InstantiationException, ExistsCircularReferenceException {
+        long start = System.currentTimeMillis();
+        System.out.println("[LAAAS(Prime)] START PRIMING " + models.length + " MODELS");
+
+        DynamoClientProvider.getClient();
+        try {
+            DefaultAWSCredentialsProviderChain.getInstance().getCredentials();
+        } catch (SdkClientException e) {
+            // Client injected or pointed to local endpoint may not need credentials of chain
+            System.out.println("[LAAAS(Prime)] SKIP RESOLVING CREDENTIALS: " + e.getMessage());
+        }
+
+        for (Class<?> model: models) {
+            if (!IGenericDynamoDbTable.class.isAssignableFrom(model)) {
+                throw new InvalidParametersInDynamoDbException("[LAAAS(Prime)] "
+                        + model.getName() + " is not implementing IGenericDynamoDbTable");
+            }
+            Class<? extends IGenericDynamoDbTable> tableModel = (Class<? extends IGenericDynamoDbTable>) model;
+
+            // Schema of model
+            TableDefinition def = new TableDefinition(tableModel);
+            // Model must be instantiated to insert results of query
+            tableModel.newInstance();
+            RelationGraph graph = RelationGraph.of(tableModel);
+            System.out.println("[LAAAS(Prime)] RELATION GRAPH OF " + def.tableName + ": " + graph.getEdges());
+
+            // Metadata of table
+            try {
+                TableDescription description = DynamoMetrics.record("DescribeTable", def.tableName, null,
+                        () -> DynamoClientProvider.getClient()
+                                .describeTable(new DescribeTableRequest().withTableName(def.tableName)), null)
+                        .getTable();
+                System.out.println("[LAAAS(Prime)] PRIMED: " + def.tableName + " - " + description.getTableStatus());
+            } catch (ResourceNotFoundException e) {
+                System.out.println("[LAAAS(Prime)] TABLE DOES NOT EXIST: " + def.tableName);
+            }
+        }
+        System.out.println("[LAAAS(Prime)] DONE PRIMING IN " + (System.currentTimeMillis() - start) + "ms");
+    }
+}
@@ -0,0 +1,79 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.AutoScaling;
+import com.amazonaws.services.applicationautoscaling.AWSApplicationAutoScaling;
+import com.amazonaws.services.applicationautoscaling.AWSApplicationAutoScalingClientBuilder;
+import com.amazonaws.services.applicationautoscaling.model.*;
+
+/**
+ * Register autoscaling into Application Auto Scaling of AWS
+ * Client is created at first registration by settings of DynamoClientProvider ( Region and client configuration ),
+ * so autoscaling is registered into same region as tables are created.
+ */
+public class AwsAutoScalingRegistrar implements IAutoScalingRegistrar {
+
+    private volatile AWSApplicationAutoScaling client;
+
+    public AwsAutoScalingRegistrar() {
+    }
+
+    /**
+     * @param client client of Application Auto Scaling
+     */
+    public AwsAutoScalingRegistrar(AWSApplicationAutoScaling client) {
+        this.client = client;
+    }
+
+    @Override
+    public void register(String resourceId, ScalableDimension dimension, AutoScaling setting) {
+        AWSApplicationAutoScaling autoScaling = getClient();
+        autoScaling.registerScalableTarget(new RegisterScalableTargetRequest()
+                .withServiceNamespace(ServiceNamespace.Dynamodb)
+                .withResourceId(resourceId)
+                .withScalableDimension(dimension)
+                .withMinCapacity((int) setting.minCapacity())
+                .withMaxCapacity((int) setting.maxCapacity()));
+
+        boolean isRead = dimension == ScalableDimension.DynamodbTableReadCapacityUnits
+                || dimension == ScalableDimension.DynamodbIndexReadCapacityUnits;
+        autoScaling.putScalingPolicy(new PutScalingPolicyRequest()
+                .withServiceNamespace(ServiceNamespace.Dynamodb)
+                .withResourceId(resourceId)
+                .withScalableDimension(dimension)
+                .withPolicyName(resourceId.replace('/', '-') + (isRead ? "-read" : "-write") + "-scaling")
+                .withPolicyType(PolicyType.TargetTrackingScaling)
+                .withTargetTrackingScalingPolicyConfiguration(new TargetTrackingScalingPolicyConfiguration()
+                        .withTargetValue(setting.targetUtilization())
+                        .withPredefinedMetricSpecification(new PredefinedMetricSpecification()
+                                .withPredefinedMetricType(isRead ? MetricType.DynamoDBReadCapacityUtilization
+                                        : MetricType.DynamoDBWriteCapacityUtilization))));
+        System.out.println("[LAAAS/DDB(AutoScaling)] REGISTERED: " + resourceId + " " + dimension
+                + " " + setting.minCapacity() + "-" + setting.maxCapacity() + " (" + setting.targetUtilization() + "%)");
+    }
+
+    private AWSApplicationAutoScaling getClient() {
+        AWSApplicationAutoScaling current = this.client;
+        if (current == null) {
+            synchronized (this) {
+                if (this.client == null) {
+                    this.client = buildClient(DynamoClientProvider.getSettings());
+                }
+                current = this.client;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @param settings settings of DynamoDB client
+     * @return client of Application Auto Scaling in region of settings ( Or default region of SDK )
+     */
+    static AWSApplicationAutoScaling buildClient(DynamoClientProvider.Settings settings) {
+        AWSApplicationAutoScalingClientBuilder builder = AWSApplicationAutoScalingClientBuilder.standard()
+                .withClientConfiguration(settings.toClientConfiguration());
+        if (settings.region != null && !settings.region.isEmpty()) {
+            builder.withRegion(settings.region);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,366 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.exceptions.DoesNotExistsFunctionException;
+import awsutil.dynamodb.exceptions.ExistsCircularReferenceException;
+import awsutil.dynamodb.exceptions.InvalidDynamoFieldTypeException;
+import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.OffloadedAttribute;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
+import com.amazonaws.services.dynamodbv2.model.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind writer that buffers records and writes them by BatchWriteItem
+ * Writes are kept in lock-free queue, and multiple writes to same keys are coalesced into last one.
+ * Buffer is flushed on background thread when count of writes reaches flushSize or flushIntervalMillis passed,
+ * and caller of put / delete is blocked while buffer is full ( maxBufferedWrites ).
+ * Call flush() before returning from handler of Lambda, because background thread is frozen after returning.
+ * Writes of failed chunk are kept in buffer and retried by next flushing, unless same item is written again.
+ * Objects of offloaded fields are put just before writing chunk that has the record, so replaced write does not put object.
+ */
+public class BufferedRecordWriter implements AutoCloseable {
+
+    // Max count of requests in single BatchWriteItem
+    private static final int maxBatchWriteItems = 25;
+    // Max count of requests for single chunk ( Retried while items are unprocessed )
+    private static final int maxBatchWriteAttempts = 8;
+
+    /**
+     * Settings of writer
+     */
+    public static class Settings {
+        public final int maxBufferedWrites;
+        public final int flushSize;
+        public final long flushIntervalMillis;
+
+        /**
+         * @param maxBufferedWrites max count of buffered writes
+         * @param flushSize count of writes to start flushing ( Should be maxBufferedWrites or less )
+         * @param flushIntervalMillis interval of flushing
+         * @throws IllegalArgumentException Throws when settings are not positive, or flushSize is over maxBufferedWrites
+         */
+        public Settings(int maxBufferedWrites, int flushSize, long flushIntervalMillis) {
+            if (maxBufferedWrites < 1 || flushSize < 1 || flushIntervalMillis < 1) {
+                throw new IllegalArgumentException("[LAAAS/DDB(Buffered writer)] Settings must be positive");
+            }
+            // Writers are blocked until interval passes when buffer is full before reaching flushSize
+            if (flushSize > maxBufferedWrites) {
+                throw new IllegalArgumentException("[LAAAS/DDB(Buffered writer)] flushSize(" + flushSize
+                        + ") must not be over maxBufferedWrites(" + maxBufferedWrites + ")");
+            }
+            this.maxBufferedWrites = maxBufferedWrites;
+            this.flushSize = flushSize;
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+
+        /**
+         * Settings by environment variables
+         *  LAAAS_DDB_WRITER_MAX_BUFFERED: Max count of buffered writes ( Default: 1000 )
+         *  LAAAS_DDB_WRITER_FLUSH_SIZE: Count of writes to start flushing ( Default: 25 )
+         *  LAAAS_DDB_WRITER_FLUSH_INTERVAL_MILLIS: Interval of flushing ( Default: 1000 )
+         * @return settings
+         */
+        public static Settings fromEnv() {
+            return new Settings(intOf("LAAAS_DDB_WRITER_MAX_BUFFERED", 1000),
+                    intOf("LAAAS_DDB_WRITER_FLUSH_SIZE", maxBatchWriteItems),
+                    intOf("LAAAS_DDB_WRITER_FLUSH_INTERVAL_MILLIS", 1000));
+        }
+
+        private static int intOf(String envName, int defaultValue) {
+            String value = System.getenv(envName);
+            return value != null && !value.isEmpty() ? Integer.parseInt(value) : defaultValue;
+        }
+    }
+
+    /**
+     * Buffered write for single item ( Put or Delete )
+     */
+    private static class PendingWrite {
+        final TableDefinition def;
+        final WriteRequest request;
+        // Objects of offloaded fields in item
+        final List<OffloadedAttribute.PendingObject> objects;
+
+        PendingWrite(TableDefinition def, WriteRequest request, List<OffloadedAttribute.PendingObject> objects) {
+            this.def = def;
+            this.request = request;
+            this.objects = objects;
+        }
+    }
+
+    private final Settings settings;
+    // Keys of items in order of first write ( Table name#Keys )
+    private final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+    // Map<Key of item, Last write>
+    private final ConcurrentHashMap<String, PendingWrite> latestWrites = new ConcurrentHashMap<>();
+    // Permits for buffered items ( Blocks writers while buffer is full )
+    private final Semaphore capacity;
+    private final AtomicInteger bufferedCount = new AtomicInteger();
+    // Flushing is serialized to keep order of writes to same item
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final ScheduledExecutorService executor;
+    private volatile boolean isClosed = false;
+
+    public BufferedRecordWriter() {
+        this(Settings.fromEnv());
+    }
+
+    public BufferedRecordWriter(Settings settings) {
+        this.settings = settings;
+        this.capacity = new Semaphore(settings.maxBufferedWrites);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "laaas-ddb-buffered-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(() -> flushInBackground(true),
+                settings.flushIntervalMillis, settings.flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffer record to put ( Record is converted to item at this calling )
+     * @param record record to writing
+     * @throws InvalidParametersInDynamoDbException Throws when data model is not annotated by DynamoDBTable or has Version
+     * @throws IllegalAccessException Throws when can not be get field value
+     * @throws InstantiationException Throws when failed create new instance
+     * @throws DoesNotExistsFunctionException Throws when failed converting record to item
+     * @throws InterruptedException Throws when interrupted while buffer is full
+     */
+    public void put(IGenericDynamoDbTable record) throws InvalidParametersInDynamoDbException, IllegalAccessException,
+            InstantiationException, DoesNotExistsFunctionException, InterruptedException {
+        Map<String, AttributeValue> item;
+        try {
+            item = ItemUtils.toAttributeValues(record.setRandomValueByAutoGen().toItem().getValue());
+        } catch (InvalidDynamoFieldTypeException | ExistsCircularReferenceException e) {
+            throw new RuntimeException(e);
+        }
+        TableDefinition def = record.toTableDefinition();
+        if (def.version != null) {
+            // BatchWriteItem can not have condition
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Buffered writer)] "
+                    + "Record that has Version can not be written by batch: " + def.tableName);
+        }
+        enqueue(new PendingWrite(def, new WriteRequest().withPutRequest(new PutRequest().withItem(item)),
+                OffloadedAttribute.pendingObjectsOf(Collections.singletonList(record))), keysOf(def, item));
+    }
+
+    /**
+     * Buffer record to delete
+     * @param record record that has values of table keys
+     * @throws InvalidParametersInDynamoDbException Throws when data model is not annotated by DynamoDBTable
+     * @throws IllegalAccessException Throws when can not be get field value
+     * @throws InstantiationException Throws when failed create new instance
+     * @throws InterruptedException Throws when interrupted while buffer is full
+     */
+    public void delete(IGenericDynamoDbTable record) throws InvalidParametersInDynamoDbException, IllegalAccessException,
+            InstantiationException, InterruptedException {
+        TableDefinition def = record.toTableDefinition();
+        Map<String, AttributeValue> keys = RecordCrudFacade.getTableKeysForCondition(record);
+        enqueue(new PendingWrite(def, new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(keys)),
+                Collections.emptyList()), keys);
+    }
+
+    /**
+     * Write all buffered records and wait for finishing
+     * @throws AmazonClientException Throws when some of writes is failed ( Including failure on background thread )
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            drain(true);
+        } finally {
+            flushLock.unlock();
+        }
+        RuntimeException error = failure.getAndSet(null);
+        if (error != null) throw error;
+    }
+
+    /**
+     * Flush buffered records and stop background thread
+     */
+    @Override
+    public void close() {
+        isClosed = true;
+        executor.shutdown();
+        flush();
+    }
+
+    /**
+     * @return count of buffered writes
+     */
+    public int getBufferedCount() {
+        return bufferedCount.get();
+    }
+
+    private void enqueue(PendingWrite write, Map<String, AttributeValue> keys) throws InterruptedException {
+        if (isClosed) {
+            throw new IllegalStateException("[LAAAS/DDB(Buffered writer)] Writer is already closed");
+        }
+        String key = write.def.tableName + "#" + new TreeMap<>(keys);
+        capacity.acquire();
+        boolean[] isCoalesced = {false};
+        latestWrites.compute(key, (name, existing) -> {
+            isCoalesced[0] = existing != null;
+            return write;
+        });
+        if (isCoalesced[0]) {
+            // Earlier write of same item is replaced, and it is still in queue
+            capacity.release();
+            return;
+        }
+        queue.add(key);
+        if (bufferedCount.incrementAndGet() >= settings.flushSize) {
+            executor.execute(() -> flushInBackground(false));
+        }
+    }
+
+    /**
+     * @param isAll whether write all records ( On interval ), or only while flushSize is reached
+     */
+    private void flushInBackground(boolean isAll) {
+        // Skip when other thread is flushing
+        if (!flushLock.tryLock()) return;
+        try {
+            drain(isAll);
+        } catch (RuntimeException e) {
+            System.out.println("[LAAAS/DDB(Buffered writer)] FAILED FLUSHING: " + e.getMessage());
+            failure.compareAndSet(null, e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Write buffered records by each 25 items
+     * Failed writes are put back into buffer, so they are retried by next flushing.
+     * @param isAll whether write partial chunk, or only full chunks
+     */
+    private void drain(boolean isAll) {
+        while (isAll ? !queue.isEmpty() : bufferedCount.get() >= settings.flushSize) {
+            // Map<Key of item, Write> ( Same item can not be in single request )
+            LinkedHashMap<String, PendingWrite> chunk = new LinkedHashMap<>();
+            String key;
+            while (chunk.size() < maxBatchWriteItems && !chunk.containsKey(queue.peek()) && (key = queue.poll()) != null) {
+                PendingWrite write = latestWrites.remove(key);
+                bufferedCount.decrementAndGet();
+                if (write != null) chunk.put(key, write);
+            }
+            if (chunk.isEmpty()) continue;
+            int countOfReleased = chunk.size();
+            try {
+                write(new ArrayList<>(chunk.values()));
+            } catch (RuntimeException e) {
+                // Permits of writes that are put back are kept
+                countOfReleased -= requeue(chunk);
+                throw e;
+            } finally {
+                capacity.release(countOfReleased);
+            }
+        }
+    }
+
+    /**
+     * Put failed writes back into buffer ( Write is dropped when newer write of same item is buffered while writing )
+     * @param chunk Map<Key of item, Failed write>
+     * @return count of writes that are put back
+     */
+    private int requeue(Map<String, PendingWrite> chunk) {
+        int countOfRequeued = 0;
+        for (Map.Entry<String, PendingWrite> entry: chunk.entrySet()) {
+            if (latestWrites.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                queue.add(entry.getKey());
+                bufferedCount.incrementAndGet();
+                countOfRequeued++;
+            }
+        }
+        System.out.println("[LAAAS/DDB(Buffered writer)] PUT BACK " + countOfRequeued + " FAILED WRITES");
+        return countOfRequeued;
+    }
+
+    private void write(List<PendingWrite> writes) {
+        Map<String, List<WriteRequest>> requestItems = new LinkedHashMap<>();
+        Map<String, CapacityRateLimiter.TokenBucket> bucketsOfChunk = new HashMap<>();
+        List<OffloadedAttribute.PendingObject> objects = new ArrayList<>();
+        for (PendingWrite write: writes) {
+            requestItems.computeIfAbsent(write.def.tableName, name -> new ArrayList<>()).add(write.request);
+            bucketsOfChunk.putIfAbsent(write.def.tableName, CapacityRateLimiter.forWrite(write.def));
+            objects.addAll(write.objects);
+        }
+        String tableNames = String.join(",", requestItems.keySet());
+
+        boolean isWritten = false;
+        try {
+            OffloadedAttribute.upload(objects);
+            writeBatches(requestItems, bucketsOfChunk, tableNames);
+            isWritten = true;
+        } finally {
+            if (isWritten) {
+                OffloadedAttribute.commit(objects);
+            } else {
+                OffloadedAttribute.abort(objects);
+            }
+        }
+
+        // Drop cached records that have same keys
+        writes.forEach(write -> RecordCache.invalidate(write.def));
+        System.out.println("[LAAAS/DDB(Buffered writer)] WROTE " + writes.size() + " ITEMS INTO: " + tableNames);
+    }
+
+    /**
+     * Write chunk by BatchWriteItem while items are unprocessed
+     * @param requestItems Map<Table name, Requests>
+     * @param bucketsOfChunk Map<Table name, Bucket to limiting rate>
+     * @param tableNames names of tables for logging
+     */
+    private static void writeBatches(Map<String, List<WriteRequest>> requestItems,
+                                     Map<String, CapacityRateLimiter.TokenBucket> bucketsOfChunk, String tableNames) {
+        for (int attempt = 0; requestItems != null && !requestItems.isEmpty(); attempt++) {
+            if (attempt >= maxBatchWriteAttempts) {
+                throw new ProvisionedThroughputExceededException("[LAAAS/DDB(Buffered writer)] Items are not processed after "
+                        + attempt + " attempts: " + tableNames);
+            }
+            if (attempt > 0) {
+                try {
+                    Thread.sleep(Math.min(50L << attempt, 1000L));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AmazonClientException("Interrupted while writing into " + tableNames, e);
+                }
+            }
+            Map<String, List<WriteRequest>> itemsOfAttempt = requestItems;
+            int countOfItems = itemsOfAttempt.values().stream().mapToInt(List::size).sum();
+            BatchWriteItemResult result = CapacityRateLimiter.executeAll(bucketsOfChunk,
+                    () -> DynamoMetrics.record("BatchWriteItem", tableNames, null,
+                            () -> DynamoClientProvider.getClient().batchWriteItem(new BatchWriteItemRequest()
+                                    .withRequestItems(itemsOfAttempt)
+                                    .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL)),
+                            (metrics, res) -> {
+                                metrics.addItems(countOfItems);
+                                if (res.getConsumedCapacity() != null) {
+                                    res.getConsumedCapacity().forEach(consumed ->
+                                            metrics.addWriteUnits(CapacityRateLimiter.unitsOf(consumed)));
+                                }
+                            }),
+                    BatchWriteItemResult::getConsumedCapacity);
+            requestItems = result.getUnprocessedItems();
+        }
+    }
+
+    private static Map<String, AttributeValue> keysOf(TableDefinition def, Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> keys = new HashMap<>();
+        keys.put(def.partitionKey.getKey(), item.get(def.partitionKey.getKey()));
+        if (def.sortKey != null) {
+            keys.put(def.sortKey.getKey(), item.get(def.sortKey.getKey()));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,321 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.AutoScaling;
+import awsutil.dynamodb.tabledefinition.GlobalSecondlyIndexStructure;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.AbortedException;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Client side rate limiter by capacity units of each table and index
+ * Rate of each token bucket starts from capacity unit declared in DynamoDBTable or GlobalSI,
+ * and is debited by actually consumed capacity units that is returned by ReturnConsumedCapacity.
+ * When throughput is exceeded, rate is decreased by half, and is increased additively on each success ( AIMD ).
+ * Throttled attempts that are retried by SDK are also reported by DynamoMetrics.AttemptCounter of client.
+ * Writes are limited by buckets of table and its GSI, because each write to table is also written to GSI.
+ * Tables of PAY_PER_REQUEST are not limited, and tables with autoscaling start from max capacity of autoscaling.
+ * This is disabled by default. Set "true" to env LAAAS_DDB_RATE_LIMITER to enable this.
+ */
+public class CapacityRateLimiter {
+
+    static final String envNameOfSwitch = "LAAAS_DDB_RATE_LIMITER";
+
+    private static volatile boolean enabled = "true".equalsIgnoreCase(System.getenv(envNameOfSwitch));
+    // Map<Table name/Index name:R or W, Bucket>
+    private static final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    // Buckets of request in flight on this thread, and whether throttled attempt is reported
+    private static final ThreadLocal<CurrentRequest> currentRequest = new ThreadLocal<>();
+    // Bucket that does not limit ( For on-demand tables )
+    static final TokenBucket unlimited = new TokenBucket("unlimited", 0, true);
+
+    /**
+     * Token bucket for single table or index
+     * Tokens can be negative by debiting consumed capacity, then next request waits until tokens are refilled
+     */
+    public static class TokenBucket {
+        // Lower limit of rate at decreasing by throttling
+        private static final double minRate = 0.5;
+        // Ratio of additive increase to declared capacity
+        private static final double increaseRatio = 0.05;
+
+        private final String name;
+        private final double declaredRate;
+        private final boolean isUnlimited;
+        // Write buckets of GSI that are limited together with this ( Empty for read and index )
+        final List<TokenBucket> indexBuckets;
+        private double rate;
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(String name, double declaredRate) {
+            this(name, declaredRate, Collections.emptyList());
+        }
+
+        TokenBucket(String name, double declaredRate, List<TokenBucket> indexBuckets) {
+            this(name, declaredRate, false, indexBuckets);
+        }
+
+        private TokenBucket(String name, double declaredRate, boolean isUnlimited) {
+            this(name, declaredRate, isUnlimited, Collections.emptyList());
+        }
+
+        private TokenBucket(String name, double declaredRate, boolean isUnlimited, List<TokenBucket> indexBuckets) {
+            this.name = name;
+            this.isUnlimited = isUnlimited;
+            this.indexBuckets = indexBuckets;
+            this.declaredRate = Math.max(declaredRate, minRate);
+            this.rate = this.declaredRate;
+            this.tokens = this.declaredRate;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        /**
+         * Wait until tokens of this and GSI are available
+         * @throws AbortedException Throws when waiting thread is interrupted ( Interrupt flag is kept )
+         */
+        public void acquire() {
+            if (isUnlimited) return;
+            long waitNanos;
+            while ((waitNanos = reserve()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AbortedException("[LAAAS/DDB(RateLimiter)] Interrupted while waiting: " + name, e);
+                }
+            }
+            indexBuckets.forEach(TokenBucket::acquire);
+        }
+
+        /**
+         * Debit consumed capacity units and increase rate additively
+         * Same units are debited from GSI, because consumed units of index are not returned by TOTAL.
+         * @param consumedUnits actually consumed capacity units
+         */
+        public void debit(double consumedUnits) {
+            if (isUnlimited) return;
+            synchronized (this) {
+                refill();
+                this.tokens -= consumedUnits;
+                this.rate = Math.min(this.declaredRate, this.rate + this.declaredRate * increaseRatio);
+            }
+            indexBuckets.forEach(bucket -> bucket.debit(consumedUnits));
+        }
+
+        /**
+         * Decrease rate of this and GSI by half when throughput is exceeded
+         */
+        public void onThrottled() {
+            if (isUnlimited) return;
+            synchronized (this) {
+                refill();
+                this.rate = Math.max(minRate, this.rate / 2);
+                this.tokens = Math.min(this.tokens, 0);
+                System.out.println("[LAAAS/DDB(RateLimiter)] THROTTLED: " + name + " DECREASE RATE TO " + this.rate);
+            }
+            indexBuckets.forEach(TokenBucket::onThrottled);
+        }
+
+        public synchronized double getRate() {
+            return this.rate;
+        }
+
+        public synchronized double getTokens() {
+            refill();
+            return this.tokens;
+        }
+
+        private synchronized long reserve() {
+            refill();
+            if (this.tokens > 0) {
+                return 0;
+            }
+            // Time until tokens are refilled over zero
+            return (long) ((-this.tokens + 0.01) / this.rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            double refilled = (now - this.lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1) * this.rate;
+            // Burst is limited to capacity for one second
+            this.tokens = Math.min(this.rate, this.tokens + refilled);
+            this.lastRefillNanos = now;
+        }
+    }
+
+    /**
+     * Bucket of read capacity for table or GSI
+     * @param def table definition
+     * @param indexName name of GSI, or null for table
+     * @return bucket
+     */
+    public static TokenBucket forRead(TableDefinition def, String indexName) {
+        if (def.billingMode == BillingMode.PAY_PER_REQUEST) {
+            return unlimited;
+        }
+        long ofTable = capacityOf(def.readCapacityUnit, 0, def.readAutoScaling);
+        GlobalSecondlyIndexStructure gsi = indexName != null ? def.gsiStructures.get(indexName) : null;
+        long declared = gsi != null ? capacityOf(gsi.getReadCapacity(), ofTable, gsi.getReadAutoScaling()) : ofTable;
+        return getBucket(def.tableName, gsi != null ? indexName : null, "R", declared, Collections.emptyList());
+    }
+
+    /**
+     * Bucket of write capacity for table ( Write buckets of all GSI are acquired and debited together )
+     * @param def table definition
+     * @return bucket
+     */
+    public static TokenBucket forWrite(TableDefinition def) {
+        if (def.billingMode == BillingMode.PAY_PER_REQUEST) {
+            return unlimited;
+        }
+        long ofTable = capacityOf(def.writeCapacityUnit, 0, def.writeAutoScaling);
+        List<TokenBucket> indexBuckets = new ArrayList<>();
+        if (def.gsiStructures != null) {
+            def.gsiStructures.forEach((indexName, gsi) -> indexBuckets.add(getBucket(def.tableName, indexName, "W",
+                    capacityOf(gsi.getWriteCapacity(), ofTable, gsi.getWriteAutoScaling()), Collections.emptyList())));
+        }
+        return getBucket(def.tableName, null, "W", ofTable, indexBuckets);
+    }
+
+    /**
+     * @param declared capacity unit declared in table model ( Null when not declared )
+     * @param fallback capacity to using when capacity is not declared ( e.g. Capacity of table for GSI )
+     * @param autoScaling autoscaling of capacity
+     * @return max capacity of autoscaling when it is enabled, otherwise declared capacity
+     */
+    private static long capacityOf(Long declared, long fallback, AutoScaling autoScaling) {
+        long capacity = declared != null ? declared : fallback;
+        return autoScaling != null && autoScaling.maxCapacity() > 0 ? Math.max(capacity, autoScaling.maxCapacity()) : capacity;
+    }
+
+    /**
+     * Execute request with limiting rate
+     * @param bucket bucket of table or index
+     * @param request request to DynamoDB ( Should request consumed capacity )
+     * @param consumedUnits function to extract consumed capacity units from result
+     * @param <T> type of result
+     * @return result of request
+     */
+    public static <T> T execute(TokenBucket bucket, Supplier<T> request, ToDoubleFunction<T> consumedUnits) {
+        if (!enabled || bucket.isUnlimited) {
+            return request.get();
+        }
+        bucket.acquire();
+        CurrentRequest current = new CurrentRequest(Collections.singletonList(bucket));
+        currentRequest.set(current);
+        try {
+            T result = request.get();
+            bucket.debit(consumedUnits.applyAsDouble(result));
+            return result;
+        } catch (ProvisionedThroughputExceededException e) {
+            // Last attempt is already reported when client has AttemptCounter
+            if (!current.isReported) bucket.onThrottled();
+            throw e;
+        } finally {
+            currentRequest.remove();
+        }
+    }
+
+    /**
+     * Execute request to multiple tables ( e.g. Transaction, Batch ) with limiting rate of each table
+     * @param bucketsOfTables Map<Table name, Bucket>
+     * @param request request to DynamoDB ( Should request consumed capacity )
+     * @param consumedCapacities function to extract consumed capacity of each table from result
+     * @param <T> type of result
+     * @return result of request
+     */
+    public static <T> T executeAll(Map<String, TokenBucket> bucketsOfTables, Supplier<T> request,
+                                   Function<T, List<ConsumedCapacity>> consumedCapacities) {
+        if (!enabled) {
+            return request.get();
+        }
+        bucketsOfTables.values().forEach(TokenBucket::acquire);
+        CurrentRequest current = new CurrentRequest(bucketsOfTables.values());
+        currentRequest.set(current);
+        try {
+            T result = request.get();
+            List<ConsumedCapacity> capacities = consumedCapacities.apply(result);
+            if (capacities != null) {
+                for (ConsumedCapacity capacity: capacities) {
+                    TokenBucket bucket = bucketsOfTables.get(capacity.getTableName());
+                    if (bucket != null) bucket.debit(unitsOf(capacity));
+                }
+            }
+            return result;
+        } catch (ProvisionedThroughputExceededException e) {
+            if (!current.isReported) bucketsOfTables.values().forEach(TokenBucket::onThrottled);
+            throw e;
+        } catch (TransactionCanceledException e) {
+            if (e.getCancellationReasons() != null && e.getCancellationReasons().stream()
+                    .map(CancellationReason::getCode).anyMatch("ThrottlingError"::equals)) {
+                bucketsOfTables.values().forEach(TokenBucket::onThrottled);
+            }
+            throw e;
+        } finally {
+            currentRequest.remove();
+        }
+    }
+
+    /**
+     * Decrease rate of buckets of request in flight on this thread
+     * This is called by request handler on each throttled attempt, so rate is decreased before retrying by SDK.
+     */
+    static void onThrottledAttempt() {
+        CurrentRequest current = currentRequest.get();
+        if (current == null) return;
+        current.buckets.forEach(TokenBucket::onThrottled);
+        current.isReported = true;
+    }
+
+    /**
+     * Get capacity units from consumed capacity
+     * @param consumedCapacity consumed capacity in result of request
+     * @return capacity units, or 1 unit when DynamoDB did not return consumed capacity
+     */
+    public static double unitsOf(ConsumedCapacity consumedCapacity) {
+        return consumedCapacity != null && consumedCapacity.getCapacityUnits() != null ?
+                consumedCapacity.getCapacityUnits() : 1.0;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean isEnabled) {
+        enabled = isEnabled;
+    }
+
+    private static TokenBucket getBucket(String tableName, String indexName, String type, long declaredCapacity,
+                                         List<TokenBucket> indexBuckets) {
+        String name = tableName + "/" + (indexName != null ? indexName : "") + ":" + type;
+        return buckets.computeIfAbsent(name, key -> new TokenBucket(key, declaredCapacity, indexBuckets));
+    }
+
+    /**
+     * Buckets of single request in flight
+     */
+    private static class CurrentRequest {
+        final Collection<TokenBucket> buckets;
+        // Whether throttled attempt has been reported by request handler
+        boolean isReported;
+
+        CurrentRequest(Collection<TokenBucket> buckets) {
+            this.buckets = buckets;
+        }
+    }
+}
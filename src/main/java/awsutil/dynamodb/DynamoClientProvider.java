@@ -0,0 +1,315 @@
+package awsutil.dynamodb;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Protocol;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.document.DynamoDB;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared DynamoDB client for RecordCrudFacade and TableCrudFacade
+ * Settings of connection pool are given by code ( DynamoClientProvider#configure ) or environment variables.
+ *  LAAAS_DDB_MAX_CONNECTIONS: Max connections in pool ( Size it to concurrency of fan-out queries )
+ *  LAAAS_DDB_TCP_KEEP_ALIVE: "true" to use TCP keep-alive
+ *  LAAAS_DDB_CONNECTION_TIMEOUT_MS, LAAAS_DDB_SOCKET_TIMEOUT_MS, LAAAS_DDB_REQUEST_TIMEOUT_MS: Timeouts
+ *  LAAAS_DDB_CONNECTION_TTL_MS: Time to live of pooled connection
+ *  LAAAS_DDB_MAX_ERROR_RETRY: Max retries by SDK
+ *  LAAAS_DDB_PROTOCOL: HTTP or HTTPS
+ *  LAAAS_DDB_REGION: Region of DynamoDB
+ *  LAAAS_DDB_ENDPOINT: Endpoint override ( e.g. DynamoDB local )
+ *  LAAAS_DDB_RETIRE_GRACE_MS: Wait before shutting down replaced client ( Default 10000 )
+ * Client replaced by configure or setClient is not shut down at once, because other threads may still use it.
+ * It is retired after grace period and its requests in flight are finished.
+ */
+public class DynamoClientProvider {
+
+    /**
+     * Settings of DynamoDB client
+     * Null value means default of SDK
+     */
+    public static class Settings {
+        public Integer maxConnections;
+        public Boolean tcpKeepAlive;
+        public Integer connectionTimeoutMillis;
+        public Integer socketTimeoutMillis;
+        public Integer requestTimeoutMillis;
+        public Long connectionTtlMillis;
+        public Integer maxErrorRetry;
+        public Protocol protocol;
+        public String region;
+        public String endpoint;
+
+        public Settings withMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Settings withTcpKeepAlive(boolean tcpKeepAlive) {
+            this.tcpKeepAlive = tcpKeepAlive;
+            return this;
+        }
+
+        public Settings withConnectionTimeoutMillis(int connectionTimeoutMillis) {
+            this.connectionTimeoutMillis = connectionTimeoutMillis;
+            return this;
+        }
+
+        public Settings withSocketTimeoutMillis(int socketTimeoutMillis) {
+            this.socketTimeoutMillis = socketTimeoutMillis;
+            return this;
+        }
+
+        public Settings withRequestTimeoutMillis(int requestTimeoutMillis) {
+            this.requestTimeoutMillis = requestTimeoutMillis;
+            return this;
+        }
+
+        public Settings withConnectionTtlMillis(long connectionTtlMillis) {
+            this.connectionTtlMillis = connectionTtlMillis;
+            return this;
+        }
+
+        public Settings withMaxErrorRetry(int maxErrorRetry) {
+            this.maxErrorRetry = maxErrorRetry;
+            return this;
+        }
+
+        public Settings withProtocol(Protocol protocol) {
+            this.protocol = protocol;
+            return this;
+        }
+
+        public Settings withRegion(String region) {
+            this.region = region;
+            return this;
+        }
+
+        public Settings withEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+            return this;
+        }
+
+        /**
+         * Settings by environment variables
+         * @return settings
+         */
+        public static Settings fromEnv() {
+            Settings settings = new Settings();
+            settings.maxConnections = intOfEnv("LAAAS_DDB_MAX_CONNECTIONS");
+            settings.tcpKeepAlive = System.getenv("LAAAS_DDB_TCP_KEEP_ALIVE") != null ?
+                    Boolean.valueOf(System.getenv("LAAAS_DDB_TCP_KEEP_ALIVE")) : null;
+            settings.connectionTimeoutMillis = intOfEnv("LAAAS_DDB_CONNECTION_TIMEOUT_MS");
+            settings.socketTimeoutMillis = intOfEnv("LAAAS_DDB_SOCKET_TIMEOUT_MS");
+            settings.requestTimeoutMillis = intOfEnv("LAAAS_DDB_REQUEST_TIMEOUT_MS");
+            settings.connectionTtlMillis = intOfEnv("LAAAS_DDB_CONNECTION_TTL_MS") != null ?
+                    Long.valueOf(intOfEnv("LAAAS_DDB_CONNECTION_TTL_MS")) : null;
+            settings.maxErrorRetry = intOfEnv("LAAAS_DDB_MAX_ERROR_RETRY");
+            settings.protocol = System.getenv("LAAAS_DDB_PROTOCOL") != null ?
+                    Protocol.valueOf(System.getenv("LAAAS_DDB_PROTOCOL").toUpperCase()) : null;
+            settings.region = System.getenv("LAAAS_DDB_REGION");
+            settings.endpoint = System.getenv("LAAAS_DDB_ENDPOINT");
+            return settings;
+        }
+
+        private static Integer intOfEnv(String envName) {
+            String value = System.getenv(envName);
+            return value != null && !value.isEmpty() ? Integer.valueOf(value) : null;
+        }
+
+        ClientConfiguration toClientConfiguration() {
+            ClientConfiguration configuration = new ClientConfiguration();
+            if (maxConnections != null) configuration.setMaxConnections(maxConnections);
+            if (tcpKeepAlive != null) configuration.setUseTcpKeepAlive(tcpKeepAlive);
+            if (connectionTimeoutMillis != null) configuration.setConnectionTimeout(connectionTimeoutMillis);
+            if (socketTimeoutMillis != null) configuration.setSocketTimeout(socketTimeoutMillis);
+            if (requestTimeoutMillis != null) configuration.setRequestTimeout(requestTimeoutMillis);
+            if (connectionTtlMillis != null) configuration.setConnectionTTL(connectionTtlMillis);
+            if (maxErrorRetry != null) configuration.setMaxErrorRetry(maxErrorRetry);
+            if (protocol != null) configuration.setProtocol(protocol);
+            return configuration;
+        }
+    }
+
+    /**
+     * Client by settings of environment variables
+     * This is created at first access to holder, so building client does not run until DynamoDB is used actually
+     */
+    private static class DefaultClientHolder {
+        static final AmazonDynamoDB client = buildClient(Settings.fromEnv());
+        static final DynamoDB dynamoDB = new DynamoDB(client);
+    }
+
+    /**
+     * Counter of requests in flight on client created by settings
+     * Replaced client is shut down after this becomes zero
+     */
+    static class InFlightRequests extends RequestHandler2 {
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void beforeRequest(Request<?> request) {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void afterResponse(Request<?> request, Response<?> response) {
+            count.decrementAndGet();
+        }
+
+        @Override
+        public void afterError(Request<?> request, Response<?> response, Exception e) {
+            count.decrementAndGet();
+        }
+    }
+
+    // Settings given by code ( Null means settings of environment variables )
+    private static volatile Settings settings;
+    // Client created by given settings or injected
+    private static volatile AmazonDynamoDB client;
+    private static volatile DynamoDB dynamoDB;
+    // Requests in flight on client created by settings ( Null for injected client, that is not shut down by this )
+    private static InFlightRequests inFlight;
+    // Grace period for threads that got replaced client but not sent request yet
+    static volatile long retireGraceMillis = System.getenv("LAAAS_DDB_RETIRE_GRACE_MS") != null ?
+            Long.parseLong(System.getenv("LAAAS_DDB_RETIRE_GRACE_MS")) : 10_000L;
+    private static final ScheduledExecutorService retireExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "laaas-ddb-client-retire");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Change settings of client
+     * Client is re-created by given settings at next DynamoClientProvider#getClient,
+     * and previous client created by settings is retired ( Shut down after its requests in flight are finished ).
+     * @param newSettings settings of client
+     */
+    public static synchronized void configure(Settings newSettings) {
+        DynamoDB previous = dynamoDB;
+        InFlightRequests previousInFlight = inFlight;
+        settings = newSettings;
+        client = null;
+        dynamoDB = null;
+        inFlight = null;
+        retire(previous, previousInFlight);
+    }
+
+    /**
+     * Use given client instead of creating by settings ( e.g. Stand-in of DynamoDB for testing )
+     * Previous client created by settings is retired, but given client is not shut down by this.
+     * @param newClient DynamoDB client
+     */
+    public static synchronized void setClient(AmazonDynamoDB newClient) {
+        DynamoDB previous = dynamoDB;
+        InFlightRequests previousInFlight = inFlight;
+        dynamoDB = new DynamoDB(newClient);
+        client = newClient;
+        inFlight = null;
+        retire(previous, previousInFlight);
+    }
+
+    /**
+     * Release connection pool of client that is replaced
+     * Other threads may still use replaced client, so it is shut down after grace period,
+     * and checked again while its requests are in flight.
+     * @param previous DynamoDB of replaced client
+     * @param previousInFlight requests in flight on replaced client ( Null when client is injected )
+     */
+    static void retire(DynamoDB previous, InFlightRequests previousInFlight) {
+        if (previous == null || previousInFlight == null) {
+            return;
+        }
+        System.out.println("[LAAAS/DDB(Client)] RETIRE PREVIOUS CLIENT: Shut down after " + retireGraceMillis + "ms");
+        retireExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (previousInFlight.count.get() > 0) {
+                    retireExecutor.schedule(this, retireGraceMillis, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                System.out.println("[LAAAS/DDB(Client)] SHUTDOWN PREVIOUS CLIENT");
+                previous.shutdown();
+            }
+        }, retireGraceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return settings of shared client ( Settings of environment variables when not given by code )
+     */
+    public static Settings getSettings() {
+        Settings current = settings;
+        return current != null ? current : Settings.fromEnv();
+    }
+
+    /**
+     * @return shared DynamoDB client
+     */
+    public static AmazonDynamoDB getClient() {
+        AmazonDynamoDB current = client;
+        if (current != null) {
+            return current;
+        }
+        if (settings == null) {
+            return DefaultClientHolder.client;
+        }
+        synchronized (DynamoClientProvider.class) {
+            if (client == null && settings != null) {
+                InFlightRequests requests = new InFlightRequests();
+                AmazonDynamoDB built = buildClient(settings, requests);
+                dynamoDB = new DynamoDB(built);
+                inFlight = requests;
+                client = built;
+            }
+            return client != null ? client : DefaultClientHolder.client;
+        }
+    }
+
+    /**
+     * @return DynamoDB of document API on shared client
+     */
+    public static DynamoDB getDynamoDB() {
+        AmazonDynamoDB current = getClient();
+        DynamoDB document = dynamoDB;
+        // Client given by code, or client by environment variables
+        return current == client && document != null ? document : DefaultClientHolder.dynamoDB;
+    }
+
+    /**
+     * Create DynamoDB client by settings
+     * @param settings settings of client
+     * @return DynamoDB client
+     */
+    public static AmazonDynamoDB buildClient(Settings settings) {
+        return buildClient(settings, null);
+    }
+
+    /**
+     * @param requests counter of requests in flight ( Null when client is not retired by this )
+     */
+    private static AmazonDynamoDB buildClient(Settings settings, InFlightRequests requests) {
+        AmazonDynamoDBClientBuilder builder = AmazonDynamoDBClientBuilder.standard()
+                .withClientConfiguration(settings.toClientConfiguration());
+        if (requests != null) {
+            builder.withRequestHandlers(new DynamoMetrics.AttemptCounter(), requests);
+        } else {
+            builder.withRequestHandlers(new DynamoMetrics.AttemptCounter());
+        }
+        if (settings.endpoint != null && !settings.endpoint.isEmpty()) {
+            // Signing region is required with endpoint
+            builder.withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(
+                    settings.endpoint, settings.region != null ? settings.region : "us-east-1"));
+        } else if (settings.region != null && !settings.region.isEmpty()) {
+            builder.withRegion(settings.region);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,350 @@
+package awsutil.dynamodb;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import enums.LogLevel;
+import utils.ILogger;
+import utils.LogHeader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * In-process metrics of DynamoDB operations for each operation, table and index
+ * Counters are lock-free, and latency is recorded into log-linear histogram ( Like as HDR histogram ).
+ * Get current values by DynamoMetrics#snapshot, or output them periodically by DynamoMetrics#startPeriodicDump.
+ */
+public class DynamoMetrics {
+
+    // Map<Operation/Table name/Index name, Metrics>
+    private static final ConcurrentHashMap<String, OperationMetrics> metrics = new ConcurrentHashMap<>();
+    // Metrics of operation that is recorded on this thread ( SDK executes attempts of request on calling thread )
+    private static final ThreadLocal<OperationMetrics> metricsOfCurrentThread = new ThreadLocal<>();
+    // Count of throttled attempts that are counted by AttemptCounter on this thread
+    private static final ThreadLocal<long[]> throttledAttemptsOfCurrentThread = ThreadLocal.withInitial(() -> new long[1]);
+    // Count of attempts of each request ( Same request is used for retries by SDK, and each page is other request )
+    private static final HandlerContextKey<int[]> attemptsOfRequest = new HandlerContextKey<>("LaaasDdbAttempts");
+
+    private static ScheduledExecutorService dumpExecutor;
+
+    /**
+     * Request handler to count retries by SDK of each request, and to report throttled attempts
+     * Register this into DynamoDB client
+     */
+    public static class AttemptCounter extends RequestHandler2 {
+        @Override
+        public void beforeAttempt(HandlerBeforeAttemptContext context) {
+            int[] attempts = context.getRequest().getHandlerContext(attemptsOfRequest);
+            if (attempts == null) {
+                attempts = new int[1];
+                context.getRequest().addHandlerContext(attemptsOfRequest, attempts);
+            }
+            attempts[0]++;
+        }
+
+        @Override
+        public void afterAttempt(HandlerAfterAttemptContext context) {
+            // Report each throttled attempt to rate limiter before SDK retries it ( Also attempt that is retried successfully )
+            if (context.getException() instanceof AmazonServiceException
+                    && RetryUtils.isThrottlingException((AmazonServiceException) context.getException())) {
+                CapacityRateLimiter.onThrottledAttempt();
+                OperationMetrics current = metricsOfCurrentThread.get();
+                if (current != null) {
+                    current.throttleCount.increment();
+                    throttledAttemptsOfCurrentThread.get()[0]++;
+                }
+            }
+        }
+
+        @Override
+        public void afterResponse(Request<?> request, Response<?> response) {
+            countRetries(request);
+        }
+
+        @Override
+        public void afterError(Request<?> request, Response<?> response, Exception e) {
+            countRetries(request);
+        }
+
+        private static void countRetries(Request<?> request) {
+            OperationMetrics current = metricsOfCurrentThread.get();
+            int[] attempts = request.getHandlerContext(attemptsOfRequest);
+            if (current != null && attempts != null && attempts[0] > 1) {
+                current.addRetries(attempts[0] - 1);
+            }
+        }
+    }
+
+    /**
+     * Metrics of single operation for table or index
+     */
+    public static class OperationMetrics {
+        public final String operation;
+        public final String tableName;
+        public final String indexName;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errorCount = new LongAdder();
+        private final LongAdder throttleCount = new LongAdder();
+        private final LongAdder retryCount = new LongAdder();
+        private final LongAdder itemCount = new LongAdder();
+        private final LongAdder pageCount = new LongAdder();
+        private final DoubleAdder consumedReadUnits = new DoubleAdder();
+        private final DoubleAdder consumedWriteUnits = new DoubleAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        OperationMetrics(String operation, String tableName, String indexName) {
+            this.operation = operation;
+            this.tableName = tableName;
+            this.indexName = indexName;
+        }
+
+        public void addItems(long items) {
+            this.itemCount.add(items);
+        }
+
+        public void addPages(long pages) {
+            this.pageCount.add(pages);
+        }
+
+        public void addReadUnits(double units) {
+            this.consumedReadUnits.add(units);
+        }
+
+        public void addWriteUnits(double units) {
+            this.consumedWriteUnits.add(units);
+        }
+
+        public void addRetries(long retries) {
+            this.retryCount.add(retries);
+        }
+
+        Snapshot toSnapshot() {
+            return new Snapshot(this);
+        }
+    }
+
+    /**
+     * Histogram of latency in microseconds
+     * Each range of power of 2 is separated to 8 buckets, so error of recorded value is less than 12.5%
+     */
+    static class LatencyHistogram {
+        private static final int subBucketBits = 3;
+        private static final int subBucketCount = 1 << subBucketBits;
+        // Up to 2^40 microseconds
+        private static final int bucketCount = (40 - subBucketBits + 1) * subBucketCount;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(bucketCount);
+        private final LongAdder totalMicros = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        void record(long micros) {
+            long value = Math.max(0, micros);
+            this.buckets.incrementAndGet(Math.min(indexOf(value), bucketCount - 1));
+            this.totalMicros.add(value);
+            this.count.increment();
+        }
+
+        static int indexOf(long value) {
+            if (value < subBucketCount) return (int) value;
+            int magnitude = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) ((value >> (magnitude - subBucketBits)) & (subBucketCount - 1));
+            return (magnitude - subBucketBits + 1) * subBucketCount + subBucket;
+        }
+
+        static long upperBoundOf(int index) {
+            if (index < subBucketCount) return index;
+            int magnitude = index / subBucketCount + subBucketBits - 1;
+            int subBucket = index % subBucketCount;
+            return ((long) (subBucketCount + subBucket + 1) << (magnitude - subBucketBits)) - 1;
+        }
+
+        long[] copyBuckets() {
+            long[] copied = new long[bucketCount];
+            for (int index = 0; index < bucketCount; index++) {
+                copied[index] = this.buckets.get(index);
+            }
+            return copied;
+        }
+
+        static long percentileOf(long[] buckets, long total, double percentile) {
+            if (total == 0) return 0;
+            long threshold = (long) Math.ceil(total * percentile / 100.0);
+            long accumulated = 0;
+            for (int index = 0; index < buckets.length; index++) {
+                accumulated += buckets[index];
+                if (accumulated >= threshold) return upperBoundOf(index);
+            }
+            return upperBoundOf(buckets.length - 1);
+        }
+    }
+
+    /**
+     * Values of metrics at the time
+     */
+    public static class Snapshot {
+        public final String operation;
+        public final String tableName;
+        public final String indexName;
+        public final long count;
+        public final long errorCount;
+        public final long throttleCount;
+        public final long retryCount;
+        public final long itemCount;
+        public final long pageCount;
+        public final double consumedReadUnits;
+        public final double consumedWriteUnits;
+        public final long meanLatencyMicros;
+        public final long p50LatencyMicros;
+        public final long p90LatencyMicros;
+        public final long p99LatencyMicros;
+        public final long maxLatencyMicros;
+
+        Snapshot(OperationMetrics metrics) {
+            this.operation = metrics.operation;
+            this.tableName = metrics.tableName;
+            this.indexName = metrics.indexName;
+            this.count = metrics.count.sum();
+            this.errorCount = metrics.errorCount.sum();
+            this.throttleCount = metrics.throttleCount.sum();
+            this.retryCount = metrics.retryCount.sum();
+            this.itemCount = metrics.itemCount.sum();
+            this.pageCount = metrics.pageCount.sum();
+            this.consumedReadUnits = metrics.consumedReadUnits.sum();
+            this.consumedWriteUnits = metrics.consumedWriteUnits.sum();
+
+            long[] buckets = metrics.latency.copyBuckets();
+            long recorded = 0;
+            int maxIndex = 0;
+            for (int index = 0; index < buckets.length; index++) {
+                recorded += buckets[index];
+                if (buckets[index] > 0) maxIndex = index;
+            }
+            this.meanLatencyMicros = recorded > 0 ? metrics.latency.totalMicros.sum() / recorded : 0;
+            this.p50LatencyMicros = LatencyHistogram.percentileOf(buckets, recorded, 50);
+            this.p90LatencyMicros = LatencyHistogram.percentileOf(buckets, recorded, 90);
+            this.p99LatencyMicros = LatencyHistogram.percentileOf(buckets, recorded, 99);
+            this.maxLatencyMicros = recorded > 0 ? LatencyHistogram.upperBoundOf(maxIndex) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return operation + " " + tableName + (indexName != null ? "/" + indexName : "")
+                    + " count: " + count + ", error: " + errorCount + ", throttle: " + throttleCount
+                    + ", retry: " + retryCount + ", items: " + itemCount + ", pages: " + pageCount
+                    + ", RCU: " + consumedReadUnits + ", WCU: " + consumedWriteUnits
+                    + ", latency(us) mean: " + meanLatencyMicros + " p50: " + p50LatencyMicros
+                    + " p90: " + p90LatencyMicros + " p99: " + p99LatencyMicros + " max: " + maxLatencyMicros;
+        }
+    }
+
+    /**
+     * Get metrics of operation
+     * @param operation name of operation ( e.g. GetItem, Query )
+     * @param tableName name of table
+     * @param indexName name of index, or null for table
+     * @return metrics
+     */
+    public static OperationMetrics get(String operation, String tableName, String indexName) {
+        return metrics.computeIfAbsent(operation + "/" + tableName + "/" + (indexName != null ? indexName : ""),
+                key -> new OperationMetrics(operation, tableName, indexName));
+    }
+
+    /**
+     * Execute request with recording latency, errors and retries
+     * Retries and throttled attempts are counted for each request in given request ( e.g. Each page ) by AttemptCounter.
+     * @param operation name of operation ( e.g. GetItem, Query )
+     * @param tableName name of table
+     * @param indexName name of index, or null for table
+     * @param request request to DynamoDB
+     * @param onSuccess function to record items and consumed capacity from result
+     * @param <T> type of result
+     * @return result of request
+     */
+    public static <T> T record(String operation, String tableName, String indexName,
+                               Supplier<T> request, BiConsumer<OperationMetrics, T> onSuccess) {
+        OperationMetrics operationMetrics = get(operation, tableName, indexName);
+        OperationMetrics previous = metricsOfCurrentThread.get();
+        metricsOfCurrentThread.set(operationMetrics);
+        long[] throttledAttempts = throttledAttemptsOfCurrentThread.get();
+        long throttledAttemptsBefore = throttledAttempts[0];
+        long start = System.nanoTime();
+        try {
+            T result = request.get();
+            if (onSuccess != null) onSuccess.accept(operationMetrics, result);
+            return result;
+        } catch (ProvisionedThroughputExceededException e) {
+            // Throttled attempt is already counted when client has AttemptCounter
+            if (throttledAttempts[0] == throttledAttemptsBefore) operationMetrics.throttleCount.increment();
+            operationMetrics.errorCount.increment();
+            throw e;
+        } catch (RuntimeException e) {
+            operationMetrics.errorCount.increment();
+            throw e;
+        } finally {
+            operationMetrics.latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            operationMetrics.count.increment();
+            metricsOfCurrentThread.set(previous);
+        }
+    }
+
+    /**
+     * Get current values of all metrics
+     * @return snapshots of each operation, table and index
+     */
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        metrics.values().forEach(operationMetrics -> snapshots.add(operationMetrics.toSnapshot()));
+        return snapshots;
+    }
+
+    /**
+     * Clear all metrics
+     */
+    public static void reset() {
+        metrics.clear();
+    }
+
+    /**
+     * Output snapshot by logger periodically
+     * @param logger logging engine
+     * @param intervalSeconds interval of outputting
+     */
+    public static synchronized void startPeriodicDump(ILogger logger, long intervalSeconds) {
+        stopPeriodicDump();
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "laaas-ddb-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumpExecutor.scheduleAtFixedRate(() -> snapshot().forEach(snapshot -> logger.logging(
+                LogHeader.logHeader(DynamoMetrics.class, LogLevel.INFO) + " " + snapshot, LogLevel.INFO)),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop outputting snapshot
+     */
+    public static synchronized void stopPeriodicDump() {
+        if (dumpExecutor != null) {
+            dumpExecutor.shutdownNow();
+            dumpExecutor = null;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.RelationGraph;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+
+import java.util.*;
+
+/**
+ * Plan of loading relation tables by RecordCrudFacade#queryRecords
+ * By default, all relations are followed to full depth with all attributes ( Same as FetchPlan#all ).
+ *  include / exclude: Follow only specific relations ( Exclusion takes priority over inclusion )
+ *  maxDepth: Max depth of relation from queried table ( Queried table is 0 )
+ *  project: Attributes to get from table ( Table keys and fields of relation are always added )
+ *  limit: Max count of records by query of GSI for each table
+ *         ( In total of all GSI of table, and for each query of table. e.g. Each parent of child table )
+ */
+public class FetchPlan {
+
+    // Classes of child tables to follow
+    private final Set<Class<?>> includedTables = new HashSet<>();
+    private final Set<Class<?>> excludedTables = new HashSet<>();
+    // Relation fields to follow ( Class of parent#Field name )
+    private final Set<String> includedRelations = new HashSet<>();
+    private final Set<String> excludedRelations = new HashSet<>();
+    // Map<Class of table, Attribute names>
+    private final Map<Class<?>, Set<String>> projections = new HashMap<>();
+    // Map<Class of table, Max count of records>
+    private final Map<Class<?>, Integer> limits = new HashMap<>();
+    private Integer maxDepth;
+
+    /**
+     * @return plan to follow all relations ( Default of queryRecords )
+     */
+    public static FetchPlan all() {
+        return new FetchPlan();
+    }
+
+    /**
+     * @return plan to get only queried table
+     */
+    public static FetchPlan rootOnly() {
+        return new FetchPlan().maxDepth(0);
+    }
+
+    /**
+     * Follow relations to given table
+     * @param table class of child table
+     * @return this
+     */
+    public FetchPlan include(Class<? extends IGenericDynamoDbTable> table) {
+        this.includedTables.add(table);
+        return this;
+    }
+
+    /**
+     * Follow relation by given field
+     * @param parent class of parent table
+     * @param fieldName name of field annotated by ExternalRelation in parent
+     * @return this
+     */
+    public FetchPlan include(Class<? extends IGenericDynamoDbTable> parent, String fieldName) {
+        this.includedRelations.add(relationIdOf(parent, fieldName));
+        return this;
+    }
+
+    /**
+     * Do not follow relations to given table
+     * @param table class of child table
+     * @return this
+     */
+    public FetchPlan exclude(Class<? extends IGenericDynamoDbTable> table) {
+        this.excludedTables.add(table);
+        return this;
+    }
+
+    /**
+     * Do not follow relation by given field
+     * @param parent class of parent table
+     * @param fieldName name of field annotated by ExternalRelation in parent
+     * @return this
+     */
+    public FetchPlan exclude(Class<? extends IGenericDynamoDbTable> parent, String fieldName) {
+        this.excludedRelations.add(relationIdOf(parent, fieldName));
+        return this;
+    }
+
+    /**
+     * @param maxDepth max depth of relation from queried table ( 0 means only queried table )
+     * @return this
+     */
+    public FetchPlan maxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Get only given attributes of table
+     * @param table class of table
+     * @param attributeNames names of attributes ( As same as field names )
+     * @return this
+     */
+    public FetchPlan project(Class<? extends IGenericDynamoDbTable> table, String... attributeNames) {
+        this.projections.computeIfAbsent(table, key -> new LinkedHashSet<>()).addAll(Arrays.asList(attributeNames));
+        return this;
+    }
+
+    /**
+     * Get records of table by GSI up to given count
+     * Count is limited in total of all GSI that are queried by same condition.
+     * @param table class of table
+     * @param maxRecords max count of records
+     * @return this
+     */
+    public FetchPlan limit(Class<? extends IGenericDynamoDbTable> table, int maxRecords) {
+        this.limits.put(table, maxRecords);
+        return this;
+    }
+
+    /**
+     * @param depth depth of parent ( Queried table is 0 )
+     * @return whether relations from parent in given depth are followed
+     */
+    boolean isInDepth(int depth) {
+        return this.maxDepth == null || depth < this.maxDepth;
+    }
+
+    /**
+     * @param depth depth of table ( Queried table is 0 )
+     * @return count of relation levels that are followed from table in given depth, or -1 for no limit
+     */
+    int remainingDepthOf(int depth) {
+        return this.maxDepth == null ? -1 : Math.max(0, this.maxDepth - depth);
+    }
+
+    /**
+     * @param edge relation from parent to child
+     * @return whether relation is followed
+     */
+    boolean follows(RelationGraph.Edge edge) {
+        String relationId = relationIdOf(edge.from, edge.sourceField.getName());
+        if (this.excludedTables.contains(edge.to) || this.excludedRelations.contains(relationId)) {
+            return false;
+        }
+        if (this.includedTables.isEmpty() && this.includedRelations.isEmpty()) {
+            return true;
+        }
+        return this.includedTables.contains(edge.to) || this.includedRelations.contains(relationId);
+    }
+
+    /**
+     * Attributes to get from table
+     * @param table class of table
+     * @param def definition of table
+     * @return attribute names, or null to get all attributes
+     */
+    Set<String> projectionOf(Class<?> table, TableDefinition def) {
+        Set<String> projection = this.projections.get(table);
+        if (projection == null) {
+            return null;
+        }
+        Set<String> attributeNames = new TreeSet<>(projection);
+        // Keys to identify record and values to follow relations
+        attributeNames.add(def.partitionKey.getKey());
+        if (def.sortKey != null) {
+            attributeNames.add(def.sortKey.getKey());
+        }
+        @SuppressWarnings("unchecked")
+        Class<? extends IGenericDynamoDbTable> tableModel = (Class<? extends IGenericDynamoDbTable>) table;
+        RelationGraph.edgesOf(tableModel).forEach(edge -> attributeNames.add(edge.sourceField.getName()));
+        return attributeNames;
+    }
+
+    /**
+     * @param table class of table
+     * @return max count of records by query of GSI, or null for all records
+     */
+    Integer limitOf(Class<?> table) {
+        return this.limits.get(table);
+    }
+
+    private static String relationIdOf(Class<?> parent, String fieldName) {
+        return parent.getName() + "#" + fieldName;
+    }
+}
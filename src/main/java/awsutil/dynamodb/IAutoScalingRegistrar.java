@@ -0,0 +1,18 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.AutoScaling;
+import com.amazonaws.services.applicationautoscaling.model.ScalableDimension;
+
+/**
+ * Register autoscaling of capacity for table or GSI
+ * Set implementation by TableCrudFacade#setAutoScalingRegistrar ( e.g. LocalAutoScalingRegistrar for testing )
+ */
+public interface IAutoScalingRegistrar {
+    /**
+     * Register scalable target and target tracking policy
+     * @param resourceId resource of table ( table/{Table name} ) or GSI ( table/{Table name}/index/{Index name} )
+     * @param dimension read or write capacity of table or GSI
+     * @param setting setting of autoscaling
+     */
+    public void register(String resourceId, ScalableDimension dimension, AutoScaling setting);
+}
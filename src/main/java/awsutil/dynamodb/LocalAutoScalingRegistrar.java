@@ -0,0 +1,47 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.AutoScaling;
+import com.amazonaws.services.applicationautoscaling.model.ScalableDimension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stand-in of Application Auto Scaling that only records registrations
+ * Used by default when env LAAAS_DDB_ENDPOINT is set ( e.g. DynamoDB local ), or set by TableCrudFacade#setAutoScalingRegistrar.
+ */
+public class LocalAutoScalingRegistrar implements IAutoScalingRegistrar {
+
+    /**
+     * Registered autoscaling
+     */
+    public static class Registration {
+        public final String resourceId;
+        public final ScalableDimension dimension;
+        public final AutoScaling setting;
+
+        Registration(String resourceId, ScalableDimension dimension, AutoScaling setting) {
+            this.resourceId = resourceId;
+            this.dimension = dimension;
+            this.setting = setting;
+        }
+    }
+
+    private final List<Registration> registrations = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void register(String resourceId, ScalableDimension dimension, AutoScaling setting) {
+        registrations.add(new Registration(resourceId, dimension, setting));
+        System.out.println("[LAAAS/DDB(AutoScaling)] REGISTERED ON LOCAL: " + resourceId + " " + dimension);
+    }
+
+    /**
+     * @return registrations in order of registered
+     */
+    public List<Registration> getRegistrations() {
+        synchronized (registrations) {
+            return new ArrayList<>(registrations);
+        }
+    }
+}
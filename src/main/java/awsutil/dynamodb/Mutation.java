@@ -0,0 +1,199 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import awsutil.dynamodb.tabledefinition.BinaryFieldCodec;
+import awsutil.dynamodb.tabledefinition.KeySharding;
+import awsutil.dynamodb.tabledefinition.NativeSetCodec;
+import awsutil.dynamodb.tabledefinition.OffloadedAttribute;
+import awsutil.dynamodb.tabledefinition.PartitionKey;
+import awsutil.dynamodb.tabledefinition.SortKey;
+import awsutil.dynamodb.tabledefinition.Version;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Single action of update expression for RecordCrudFacade.mutate
+ * Each mutation is applied in DynamoDB without reading current record,
+ * so concurrent mutations of counter or set are not lost and need not version.
+ */
+public class Mutation {
+
+    /**
+     * Type of mutation and clause of update expression
+     */
+    enum EMutationType {
+        // ADD #f :v ( Number )
+        INCREMENT("ADD"),
+        // ADD #f :v ( SS or NS )
+        ADD_TO_SET("ADD"),
+        // DELETE #f :v ( SS or NS )
+        REMOVE_FROM_SET("DELETE"),
+        // SET #f = list_append(if_not_exists(#f, :empty), :v)
+        APPEND_TO_LIST("SET"),
+        // SET #f = if_not_exists(#f, :v)
+        SET_IF_NOT_EXISTS("SET"),
+        // SET #f = :v
+        SET("SET");
+
+        final String action;
+
+        EMutationType(String action) {
+            this.action = action;
+        }
+    }
+
+    final EMutationType type;
+    final String fieldName;
+    final AttributeValue value;
+
+    private Mutation(EMutationType type, String fieldName, AttributeValue value) {
+        this.type = type;
+        this.fieldName = fieldName;
+        this.value = value;
+    }
+
+    /**
+     * Add delta to Integer field ( Field is created by delta when not exists )
+     * @param fieldName name of Integer field
+     * @param delta value to adding ( Negative value to decrementing )
+     * @return mutation
+     */
+    public static Mutation increment(String fieldName, int delta) {
+        return new Mutation(EMutationType.INCREMENT, fieldName, new AttributeValue().withN(String.valueOf(delta)));
+    }
+
+    /**
+     * Add elements into HashSet field ( SS or NS )
+     * @param fieldName name of HashSet field
+     * @param elements elements to adding ( All String or all Integer )
+     * @return mutation
+     * @throws IllegalArgumentException Throws when elements are empty, or not all String nor all Integer
+     */
+    public static Mutation addToSet(String fieldName, Object... elements) {
+        return new Mutation(EMutationType.ADD_TO_SET, fieldName, NativeSetCodec.toAttributeValue(Arrays.asList(elements)));
+    }
+
+    /**
+     * Remove elements from HashSet field ( Attribute is removed when set becomes empty )
+     * @param fieldName name of HashSet field
+     * @param elements elements to removing ( All String or all Integer )
+     * @return mutation
+     * @throws IllegalArgumentException Throws when elements are empty, or not all String nor all Integer
+     */
+    public static Mutation removeFromSet(String fieldName, Object... elements) {
+        return new Mutation(EMutationType.REMOVE_FROM_SET, fieldName, NativeSetCodec.toAttributeValue(Arrays.asList(elements)));
+    }
+
+    /**
+     * Append elements to the end of ArrayList field ( Field is created when not exists )
+     * @param fieldName name of ArrayList field
+     * @param elements elements to appending ( String, Integer or Boolean )
+     * @return mutation
+     */
+    public static Mutation appendToList(String fieldName, Object... elements) {
+        if (elements.length == 0) {
+            throw new IllegalArgumentException("[LAAAS/DDB(Mutation)] Elements to appending are empty: " + fieldName);
+        }
+        return new Mutation(EMutationType.APPEND_TO_LIST, fieldName, new AttributeValue().withL(
+                Arrays.stream(elements).map(Mutation::toAttributeValue).collect(Collectors.toList())));
+    }
+
+    /**
+     * Set value only when field is not exists ( e.g. Created time )
+     * @param fieldName name of String, Integer or Boolean field
+     * @param value value to setting
+     * @return mutation
+     */
+    public static Mutation setIfNotExists(String fieldName, Object value) {
+        return new Mutation(EMutationType.SET_IF_NOT_EXISTS, fieldName, toAttributeValue(value));
+    }
+
+    /**
+     * Set value regardless of current value
+     * @param fieldName name of String, Integer or Boolean field
+     * @param value value to setting
+     * @return mutation
+     */
+    public static Mutation set(String fieldName, Object value) {
+        return new Mutation(EMutationType.SET, fieldName, toAttributeValue(value));
+    }
+
+    /**
+     * Check that field of model can be mutated by this
+     * @param model class of table model
+     * @throws InvalidParametersInDynamoDbException Throws when field is not exists, key or wrong type
+     */
+    void validate(Class<?> model) throws InvalidParametersInDynamoDbException {
+        Field field;
+        try {
+            field = model.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException e) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Mutation)] Field is not found: " + fieldName);
+        }
+        if (field.isAnnotationPresent(PartitionKey.class) || field.isAnnotationPresent(SortKey.class)
+                || field.isAnnotationPresent(Version.class)) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Mutation)] Key or version can not be mutated: " + fieldName);
+        }
+        if (BinaryFieldCodec.isBinaryField(field) || OffloadedAttribute.isOffloadField(field) || KeySharding.isShardedField(field)) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Mutation)] Encoded field can not be mutated: " + fieldName);
+        }
+        boolean isValid;
+        switch (type) {
+            case INCREMENT:
+                isValid = field.getType() == Integer.class;
+                break;
+            case ADD_TO_SET:
+            case REMOVE_FROM_SET:
+                Class<?> element = NativeSetCodec.elementTypeOf(field);
+                // NS of HashSet<Integer> should have only values that are read as Integer
+                isValid = element == String.class ? value.getSS() != null
+                        : element == Integer.class && value.getNS() != null && NativeSetCodec.isIntegers(value.getNS());
+                break;
+            case APPEND_TO_LIST:
+                isValid = field.getType() == ArrayList.class;
+                break;
+            default:
+                isValid = field.getType() == String.class ? value.getS() != null
+                        : field.getType() == Integer.class ? value.getN() != null
+                        : field.getType() == Boolean.class && value.getBOOL() != null;
+        }
+        if (!isValid) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Mutation)] "
+                    + type + " is not applicable to " + field.getType().getSimpleName() + " field: " + fieldName);
+        }
+    }
+
+    /**
+     * @param name placeholder of field name
+     * @param valueName placeholder of value
+     * @param emptyListName placeholder of empty list ( For APPEND_TO_LIST )
+     * @return clause of update expression without action
+     */
+    String toClause(String name, String valueName, String emptyListName) {
+        switch (type) {
+            case APPEND_TO_LIST:
+                return name + " = list_append(if_not_exists(" + name + ", " + emptyListName + "), " + valueName + ")";
+            case SET_IF_NOT_EXISTS:
+                return name + " = if_not_exists(" + name + ", " + valueName + ")";
+            case SET:
+                return name + " = " + valueName;
+            default:
+                return name + " " + valueName;
+        }
+    }
+
+    private static AttributeValue toAttributeValue(Object value) {
+        if (value instanceof String) return new AttributeValue((String) value);
+        if (value instanceof Integer) return new AttributeValue().withN(value.toString());
+        if (value instanceof Boolean) return new AttributeValue().withBOOL((Boolean) value);
+        throw new IllegalArgumentException("[LAAAS/DDB(Mutation)] Value should be String, Integer or Boolean: " + value);
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + fieldName + ", " + value + ")";
+    }
+}
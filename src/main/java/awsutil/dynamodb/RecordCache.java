@@ -0,0 +1,220 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process cache for records that are read by table keys ( Partition key and sort key )
+ * Cache is separated by each table, and be configured by DynamoDBTable#cacheTtlMillis and DynamoDBTable#cacheMaxSize
+ * or registered settings by RecordCache#configure. Record is kept as result of DynamoDB to create new model on each hit.
+ * Record that is read before latest invalidation of its keys is not cached ( Take RecordCache#generationOf before reading ).
+ */
+public class RecordCache {
+
+    // Map<Table name, Cache of table>
+    private static final ConcurrentHashMap<String, TableCache> caches = new ConcurrentHashMap<>();
+    // Map<Table name, Settings> that overrides settings in annotation
+    private static final ConcurrentHashMap<String, Settings> registeredSettings = new ConcurrentHashMap<>();
+    // Count of invalidations by each stripe of keys ( Other keys in same stripe only make caching skipped )
+    private static final AtomicLongArray invalidations = new AtomicLongArray(1024);
+
+    /**
+     * Settings of cache for table
+     */
+    public static class Settings {
+        public final long ttlMillis;
+        public final int maxSize;
+
+        public Settings(long ttlMillis, int maxSize) {
+            this.ttlMillis = ttlMillis;
+            this.maxSize = maxSize;
+        }
+    }
+
+    /**
+     * Statistics of cache for table
+     */
+    public static class Statistics {
+        public final long hitCount;
+        public final long missCount;
+        public final long evictionCount;
+        public final int size;
+
+        Statistics(long hitCount, long missCount, long evictionCount, int size) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.size = size;
+        }
+
+        @Override
+        public String toString() {
+            return "hit: " + hitCount + ", miss: " + missCount + ", eviction: " + evictionCount + ", size: " + size;
+        }
+    }
+
+    /**
+     * Cache of single table ( LRU by access order )
+     */
+    private static class TableCache {
+        private final Settings settings;
+        private final AtomicLong hitCount = new AtomicLong();
+        private final AtomicLong missCount = new AtomicLong();
+        private final AtomicLong evictionCount = new AtomicLong();
+        private final LinkedHashMap<String, CachedRecord> records;
+
+        TableCache(Settings settings) {
+            this.settings = settings;
+            this.records = new LinkedHashMap<String, CachedRecord>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedRecord> eldest) {
+                    if (size() > TableCache.this.settings.maxSize) {
+                        evictionCount.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized Map<String, AttributeValue> get(String key) {
+            CachedRecord cached = records.get(key);
+            if (cached != null && cached.expiresAt < System.currentTimeMillis()) {
+                records.remove(key);
+                cached = null;
+            }
+            if (cached == null) {
+                missCount.incrementAndGet();
+                return null;
+            }
+            hitCount.incrementAndGet();
+            return cached.item;
+        }
+
+        synchronized void put(String key, Map<String, AttributeValue> item, int stripe, long generation) {
+            // Invalidation is counted before removing under this lock, so record read before it is never put after it
+            if (invalidations.get(stripe) != generation) {
+                return;
+            }
+            records.put(key, new CachedRecord(item, System.currentTimeMillis() + settings.ttlMillis));
+        }
+
+        synchronized void remove(String key) {
+            records.remove(key);
+        }
+
+        synchronized Statistics toStatistics() {
+            return new Statistics(hitCount.get(), missCount.get(), evictionCount.get(), records.size());
+        }
+    }
+
+    private static class CachedRecord {
+        final Map<String, AttributeValue> item;
+        final long expiresAt;
+
+        CachedRecord(Map<String, AttributeValue> item, long expiresAt) {
+            this.item = item;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Register settings of cache for table, This overrides settings in DynamoDBTable annotation
+     * @param tableName name of table ( Containing bundler identifier )
+     * @param ttlMillis time to live of record in milliseconds, 0 disables cache
+     * @param maxSize max count of records in cache
+     */
+    public static void configure(String tableName, long ttlMillis, int maxSize) {
+        registeredSettings.put(tableName, new Settings(ttlMillis, maxSize));
+        caches.remove(tableName);
+    }
+
+    /**
+     * Get cached record by table keys in given definition
+     * @param def definition of table with values of table keys
+     * @return cached result of DynamoDB, or null when cache does not have record or cache is disabled
+     */
+    public static Map<String, AttributeValue> get(TableDefinition def) {
+        TableCache cache = getTableCache(def);
+        return cache != null ? cache.get(toCacheKey(def)) : null;
+    }
+
+    /**
+     * Get generation of keys, Call this before reading record to put
+     * @param def definition of table with values of table keys
+     * @return count of invalidations of keys
+     */
+    public static long generationOf(TableDefinition def) {
+        return invalidations.get(stripeOf(def.tableName, toCacheKey(def)));
+    }
+
+    /**
+     * Put record into cache ( Skipped when keys are invalidated after given generation )
+     * @param def definition of table with values of table keys
+     * @param item result of DynamoDB
+     * @param generation generation of keys that is got before reading item
+     */
+    public static void put(TableDefinition def, Map<String, AttributeValue> item, long generation) {
+        TableCache cache = getTableCache(def);
+        if (cache != null && item != null) {
+            String key = toCacheKey(def);
+            cache.put(key, item, stripeOf(def.tableName, key), generation);
+        }
+    }
+
+    /**
+     * Remove record from cache, Call this on writing record
+     * @param def definition of table with values of table keys
+     */
+    public static void invalidate(TableDefinition def) {
+        String key = toCacheKey(def);
+        invalidations.incrementAndGet(stripeOf(def.tableName, key));
+        TableCache cache = caches.get(def.tableName);
+        if (cache != null) {
+            cache.remove(key);
+        }
+    }
+
+    /**
+     * Remove all records of all tables
+     */
+    public static void clear() {
+        caches.clear();
+    }
+
+    /**
+     * Get hit and miss counters of table
+     * @param tableName name of table ( Containing bundler identifier )
+     * @return statistics, or null if cache of table has not been used
+     */
+    public static Statistics getStatistics(String tableName) {
+        TableCache cache = caches.get(tableName);
+        return cache != null ? cache.toStatistics() : null;
+    }
+
+    private static TableCache getTableCache(TableDefinition def) {
+        Settings settings = registeredSettings.getOrDefault(def.tableName,
+                new Settings(def.cacheTtlMillis != null ? def.cacheTtlMillis : 0L,
+                        def.cacheMaxSize != null ? def.cacheMaxSize : 0));
+        if (settings.ttlMillis <= 0 || settings.maxSize <= 0) {
+            return null;
+        }
+        return caches.computeIfAbsent(def.tableName, tableName -> new TableCache(settings));
+    }
+
+    private static int stripeOf(String tableName, String key) {
+        return Math.floorMod(tableName.hashCode() * 31 + key.hashCode(), invalidations.length());
+    }
+
+    private static String toCacheKey(TableDefinition def) {
+        Object partitionKey = def.partitionKey != null ? def.partitionKey.getValue() : null;
+        Object sortKey = def.sortKey != null ? def.sortKey.getValue() : null;
+        return partitionKey + "\u0000" + (sortKey != null ? sortKey : "");
+    }
+}
@@ -4,31 +4,74 @@ import awsutil.dynamodb.exceptions.DoesNotExistsFunctionException;
 import awsutil.dynamodb.exceptions.ExistsCircularReferenceException;
 import awsutil.dynamodb.exceptions.InvalidDynamoFieldTypeException;
 import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import awsutil.dynamodb.exceptions.VersionConflictException;
 import awsutil.dynamodb.tabledefinition.DdbRecordCollection;
 import awsutil.dynamodb.tabledefinition.GlobalSecondlyIndexStructure;
 import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.KeySharding;
+import awsutil.dynamodb.tabledefinition.OffloadedAttribute;
+import awsutil.dynamodb.tabledefinition.PartitionKey;
+import awsutil.dynamodb.tabledefinition.RelationGraph;
 import awsutil.dynamodb.tabledefinition.TableDefinition;
+import awsutil.dynamodb.tabledefinition.TimeSeries;
+import awsutil.dynamodb.tabledefinition.TimeSeriesKeys;
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.document.*;
+import com.amazonaws.services.dynamodbv2.document.spec.PutItemSpec;
 import com.amazonaws.services.dynamodbv2.document.spec.QuerySpec;
 import com.amazonaws.services.dynamodbv2.model.*;
 import com.google.gson.Gson;
 
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * CRUD Facade for dynamoDB
  */
 public class RecordCrudFacade {
 
-    private static final AmazonDynamoDB client = AmazonDynamoDBClientBuilder.defaultClient();
-    private static final DynamoDB dynamoDB = new DynamoDB(client);
+    // Max count of actions in single TransactWriteItems request
+    private static final int maxTransactItems = 100;
+    // Max count of keys in single BatchGetItem
+    private static final int maxBatchGetKeys = 100;
+    // Max count of requests for single chunk of BatchGetItem ( Retried while keys are unprocessed )
+    private static final int maxBatchGetAttempts = 8;
+    private static final int defaultMaxScatterConcurrency = 16;
+
+    /**
+     * Threads to querying shards of sharded GSI and buckets of time-series table in parallel
+     * This is created at first access to holder
+     */
+    private static class ScatterExecutorHolder {
+        static final ExecutorService executor = Executors.newFixedThreadPool(maxConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "laaas-ddb-scatter-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private static int maxConcurrency() {
+            String value = System.getenv("LAAAS_DDB_MAX_SCATTER_CONCURRENCY");
+            return value != null && !value.isEmpty() ? Math.max(1, Integer.parseInt(value)) : defaultMaxScatterConcurrency;
+        }
+    }
 
     /**
      * Insert single record into single table
+     * Record that has Version field is written only when version in table is same as version of record,
+     * and version of record is incremented ( Null version means new record ).
+     * Root annotated by SingleTable is put into its partition of single table ( See SingleTableFacade#putRecord ).
      * @param record to inserting
      * @return result of inserting
      * @throws IllegalAccessException Throws: TableDefinition, Creating new instance to inserting result
@@ -36,44 +79,367 @@ public class RecordCrudFacade {
      * @throws AmazonServiceException Throws errors had be occurred in AWS
      * @throws InvalidParametersInDynamoDbException Throws when data model is not annotated by DynamoDBTable
      * @throws InstantiationException Throws when failed create new instance to inserting result
+     * @throws VersionConflictException Throws when version of record that has Version field is conflicted
      */
     public static IGenericDynamoDbTable insertSingleRecord(IGenericDynamoDbTable record)
             throws IllegalAccessException, DoesNotExistsFunctionException, AmazonServiceException,
             InvalidParametersInDynamoDbException, InstantiationException {
+        return putSingleRecord(record, false);
+    }
+
+    /**
+     * Put single record for inserting and updating
+     * @param record to putting
+     * @param isUpdating whether record is put only when it exists ( Record that has Version field is checked by its version )
+     * @return put record, or null when record to updating does not exist
+     */
+    private static IGenericDynamoDbTable putSingleRecord(IGenericDynamoDbTable record, boolean isUpdating)
+            throws IllegalAccessException, DoesNotExistsFunctionException, AmazonServiceException,
+            InvalidParametersInDynamoDbException, InstantiationException {
+        if(SingleTableFacade.isSingleTable(record.getClass())) {
+            return SingleTableFacade.putRecord(record, isUpdating) != null ? SingleTableFacade.getRecord(record) : null;
+        }
         TableDefinition def = record.toTableDefinition();
-        Table table = dynamoDB.getTable(def.tableName);
+        Table table = DynamoClientProvider.getDynamoDB().getTable(def.tableName);
 
         if(table != null) {
+            // Version is incremented before converting to item
+            VersionCondition versionCondition = VersionCondition.of(record);
+            // Objects of offloaded fields that are put for this item
+            List<OffloadedAttribute.PendingObject> objects = Collections.emptyList();
+            boolean isWritten = false;
             try {
-                table.putItem(record.setRandomValueByAutoGen().toItem().getValue());
+                Item item = record.setRandomValueByAutoGen().toItem().getValue();
+                PutItemSpec spec = new PutItemSpec().withItem(item)
+                        .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+                if(versionCondition != null) {
+                    versionCondition.applyTo(spec);
+                } else if(isUpdating) {
+                    // Existence is checked by condition of put, without reading current record
+                    spec.withConditionExpression("attribute_exists(#partitionKey)")
+                            .withNameMap(Collections.singletonMap("#partitionKey", def.partitionKey.getKey()));
+                }
+                objects = OffloadedAttribute.pendingObjectsOf(Collections.singletonList(record));
+                OffloadedAttribute.upload(objects);
+                CapacityRateLimiter.execute(CapacityRateLimiter.forWrite(def),
+                        () -> DynamoMetrics.record("PutItem", def.tableName, null,
+                                () -> table.putItem(spec),
+                                (metrics, outcome) -> metrics.addWriteUnits(CapacityRateLimiter.unitsOf(
+                                        outcome.getPutItemResult().getConsumedCapacity()))),
+                        outcome -> CapacityRateLimiter.unitsOf(outcome.getPutItemResult().getConsumedCapacity()));
+                isWritten = true;
+                OffloadedAttribute.commit(objects);
+            } catch (ConditionalCheckFailedException e) {
+                if(versionCondition != null) throw versionCondition.toConflict();
+                if(isUpdating) {
+                    System.out.println("[LAAAS/DDB(Update)] SKIP UPDATING: " + def.tableName + " RECORD DOES NOT EXIST");
+                    return null;
+                }
+                throw e;
             } catch (InvalidDynamoFieldTypeException | ExistsCircularReferenceException e) {
                 throw new RuntimeException(e);
+            } finally {
+                // Version is restored on every failure ( e.g. Throttling, Failure of converting or putting objects )
+                if(!isWritten) {
+                    if(versionCondition != null) versionCondition.rollback();
+                    OffloadedAttribute.abort(objects);
+                }
             }
-            // Confirming whether is success inserting
-            return RecordCrudFacade.queryByTableKeys(record);
+            // Drop cached record that has same keys ( Re-cached by following query )
+            RecordCache.invalidate(record.toTableDefinition());
+            // Confirming whether is success inserting ( Not shared with reads that started before writing )
+            return RecordCrudFacade.queryByTableKeys(record, null, true);
         }
         return null;
     }
 
+    /**
+     * Insert records of relation graph by TransactWriteItems
+     * Relation tree of root is validated once, and all records are written in single request.
+     * When graph has more than 100 records, records are separated to multiple transactions in order of given records.
+     * @param root root record of relation graph
+     * @param related records of tables that are related from root by ExternalRelation
+     * @return inserted records ( Root is first )
+     * @throws InvalidParametersInDynamoDbException Throws when record is not in relation tree of root or same keys are duplicated
+     * @throws IllegalAccessException Throws: TableDefinition, Creating new instance to inserting result
+     * @throws InstantiationException Throws when failed create new instance to inserting result
+     * @throws DoesNotExistsFunctionException Throws when failed converting record to item
+     * @throws ExistsCircularReferenceException Throws when relation tree of root has circular reference
+     * @throws InvalidDynamoFieldTypeException Throws when isAutoGen is set to invalid type of field
+     * @throws AmazonServiceException Throws errors had be occurred in AWS ( e.g. TransactionCanceledException )
+     */
+    public static List<IGenericDynamoDbTable> insertGraph(IGenericDynamoDbTable root,
+                                                          Collection<? extends IGenericDynamoDbTable> related)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException,
+            DoesNotExistsFunctionException, ExistsCircularReferenceException, InvalidDynamoFieldTypeException,
+            AmazonServiceException {
+        return insertGraph(root, related, Collections.emptyList());
+    }
+
+    /**
+     * Insert records of relation graph by TransactWriteItems with checking existence of other records
+     * Root annotated by SingleTable is put into single table by SingleTableFacade#putGraph
+     * Idempotency token is derived from actions of each transaction, so retrying same graph is not applied twice.
+     * @param root root record of relation graph
+     * @param related records of tables that are related from root by ExternalRelation
+     * @param requiredRecords records that must exist in table at writing ( Only table keys are used )
+     * @return inserted records ( Root is first )
+     * @throws InvalidParametersInDynamoDbException Throws when record is not in relation tree of root or same keys are duplicated
+     * @throws IllegalAccessException Throws: TableDefinition, Creating new instance to inserting result
+     * @throws InstantiationException Throws when failed create new instance to inserting result
+     * @throws DoesNotExistsFunctionException Throws when failed converting record to item
+     * @throws ExistsCircularReferenceException Throws when relation tree of root has circular reference
+     * @throws InvalidDynamoFieldTypeException Throws when isAutoGen is set to invalid type of field
+     * @throws AmazonServiceException Throws errors had be occurred in AWS ( e.g. TransactionCanceledException )
+     * @throws VersionConflictException Throws when version of record that has Version field is conflicted
+     */
+    public static List<IGenericDynamoDbTable> insertGraph(IGenericDynamoDbTable root,
+                                                          Collection<? extends IGenericDynamoDbTable> related,
+                                                          Collection<? extends IGenericDynamoDbTable> requiredRecords)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException,
+            DoesNotExistsFunctionException, ExistsCircularReferenceException, InvalidDynamoFieldTypeException,
+            AmazonServiceException {
+        return insertGraph(root, related, requiredRecords, null);
+    }
+
+    /**
+     * Insert records of relation graph by TransactWriteItems with checking existence of other records and idempotency token
+     * Conditions of required records are written in first transaction with first records,
+     * so nothing is written when required record is not exists even if graph is separated to multiple transactions.
+     * Token of each transaction is derived from given token ( or random token of this calling ) and position of transaction.
+     * @param root root record of relation graph
+     * @param related records of tables that are related from root by ExternalRelation
+     * @param requiredRecords records that must exist in table at writing ( Only table keys are used )
+     * @param idempotencyToken token of this calling ( Same token for retrying same graph ), or null to generating new token
+     * @return inserted records ( Root is first )
+     * @throws InvalidParametersInDynamoDbException Throws when record is not in relation tree of root, same keys are duplicated
+     *                                              or required records are too many for single transaction
+     * @throws IllegalAccessException Throws: TableDefinition, Creating new instance to inserting result
+     * @throws InstantiationException Throws when failed create new instance to inserting result
+     * @throws DoesNotExistsFunctionException Throws when failed converting record to item
+     * @throws ExistsCircularReferenceException Throws when relation tree of root has circular reference
+     * @throws InvalidDynamoFieldTypeException Throws when isAutoGen is set to invalid type of field
+     * @throws AmazonServiceException Throws errors had be occurred in AWS ( e.g. TransactionCanceledException )
+     * @throws VersionConflictException Throws when version of record that has Version field is conflicted
+     */
+    public static List<IGenericDynamoDbTable> insertGraph(IGenericDynamoDbTable root,
+                                                          Collection<? extends IGenericDynamoDbTable> related,
+                                                          Collection<? extends IGenericDynamoDbTable> requiredRecords,
+                                                          String idempotencyToken)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException,
+            DoesNotExistsFunctionException, ExistsCircularReferenceException, InvalidDynamoFieldTypeException,
+            AmazonServiceException {
+        String rootTableName = root.getTableName();
+        System.out.println("[LAAAS/DDB(Insert graph)] START INSERTING GRAPH: " + rootTableName);
+        if (SingleTableFacade.isSingleTable(root.getClass())) {
+            return SingleTableFacade.putGraph(root, related, requiredRecords, idempotencyToken);
+        }
+        // At least one record is written with conditions in first transaction
+        if (requiredRecords.size() >= maxTransactItems) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Insert graph)] "
+                    + "Required records should be less than " + maxTransactItems + ": " + requiredRecords.size());
+        }
+
+        // Validate relation tree only once for all records
+        RelationGraph graph = RelationGraph.of(root.getClass());
+        List<IGenericDynamoDbTable> records = new ArrayList<>();
+        records.add(root);
+        records.addAll(related);
+        for (IGenericDynamoDbTable record: records) {
+            if (!graph.contains(record.getClass())) {
+                throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Insert graph)] "
+                        + record.getClass().getName() + " is not related from " + root.getClass().getName());
+            }
+        }
+
+        // Convert records to actions of transaction
+        List<TransactWriteItem> actions = new ArrayList<>();
+        // Tables of each action to limiting rate
+        List<TableDefinition> tablesOfActions = new ArrayList<>();
+        // Conditions of version of each action ( Null for action without version )
+        List<VersionCondition> versionsOfActions = new ArrayList<>();
+        // Condition checks are placed first, so they are in first transaction
+        for (IGenericDynamoDbTable required: requiredRecords) {
+            ConditionCheck check = SingleTableFacade.conditionCheckOf(required);
+            actions.add(new TransactWriteItem().withConditionCheck(check));
+            tablesOfActions.add(SingleTableFacade.isSingleTable(required.getClass()) ?
+                    SingleTableFacade.definitionOf(required.getClass()) : required.toTableDefinition());
+            versionsOfActions.add(null);
+        }
+        // Count of actions in written transactions
+        int countOfWritten = 0;
+        try {
+            Set<String> writtenKeys = new HashSet<>();
+            for (IGenericDynamoDbTable record: records) {
+                TableDefinition def = record.setRandomValueByAutoGen().toTableDefinition();
+                Map<String, AttributeValue> keys = getTableKeysForCondition(record);
+                // Transaction can not contain multiple actions for same item
+                if (!writtenKeys.add(def.tableName + ":" + keys)) {
+                    throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Insert graph)] "
+                            + "Same keys are duplicated in graph: " + def.tableName + " " + keys);
+                }
+                // Condition is added before converting, so version is restored when converting is failed
+                VersionCondition versionCondition = VersionCondition.of(record);
+                versionsOfActions.add(versionCondition);
+                Put put = new Put()
+                        .withTableName(def.tableName)
+                        .withItem(ItemUtils.toAttributeValues(record.toItem().getValue()));
+                actions.add(new TransactWriteItem().withPut(versionCondition != null ? versionCondition.applyTo(put) : put));
+                tablesOfActions.add(def);
+            }
+
+            // Objects of offloaded fields are put after all records are converted
+            OffloadedAttribute.upload(OffloadedAttribute.pendingObjectsOf(records));
+            // Same actions of other calling must not be taken as retrying ( DynamoDB ignores them in 10 minutes )
+            String tokenOfCalling = idempotencyToken != null ? idempotencyToken : UUID.randomUUID().toString();
+            // Write by each 100 actions with idempotency token
+            for (int head = 0; head < actions.size(); head += maxTransactItems) {
+                int tail = Math.min(head + maxTransactItems, actions.size());
+                List<TransactWriteItem> chunk = actions.subList(head, tail);
+                Map<String, CapacityRateLimiter.TokenBucket> bucketsOfChunk = new HashMap<>();
+                for (TableDefinition def: tablesOfActions.subList(head, tail)) {
+                    bucketsOfChunk.putIfAbsent(def.tableName, CapacityRateLimiter.forWrite(def));
+                }
+                String token = tokenOf(tokenOfCalling, head);
+                System.out.println("[LAAAS/DDB(Insert graph)] WRITE " + chunk.size() + " ACTIONS BY TOKEN: " + token);
+                try {
+                    CapacityRateLimiter.executeAll(bucketsOfChunk,
+                            () -> DynamoMetrics.record("TransactWriteItems", rootTableName, null,
+                                    () -> DynamoClientProvider.getClient().transactWriteItems(new TransactWriteItemsRequest()
+                                            .withTransactItems(chunk)
+                                            .withClientRequestToken(token)
+                                            .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL)),
+                                    (metrics, res) -> {
+                                        metrics.addItems(chunk.size());
+                                        if (res.getConsumedCapacity() != null) {
+                                            res.getConsumedCapacity().forEach(capacity ->
+                                                    metrics.addWriteUnits(CapacityRateLimiter.unitsOf(capacity)));
+                                        }
+                                    }),
+                            TransactWriteItemsResult::getConsumedCapacity);
+                } catch (TransactionCanceledException e) {
+                    // Versions of records in this and following chunks are not written
+                    VersionConflictException conflict = VersionCondition.conflictOf(e,
+                            versionsOfActions.subList(head, versionsOfActions.size()));
+                    if (conflict != null) throw conflict;
+                    throw e;
+                }
+                countOfWritten = tail;
+            }
+        } finally {
+            // Versions of records in transactions that are not written are restored ( Including failure of converting )
+            versionsOfActions.subList(countOfWritten, versionsOfActions.size()).stream()
+                    .filter(Objects::nonNull).forEach(VersionCondition::rollback);
+            // Records in written transactions refer their objects, and objects of others are deleted
+            int countOfWrittenRecords = Math.max(0, countOfWritten - requiredRecords.size());
+            OffloadedAttribute.commit(OffloadedAttribute.pendingObjectsOf(records.subList(0, countOfWrittenRecords)));
+            OffloadedAttribute.abort(OffloadedAttribute.pendingObjectsOf(records.subList(countOfWrittenRecords, records.size())));
+        }
+
+        // Drop cached records that have same keys
+        for (IGenericDynamoDbTable record: records) {
+            RecordCache.invalidate(record.toTableDefinition());
+        }
+        System.out.println("[LAAAS/DDB(Insert graph)] DONE INSERTING " + records.size() + " RECORDS");
+        return records;
+    }
+
+    /**
+     * Idempotency token of single transaction of graph
+     * @param tokenOfCalling token that is given by caller, or generated once for each calling
+     * @param head position of first action of transaction in all actions
+     * @return token that is same for same token and position ( Length is 36, within limit of ClientRequestToken )
+     */
+    static String tokenOf(String tokenOfCalling, int head) {
+        String source = tokenOfCalling + "#" + head;
+        return UUID.nameUUIDFromBytes(source.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Query records and all records of relation tables from them
+     * Each distinct relational lookup ( Child table, relation fields and values ) is executed only once in single calling,
+     * and its result is shared by all parents that reference same child.
+     * @param conditionOfRecord query parameter as table model
+     * @return records of given table and relation tables
+     * @throws InvalidParametersInDynamoDbException Throws when data model is not annotated by DynamoDBTable
+     * @throws DoesNotExistsFunctionException Throws when failed create new instance to inserting result
+     * @throws InstantiationException Throws when failed create new instance to inserting result
+     * @throws IllegalAccessException Throws: TableDefinition, Creating new instance to inserting result
+     * @throws ExistsCircularReferenceException Throws when relation tree of given table has circular reference
+     */
     public static List<IGenericDynamoDbTable> queryRecords(IGenericDynamoDbTable conditionOfRecord)
             throws InvalidParametersInDynamoDbException, DoesNotExistsFunctionException,
             InstantiationException, IllegalAccessException, ExistsCircularReferenceException {
-        // Checking whether table has not circular reference from given query
-        conditionOfRecord.toRelationTree(null, 0, null);
+        return queryRecords(conditionOfRecord, FetchPlan.all());
+    }
+
+    /**
+     * Query records and records of relation tables that are selected by plan
+     * When table of condition is annotated by SingleTable and table keys are set, records are got by single Query
+     * ( See SingleTableFacade#queryGraph ).
+     * @param conditionOfRecord query parameter as table model
+     * @param plan relations to follow, and projection and limit of each table
+     * @return records of given table and relation tables
+     * @throws InvalidParametersInDynamoDbException Throws when data model is not annotated by DynamoDBTable
+     * @throws DoesNotExistsFunctionException Throws when failed create new instance to inserting result
+     * @throws InstantiationException Throws when failed create new instance to inserting result
+     * @throws IllegalAccessException Throws: TableDefinition, Creating new instance to inserting result
+     * @throws ExistsCircularReferenceException Throws when relation tree of given table has circular reference
+     */
+    public static List<IGenericDynamoDbTable> queryRecords(IGenericDynamoDbTable conditionOfRecord, FetchPlan plan)
+            throws InvalidParametersInDynamoDbException, DoesNotExistsFunctionException,
+            InstantiationException, IllegalAccessException, ExistsCircularReferenceException {
+        if (SingleTableFacade.isSingleTable(conditionOfRecord.getClass())
+                && conditionOfRecord.toTableDefinition().isSetTableKeys()) {
+            return SingleTableFacade.queryGraph(conditionOfRecord, plan);
+        }
+        return queryRecords(conditionOfRecord, plan, 0, new HashMap<>());
+    }
+
+    /**
+     * Query records with results of relational lookups in current request
+     * @param conditionOfRecord query parameter as table model
+     * @param plan relations to follow, and projection and limit of each table
+     * @param depth depth of relation from queried table
+     * @param lookups Map( Key of relational lookup@Remaining depth, Result ) shared in single calling of queryRecords
+     */
+    private static List<IGenericDynamoDbTable> queryRecords(IGenericDynamoDbTable conditionOfRecord, FetchPlan plan,
+                                                            int depth, Map<String, List<IGenericDynamoDbTable>> lookups)
+            throws InvalidParametersInDynamoDbException, DoesNotExistsFunctionException,
+            InstantiationException, IllegalAccessException, ExistsCircularReferenceException {
+        // Checking whether table has not circular reference from given query ( Graph is cached for each class )
+        RelationGraph.of(conditionOfRecord.getClass());
+        TableDefinition def = conditionOfRecord.toTableDefinition();
+        Set<String> projection = plan.projectionOf(conditionOfRecord.getClass(), def);
+        Integer limit = plan.limitOf(conditionOfRecord.getClass());
 
         // Get all record as relational root that can be got by given query
         DdbRecordCollection resultOfQuery = new DdbRecordCollection() {{
             // By Table key
-            add(RecordCrudFacade.queryByTableKeys(conditionOfRecord));
+            add(RecordCrudFacade.queryByTableKeys(conditionOfRecord, projection, false));
+            // By sharded partition key without sort key
+            addAll(RecordCrudFacade.queryByShardedPartitionKey(conditionOfRecord, projection, limit));
             // By GSI
-            addAll(RecordCrudFacade.queryByGlobalSecondlyIndex(conditionOfRecord));
+            addAll(RecordCrudFacade.queryByGlobalSecondlyIndex(conditionOfRecord, projection, limit));
         }};
+        if (!plan.isInDepth(depth)) {
+            return resultOfQuery;
+        }
 
         // Checking relation by got children
         DdbRecordCollection children = new DdbRecordCollection();
         for (IGenericDynamoDbTable parent: resultOfQuery) {
-            for (IGenericDynamoDbTable query: parent.issueNewQueryToRelation()) {
-                children.addAll(queryRecords(query));
+            for (IGenericDynamoDbTable query: parent.issueNewQueryToRelation(plan::follows)) {
+                // Result of lookup contains relations up to max depth, so it is shared only in same remaining depth
+                String lookupKey = lookupKeyOf(parent, query, plan) + "@" + plan.remainingDepthOf(depth + 1);
+                List<IGenericDynamoDbTable> resultOfLookup = lookups.get(lookupKey);
+                if (resultOfLookup == null) {
+                    resultOfLookup = queryRecords(query, plan, depth + 1, lookups);
+                    lookups.put(lookupKey, resultOfLookup);
+                } else {
+                    System.out.println("[LAAAS/DDB(QUERY)] REUSE RESULT OF SAME RELATION: " + lookupKey);
+                }
+                children.addAll(resultOfLookup);
             }
         }
         resultOfQuery.addAll(children);
@@ -82,6 +448,38 @@ public class RecordCrudFacade {
         return resultOfQuery;
     }
 
+    /**
+     * Key of relational lookup from parent to child
+     * @param parent record of parent
+     * @param query query to child that is created by parent
+     * @param plan plan to select relations
+     * @return Child table|Field of child=Encoded value|...
+     */
+    static String lookupKeyOf(IGenericDynamoDbTable parent, IGenericDynamoDbTable query, FetchPlan plan)
+            throws IllegalAccessException, InvalidParametersInDynamoDbException, InstantiationException {
+        StringBuilder key = new StringBuilder(query.getTableName());
+        for (RelationGraph.Edge edge: RelationGraph.edgesOf(parent.getClass())) {
+            if (edge.to == query.getClass() && edge.targetField != null && plan.follows(edge)) {
+                key.append('|').append(edge.targetField.getName()).append('=')
+                        .append(encodeLookupValue(edge.sourceField.get(parent)));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param value value of relation field
+     * @return "-" for null, otherwise {Type}{Length}:{Value}
+     *         ( e.g. String "null" is String4:null, so it is not same as null nor other types and separators in value )
+     */
+    private static String encodeLookupValue(Object value) {
+        if (value == null) {
+            return "-";
+        }
+        String text = value.toString();
+        return value.getClass().getSimpleName() + text.length() + ":" + text;
+    }
+
     /**
      * Query by table keys ( Partition key and sort key )
      * @param dataCondition query parameter as table model
@@ -95,18 +493,71 @@ public class RecordCrudFacade {
     public static IGenericDynamoDbTable queryByTableKeys(IGenericDynamoDbTable dataCondition) throws
             InstantiationException, IllegalAccessException, DoesNotExistsFunctionException,
             AmazonServiceException, InvalidParametersInDynamoDbException {
+        return queryByTableKeys(dataCondition, null, false);
+    }
+
+    /**
+     * Query by table keys with getting only given attributes
+     * Projected record is not cached, because cached record must have all attributes.
+     * Root annotated by SingleTable is got from single table with all attributes ( See SingleTableFacade#getRecord ).
+     * Read after writing does not use cache nor share request in flight, because they may have record before writing.
+     * @param dataCondition query parameter as table model
+     * @param projection attribute names to get, or null to get all attributes
+     * @param isAfterWriting whether record is read to confirming writing ( Read by ConsistentRead )
+     */
+    private static IGenericDynamoDbTable queryByTableKeys(IGenericDynamoDbTable dataCondition, Set<String> projection,
+                                                          boolean isAfterWriting) throws
+            InstantiationException, IllegalAccessException, DoesNotExistsFunctionException,
+            AmazonServiceException, InvalidParametersInDynamoDbException {
         System.out.println("[LAAAS/DDB(Query by TableKey)] <-------------------------------------------------->");
         System.out.println("[LAAAS/DDB(Query by TableKey)] START QUERY BY TABLE KEYS: " + dataCondition.getTableName());
 
         TableDefinition def = dataCondition.toTableDefinition();
 
+        if(def.isSetTableKeys() && SingleTableFacade.isSingleTable(dataCondition.getClass())) {
+            System.out.println("[LAAAS/DDB(Query by TableKey)] <-------------------------------------------------->");
+            return SingleTableFacade.getRecord(dataCondition);
+        }
         if(def.isSetTableKeys()) {
+            // Return cached record if exists
+            Map<String, AttributeValue> cachedItem = isAfterWriting ? null : RecordCache.get(def);
+            if(cachedItem != null) {
+                System.out.println("[LAAAS/DDB(Query by TableKey)] HIT CACHE: " + def.tableName);
+                System.out.println("[LAAAS/DDB(Query by TableKey)] <-------------------------------------------------->");
+                return dataCondition.getClass().newInstance().insertResultIntoModel(cachedItem);
+            }
             try {
                 GetItemRequest request = new GetItemRequest()
                         .withKey(getTableKeysForCondition(dataCondition))
-                        .withTableName(dataCondition.toTableDefinition().tableName);
+                        .withTableName(dataCondition.toTableDefinition().tableName)
+                        .withConsistentRead(isAfterWriting)
+                        .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+                if(projection != null) {
+                    request.withProjectionExpression(projectionExpressionOf(projection))
+                            .withExpressionAttributeNames(projectionNamesOf(projection));
+                }
                 System.out.println("[LAAAS/DDB(Query by TableKey)] CONDITIONS " + getTableKeysForCondition(dataCondition).toString());
-                GetItemResult result = client.getItem(request);
+                Supplier<GetItemResult> getItem = () -> {
+                    // Result is not cached when record is written while reading
+                    long generation = RecordCache.generationOf(def);
+                    GetItemResult res = CapacityRateLimiter.execute(CapacityRateLimiter.forRead(def, null),
+                            () -> DynamoMetrics.record("GetItem", def.tableName, null,
+                                    () -> DynamoClientProvider.getClient().getItem(request),
+                                    (metrics, got) -> {
+                                        metrics.addReadUnits(CapacityRateLimiter.unitsOf(got.getConsumedCapacity()));
+                                        metrics.addItems(got.getItem() != null ? 1 : 0);
+                                    }),
+                            got -> CapacityRateLimiter.unitsOf(got.getConsumedCapacity()));
+                    // Only caller that executed request caches result ( Shared result may be older than caller )
+                    if(projection == null) {
+                        RecordCache.put(def, res.getItem(), generation);
+                    }
+                    return res;
+                };
+                // Share result with concurrent callers that query by same keys
+                GetItemResult result = isAfterWriting ? getItem.get() : SingleFlight.execute(
+                        "GetItem:" + def.tableName + ":" + request.getKey() + (projection != null ? ":" + projection : ""),
+                        getItem);
 
                 System.out.println("[LAAAS/DDB(Query by TableKey)] <-------------------------------------------------->");
                 // Return converted result
@@ -131,7 +582,7 @@ public class RecordCrudFacade {
      * @throws IllegalAccessException Throws: TableDefinition, Creating new instance to inserting result
      * @throws InstantiationException Throws when failed create new instance to inserting result
      */
-    private static HashMap<String, AttributeValue> getTableKeysForCondition(IGenericDynamoDbTable condition)
+    static HashMap<String, AttributeValue> getTableKeysForCondition(IGenericDynamoDbTable condition)
             throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException {
         TableDefinition def = condition.toTableDefinition();
 
@@ -140,9 +591,27 @@ public class RecordCrudFacade {
         AttributeValue valueOfPartitionKey = def.partitionKey.getValue().getClass().equals(Integer.class) ?
                 new AttributeValue().withN((String.valueOf(def.partitionKey.getValue()))) :
                 new AttributeValue((String.valueOf(def.partitionKey.getValue())));
+        // Sharded partition key has suffix of shard by sort key
+        for(Field field: condition.getClass().getDeclaredFields()) {
+            if(field.isAnnotationPresent(PartitionKey.class) && KeySharding.isShardedField(field)) {
+                valueOfPartitionKey = new AttributeValue(KeySharding.toStoredValue(field, condition));
+            }
+        }
+        // Keys of time-series table have bucket and fixed format timestamp
+        AttributeValue valueOfSortKey = def.sortKey != null && def.sortKey.getValue() != null ?
+                new AttributeValue(String.valueOf(def.sortKey.getValue())) : null;
+        for(Field field: condition.getClass().getDeclaredFields()) {
+            if(TimeSeriesKeys.isTimeSeriesKey(field) && field.get(condition) != null) {
+                if(field.isAnnotationPresent(PartitionKey.class)) {
+                    valueOfPartitionKey = new AttributeValue(TimeSeriesKeys.toStoredValue(field, condition));
+                } else {
+                    valueOfSortKey = new AttributeValue(TimeSeriesKeys.toStoredValue(field, condition));
+                }
+            }
+        }
         keyAndAttributes.put(def.partitionKey.getKey(), valueOfPartitionKey);
-        if(def.sortKey != null && def.sortKey.getValue() != null) {
-            keyAndAttributes.put(def.sortKey.getKey(), new AttributeValue(String.valueOf(def.sortKey.getValue())));
+        if(valueOfSortKey != null) {
+            keyAndAttributes.put(def.sortKey.getKey(), valueOfSortKey);
         }
         System.out.println("[LAAAS/DDB(getAttrAndValueByTableKeys)] Table name: " + def.tableName);
         System.out.println("[LAAAS/DDB(getAttrAndValueByTableKeys)] Model class name: " + condition.getClass().getName());
@@ -161,12 +630,24 @@ public class RecordCrudFacade {
      */
     public static List<IGenericDynamoDbTable> queryByGlobalSecondlyIndex(IGenericDynamoDbTable dataCondition)
             throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException, DoesNotExistsFunctionException {
+        return queryByGlobalSecondlyIndex(dataCondition, null, null);
+    }
+
+    /**
+     * Query by Global secondly index with getting only given attributes and count of records
+     * @param dataCondition search condition as same data model
+     * @param projection attribute names to get, or null to get all attributes
+     * @param limit max count of records in total of all indexes, or null for all records
+     */
+    private static List<IGenericDynamoDbTable> queryByGlobalSecondlyIndex(IGenericDynamoDbTable dataCondition,
+                                                                          Set<String> projection, Integer limit)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException, DoesNotExistsFunctionException {
         System.out.print("[LAAAS/DDB(Query by GSI)] <-------------------------------------------------->\n");
         System.out.print("[LAAAS/DDB(Query by GSI)]: START QUERY BY GSI: " + dataCondition.getTableName() + "\n");
 
         // Table definition
         TableDefinition def = dataCondition.toTableDefinition();
-        Table table = dynamoDB.getTable(def.tableName);
+        Table table = DynamoClientProvider.getDynamoDB().getTable(def.tableName);
         // GSI info
         HashMap<String, GlobalSecondlyIndexStructure> gsiStructures = def.gsiStructures;
         List<TableDefinition.GsiValueStructure> gsiValues = def.gsiValue;
@@ -188,6 +669,7 @@ public class RecordCrudFacade {
         if(table != null && gsiStructures != null && !gsiStructures.isEmpty()) {
             // Get value by GSI
             for(String indexName: gsiStructures.keySet()) {
+                if(limit != null && resultEntities.size() >= limit) break;
                 // Search
                 Index index = table.getIndex(indexName);
                 if(index != null) {
@@ -206,34 +688,120 @@ public class RecordCrudFacade {
                             gsiValueStructure -> gsiValueStructure.keyType == KeyType.RANGE).collect(Collectors.toList());
                     System.out.print("[LAAAS/DDB(Query by GSI)]: For SORT KEY: " + sortValue + "\n");
 
-                    QuerySpec querySpec = new QuerySpec();
-                    // Set condition for HASH key
+                    // Identifier of conditions to sharing result of same query
+                    StringBuilder conditionKey = new StringBuilder();
+                    // Values of HASH key to query ( Sharded HASH key is scattered across all shards )
+                    List<Object> hashKeyValues = new ArrayList<>();
                     if (!hashValue.isEmpty() && hashValue.get(0).value != null) {
-                        // Set condition for HASH key
-                        querySpec.withHashKey(new KeyAttribute(
-                                hashValue.get(0).fieldName, hashValue.get(0).value)
-                        );
+                        int shards = shardsOfField(dataCondition.getClass(), hashValue.get(0).fieldName);
+                        if (shards > 1) {
+                            hashKeyValues.addAll(KeySharding.allStoredValuesOf(String.valueOf(hashValue.get(0).value), shards));
+                        } else {
+                            hashKeyValues.add(hashValue.get(0).value);
+                        }
+                        conditionKey.append(hashValue.get(0).fieldName).append("=").append(hashValue.get(0).value);
                         System.out.print("[LAAAS/DDB(Query by GSI)]: Set HASH KEY: " +
-                                hashValue.get(0).value + " INTO " + hashValue.get(0).fieldName + "\n");
+                                hashValue.get(0).value + " INTO " + hashValue.get(0).fieldName
+                                + (shards > 1 ? " ( " + shards + " SHARDS )" : "") + "\n");
                     }
 
                     // Set condition for Sort key
                     // TODO: Making this function can query by sort key only
-                    if(gsiKey.hasSortKey() && gsiKey.hasSortKey() && !sortValue.isEmpty() && sortValue.get(0).value != null) {
-                        querySpec.withRangeKeyCondition(new RangeKeyCondition(sortValue.get(0).fieldName)
-                                .eq(sortValue.get(0).value)
-                        );
+                    boolean hasSortCondition = gsiKey.hasSortKey() && !sortValue.isEmpty() && sortValue.get(0).value != null;
+                    if(hasSortCondition) {
+                        conditionKey.append(",").append(sortValue.get(0).fieldName).append("=").append(sortValue.get(0).value);
                         System.out.print("[LAAAS/DDB(Query by GSI)]: Set SORT: " +
                                 sortValue.get(0).value + " INTO " + sortValue.get(0).fieldName + "\n");
                     }
 
+                    // Attributes in index ( Null when index has all attributes )
+                    Set<String> indexAttributes = gsiKey.getProjectedAttributes(def.partitionKey.getKey(),
+                            def.sortKey != null ? def.sortKey.getKey() : null);
+                    // Attributes to get from index, and attributes to get from table after querying index
+                    Set<String> indexProjection = projection;
+                    Set<String> missingAttributes = null;
+                    boolean needsFetchBack = false;
+                    if(indexAttributes != null) {
+                        if(projection == null) {
+                            // All attributes are needed
+                            indexProjection = null;
+                            needsFetchBack = true;
+                        } else {
+                            indexProjection = new TreeSet<>(projection);
+                            indexProjection.retainAll(indexAttributes);
+                            missingAttributes = new TreeSet<>(projection);
+                            missingAttributes.removeAll(indexAttributes);
+                            needsFetchBack = !missingAttributes.isEmpty();
+                        }
+                    }
+                    Set<String> attributesOfTable = missingAttributes;
+                    boolean isFetchingBack = needsFetchBack;
+                    if(isFetchingBack) {
+                        System.out.print("[LAAAS/DDB(Query by GSI)]: FETCH BACK FROM TABLE: "
+                                + (attributesOfTable != null ? attributesOfTable : "ALL ATTRIBUTES") + "\n");
+                    }
+                    Set<String> projectionOfIndex = indexProjection;
+                    if(hashKeyValues.isEmpty()) continue;
+                    // Limit is shared by all indexes
+                    Integer limitOfIndex = limit != null ? limit - resultEntities.size() : null;
+
                     // Convert result to data model
                     try {
-                        for(Page<Item, QueryOutcome> page: index.query(querySpec).pages()) {
-                            for(Map<String, AttributeValue> item: page.getLowLevelResult().getQueryResult().getItems()) {
-                                resultEntities.add(dataCondition.getClass().newInstance().insertResultIntoModel(item));
-                                System.out.print("[LAAAS/DDB(Query by GSI)]: ROW RESULT: " + item + "\n");
+                        // Query of single value of HASH key
+                        Function<Object, List<Map<String, AttributeValue>>> queryByHashKey = hashKeyValue -> {
+                            QuerySpec querySpec = new QuerySpec()
+                                    .withHashKey(new KeyAttribute(hashValue.get(0).fieldName, hashKeyValue))
+                                    .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+                            if(hasSortCondition) {
+                                querySpec.withRangeKeyCondition(new RangeKeyCondition(sortValue.get(0).fieldName)
+                                        .eq(sortValue.get(0).value));
                             }
+                            if(projectionOfIndex != null && !projectionOfIndex.isEmpty()) {
+                                querySpec.withProjectionExpression(projectionExpressionOf(projectionOfIndex))
+                                        .withNameMap(projectionNamesOf(projectionOfIndex));
+                            }
+                            if(limitOfIndex != null) {
+                                querySpec.withMaxResultSize(limitOfIndex);
+                            }
+                            // SimpleEntry<Items of all pages, Consumed capacity units of all pages>
+                            Supplier<AbstractMap.SimpleEntry<List<Map<String, AttributeValue>>, Double>> queryAllPages = () -> {
+                                DynamoMetrics.OperationMetrics metrics = DynamoMetrics.get("Query", def.tableName, indexName);
+                                List<Map<String, AttributeValue>> allPages = new ArrayList<>();
+                                double consumedUnits = 0;
+                                for(Page<Item, QueryOutcome> page: index.query(querySpec).pages()) {
+                                    QueryResult pageResult = page.getLowLevelResult().getQueryResult();
+                                    allPages.addAll(pageResult.getItems());
+                                    consumedUnits += CapacityRateLimiter.unitsOf(pageResult.getConsumedCapacity());
+                                    metrics.addPages(1);
+                                }
+                                return new AbstractMap.SimpleEntry<>(allPages, consumedUnits);
+                            };
+                            Supplier<AbstractMap.SimpleEntry<List<Map<String, AttributeValue>>, Double>> recordedQuery =
+                                    () -> DynamoMetrics.record("Query", def.tableName, indexName, queryAllPages,
+                                            (metrics, res) -> {
+                                                metrics.addItems(res.getKey().size());
+                                                metrics.addReadUnits(res.getValue());
+                                            });
+                            // Share result with concurrent callers that query by same index and conditions
+                            String flightKey = "Query:" + def.tableName + ":" + indexName + ":" + conditionKey
+                                    + (hashKeyValues.size() > 1 ? "@" + hashKeyValue : "")
+                                    + (projection != null ? ":" + projection : "") + (limitOfIndex != null ? ":" + limitOfIndex : "");
+                            return SingleFlight.execute(flightKey, () -> {
+                                List<Map<String, AttributeValue>> itemsOfIndex = CapacityRateLimiter.execute(
+                                        CapacityRateLimiter.forRead(def, indexName),
+                                        recordedQuery, AbstractMap.SimpleEntry::getValue).getKey();
+                                return isFetchingBack ? fetchBackFromTable(def, itemsOfIndex, attributesOfTable) : itemsOfIndex;
+                            });
+                        };
+                        String rangeKeyOfIndex = gsiKey.keyAndAttributes.stream()
+                                .filter(key -> key.getValue() == KeyType.RANGE)
+                                .map(AbstractMap.SimpleEntry::getKey).findFirst().orElse(null);
+                        List<Map<String, AttributeValue>> items = hashKeyValues.size() == 1 ?
+                                queryByHashKey.apply(hashKeyValues.get(0)) :
+                                scatterGather(hashKeyValues, queryByHashKey, rangeKeyOfIndex, limitOfIndex);
+                        for(Map<String, AttributeValue> item: items) {
+                            resultEntities.add(dataCondition.getClass().newInstance().insertResultIntoModel(item));
+                            System.out.print("[LAAAS/DDB(Query by GSI)]: ROW RESULT: " + item + "\n");
                         }
                     } catch (AmazonDynamoDBException e) {
                         e.printStackTrace();
@@ -254,32 +822,468 @@ public class RecordCrudFacade {
         return resultEntities;
     }
 
+    /**
+     * Query by sharded partition key without sort key
+     * Shard of partition key is selected by sort key, so query is scattered across all shards and merged in order of sort key.
+     * @param dataCondition query parameter as table model ( Partition key is set and sort key is not set )
+     * @param projection attribute names to get, or null to get all attributes
+     * @param limit max count of records, or null for all records
+     * @return records in all shards ( Empty when partition key is not sharded or sort key is set )
+     */
+    private static List<IGenericDynamoDbTable> queryByShardedPartitionKey(IGenericDynamoDbTable dataCondition,
+                                                                          Set<String> projection, Integer limit)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException, DoesNotExistsFunctionException {
+        TableDefinition def = dataCondition.toTableDefinition();
+        List<IGenericDynamoDbTable> resultEntities = new ArrayList<>();
+        if(def.partitionKey.getValue() == null || def.sortKey == null || def.sortKey.getValue() != null) {
+            return resultEntities;
+        }
+        int shards = shardsOfField(dataCondition.getClass(), def.partitionKey.getKey());
+        if(shards <= 1) {
+            return resultEntities;
+        }
+        System.out.println("[LAAAS/DDB(Query by sharded key)] SCATTER QUERY: " + def.tableName + " "
+                + def.partitionKey.getKey() + "=" + def.partitionKey.getValue() + " ( " + shards + " SHARDS )");
+
+        Map<String, String> names = new HashMap<>(projection != null ? projectionNamesOf(projection) : Collections.emptyMap());
+        names.put("#pk", def.partitionKey.getKey());
+        // Query of single shard ( All pages up to limit )
+        Function<Object, List<Map<String, AttributeValue>>> queryByShard = storedValue -> {
+            List<Map<String, AttributeValue>> items = new ArrayList<>();
+            Map<String, AttributeValue> lastEvaluatedKey = null;
+            do {
+                QueryRequest request = new QueryRequest()
+                        .withTableName(def.tableName)
+                        .withKeyConditionExpression("#pk = :pk")
+                        .withExpressionAttributeNames(names)
+                        .withExpressionAttributeValues(Collections.singletonMap(":pk", new AttributeValue((String) storedValue)))
+                        .withExclusiveStartKey(lastEvaluatedKey)
+                        .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+                if(projection != null) {
+                    request.withProjectionExpression(projectionExpressionOf(projection));
+                }
+                if(limit != null) {
+                    request.withLimit(limit - items.size());
+                }
+                QueryResult page = CapacityRateLimiter.execute(CapacityRateLimiter.forRead(def, null),
+                        () -> DynamoMetrics.record("Query", def.tableName, null,
+                                () -> DynamoClientProvider.getClient().query(request),
+                                (metrics, res) -> {
+                                    metrics.addItems(res.getItems().size());
+                                    metrics.addReadUnits(CapacityRateLimiter.unitsOf(res.getConsumedCapacity()));
+                                }),
+                        res -> CapacityRateLimiter.unitsOf(res.getConsumedCapacity()));
+                items.addAll(page.getItems());
+                lastEvaluatedKey = page.getLastEvaluatedKey();
+            } while(lastEvaluatedKey != null && !lastEvaluatedKey.isEmpty() && (limit == null || items.size() < limit));
+            return items;
+        };
+        List<Object> storedValues = new ArrayList<>(
+                KeySharding.allStoredValuesOf(String.valueOf(def.partitionKey.getValue()), shards));
+        for(Map<String, AttributeValue> item: scatterGather(storedValues, queryByShard, def.sortKey.getKey(), limit)) {
+            resultEntities.add(dataCondition.getClass().newInstance().insertResultIntoModel(item));
+        }
+        System.out.println("[LAAAS/DDB(Query by sharded key)] GOT " + resultEntities.size() + " RECORDS");
+        return resultEntities;
+    }
+
+    /**
+     * Query all shards of HASH key concurrently and merge results
+     * Merged items are sorted by range key when it is given, as same as query of single partition.
+     * @param hashKeyValues values of HASH key with suffix of each shard
+     * @param queryByHashKey query by single value of HASH key
+     * @param rangeKey name of range key of table or index, or null when it has no sort key
+     * @param limit max count of records, or null for all records
+     * @return merged items
+     */
+    private static List<Map<String, AttributeValue>> scatterGather(List<Object> hashKeyValues,
+                                                                   Function<Object, List<Map<String, AttributeValue>>> queryByHashKey,
+                                                                   String rangeKey, Integer limit) {
+        List<CompletableFuture<List<Map<String, AttributeValue>>>> futures = hashKeyValues.stream()
+                .map(hashKeyValue -> CompletableFuture.supplyAsync(() -> queryByHashKey.apply(hashKeyValue),
+                        ScatterExecutorHolder.executor))
+                .collect(Collectors.toList());
+        List<Map<String, AttributeValue>> merged = new ArrayList<>();
+        try {
+            futures.forEach(future -> merged.addAll(future.join()));
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        if(rangeKey != null) {
+            merged.sort(Comparator.comparing(item -> item.get(rangeKey), RecordCrudFacade::compareRangeKey));
+        }
+        return limit != null && merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    private static int compareRangeKey(AttributeValue left, AttributeValue right) {
+        if(left == null || right == null) {
+            return left == null ? (right == null ? 0 : 1) : -1;
+        }
+        if(left.getN() != null && right.getN() != null) {
+            return new java.math.BigDecimal(left.getN()).compareTo(new java.math.BigDecimal(right.getN()));
+        }
+        if(left.getB() != null && right.getB() != null) {
+            return left.getB().compareTo(right.getB());
+        }
+        return String.valueOf(left.getS()).compareTo(String.valueOf(right.getS()));
+    }
+
+    private static int shardsOfField(Class<?> model, String fieldName) {
+        try {
+            return KeySharding.shardsOf(model.getDeclaredField(fieldName));
+        } catch (NoSuchFieldException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Query records of entity in time range from time-series table ( Table model annotated by TimeSeries )
+     * Buckets that cover range are queried in parallel, and results are streamed in order of time.
+     * Buckets are ordered by time and records in each bucket are sorted by timestamp, so buckets are only concatenated.
+     * Records of first bucket can be consumed while following buckets are queried.
+     * Up to LAAAS_DDB_MAX_SCATTER_CONCURRENCY buckets are queried ahead ( 16 by default ), and next bucket is started
+     * when head bucket is consumed. Close stream ( e.g. try-with-resources ) to cancel buckets that are not consumed.
+     * @param model class of time-series table
+     * @param entity value of partition key without bucket
+     * @param from start of range ( Inclusive )
+     * @param to end of range ( Inclusive )
+     * @param <T> class of table model
+     * @return records in order of timestamp
+     * @throws InvalidParametersInDynamoDbException Throws when model is not time-series table or range is invalid
+     * @throws IllegalAccessException Throws: TableDefinition, Creating new instance to inserting result
+     * @throws InstantiationException Throws when failed create new instance to inserting result
+     */
+    public static <T extends IGenericDynamoDbTable> Stream<T> queryTimeRange(Class<T> model, String entity,
+                                                                             Instant from, Instant to)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException {
+        if(!model.isAnnotationPresent(TimeSeries.class)) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Time series)] "
+                    + model.getName() + " is not annotated by TimeSeries");
+        }
+        if(entity == null || from == null || to == null || from.isAfter(to)) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Time series)] Invalid range of "
+                    + entity + ": " + from + " - " + to);
+        }
+        TableDefinition def = new TableDefinition(model);
+        IGenericDynamoDbTable prototype = model.newInstance();
+        List<String> buckets = TimeSeriesKeys.bucketsBetween(entity, TimeSeriesKeys.bucketOf(model), from, to);
+        System.out.println("[LAAAS/DDB(Time series)] " + def.tableName + ": Query " + buckets.size() + " buckets of " + entity);
+
+        Map<String, String> names = new HashMap<>();
+        names.put("#entity", def.partitionKey.getKey());
+        names.put("#timestamp", def.sortKey.getKey());
+        // Query of single bucket ( All pages )
+        Function<String, List<Map<String, AttributeValue>>> queryBucket = bucket -> {
+            Map<String, AttributeValue> values = new HashMap<>();
+            values.put(":bucket", new AttributeValue(bucket));
+            values.put(":from", new AttributeValue(TimeSeriesKeys.format(from)));
+            values.put(":to", new AttributeValue(TimeSeriesKeys.format(to)));
+            // SimpleEntry<Items of all pages, Consumed capacity units of all pages>
+            Supplier<AbstractMap.SimpleEntry<List<Map<String, AttributeValue>>, Double>> queryAllPages = () -> {
+                DynamoMetrics.OperationMetrics metrics = DynamoMetrics.get("Query", def.tableName, null);
+                List<Map<String, AttributeValue>> allPages = new ArrayList<>();
+                double consumedUnits = 0;
+                Map<String, AttributeValue> startKey = null;
+                do {
+                    QueryResult pageResult = DynamoClientProvider.getClient().query(new QueryRequest()
+                            .withTableName(def.tableName)
+                            .withKeyConditionExpression("#entity = :bucket AND #timestamp BETWEEN :from AND :to")
+                            .withExpressionAttributeNames(names)
+                            .withExpressionAttributeValues(values)
+                            .withExclusiveStartKey(startKey)
+                            .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+                    allPages.addAll(pageResult.getItems());
+                    consumedUnits += CapacityRateLimiter.unitsOf(pageResult.getConsumedCapacity());
+                    metrics.addPages(1);
+                    startKey = pageResult.getLastEvaluatedKey();
+                } while(startKey != null && !startKey.isEmpty());
+                return new AbstractMap.SimpleEntry<>(allPages, consumedUnits);
+            };
+            Supplier<AbstractMap.SimpleEntry<List<Map<String, AttributeValue>>, Double>> recordedQuery =
+                    () -> DynamoMetrics.record("Query", def.tableName, null, queryAllPages,
+                            (metrics, res) -> {
+                                metrics.addItems(res.getKey().size());
+                                metrics.addReadUnits(res.getValue());
+                            });
+            return CapacityRateLimiter.execute(CapacityRateLimiter.forRead(def, null),
+                    recordedQuery, AbstractMap.SimpleEntry::getValue).getKey();
+        };
+        // Convert item into model
+        Function<Map<String, AttributeValue>, T> toModel = item -> {
+            try {
+                return model.cast(prototype.insertResultIntoModel(item));
+            } catch (IllegalAccessException | DoesNotExistsFunctionException | InstantiationException e) {
+                throw new RuntimeException(e);
+            }
+        };
+
+        // Sliding window of buckets in flight ( In order of time )
+        int window = ScatterExecutorHolder.maxConcurrency();
+        Iterator<String> notStarted = buckets.iterator();
+        Deque<CompletableFuture<List<Map<String, AttributeValue>>>> inFlight = new ArrayDeque<>();
+        Runnable fillWindow = () -> {
+            while(inFlight.size() < window && notStarted.hasNext()) {
+                String bucket = notStarted.next();
+                inFlight.add(CompletableFuture.supplyAsync(() -> queryBucket.apply(bucket), ScatterExecutorHolder.executor));
+            }
+        };
+        Runnable cancelAll = () -> {
+            inFlight.forEach(future -> future.cancel(true));
+            inFlight.clear();
+            while(notStarted.hasNext()) notStarted.next();
+        };
+        Iterator<List<Map<String, AttributeValue>>> results = new Iterator<List<Map<String, AttributeValue>>>() {
+            @Override
+            public boolean hasNext() {
+                return !inFlight.isEmpty();
+            }
+
+            @Override
+            public List<Map<String, AttributeValue>> next() {
+                CompletableFuture<List<Map<String, AttributeValue>>> head = inFlight.poll();
+                if(head == null) {
+                    throw new NoSuchElementException();
+                }
+                // Next bucket is queried while head bucket is consumed
+                fillWindow.run();
+                try {
+                    return head.join();
+                } catch (CompletionException e) {
+                    cancelAll.run();
+                    if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                    throw e;
+                }
+            }
+        };
+        fillWindow.run();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED), false)
+                .onClose(cancelAll)
+                .flatMap(List::stream)
+                .map(toModel);
+    }
+
+    /**
+     * Get attributes that are not projected into index from table by BatchGetItem
+     * @param def table definition
+     * @param items items read from index
+     * @param attributes attribute names to get from table, or null to get all attributes
+     * @return items merged with attributes of table in same order ( Items deleted from table after querying are excluded )
+     */
+    private static List<Map<String, AttributeValue>> fetchBackFromTable(TableDefinition def,
+                                                                       List<Map<String, AttributeValue>> items,
+                                                                       Set<String> attributes) {
+        String partitionKey = def.partitionKey.getKey();
+        String sortKey = def.sortKey != null ? def.sortKey.getKey() : null;
+        Function<Map<String, AttributeValue>, Map<String, AttributeValue>> keyOf = item -> {
+            Map<String, AttributeValue> key = new HashMap<>();
+            key.put(partitionKey, item.get(partitionKey));
+            if(sortKey != null) key.put(sortKey, item.get(sortKey));
+            return key;
+        };
+        Set<String> projection = null;
+        if(attributes != null) {
+            projection = new TreeSet<>(attributes);
+            projection.add(partitionKey);
+            if(sortKey != null) projection.add(sortKey);
+        }
+
+        // Map<Table keys, Item of table>
+        Map<Map<String, AttributeValue>, Map<String, AttributeValue>> fetched = new HashMap<>();
+        List<Map<String, AttributeValue>> keys = items.stream().map(keyOf).distinct().collect(Collectors.toList());
+        for(int from = 0; from < keys.size(); from += maxBatchGetKeys) {
+            KeysAndAttributes keysAndAttributes = new KeysAndAttributes()
+                    .withKeys(keys.subList(from, Math.min(from + maxBatchGetKeys, keys.size())));
+            if(projection != null) {
+                keysAndAttributes.withProjectionExpression(projectionExpressionOf(projection))
+                        .withExpressionAttributeNames(projectionNamesOf(projection));
+            }
+            Map<String, KeysAndAttributes> requestItems = Collections.singletonMap(def.tableName, keysAndAttributes);
+            for(int attempt = 0; requestItems != null && !requestItems.isEmpty(); attempt++) {
+                if(attempt >= maxBatchGetAttempts) {
+                    throw new ProvisionedThroughputExceededException("[LAAAS/DDB(Query by GSI)] Keys are not processed after "
+                            + attempt + " attempts: " + def.tableName);
+                }
+                if(attempt > 0) {
+                    try {
+                        Thread.sleep(Math.min(50L << attempt, 1000L));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new AmazonClientException("Interrupted while fetching back from " + def.tableName, e);
+                    }
+                }
+                BatchGetItemRequest request = new BatchGetItemRequest().withRequestItems(requestItems)
+                        .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+                BatchGetItemResult result = CapacityRateLimiter.execute(CapacityRateLimiter.forRead(def, null),
+                        () -> DynamoMetrics.record("BatchGetItem", def.tableName, null,
+                                () -> DynamoClientProvider.getClient().batchGetItem(request),
+                                (metrics, res) -> {
+                                    metrics.addReadUnits(consumedUnitsOf(res.getConsumedCapacity()));
+                                    if(res.getResponses().get(def.tableName) != null) {
+                                        metrics.addItems(res.getResponses().get(def.tableName).size());
+                                    }
+                                }),
+                        res -> consumedUnitsOf(res.getConsumedCapacity()));
+                if(result.getResponses().get(def.tableName) != null) {
+                    result.getResponses().get(def.tableName).forEach(item -> fetched.put(keyOf.apply(item), item));
+                }
+                requestItems = result.getUnprocessedKeys();
+            }
+        }
+
+        List<Map<String, AttributeValue>> merged = new ArrayList<>();
+        for(Map<String, AttributeValue> item: items) {
+            Map<String, AttributeValue> itemOfTable = fetched.get(keyOf.apply(item));
+            if(itemOfTable != null) {
+                Map<String, AttributeValue> mergedItem = new HashMap<>(item);
+                mergedItem.putAll(itemOfTable);
+                merged.add(mergedItem);
+            }
+        }
+        return merged;
+    }
+
+    private static double consumedUnitsOf(List<ConsumedCapacity> capacities) {
+        return capacities != null ? capacities.stream().mapToDouble(CapacityRateLimiter::unitsOf).sum() : 1.0;
+    }
+
+    /**
+     * @param projection attribute names
+     * @return projection expression with placeholders ( #p0, #p1, ... )
+     */
+    private static String projectionExpressionOf(Set<String> projection) {
+        StringBuilder expression = new StringBuilder();
+        for (int index = 0; index < projection.size(); index++) {
+            expression.append(index > 0 ? ", " : "").append("#p").append(index);
+        }
+        return expression.toString();
+    }
+
+    /**
+     * @param projection attribute names
+     * @return Map( Placeholder, Attribute name ) in same order as projectionExpressionOf
+     */
+    private static Map<String, String> projectionNamesOf(Set<String> projection) {
+        Map<String, String> names = new HashMap<>();
+        int index = 0;
+        for (String attributeName: projection) {
+            names.put("#p" + index++, attributeName);
+        }
+        return names;
+    }
+
+    /**
+     * Update fields of single record by one UpdateItem without reading current record
+     * Counters, sets and lists are changed in DynamoDB, so concurrent mutations need not retry.
+     * Record is created when not exists ( Only keys and mutated fields ), and Version field is incremented if exists.
+     * Root annotated by SingleTable is mutated in its partition of single table.
+     * @param key record that has table keys ( Other fields are ignored )
+     * @param mutations actions to applying ( Each field can be mutated once )
+     * @return record after mutation, or null when table is not exists
+     * @throws InvalidParametersInDynamoDbException Throws when data model is not annotated or mutation is invalid
+     * @throws IllegalAccessException Throws: TableDefinition, Creating new instance to inserting result
+     * @throws InstantiationException Throws when failed create new instance to inserting result
+     * @throws DoesNotExistsFunctionException Throws when failed create new instance to inserting result
+     */
+    public static IGenericDynamoDbTable mutate(IGenericDynamoDbTable key, Mutation... mutations)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException,
+            InstantiationException, DoesNotExistsFunctionException {
+        if(mutations.length == 0) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Mutation)] Mutations are empty");
+        }
+        boolean isSingleTable = SingleTableFacade.isSingleTable(key.getClass());
+        if(!isSingleTable && !TableCrudFacade.isExistsTable(key.getClass())) {
+            return null;
+        }
+        TableDefinition def = key.toTableDefinition();
+        // Table to writing ( Physical table for root of single table )
+        TableDefinition tableDef = isSingleTable ? SingleTableFacade.definitionOf(key.getClass()) : def;
+
+        // Map<Action, Clauses>
+        Map<String, List<String>> clausesOfActions = new LinkedHashMap<>();
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        for(int index = 0; index < mutations.length; index++) {
+            Mutation mutation = mutations[index];
+            mutation.validate(key.getClass());
+            if(names.containsValue(mutation.fieldName)) {
+                throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Mutation)] Field is mutated twice: " + mutation.fieldName);
+            }
+            names.put("#m" + index, mutation.fieldName);
+            values.put(":m" + index, mutation.value);
+            if(mutation.type == Mutation.EMutationType.APPEND_TO_LIST) {
+                values.putIfAbsent(":emptyList", new AttributeValue().withL(Collections.emptyList()));
+            }
+            clausesOfActions.computeIfAbsent(mutation.type.action, action -> new ArrayList<>())
+                    .add(mutation.toClause("#m" + index, ":m" + index, ":emptyList"));
+        }
+        if(def.version != null) {
+            names.put("#version", def.version.getKey());
+            values.put(":versionDelta", new AttributeValue().withN("1"));
+            clausesOfActions.computeIfAbsent("ADD", action -> new ArrayList<>()).add("#version :versionDelta");
+        }
+        if(isSingleTable) {
+            // Created item of single table needs keys of model and type
+            Map<String, AttributeValue> attributes = getTableKeysForCondition(key);
+            attributes.put(SingleTableFacade.typeName, new AttributeValue(SingleTableFacade.typeOf(key.getClass())));
+            int index = 0;
+            for(Map.Entry<String, AttributeValue> attribute: attributes.entrySet()) {
+                names.put("#s" + index, attribute.getKey());
+                values.put(":s" + index, attribute.getValue());
+                clausesOfActions.computeIfAbsent("SET", action -> new ArrayList<>()).add("#s" + index + " = :s" + index);
+                index++;
+            }
+        }
+        String expression = clausesOfActions.entrySet().stream()
+                .map(clauses -> clauses.getKey() + " " + String.join(", ", clauses.getValue()))
+                .collect(Collectors.joining(" "));
+        System.out.println("[LAAAS/DDB(Mutation)] " + tableDef.tableName + ": " + expression);
+
+        UpdateItemRequest request = new UpdateItemRequest()
+                .withTableName(tableDef.tableName)
+                .withKey(isSingleTable ? SingleTableFacade.keyMapOf(key) : getTableKeysForCondition(key))
+                .withUpdateExpression(expression)
+                .withExpressionAttributeNames(names)
+                .withExpressionAttributeValues(values)
+                .withReturnValues(ReturnValue.ALL_NEW)
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        UpdateItemResult result = CapacityRateLimiter.execute(CapacityRateLimiter.forWrite(tableDef),
+                () -> DynamoMetrics.record("UpdateItem", tableDef.tableName, null,
+                        () -> DynamoClientProvider.getClient().updateItem(request),
+                        (metrics, res) -> metrics.addWriteUnits(
+                                CapacityRateLimiter.unitsOf(res.getConsumedCapacity()))),
+                res -> CapacityRateLimiter.unitsOf(res.getConsumedCapacity()));
+        RecordCache.invalidate(def);
+        return key.getClass().newInstance().insertResultIntoModel(isSingleTable ?
+                SingleTableFacade.attributesOf(result.getAttributes()) : result.getAttributes());
+    }
+
     /**
      * Update single table by single record
+     * Record is replaced by conditional put without reading and deleting current record
+     * ( Condition is version for record that has Version field, or existence of record for others ).
+     * Root annotated by SingleTable is replaced by put, so related records in its partition are kept.
      * @param record to updating
-     * @return Changed record
+     * @return Changed record, or null when record does not exist
      * @throws InvalidParametersInDynamoDbException Throws when data model is not annotated by DynamoDBTable
      * @throws IllegalAccessException Throws: TableDefinition, Creating new instance to inserting result
      * @throws InstantiationException Throws when failed create new instance to inserting result
      * @throws DoesNotExistsFunctionException Throws when failed create new instance to inserting result
+     * @throws VersionConflictException Throws when version of record is conflicted ( Read record again and retry )
      */
     public static IGenericDynamoDbTable updateSingleRecord(IGenericDynamoDbTable record)
             throws InvalidParametersInDynamoDbException, IllegalAccessException,
             InstantiationException, DoesNotExistsFunctionException {
-        if(TableCrudFacade.isExistsTable(record.getClass()) && isExistRecordHasSameKey(record)) {
-            // Get current record ( Keys as same )
-            IGenericDynamoDbTable before = queryByTableKeys(record);
-            if(before != null) {
-                // Set new record after delete
-                RecordCrudFacade.deleteSingleRecord(before);
-                return RecordCrudFacade.insertSingleRecord(record);
-            }
+        if(SingleTableFacade.isSingleTable(record.getClass())) {
+            return putSingleRecord(record, true);
         }
-        return null;
+        // Version or existence of record in table is checked by condition of put
+        return TableCrudFacade.isExistsTable(record.getClass()) ? putSingleRecord(record, true) : null;
     }
 
     /**
      * Delete single record
+     * Only root item is deleted for root annotated by SingleTable ( Use SingleTableFacade#deleteGraph to delete related records too ).
      * @param record to deleting
      * @throws AmazonServiceException Throws errors had be occurred in AWS
      * @throws InvalidParametersInDynamoDbException Throws when data model is not annotated by DynamoDBTable
@@ -290,8 +1294,23 @@ public class RecordCrudFacade {
     public static DeleteItemResult deleteSingleRecord(IGenericDynamoDbTable record)
             throws AmazonServiceException, InvalidParametersInDynamoDbException,
             IllegalAccessException, InstantiationException, DoesNotExistsFunctionException {
+        if(SingleTableFacade.isSingleTable(record.getClass())) {
+            return isExistRecordHasSameKey(record) ? SingleTableFacade.deleteRecord(record) : null;
+        }
         if(TableCrudFacade.isExistsTable(record.getClass()) && isExistRecordHasSameKey(record)) {
-            return client.deleteItem(record.toTableDefinition().tableName, getTableKeysForCondition(record));
+            TableDefinition def = record.toTableDefinition();
+            DeleteItemRequest request = new DeleteItemRequest()
+                    .withTableName(def.tableName)
+                    .withKey(getTableKeysForCondition(record))
+                    .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            DeleteItemResult result = CapacityRateLimiter.execute(CapacityRateLimiter.forWrite(def),
+                    () -> DynamoMetrics.record("DeleteItem", def.tableName, null,
+                            () -> DynamoClientProvider.getClient().deleteItem(request),
+                            (metrics, res) -> metrics.addWriteUnits(
+                                    CapacityRateLimiter.unitsOf(res.getConsumedCapacity()))),
+                    res -> CapacityRateLimiter.unitsOf(res.getConsumedCapacity()));
+            RecordCache.invalidate(record.toTableDefinition());
+            return result;
         }
         return null;
     }
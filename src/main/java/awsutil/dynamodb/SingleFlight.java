@@ -0,0 +1,74 @@
+package awsutil.dynamodb;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collapse concurrent identical reads into single request
+ * First caller of key executes request, and other callers that come while the request is in flight
+ * wait and share its result ( or exception ). Shared result must not be modified by callers.
+ */
+public class SingleFlight {
+
+    // Map<Key of request, Result of request in flight>
+    private static final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    // Count of requests that is actually executed
+    private static final AtomicLong executedCount = new AtomicLong();
+    // Count of requests that shared result of other request
+    private static final AtomicLong sharedCount = new AtomicLong();
+
+    /**
+     * Execute request, or wait result of same request in flight
+     * @param key identifier of request ( Table, index and conditions )
+     * @param request request to executing
+     * @param <T> type of result
+     * @return result of request
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T execute(String key, Supplier<T> request) {
+        CompletableFuture<Object> ownFlight = new CompletableFuture<>();
+        CompletableFuture<Object> currentFlight = inFlight.putIfAbsent(key, ownFlight);
+
+        if (currentFlight != null) {
+            // Same request is in flight
+            sharedCount.incrementAndGet();
+            try {
+                return (T) currentFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                throw e;
+            }
+        }
+
+        executedCount.incrementAndGet();
+        try {
+            T result = request.get();
+            ownFlight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Error is also shared, so waiting callers are not blocked forever
+            ownFlight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, ownFlight);
+        }
+    }
+
+    /**
+     * @return Count of requests that is actually executed
+     */
+    public static long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * @return Count of requests that shared result of other request
+     */
+    public static long getSharedCount() {
+        return sharedCount.get();
+    }
+}
@@ -0,0 +1,715 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.exceptions.DoesNotExistsFunctionException;
+import awsutil.dynamodb.exceptions.ExistsCircularReferenceException;
+import awsutil.dynamodb.exceptions.InvalidDynamoFieldTypeException;
+import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import awsutil.dynamodb.exceptions.VersionConflictException;
+import awsutil.dynamodb.tabledefinition.*;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
+import com.amazonaws.services.dynamodbv2.document.Table;
+import com.amazonaws.services.dynamodbv2.document.spec.PutItemSpec;
+import com.amazonaws.services.dynamodbv2.model.*;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Records of relation graph in single physical table ( Adjacency list )
+ * Opt-in by SingleTable annotation on root table model. All records that are put with root are stored in partition of root:
+ *  _pk: {Table name of root}#{Partition key of root}[#{Sort key of root}]
+ *  _sk: {Table name of record}#{Partition key of record}[#{Sort key of record}] ( Same as _pk for root )
+ *  _type: Table name of record ( Table name that is set in DynamoDBTable without bundler identifier )
+ * Other attributes are same as item of each table model, so root and all related records are got by single Query.
+ * Record that is related from multiple roots is stored in partition of each root.
+ * RecordCrudFacade routes records of root table model here ( Inserting, getting by table keys, updating, mutating and deleting ),
+ * so records of root are not written into table of DynamoDBTable.
+ */
+public class SingleTableFacade {
+
+    static final String partitionKeyName = "_pk";
+    static final String sortKeyName = "_sk";
+    static final String typeName = "_type";
+    private static final String separator = "#";
+    // Max count of actions in single TransactWriteItems request
+    private static final int maxTransactItems = 100;
+
+    /**
+     * @param tableModel table model
+     * @return whether table model is stored in single table as root
+     */
+    public static boolean isSingleTable(Class<?> tableModel) {
+        return tableModel.isAnnotationPresent(SingleTable.class);
+    }
+
+    /**
+     * @param root table model of root
+     * @return name of physical table
+     * @throws InvalidParametersInDynamoDbException Throws when root is not annotated by SingleTable
+     */
+    public static String tableNameOf(Class<? extends IGenericDynamoDbTable> root) throws InvalidParametersInDynamoDbException {
+        if (!isSingleTable(root)) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Single table)] "
+                    + root.getName() + " is not annotated by SingleTable");
+        }
+        return TableDefinition.toPhysicalTableName(root.getAnnotation(SingleTable.class).tableName());
+    }
+
+    /**
+     * Create physical table for relation graph from root
+     * Capacity and billing mode are same as DynamoDBTable of root.
+     * @param root table model of root
+     * @return created table
+     * @throws InvalidParametersInDynamoDbException Throws when root is not annotated by SingleTable or DynamoDBTable
+     * @throws IllegalAccessException Throws when can not access to field of root
+     * @throws InterruptedException Throws by waiting for active table
+     */
+    public static Table createTable(Class<? extends IGenericDynamoDbTable> root)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InterruptedException {
+        TableDefinition def = definitionOf(root);
+        CreateTableRequest request = new CreateTableRequest().withTableName(def.tableName)
+                .withBillingMode(def.billingMode)
+                .withAttributeDefinitions(
+                        new AttributeDefinition(partitionKeyName, ScalarAttributeType.S),
+                        new AttributeDefinition(sortKeyName, ScalarAttributeType.S))
+                .withKeySchema(
+                        new KeySchemaElement(partitionKeyName, KeyType.HASH),
+                        new KeySchemaElement(sortKeyName, KeyType.RANGE));
+        if (def.billingMode != BillingMode.PAY_PER_REQUEST) {
+            request.setProvisionedThroughput(new ProvisionedThroughput(def.readCapacityUnit, def.writeCapacityUnit));
+        }
+        Table table = DynamoMetrics.record("CreateTable", def.tableName, null,
+                () -> DynamoClientProvider.getDynamoDB().createTable(request), null);
+        table.waitForActive();
+        return table;
+    }
+
+    /**
+     * Put root and related records into partition of root by TransactWriteItems
+     * @param root root record of relation graph
+     * @param related records of tables that are related from root by ExternalRelation
+     * @return put records ( Root is first )
+     * @throws InvalidParametersInDynamoDbException Throws when record is not in relation graph of root, or keys are not set or duplicated
+     * @throws IllegalAccessException Throws when can not access to field of record
+     * @throws DoesNotExistsFunctionException Throws when failed converting record to item
+     * @throws ExistsCircularReferenceException Throws when relation graph of root has circular reference
+     * @throws InvalidDynamoFieldTypeException Throws when isAutoGen is set to invalid type of field
+     * @throws InstantiationException Throws when failed create new instance of record
+     * @throws AmazonServiceException Throws errors had be occurred in AWS ( e.g. TransactionCanceledException )
+     * @throws VersionConflictException Throws when version of record that has Version field is conflicted
+     */
+    public static List<IGenericDynamoDbTable> putGraph(IGenericDynamoDbTable root,
+                                                       Collection<? extends IGenericDynamoDbTable> related)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, DoesNotExistsFunctionException,
+            ExistsCircularReferenceException, InvalidDynamoFieldTypeException, InstantiationException,
+            AmazonServiceException {
+        return putGraph(root, related, null);
+    }
+
+    /**
+     * Put root and related records into partition of root by TransactWriteItems with idempotency token
+     * @param root root record of relation graph
+     * @param related records of tables that are related from root by ExternalRelation
+     * @param idempotencyToken token of this calling ( Same token for retrying same graph ), or null to generating new token
+     * @return put records ( Root is first )
+     * @throws InvalidParametersInDynamoDbException Throws when record is not in relation graph of root, or keys are not set or duplicated
+     * @throws IllegalAccessException Throws when can not access to field of record
+     * @throws DoesNotExistsFunctionException Throws when failed converting record to item
+     * @throws ExistsCircularReferenceException Throws when relation graph of root has circular reference
+     * @throws InvalidDynamoFieldTypeException Throws when isAutoGen is set to invalid type of field
+     * @throws InstantiationException Throws when failed create new instance of record
+     * @throws AmazonServiceException Throws errors had be occurred in AWS ( e.g. TransactionCanceledException )
+     * @throws VersionConflictException Throws when version of record that has Version field is conflicted
+     */
+    public static List<IGenericDynamoDbTable> putGraph(IGenericDynamoDbTable root,
+                                                       Collection<? extends IGenericDynamoDbTable> related,
+                                                       String idempotencyToken)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, DoesNotExistsFunctionException,
+            ExistsCircularReferenceException, InvalidDynamoFieldTypeException, InstantiationException,
+            AmazonServiceException {
+        return putGraph(root, related, Collections.emptyList(), idempotencyToken);
+    }
+
+    /**
+     * Put root and related records into partition of root by TransactWriteItems with checking existence of other records
+     * Related records must be reachable from root by values of relation fields ( Partition of root is not shared with other graph ).
+     * Conditions of required records are written in first transaction, so nothing is written when required record is not exists.
+     * @param root root record of relation graph
+     * @param related records of tables that are related from root by ExternalRelation
+     * @param requiredRecords records that must exist at writing ( Only table keys are used, root of single table is checked in single table )
+     * @param idempotencyToken token of this calling ( Same token for retrying same graph ), or null to generating new token
+     * @return put records ( Root is first )
+     * @throws InvalidParametersInDynamoDbException Throws when record is not in relation graph of root, keys are not set or duplicated,
+     *                                              or required records are too many for single transaction
+     * @throws IllegalAccessException Throws when can not access to field of record
+     * @throws DoesNotExistsFunctionException Throws when failed converting record to item
+     * @throws ExistsCircularReferenceException Throws when relation graph of root has circular reference
+     * @throws InvalidDynamoFieldTypeException Throws when isAutoGen is set to invalid type of field
+     * @throws InstantiationException Throws when failed create new instance of record
+     * @throws AmazonServiceException Throws errors had be occurred in AWS ( e.g. TransactionCanceledException )
+     * @throws VersionConflictException Throws when version of record that has Version field is conflicted
+     */
+    public static List<IGenericDynamoDbTable> putGraph(IGenericDynamoDbTable root,
+                                                       Collection<? extends IGenericDynamoDbTable> related,
+                                                       Collection<? extends IGenericDynamoDbTable> requiredRecords,
+                                                       String idempotencyToken)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, DoesNotExistsFunctionException,
+            ExistsCircularReferenceException, InvalidDynamoFieldTypeException, InstantiationException,
+            AmazonServiceException {
+        TableDefinition def = definitionOf(root.getClass());
+        System.out.println("[LAAAS/DDB(Single table)] START PUTTING GRAPH: " + def.tableName);
+
+        RelationGraph graph = RelationGraph.of(root.getClass());
+        List<IGenericDynamoDbTable> records = new ArrayList<>();
+        records.add(root.setRandomValueByAutoGen());
+        for (IGenericDynamoDbTable record: related) {
+            if (!graph.contains(record.getClass())) {
+                throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Single table)] "
+                        + record.getClass().getName() + " is not related from " + root.getClass().getName());
+            }
+            records.add(record.setRandomValueByAutoGen());
+        }
+        validateReachable(records);
+        // At least one record is written with conditions in first transaction
+        if (requiredRecords.size() >= maxTransactItems) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Single table)] "
+                    + "Required records should be less than " + maxTransactItems + ": " + requiredRecords.size());
+        }
+
+        String partition = keyOf(root);
+        List<TransactWriteItem> actions = new ArrayList<>();
+        // Conditions of version of each action ( Null for action without version )
+        List<VersionCondition> versionsOfActions = new ArrayList<>();
+        // Condition checks are placed first, so they are in first transaction
+        for (IGenericDynamoDbTable required: requiredRecords) {
+            actions.add(new TransactWriteItem().withConditionCheck(conditionCheckOf(required)));
+            versionsOfActions.add(null);
+        }
+        // Count of actions in written transactions
+        int countOfWritten = 0;
+        try {
+            Set<String> writtenKeys = new HashSet<>();
+            for (IGenericDynamoDbTable record: records) {
+                String sortKey = keyOf(record);
+                // Transaction can not contain multiple actions for same item
+                if (!writtenKeys.add(sortKey)) {
+                    throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Single table)] "
+                            + "Same keys are duplicated in graph: " + sortKey);
+                }
+                // Condition is added before converting, so version is restored when converting is failed
+                VersionCondition versionCondition = VersionCondition.of(record);
+                versionsOfActions.add(versionCondition);
+                Put put = new Put().withTableName(def.tableName).withItem(itemOf(record, partition, sortKey));
+                actions.add(new TransactWriteItem().withPut(versionCondition != null ? versionCondition.applyTo(put) : put));
+            }
+
+            // Objects of offloaded fields are put after all records are converted
+            OffloadedAttribute.upload(OffloadedAttribute.pendingObjectsOf(records));
+            // Same actions of other calling must not be taken as retrying ( DynamoDB ignores them in 10 minutes )
+            String tokenOfCalling = idempotencyToken != null ? idempotencyToken : UUID.randomUUID().toString();
+            // Write by each 100 actions with idempotency token
+            for (int head = 0; head < actions.size(); head += maxTransactItems) {
+                int tail = Math.min(head + maxTransactItems, actions.size());
+                List<TransactWriteItem> chunk = actions.subList(head, tail);
+                String token = RecordCrudFacade.tokenOf(tokenOfCalling, head);
+                System.out.println("[LAAAS/DDB(Single table)] WRITE " + chunk.size() + " ACTIONS BY TOKEN: " + token);
+                try {
+                    CapacityRateLimiter.executeAll(Collections.singletonMap(def.tableName, CapacityRateLimiter.forWrite(def)),
+                            () -> DynamoMetrics.record("TransactWriteItems", def.tableName, null,
+                                    () -> DynamoClientProvider.getClient().transactWriteItems(new TransactWriteItemsRequest()
+                                            .withTransactItems(chunk)
+                                            .withClientRequestToken(token)
+                                            .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL)),
+                                    (metrics, res) -> {
+                                        metrics.addItems(chunk.size());
+                                        if (res.getConsumedCapacity() != null) {
+                                            res.getConsumedCapacity().forEach(capacity ->
+                                                    metrics.addWriteUnits(CapacityRateLimiter.unitsOf(capacity)));
+                                        }
+                                    }),
+                            TransactWriteItemsResult::getConsumedCapacity);
+                } catch (TransactionCanceledException e) {
+                    // Versions of records in this and following chunks are not written
+                    VersionConflictException conflict = VersionCondition.conflictOf(e,
+                            versionsOfActions.subList(head, versionsOfActions.size()));
+                    if (conflict != null) throw conflict;
+                    throw e;
+                }
+                countOfWritten = tail;
+            }
+        } finally {
+            // Versions of records in transactions that are not written are restored ( Including failure of converting )
+            versionsOfActions.subList(countOfWritten, versionsOfActions.size()).stream()
+                    .filter(Objects::nonNull).forEach(VersionCondition::rollback);
+            // Records in written transactions refer their objects, and objects of others are deleted
+            int countOfWrittenRecords = Math.max(0, countOfWritten - requiredRecords.size());
+            OffloadedAttribute.commit(OffloadedAttribute.pendingObjectsOf(records.subList(0, countOfWrittenRecords)));
+            OffloadedAttribute.abort(OffloadedAttribute.pendingObjectsOf(records.subList(countOfWrittenRecords, records.size())));
+        }
+        System.out.println("[LAAAS/DDB(Single table)] DONE PUTTING " + records.size() + " RECORDS INTO " + partition);
+        return records;
+    }
+
+    /**
+     * Put only root record into partition of root by PutItem ( Related records in partition are not changed )
+     * @param root root record of relation graph
+     * @return put record
+     * @throws InvalidParametersInDynamoDbException Throws when root is not annotated by SingleTable or keys are not set
+     * @throws IllegalAccessException Throws when can not access to field of record
+     * @throws DoesNotExistsFunctionException Throws when failed converting record to item
+     * @throws InstantiationException Throws when failed create new instance of record
+     * @throws AmazonServiceException Throws errors had be occurred in AWS
+     * @throws VersionConflictException Throws when version of record that has Version field is conflicted
+     */
+    public static IGenericDynamoDbTable putRecord(IGenericDynamoDbTable root)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, DoesNotExistsFunctionException,
+            InstantiationException, AmazonServiceException {
+        return putRecord(root, false);
+    }
+
+    /**
+     * Put only root record, or replace only existing root record by conditional PutItem
+     * @param root root record of relation graph
+     * @param isUpdating whether root is put only when it exists ( Root that has Version field is checked by its version )
+     * @return put record, or null when root to updating does not exist
+     */
+    static IGenericDynamoDbTable putRecord(IGenericDynamoDbTable root, boolean isUpdating)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, DoesNotExistsFunctionException,
+            InstantiationException, AmazonServiceException {
+        TableDefinition def = definitionOf(root.getClass());
+        // Version is incremented before converting to item
+        VersionCondition versionCondition = VersionCondition.of(root);
+        // Objects of offloaded fields that are put for this item
+        List<OffloadedAttribute.PendingObject> objects = Collections.emptyList();
+        boolean isWritten = false;
+        try {
+            String partition = keyOf(root.setRandomValueByAutoGen());
+            Map<String, AttributeValue> item = itemOf(root, partition, partition);
+            PutItemSpec spec = new PutItemSpec().withItem(ItemUtils.toItem(item))
+                    .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            if (versionCondition != null) {
+                versionCondition.applyTo(spec);
+            } else if (isUpdating) {
+                spec.withConditionExpression("attribute_exists(#pk)").withNameMap(Collections.singletonMap("#pk", partitionKeyName));
+            }
+            Table table = DynamoClientProvider.getDynamoDB().getTable(def.tableName);
+            objects = OffloadedAttribute.pendingObjectsOf(Collections.singletonList(root));
+            OffloadedAttribute.upload(objects);
+            CapacityRateLimiter.execute(CapacityRateLimiter.forWrite(def),
+                    () -> DynamoMetrics.record("PutItem", def.tableName, null,
+                            () -> table.putItem(spec),
+                            (metrics, outcome) -> metrics.addWriteUnits(CapacityRateLimiter.unitsOf(
+                                    outcome.getPutItemResult().getConsumedCapacity()))),
+                    outcome -> CapacityRateLimiter.unitsOf(outcome.getPutItemResult().getConsumedCapacity()));
+            isWritten = true;
+            OffloadedAttribute.commit(objects);
+            System.out.println("[LAAAS/DDB(Single table)] PUT ROOT: " + partition);
+        } catch (ConditionalCheckFailedException e) {
+            if (versionCondition != null) throw versionCondition.toConflict();
+            if (isUpdating) {
+                System.out.println("[LAAAS/DDB(Single table)] SKIP UPDATING ROOT: Root does not exist");
+                return null;
+            }
+            throw e;
+        } catch (InvalidDynamoFieldTypeException | ExistsCircularReferenceException e) {
+            throw new RuntimeException(e);
+        } finally {
+            // Version is restored on every failure ( e.g. Throttling, Failure of converting or putting objects )
+            if (!isWritten) {
+                if (versionCondition != null) versionCondition.rollback();
+                OffloadedAttribute.abort(objects);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Get only root record by GetItem
+     * @param rootCondition root record that table keys are set
+     * @return root record, or null when not exists
+     * @throws InvalidParametersInDynamoDbException Throws when root is not annotated by SingleTable or keys are not set
+     * @throws IllegalAccessException Throws when can not access to field of record
+     * @throws InstantiationException Throws when failed create new instance to inserting result
+     * @throws DoesNotExistsFunctionException Throws when failed converting item to record
+     */
+    public static IGenericDynamoDbTable getRecord(IGenericDynamoDbTable rootCondition)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException,
+            DoesNotExistsFunctionException {
+        TableDefinition def = definitionOf(rootCondition.getClass());
+        GetItemRequest request = new GetItemRequest().withTableName(def.tableName)
+                .withKey(keyMapOf(rootCondition))
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        GetItemResult result = SingleFlight.execute("GetItem:" + def.tableName + ":" + request.getKey(),
+                () -> CapacityRateLimiter.execute(CapacityRateLimiter.forRead(def, null),
+                        () -> DynamoMetrics.record("GetItem", def.tableName, null,
+                                () -> DynamoClientProvider.getClient().getItem(request),
+                                (metrics, res) -> {
+                                    metrics.addReadUnits(CapacityRateLimiter.unitsOf(res.getConsumedCapacity()));
+                                    metrics.addItems(res.getItem() != null ? 1 : 0);
+                                }),
+                        res -> CapacityRateLimiter.unitsOf(res.getConsumedCapacity())));
+        return result.getItem() != null ?
+                rootCondition.getClass().newInstance().insertResultIntoModel(attributesOf(result.getItem())) : null;
+    }
+
+    /**
+     * Delete only root record by DeleteItem ( Use SingleTableFacade#deleteGraph to delete related records too )
+     * @param root root record that table keys are set
+     * @return result of deleting
+     * @throws InvalidParametersInDynamoDbException Throws when root is not annotated by SingleTable or keys are not set
+     * @throws IllegalAccessException Throws when can not access to field of record
+     * @throws InstantiationException Throws when failed create new instance of record
+     * @throws AmazonServiceException Throws errors had be occurred in AWS
+     */
+    public static DeleteItemResult deleteRecord(IGenericDynamoDbTable root)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException,
+            AmazonServiceException {
+        TableDefinition def = definitionOf(root.getClass());
+        DeleteItemRequest request = new DeleteItemRequest().withTableName(def.tableName)
+                .withKey(keyMapOf(root))
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        DeleteItemResult result = CapacityRateLimiter.execute(CapacityRateLimiter.forWrite(def),
+                () -> DynamoMetrics.record("DeleteItem", def.tableName, null,
+                        () -> DynamoClientProvider.getClient().deleteItem(request),
+                        (metrics, res) -> metrics.addWriteUnits(CapacityRateLimiter.unitsOf(res.getConsumedCapacity()))),
+                res -> CapacityRateLimiter.unitsOf(res.getConsumedCapacity()));
+        return result;
+    }
+
+    /**
+     * Delete root and all related records in partition of root by TransactWriteItems
+     * When partition has more than 100 items, items are deleted by multiple transactions ( Root is deleted in last transaction ).
+     * Objects of offloaded fields in deleted items are left for TableCrudFacade#sweepOffloadedObjects.
+     * @param root root record that table keys are set
+     * @return count of deleted items
+     * @throws InvalidParametersInDynamoDbException Throws when root is not annotated by SingleTable or keys are not set
+     * @throws IllegalAccessException Throws when can not access to field of record
+     * @throws InstantiationException Throws when failed create new instance of record
+     * @throws AmazonServiceException Throws errors had be occurred in AWS
+     */
+    public static int deleteGraph(IGenericDynamoDbTable root)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException,
+            AmazonServiceException {
+        TableDefinition def = definitionOf(root.getClass());
+        String partition = keyOf(root);
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Map<String, AttributeValue> rootItem = null;
+        Map<String, AttributeValue> lastEvaluatedKey = null;
+        do {
+            QueryRequest request = new QueryRequest()
+                    .withTableName(def.tableName)
+                    .withKeyConditionExpression("#pk = :pk")
+                    .withExpressionAttributeNames(Collections.singletonMap("#pk", partitionKeyName))
+                    .withExpressionAttributeValues(Collections.singletonMap(":pk", new AttributeValue(partition)))
+                    .withExclusiveStartKey(lastEvaluatedKey);
+            QueryResult page = DynamoMetrics.record("Query", def.tableName, null,
+                    () -> DynamoClientProvider.getClient().query(request),
+                    (metrics, res) -> metrics.addItems(res.getItems().size()));
+            for (Map<String, AttributeValue> item: page.getItems()) {
+                if (partition.equals(item.get(sortKeyName).getS())) {
+                    rootItem = item;
+                } else {
+                    items.add(item);
+                }
+            }
+            lastEvaluatedKey = page.getLastEvaluatedKey();
+        } while (lastEvaluatedKey != null && !lastEvaluatedKey.isEmpty());
+        // Root is deleted last, so graph can be deleted again when deleting is failed on the way
+        if (rootItem != null) {
+            items.add(rootItem);
+        }
+
+        for (int head = 0; head < items.size(); head += maxTransactItems) {
+            List<Map<String, AttributeValue>> itemsOfChunk = items.subList(head, Math.min(head + maxTransactItems, items.size()));
+            List<TransactWriteItem> chunk = new ArrayList<>();
+            for (Map<String, AttributeValue> item: itemsOfChunk) {
+                Map<String, AttributeValue> key = new HashMap<>();
+                key.put(partitionKeyName, item.get(partitionKeyName));
+                key.put(sortKeyName, item.get(sortKeyName));
+                chunk.add(new TransactWriteItem().withDelete(new Delete().withTableName(def.tableName).withKey(key)));
+            }
+            CapacityRateLimiter.executeAll(Collections.singletonMap(def.tableName, CapacityRateLimiter.forWrite(def)),
+                    () -> DynamoMetrics.record("TransactWriteItems", def.tableName, null,
+                            () -> DynamoClientProvider.getClient().transactWriteItems(new TransactWriteItemsRequest()
+                                    .withTransactItems(chunk)
+                                    .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL)),
+                            (metrics, res) -> metrics.addItems(chunk.size())),
+                    TransactWriteItemsResult::getConsumedCapacity);
+        }
+        System.out.println("[LAAAS/DDB(Single table)] DELETED " + items.size() + " ITEMS IN " + partition);
+        return items.size();
+    }
+
+    /**
+     * Get root and all related records by single Query on partition of root
+     * @param rootCondition root record that table keys are set
+     * @return root and related records ( Root is first )
+     * @throws InvalidParametersInDynamoDbException Throws when table keys of root are not set
+     * @throws IllegalAccessException Throws when can not access to field of record
+     * @throws InstantiationException Throws when failed create new instance to inserting result
+     * @throws DoesNotExistsFunctionException Throws when failed converting item to record
+     * @throws ExistsCircularReferenceException Throws when relation graph of root has circular reference
+     */
+    public static List<IGenericDynamoDbTable> queryGraph(IGenericDynamoDbTable rootCondition)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException,
+            DoesNotExistsFunctionException, ExistsCircularReferenceException {
+        return queryGraph(rootCondition, FetchPlan.all());
+    }
+
+    /**
+     * Get root and related records that are selected by plan by single Query on partition of root
+     * Relations, depth and limit of plan are applied to got items. Projection of plan is not applied,
+     * because all records are got by same request.
+     * @param rootCondition root record that table keys are set
+     * @param plan relations to follow, and limit of each table
+     * @return root and related records ( Root is first )
+     * @throws InvalidParametersInDynamoDbException Throws when table keys of root are not set
+     * @throws IllegalAccessException Throws when can not access to field of record
+     * @throws InstantiationException Throws when failed create new instance to inserting result
+     * @throws DoesNotExistsFunctionException Throws when failed converting item to record
+     * @throws ExistsCircularReferenceException Throws when relation graph of root has circular reference
+     */
+    public static List<IGenericDynamoDbTable> queryGraph(IGenericDynamoDbTable rootCondition, FetchPlan plan)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException,
+            DoesNotExistsFunctionException, ExistsCircularReferenceException {
+        TableDefinition def = definitionOf(rootCondition.getClass());
+        RelationGraph graph = RelationGraph.of(rootCondition.getClass());
+        String partition = keyOf(rootCondition);
+        System.out.println("[LAAAS/DDB(Single table)] QUERY GRAPH: " + def.tableName + " " + partition);
+
+        // SimpleEntry<Items of all pages, Consumed capacity units of all pages>
+        Supplier<AbstractMap.SimpleEntry<List<Map<String, AttributeValue>>, Double>> queryAllPages = () -> {
+            DynamoMetrics.OperationMetrics metrics = DynamoMetrics.get("Query", def.tableName, null);
+            List<Map<String, AttributeValue>> allPages = new ArrayList<>();
+            double consumedUnits = 0;
+            Map<String, AttributeValue> lastEvaluatedKey = null;
+            do {
+                QueryResult page = DynamoClientProvider.getClient().query(new QueryRequest()
+                        .withTableName(def.tableName)
+                        .withKeyConditionExpression("#pk = :pk")
+                        .withExpressionAttributeNames(Collections.singletonMap("#pk", partitionKeyName))
+                        .withExpressionAttributeValues(Collections.singletonMap(":pk", new AttributeValue(partition)))
+                        .withExclusiveStartKey(lastEvaluatedKey)
+                        .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+                allPages.addAll(page.getItems());
+                consumedUnits += CapacityRateLimiter.unitsOf(page.getConsumedCapacity());
+                metrics.addPages(1);
+                lastEvaluatedKey = page.getLastEvaluatedKey();
+            } while (lastEvaluatedKey != null && !lastEvaluatedKey.isEmpty());
+            return new AbstractMap.SimpleEntry<>(allPages, consumedUnits);
+        };
+        Supplier<AbstractMap.SimpleEntry<List<Map<String, AttributeValue>>, Double>> recordedQuery =
+                () -> DynamoMetrics.record("Query", def.tableName, null, queryAllPages,
+                        (metrics, res) -> {
+                            metrics.addItems(res.getKey().size());
+                            metrics.addReadUnits(res.getValue());
+                        });
+        List<Map<String, AttributeValue>> items = SingleFlight.execute("Query:" + def.tableName + ":" + partition,
+                () -> CapacityRateLimiter.execute(CapacityRateLimiter.forRead(def, null),
+                        recordedQuery, AbstractMap.SimpleEntry::getValue).getKey());
+
+        // Map<Type, Table model>
+        Map<String, Class<? extends IGenericDynamoDbTable>> tableModels = new HashMap<>();
+        graph.getTables().forEach(table -> tableModels.put(typeOf(table), table));
+        // Map<Table model, Count of records>
+        Map<Class<?>, Integer> counts = new HashMap<>();
+        DdbRecordCollection rootRecords = new DdbRecordCollection();
+        DdbRecordCollection relatedRecords = new DdbRecordCollection();
+        for (Map<String, AttributeValue> item: items) {
+            Class<? extends IGenericDynamoDbTable> tableModel = item.containsKey(typeName) ?
+                    tableModels.get(item.get(typeName).getS()) : null;
+            if (tableModel == null || !isSelected(graph, tableModel, plan)) {
+                continue;
+            }
+            Integer limit = plan.limitOf(tableModel);
+            if (limit != null && counts.getOrDefault(tableModel, 0) >= limit) {
+                continue;
+            }
+            counts.merge(tableModel, 1, Integer::sum);
+
+            IGenericDynamoDbTable record = tableModel.newInstance().insertResultIntoModel(attributesOf(item));
+            if (tableModel == rootCondition.getClass()) {
+                rootRecords.add(record);
+            } else {
+                relatedRecords.add(record);
+            }
+        }
+        // No records when root does not exist
+        if (rootRecords.isEmpty()) {
+            return rootRecords;
+        }
+        rootRecords.addAll(relatedRecords);
+        return rootRecords;
+    }
+
+    /**
+     * @param graph relation graph from root
+     * @param tableModel table model of record
+     * @param plan plan to select relations
+     * @return whether records of table model are selected by plan
+     */
+    private static boolean isSelected(RelationGraph graph, Class<? extends IGenericDynamoDbTable> tableModel, FetchPlan plan) {
+        int level = graph.levelOf(tableModel);
+        if (level == 0) {
+            return true;
+        }
+        return plan.isInDepth(level - 1)
+                && graph.getEdges().stream().anyMatch(edge -> edge.to == tableModel && plan.follows(edge));
+    }
+
+    /**
+     * Check that each related record is reachable from root by values of relation fields
+     * ( e.g. Child whose key is not same as relation field of root is in other graph )
+     * @param records root and related records ( Root is first )
+     * @throws InvalidParametersInDynamoDbException Throws when record is not reachable from root
+     * @throws IllegalAccessException Throws when can not access to field of record
+     */
+    private static void validateReachable(List<IGenericDynamoDbTable> records)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException {
+        List<IGenericDynamoDbTable> reached = new ArrayList<>(records.subList(0, 1));
+        List<IGenericDynamoDbTable> rest = new ArrayList<>(records.subList(1, records.size()));
+        boolean isChanged = true;
+        while (isChanged && !rest.isEmpty()) {
+            isChanged = false;
+            for (Iterator<IGenericDynamoDbTable> iterator = rest.iterator(); iterator.hasNext(); ) {
+                IGenericDynamoDbTable record = iterator.next();
+                for (IGenericDynamoDbTable parent: reached) {
+                    if (isRelated(parent, record)) {
+                        reached.add(record);
+                        iterator.remove();
+                        isChanged = true;
+                        break;
+                    }
+                }
+            }
+        }
+        if (!rest.isEmpty()) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Single table)] "
+                    + "Record is not related from root by values of relation fields: " + rest.get(0));
+        }
+    }
+
+    /**
+     * @param parent record of parent
+     * @param child record of child
+     * @return whether all relation fields from parent to table of child have same values as child
+     */
+    private static boolean isRelated(IGenericDynamoDbTable parent, IGenericDynamoDbTable child) throws IllegalAccessException {
+        boolean hasEdge = false;
+        for (RelationGraph.Edge edge: RelationGraph.edgesOf(parent.getClass())) {
+            if (edge.to != child.getClass()) continue;
+            hasEdge = true;
+            // Relation without single field of child can not be compared
+            if (edge.targetField != null && !Objects.equals(edge.sourceField.get(parent), edge.targetField.get(child))) {
+                return false;
+            }
+        }
+        return hasEdge;
+    }
+
+    /**
+     * @param required record that must exist
+     * @return condition check of existence ( Root of single table is checked in its single table )
+     */
+    static ConditionCheck conditionCheckOf(IGenericDynamoDbTable required)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException {
+        if (isSingleTable(required.getClass())) {
+            return new ConditionCheck().withTableName(tableNameOf(required.getClass()))
+                    .withKey(keyMapOf(required))
+                    .withConditionExpression("attribute_exists(#pk)")
+                    .withExpressionAttributeNames(Collections.singletonMap("#pk", partitionKeyName));
+        }
+        TableDefinition def = required.toTableDefinition();
+        return new ConditionCheck().withTableName(def.tableName)
+                .withKey(RecordCrudFacade.getTableKeysForCondition(required))
+                .withConditionExpression("attribute_exists(#pk)")
+                .withExpressionAttributeNames(Collections.singletonMap("#pk", def.partitionKey.getKey()));
+    }
+
+    /**
+     * @param record record to writing
+     * @param partition partition key of root
+     * @param sortKey sort key of record
+     * @return item in single table
+     */
+    private static Map<String, AttributeValue> itemOf(IGenericDynamoDbTable record, String partition, String sortKey)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException,
+            DoesNotExistsFunctionException {
+        Map<String, AttributeValue> item = ItemUtils.toAttributeValues(record.toItem().getValue());
+        item.put(partitionKeyName, new AttributeValue(partition));
+        item.put(sortKeyName, new AttributeValue(sortKey));
+        item.put(typeName, new AttributeValue(typeOf(record.getClass())));
+        return item;
+    }
+
+    /**
+     * @param item item in single table
+     * @return attributes of table model ( Keys of single table are removed )
+     */
+    static Map<String, AttributeValue> attributesOf(Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> attributes = new HashMap<>(item);
+        attributes.remove(partitionKeyName);
+        attributes.remove(sortKeyName);
+        attributes.remove(typeName);
+        return attributes;
+    }
+
+    /**
+     * @param root root record that table keys are set
+     * @return key of item of root in single table
+     * @throws InvalidParametersInDynamoDbException Throws when table keys are not set
+     * @throws IllegalAccessException Throws when can not access to field of record
+     * @throws InstantiationException Throws when failed create new instance of record
+     */
+    static Map<String, AttributeValue> keyMapOf(IGenericDynamoDbTable root)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException {
+        String partition = keyOf(root);
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(partitionKeyName, new AttributeValue(partition));
+        key.put(sortKeyName, new AttributeValue(partition));
+        return key;
+    }
+
+    /**
+     * @param record record of table model
+     * @return {Type}#{Partition key}[#{Sort key}]
+     * @throws InvalidParametersInDynamoDbException Throws when table keys are not set
+     * @throws IllegalAccessException Throws when can not access to field of record
+     * @throws InstantiationException Throws when failed create new instance of record
+     */
+    static String keyOf(IGenericDynamoDbTable record) throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException {
+        TableDefinition def = record.toTableDefinition();
+        if (!def.isSetTableKeys()) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Single table)] "
+                    + "Table keys are not set: " + record.getClass().getName());
+        }
+        StringBuilder key = new StringBuilder(typeOf(record.getClass()))
+                .append(separator).append(def.partitionKey.getValue());
+        if (def.sortKey != null) {
+            key.append(separator).append(def.sortKey.getValue());
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param tableModel table model
+     * @return table name that is set in DynamoDBTable
+     */
+    static String typeOf(Class<?> tableModel) {
+        return tableModel.getAnnotation(DynamoDBTable.class).tableName();
+    }
+
+    /**
+     * Table definition of root for physical table ( Used for limiting rate and metrics )
+     * @param root table model of root
+     * @return definition that has name of physical table
+     */
+    static TableDefinition definitionOf(Class<? extends IGenericDynamoDbTable> root)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException {
+        TableDefinition def = new TableDefinition(root);
+        def.tableName = tableNameOf(root);
+        def.gsiStructures = new HashMap<>();
+        return def;
+    }
+}
@@ -0,0 +1,190 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Dispatcher of DynamoDB Streams events to handlers of table models
+ * Stream records are mapped to registered model by table name in ARN of event source ( Including bundler identifier ),
+ * and NEW / OLD images are decoded into models. Handler is invoked once for each table with all records of the table.
+ * Use returned StreamsEventResponse as result of Lambda with ReportBatchItemFailures,
+ * then only records from the first failed record are retried by Lambda.
+ */
+public class StreamRecordDispatcher {
+
+    /**
+     * Handler of changes of single table
+     * @param <T> class of table model
+     */
+    @FunctionalInterface
+    public interface IChangeHandler<T extends IGenericDynamoDbTable> {
+        /**
+         * @param changes changes of table in order of stream
+         * @throws Exception Throws when handling is failed ( All changes are reported as failure )
+         */
+        void handle(List<Change<T>> changes) throws Exception;
+    }
+
+    /**
+     * Decoded change of single item
+     * @param <T> class of table model
+     */
+    public static class Change<T extends IGenericDynamoDbTable> {
+        // INSERT, MODIFY or REMOVE
+        public final String eventName;
+        public final String sequenceNumber;
+        // Null when stream view type does not contain image ( e.g. New image of REMOVE )
+        public final T newImage;
+        public final T oldImage;
+
+        Change(String eventName, String sequenceNumber, T newImage, T oldImage) {
+            this.eventName = eventName;
+            this.sequenceNumber = sequenceNumber;
+            this.newImage = newImage;
+            this.oldImage = oldImage;
+        }
+
+        @Override
+        public String toString() {
+            return eventName + "(" + sequenceNumber + "): " + oldImage + " -> " + newImage;
+        }
+    }
+
+    /**
+     * Handler and decoder for registered table
+     */
+    private static class Registration<T extends IGenericDynamoDbTable> {
+        final Class<T> model;
+        final IChangeHandler<T> handler;
+        // Instance to call insertResultIntoModel ( Fields are still mapped by reflection per record )
+        final IGenericDynamoDbTable prototype;
+
+        Registration(Class<T> model, IChangeHandler<T> handler) throws InstantiationException, IllegalAccessException {
+            this.model = model;
+            this.handler = handler;
+            this.prototype = model.newInstance();
+        }
+
+        T decode(Map<String, com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue> image)
+                throws Exception {
+            if (image == null || image.isEmpty()) return null;
+            Map<String, AttributeValue> item = new HashMap<>();
+            image.forEach((name, value) -> item.put(name, toAttributeValue(value)));
+            return model.cast(prototype.insertResultIntoModel(item));
+        }
+
+        void dispatch(List<DynamodbEvent.DynamodbStreamRecord> records) throws Exception {
+            List<Change<T>> changes = new ArrayList<>();
+            for (DynamodbEvent.DynamodbStreamRecord record: records) {
+                StreamRecord streamRecord = record.getDynamodb();
+                changes.add(new Change<>(record.getEventName(), streamRecord.getSequenceNumber(),
+                        decode(streamRecord.getNewImage()), decode(streamRecord.getOldImage())));
+            }
+            handler.handle(changes);
+        }
+    }
+
+    // Map<Table name, Registration>
+    private final ConcurrentHashMap<String, Registration<?>> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * Register handler for changes of table
+     * @param model class of table model
+     * @param handler handler of changes
+     * @param <T> class of table model
+     * @return this
+     * @throws InvalidParametersInDynamoDbException Throws when data model is not annotated by DynamoDBTable
+     * @throws IllegalAccessException Throws when can not create instance of model
+     * @throws InstantiationException Throws when can not create instance of model
+     */
+    public <T extends IGenericDynamoDbTable> StreamRecordDispatcher register(Class<T> model, IChangeHandler<T> handler)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException {
+        String tableName = new TableDefinition(model).tableName;
+        if (tableName == null) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Stream dispatcher)] "
+                    + model.getName() + " is not annotated by DynamoDBTable");
+        }
+        registrations.put(tableName, new Registration<>(model, handler));
+        return this;
+    }
+
+    /**
+     * Decode records of event and invoke handler for each table
+     * Records of tables that are not registered are ignored.
+     * @param event event from DynamoDB Streams
+     * @return response that has sequence numbers of failed records
+     */
+    public StreamsEventResponse dispatch(DynamodbEvent event) {
+        // Map<Table name, Records in order of stream>
+        Map<String, List<DynamodbEvent.DynamodbStreamRecord>> recordsOfTables = new LinkedHashMap<>();
+        for (DynamodbEvent.DynamodbStreamRecord record: event.getRecords()) {
+            recordsOfTables.computeIfAbsent(tableNameOf(record.getEventSourceARN()), name -> new ArrayList<>()).add(record);
+        }
+
+        List<StreamsEventResponse.BatchItemFailure> failures = new ArrayList<>();
+        recordsOfTables.forEach((tableName, records) -> {
+            Registration<?> registration = registrations.get(tableName);
+            if (registration == null) {
+                System.out.println("[LAAAS/DDB(Stream dispatcher)] SKIP " + records.size() + " RECORDS OF: " + tableName);
+                return;
+            }
+            try {
+                registration.dispatch(records);
+            } catch (Exception e) {
+                System.out.println("[LAAAS/DDB(Stream dispatcher)] FAILED HANDLING " + tableName + ": " + e);
+                failures.addAll(records.stream()
+                        .map(record -> new StreamsEventResponse.BatchItemFailure(record.getDynamodb().getSequenceNumber()))
+                        .collect(Collectors.toList()));
+            }
+        });
+        return new StreamsEventResponse(failures);
+    }
+
+    /**
+     * @param eventSourceArn ARN of stream ( arn:aws:dynamodb:region:account:table/name/stream/label )
+     * @return table name
+     */
+    static String tableNameOf(String eventSourceArn) {
+        if (eventSourceArn == null) return null;
+        int head = eventSourceArn.indexOf(":table/");
+        if (head < 0) return eventSourceArn;
+        head += ":table/".length();
+        int tail = eventSourceArn.indexOf('/', head);
+        return tail < 0 ? eventSourceArn.substring(head) : eventSourceArn.substring(head, tail);
+    }
+
+    /**
+     * Convert attribute value of event into attribute value of SDK
+     * @param value attribute value of event
+     * @return attribute value of SDK
+     */
+    static AttributeValue toAttributeValue(com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue value) {
+        AttributeValue converted = new AttributeValue();
+        if (value.getS() != null) converted.setS(value.getS());
+        if (value.getN() != null) converted.setN(value.getN());
+        if (value.getB() != null) converted.setB(value.getB());
+        if (value.getSS() != null) converted.setSS(value.getSS());
+        if (value.getNS() != null) converted.setNS(value.getNS());
+        if (value.getBS() != null) converted.setBS(value.getBS());
+        if (value.getBOOL() != null) converted.setBOOL(value.getBOOL());
+        if (value.getNULL() != null) converted.setNULL(value.getNULL());
+        if (value.getM() != null) {
+            Map<String, AttributeValue> map = new HashMap<>();
+            value.getM().forEach((name, element) -> map.put(name, toAttributeValue(element)));
+            converted.setM(map);
+        }
+        if (value.getL() != null) {
+            converted.setL(value.getL().stream().map(StreamRecordDispatcher::toAttributeValue).collect(Collectors.toList()));
+        }
+        return converted;
+    }
+}
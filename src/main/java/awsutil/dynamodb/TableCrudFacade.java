@@ -2,20 +2,23 @@ package awsutil.dynamodb;
 
 import awsutil.dynamodb.exceptions.DoesNotExistsFunctionException;
 import awsutil.dynamodb.exceptions.DuplicatedSortKeyException;
+import awsutil.dynamodb.exceptions.ExistsCircularReferenceException;
 import awsutil.dynamodb.exceptions.InvalidDynamoFieldTypeException;
 import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
 import awsutil.dynamodb.tabledefinition.*;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
-import com.amazonaws.services.dynamodbv2.document.DynamoDB;
+import awsutil.s3.S3CrudFacade;
+import awsutil.s3.S3ObjectInfoTable;
+import com.amazonaws.services.applicationautoscaling.model.ScalableDimension;
 import com.amazonaws.services.dynamodbv2.document.Table;
 import com.amazonaws.services.dynamodbv2.model.*;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
 import enums.LogLevel;
 
 import utils.LogHeader;
 
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -25,9 +28,16 @@ import java.util.stream.Collectors;
  * Other field are added at inserting data
  */
 public class TableCrudFacade {
-    static AmazonDynamoDB client = AmazonDynamoDBClientBuilder.defaultClient();
 
-    static DynamoDB dynamoDB = new DynamoDB(client);
+    // Max count of tables in creating at the same time ( Limit of concurrent control plane operations of account )
+    private static final int defaultMaxConcurrentCreates = 50;
+    // Interval of polling status of creating tables
+    private static final long pollingIntervalMillis = 1000L;
+    // Max time to waiting for all tables become active
+    private static final long maxWaitingMillis = 10 * 60 * 1000L;
+
+    // Registrar of autoscaling ( Created at first use, when not set by code )
+    private static volatile IAutoScalingRegistrar autoScalingRegistrar;
 
     /**
      * Create DynamoDB table into AWS
@@ -43,6 +53,283 @@ public class TableCrudFacade {
     public static Table create(Class<? extends IGenericDynamoDbTable> tableModel)
             throws InvalidParametersInDynamoDbException, InvalidDynamoFieldTypeException,
             DuplicatedSortKeyException, InterruptedException, InstantiationException, IllegalAccessException {
+        CreateTableRequest request = toCreateTableRequest(tableModel);
+
+        // Create dynamoDB table into AWS
+        Table table = DynamoMetrics.record("CreateTable", request.getTableName(), null,
+                () -> DynamoClientProvider.getDynamoDB().createTable(request), null);
+        table.waitForActive();
+        registerAutoScaling(new TableDefinition(tableModel));
+
+        return table;
+    }
+
+    /**
+     * Create all tables that are related from root by ExternalRelation
+     * CreateTable requests are issued concurrently up to LAAAS_DDB_MAX_CONCURRENT_CREATES ( 50 by default ),
+     * and status of all tables are polled together until all tables and their indexes become active.
+     * Tables that already exist are not created, but waited for active.
+     * @param root table model of root
+     * @return Created tables in order of relation ( Root is first )
+     * @throws InvalidParametersInDynamoDbException throws when invalid parameters are contained to creating table
+     * @throws InvalidDynamoFieldTypeException Other String or Integer has be contained in data model
+     * @throws DuplicatedSortKeyException throws when invalid sort key is set
+     * @throws InterruptedException throws by waiting for active DynamoDB table
+     * @throws InstantiationException Throws when could not creating new instance from table model
+     * @throws IllegalAccessException Throws when could not access to data field in table model class
+     * @throws ExistsCircularReferenceException Throws when relation from root has circular reference
+     */
+    public static List<Table> createAll(Class<? extends IGenericDynamoDbTable> root)
+            throws InvalidParametersInDynamoDbException, InvalidDynamoFieldTypeException, DuplicatedSortKeyException,
+            InterruptedException, InstantiationException, IllegalAccessException, ExistsCircularReferenceException {
+        List<CreateTableRequest> requests = new ArrayList<>();
+        List<TableDefinition> definitions = new ArrayList<>();
+        for(Class<? extends IGenericDynamoDbTable> tableModel: RelationGraph.of(root).getTables()) {
+            requests.add(toCreateTableRequest(tableModel));
+            definitions.add(new TableDefinition(tableModel));
+        }
+        System.out.println("[LAAAS/DDB(Create all)] CREATE " + requests.size() + " TABLES FROM " + root.getName());
+
+        Semaphore permits = new Semaphore(maxConcurrentCreates());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(permits.availablePermits(), requests.size()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "laaas-ddb-create-table");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Deque<CreateTableRequest> waiting = new ArrayDeque<>(requests);
+        // Map<Table name, Result of CreateTable request>
+        Map<String, Future<?>> creating = new LinkedHashMap<>();
+        long deadline = System.currentTimeMillis() + maxWaitingMillis;
+        try {
+            while(!waiting.isEmpty() || !creating.isEmpty()) {
+                // Issue requests while permits remain
+                while(!waiting.isEmpty() && permits.tryAcquire()) {
+                    CreateTableRequest request = waiting.poll();
+                    creating.put(request.getTableName(), executor.submit(() -> {
+                        try {
+                            DynamoMetrics.record("CreateTable", request.getTableName(), null,
+                                    () -> DynamoClientProvider.getClient().createTable(request), null);
+                        } catch (ResourceInUseException e) {
+                            System.out.println("[LAAAS/DDB(Create all)] ALREADY EXISTS: " + request.getTableName());
+                        }
+                    }));
+                }
+
+                Thread.sleep(pollingIntervalMillis);
+
+                // Check status of issued tables
+                Iterator<Map.Entry<String, Future<?>>> iterator = creating.entrySet().iterator();
+                while(iterator.hasNext()) {
+                    Map.Entry<String, Future<?>> entry = iterator.next();
+                    if(!entry.getValue().isDone()) continue;
+                    try {
+                        entry.getValue().get();
+                    } catch (ExecutionException e) {
+                        throw e.getCause() instanceof RuntimeException ?
+                                (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+                    }
+                    if(isActive(entry.getKey())) {
+                        System.out.println("[LAAAS/DDB(Create all)] ACTIVE: " + entry.getKey());
+                        iterator.remove();
+                        permits.release();
+                    }
+                }
+                if(System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("[LAAAS/DDB(Create all)] Tables did not become active: "
+                            + creating.keySet() + " " + waiting.stream().map(CreateTableRequest::getTableName)
+                            .collect(Collectors.toList()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for(TableDefinition def: definitions) {
+            registerAutoScaling(def);
+        }
+
+        List<Table> tables = new ArrayList<>();
+        requests.forEach(request -> tables.add(DynamoClientProvider.getDynamoDB().getTable(request.getTableName())));
+        return tables;
+    }
+
+    /**
+     * @param tableName name of table
+     * @return whether table and all its GSI are active
+     */
+    private static boolean isActive(String tableName) {
+        TableDescription description = DynamoMetrics.record("DescribeTable", tableName, null,
+                () -> DynamoClientProvider.getClient().describeTable(new DescribeTableRequest().withTableName(tableName)),
+                null).getTable();
+        if(!TableStatus.ACTIVE.toString().equals(description.getTableStatus())) {
+            return false;
+        }
+        return description.getGlobalSecondaryIndexes() == null || description.getGlobalSecondaryIndexes().stream()
+                .allMatch(index -> IndexStatus.ACTIVE.toString().equals(index.getIndexStatus()));
+    }
+
+    /**
+     * Use given registrar for autoscaling of created tables
+     * @param registrar registrar ( e.g. LocalAutoScalingRegistrar for testing )
+     */
+    public static void setAutoScalingRegistrar(IAutoScalingRegistrar registrar) {
+        autoScalingRegistrar = registrar;
+    }
+
+    /**
+     * @return registrar of autoscaling ( Stand-in is used when endpoint of DynamoClientProvider is set )
+     */
+    public static IAutoScalingRegistrar getAutoScalingRegistrar() {
+        IAutoScalingRegistrar current = autoScalingRegistrar;
+        if(current == null) {
+            synchronized (TableCrudFacade.class) {
+                if(autoScalingRegistrar == null) {
+                    String endpoint = DynamoClientProvider.getSettings().endpoint;
+                    autoScalingRegistrar = endpoint != null && !endpoint.isEmpty() ?
+                            new LocalAutoScalingRegistrar() : new AwsAutoScalingRegistrar();
+                }
+                current = autoScalingRegistrar;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Register autoscaling of table and its GSI that are enabled in table model
+     * @param def table definition
+     */
+    private static void registerAutoScaling(TableDefinition def) {
+        if(def.billingMode == BillingMode.PAY_PER_REQUEST) {
+            return;
+        }
+        String tableResource = "table/" + def.tableName;
+        if(isAutoScalingEnabled(def.readAutoScaling)) {
+            getAutoScalingRegistrar().register(tableResource, ScalableDimension.DynamodbTableReadCapacityUnits, def.readAutoScaling);
+        }
+        if(isAutoScalingEnabled(def.writeAutoScaling)) {
+            getAutoScalingRegistrar().register(tableResource, ScalableDimension.DynamodbTableWriteCapacityUnits, def.writeAutoScaling);
+        }
+        for(GlobalSecondlyIndexStructure gsi: def.gsiStructures.values()) {
+            String indexResource = tableResource + "/index/" + gsi.indexName;
+            if(isAutoScalingEnabled(gsi.getReadAutoScaling())) {
+                getAutoScalingRegistrar().register(indexResource, ScalableDimension.DynamodbIndexReadCapacityUnits,
+                        gsi.getReadAutoScaling());
+            }
+            if(isAutoScalingEnabled(gsi.getWriteAutoScaling())) {
+                getAutoScalingRegistrar().register(indexResource, ScalableDimension.DynamodbIndexWriteCapacityUnits,
+                        gsi.getWriteAutoScaling());
+            }
+        }
+    }
+
+    private static boolean isAutoScalingEnabled(AutoScaling setting) {
+        return setting != null && setting.maxCapacity() > 0;
+    }
+
+    /**
+     * @param owner name of table or index to message
+     * @param setting setting of autoscaling
+     * @throws InvalidParametersInDynamoDbException throws when min, max or target utilization is out of range
+     */
+    private static void validateAutoScaling(String owner, AutoScaling setting) throws InvalidParametersInDynamoDbException {
+        if(!isAutoScalingEnabled(setting)) {
+            return;
+        }
+        if(setting.minCapacity() < 1 || setting.maxCapacity() < setting.minCapacity()
+                || setting.targetUtilization() < 20.0 || setting.targetUtilization() > 90.0) {
+            throw new InvalidParametersInDynamoDbException(LogHeader.logHeader("TableCrudFacade", LogLevel.ERROR)
+                    + "Invalid autoscaling of " + owner + ": min=" + setting.minCapacity() + ", max="
+                    + setting.maxCapacity() + ", target=" + setting.targetUtilization());
+        }
+    }
+
+    /**
+     * @param indexName name of index to message
+     * @param projection projection of index
+     * @throws InvalidParametersInDynamoDbException throws when INCLUDE has no attribute
+     */
+    private static void validateProjection(String indexName, Projection projection) throws InvalidParametersInDynamoDbException {
+        if(ProjectionType.INCLUDE.toString().equals(projection.getProjectionType())
+                && (projection.getNonKeyAttributes() == null || projection.getNonKeyAttributes().isEmpty())) {
+            throw new InvalidParametersInDynamoDbException(LogHeader.logHeader("TableCrudFacade", LogLevel.ERROR)
+                    + "Projection INCLUDE of " + indexName + " has no nonKeyAttributes");
+        }
+    }
+
+    /**
+     * @param tableModel table model that has field
+     * @param field field of table model
+     * @throws InvalidParametersInDynamoDbException throws when shards are set to invalid key
+     */
+    private static void validateSharding(Class<? extends IGenericDynamoDbTable> tableModel, Field field)
+            throws InvalidParametersInDynamoDbException {
+        int shards = field.isAnnotationPresent(PartitionKey.class) ? field.getAnnotation(PartitionKey.class).shards()
+                : field.isAnnotationPresent(GlobalSI.class) ? field.getAnnotation(GlobalSI.class).shards() : 1;
+        if(shards == 1) {
+            return;
+        }
+        String error = null;
+        if(shards < 1) {
+            error = "Count of shards should be 1 or more";
+        } else if(field.getType() != String.class) {
+            error = "Sharded key should be String";
+        } else if(field.isAnnotationPresent(GlobalSI.class) && field.getAnnotation(GlobalSI.class).keyType() != KeyType.HASH) {
+            error = "Only HASH key of GSI can be sharded";
+        } else if(field.isAnnotationPresent(PartitionKey.class)
+                && Arrays.stream(tableModel.getDeclaredFields()).noneMatch(modelsField -> modelsField.isAnnotationPresent(SortKey.class))) {
+            // Shard of partition key is selected by sort key
+            error = "Sharded partition key requires sort key";
+        }
+        if(error != null) {
+            throw new InvalidParametersInDynamoDbException(LogHeader.logHeader("TableCrudFacade", LogLevel.ERROR)
+                    + error + ": " + field.getName());
+        }
+    }
+
+    /**
+     * @param tableModel table model annotated by TimeSeries
+     * @throws InvalidParametersInDynamoDbException throws when keys of time-series table are invalid
+     */
+    private static void validateTimeSeries(Class<? extends IGenericDynamoDbTable> tableModel)
+            throws InvalidParametersInDynamoDbException {
+        if(!tableModel.isAnnotationPresent(TimeSeries.class)) {
+            return;
+        }
+        String error = null;
+        Optional<Field> partitionKey = Arrays.stream(tableModel.getDeclaredFields())
+                .filter(field -> field.isAnnotationPresent(PartitionKey.class)).findFirst();
+        Optional<Field> sortKey = Arrays.stream(tableModel.getDeclaredFields())
+                .filter(field -> field.isAnnotationPresent(SortKey.class)).findFirst();
+        if(!sortKey.isPresent()) {
+            // Records in bucket are sorted by timestamp
+            error = "Time-series table requires sort key as timestamp";
+        } else if(!partitionKey.isPresent() || partitionKey.get().getType() != String.class
+                || sortKey.get().getType() != String.class) {
+            error = "Partition key and sort key of time-series table should be String";
+        } else if(KeySharding.isShardedField(partitionKey.get())) {
+            error = "Partition key of time-series table can not be sharded";
+        }
+        if(error != null) {
+            throw new InvalidParametersInDynamoDbException(LogHeader.logHeader("TableCrudFacade", LogLevel.ERROR)
+                    + error + ": " + tableModel.getName());
+        }
+    }
+
+    private static int maxConcurrentCreates() {
+        String value = System.getenv("LAAAS_DDB_MAX_CONCURRENT_CREATES");
+        return value != null && !value.isEmpty() ? Math.max(1, Integer.parseInt(value)) : defaultMaxConcurrentCreates;
+    }
+
+    /**
+     * Build request to creating table by table model
+     * @param tableModel table model to creating table
+     * @return request of CreateTable
+     * @throws InvalidParametersInDynamoDbException throws when invalid parameters are contained to creating table
+     * @throws InstantiationException Throws when could not creating new instance from table model
+     * @throws IllegalAccessException Throws when could not access to data field in table model class
+     */
+    public static CreateTableRequest toCreateTableRequest(Class<? extends IGenericDynamoDbTable> tableModel)
+            throws InvalidParametersInDynamoDbException, InstantiationException, IllegalAccessException {
         // Wrapper to creating request table
         TableDefinition def = new TableDefinition(tableModel);
 
@@ -79,11 +366,22 @@ public class TableCrudFacade {
             List<KeySchemaElement> tableKeySchema = new ArrayList<>();
             // List of LocalSI
             HashMap<String, List<KeySchemaElement>> localSi = new HashMap<>();
+            // Map<Index name, Projection of LocalSI>
+            HashMap<String, Projection> localSiProjections = new HashMap<>();
             // List of GlobalSI
             HashMap<String, GlobalSecondlyIndexStructure> gsiStructure = new HashMap<>();
 
+            validateTimeSeries(tableModel);
             // Set other fields as request
             for(Field field: tableModel.getDeclaredFields()) {
+                // Compressed value can not be used as key
+                if(field.isAnnotationPresent(BinaryField.class) && (field.isAnnotationPresent(PartitionKey.class)
+                        || field.isAnnotationPresent(SortKey.class) || field.isAnnotationPresent(GlobalSI.class)
+                        || field.isAnnotationPresent(LocalSI.class))) {
+                    throw new InvalidParametersInDynamoDbException(LogHeader.logHeader("TableCrudFacade", LogLevel.ERROR)
+                            + "BinaryField can not be set to key: " + field.getName());
+                }
+                validateSharding(tableModel, field);
                 // Set attribute type by field identifier
                 try {
                     FieldIdentifier<String, String> identifier = new FieldIdentifier<>(field, tableInstance, functionPoints);
@@ -133,7 +431,9 @@ public class TableCrudFacade {
                                     new ArrayList<AbstractMap.SimpleEntry<String, KeyType>>() {{
                                         add(new AbstractMap.SimpleEntry<>(field.getName(), gsiAnnotation.keyType()));
                                     }},
-                                    gsiAnnotation.readCapacity(), gsiAnnotation.writeCapacity()
+                                    gsiAnnotation.readCapacity(), gsiAnnotation.writeCapacity(),
+                                    gsiAnnotation.readAutoScaling(), gsiAnnotation.writeAutoScaling(),
+                                    gsiAnnotation.projectionType(), gsiAnnotation.nonKeyAttributes()
                             ));
                         }
                     }
@@ -147,6 +447,9 @@ public class TableCrudFacade {
                                     .withAttributeName(field.getName()).withAttributeType(fieldType.apply("")));
                         }
                         String indexName = field.getAnnotation(LocalSI.class).indexName();
+                        localSiProjections.putIfAbsent(indexName, GlobalSecondlyIndexStructure.toProjection(
+                                field.getAnnotation(LocalSI.class).projectionType(),
+                                field.getAnnotation(LocalSI.class).nonKeyAttributes()));
                         String attributeNAme = field.getName();
                         if(localSi.containsKey(indexName)) {
                             localSi.get(indexName).add(
@@ -170,34 +473,49 @@ public class TableCrudFacade {
             List<LocalSecondaryIndex> localSecondaryIndices = new ArrayList<>();
             localSi.keySet().forEach( indexName -> {
                 LocalSecondaryIndex index = new LocalSecondaryIndex().withIndexName(indexName)
-                        .withProjection(new Projection().withProjectionType(ProjectionType.ALL));
+                        .withProjection(localSiProjections.get(indexName));
                 index.setKeySchema(localSi.get(indexName));
                 localSecondaryIndices.add(index);
             });
 
             CreateTableRequest request = new CreateTableRequest().withTableName(def.tableName)
-                    .withProvisionedThroughput(new ProvisionedThroughput()
-                            .withReadCapacityUnits(def.readCapacityUnit)
-                            .withWriteCapacityUnits(def.writeCapacityUnit))
+                    .withBillingMode(def.billingMode)
                     .withAttributeDefinitions(definitions)
                     .withKeySchema(tableKeySchema.stream()
                             .sorted(Comparator.comparing(KeySchemaElement::getKeyType)).collect(Collectors.toList()));
+            // Set capacity ( On-demand table and its GSI do not have capacity )
+            if(def.billingMode != BillingMode.PAY_PER_REQUEST) {
+                request.setProvisionedThroughput(new ProvisionedThroughput()
+                        .withReadCapacityUnits(def.readCapacityUnit)
+                        .withWriteCapacityUnits(def.writeCapacityUnit));
+                validateAutoScaling(def.tableName, def.readAutoScaling);
+                validateAutoScaling(def.tableName, def.writeAutoScaling);
+                for(GlobalSecondlyIndexStructure gsi: gsiStructure.values()) {
+                    validateAutoScaling(gsi.indexName, gsi.getReadAutoScaling());
+                    validateAutoScaling(gsi.indexName, gsi.getWriteAutoScaling());
+                }
+            }
 
             // Set GSI
             if(!gsiStructure.isEmpty()) {
                 request.setGlobalSecondaryIndexes(gsiStructure.keySet().stream().map(
-                        key -> gsiStructure.get(key).toKeySchemeElement()).collect(Collectors.toList()));
+                        key -> gsiStructure.get(key).toKeySchemeElement(def.billingMode)).collect(Collectors.toList()));
             }
             // Set LSI
             if(!localSecondaryIndices.isEmpty()) {
                 request.setLocalSecondaryIndexes(localSecondaryIndices);
             }
+            // INCLUDE must have attributes to copying
+            if(request.getGlobalSecondaryIndexes() != null) {
+                for(GlobalSecondaryIndex gsi: request.getGlobalSecondaryIndexes()) {
+                    if(gsi != null) validateProjection(gsi.getIndexName(), gsi.getProjection());
+                }
+            }
+            for(LocalSecondaryIndex lsi: localSecondaryIndices) {
+                validateProjection(lsi.getIndexName(), lsi.getProjection());
+            }
 
-            // Create dynamoDB table into AWS
-            Table table = dynamoDB.createTable(request);
-            table.waitForActive();
-
-            return table;
+            return request;
 
         } else {
             throw new InvalidParametersInDynamoDbException(LogHeader.logHeader("TableCrudFacade", LogLevel.ERROR)
@@ -205,27 +523,6 @@ public class TableCrudFacade {
         }
     }
 
-    /**
-     * Set attribute type form field type
-     * @param field field in model
-     * @return attribute type
-     * @throws InvalidDynamoFieldTypeException throws when field type is not String or Integer
-     */
-    private static ScalarAttributeType setAttrType(Field field, Class<? extends IGenericDynamoDbTable> dataModel)
-            throws InvalidDynamoFieldTypeException{
-        if(field.getType() == String.class) {
-            if(field.isAnnotationPresent(BinaryField.class)) {
-                return ScalarAttributeType.B;
-            } else {
-                return ScalarAttributeType.S;
-            }
-        } else if(field.getType() == Integer.class) {
-            return ScalarAttributeType.N;
-        } else {
-            throw new InvalidDynamoFieldTypeException(dataModel, field);
-        }
-    }
-
     /**
      * Drop table in AWS DynamoDB
      * @param table Table object to deleting table
@@ -238,16 +535,81 @@ public class TableCrudFacade {
     public static DeleteTableResult drop(Table table)
             throws InstantiationException, IllegalAccessException, InvalidParametersInDynamoDbException,
             InterruptedException {
-        DeleteTableResult result = client.deleteTable(table.getTableName());
+        DeleteTableResult result = DynamoMetrics.record("DeleteTable", table.getTableName(), null,
+                () -> DynamoClientProvider.getClient().deleteTable(table.getTableName()), null);
         table.waitForDelete();
         return result;
     }
 
+    /**
+     * Delete objects of OffloadToS3 fields that are not referenced by any item of table
+     * Objects are left when item is replaced or deleted ( Readers may still have their locations ),
+     * or when process is stopped while writing. Run this periodically, or set lifecycle rule of S3 to directory of objects.
+     * @param tableModel table model that has fields annotated by OffloadToS3 ( Root of SingleTable is swept in single table )
+     * @param graceMillis objects that are newer than this are kept ( Objects of writing in progress are not referenced yet )
+     * @return count of deleted objects
+     * @throws InvalidParametersInDynamoDbException Throws when data model is not annotated by DynamoDBTable
+     * @throws IllegalAccessException Throws when could not access to data field in table model class
+     */
+    public static int sweepOffloadedObjects(Class<? extends IGenericDynamoDbTable> tableModel, long graceMillis)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException {
+        List<Field> fields = Arrays.stream(tableModel.getDeclaredFields())
+                .filter(OffloadedAttribute::isOffloadField).collect(Collectors.toList());
+        if(fields.isEmpty()) {
+            return 0;
+        }
+        String tableName = SingleTableFacade.isSingleTable(tableModel) ?
+                SingleTableFacade.tableNameOf(tableModel) : new TableDefinition(tableModel).tableName;
+
+        // Objects that are referenced by items
+        Set<String> referenced = new HashSet<>();
+        Map<String, String> names = new HashMap<>();
+        for(int index = 0; index < fields.size(); index++) {
+            names.put("#o" + index, fields.get(index).getName());
+        }
+        Map<String, AttributeValue> lastEvaluatedKey = null;
+        do {
+            ScanRequest request = new ScanRequest().withTableName(tableName)
+                    .withProjectionExpression(String.join(", ", names.keySet()))
+                    .withExpressionAttributeNames(names)
+                    .withExclusiveStartKey(lastEvaluatedKey);
+            ScanResult page = DynamoMetrics.record("Scan", tableName, null,
+                    () -> DynamoClientProvider.getClient().scan(request),
+                    (metrics, res) -> metrics.addItems(res.getItems().size()));
+            for(Map<String, AttributeValue> item: page.getItems()) {
+                for(Field field: fields) {
+                    S3ObjectInfoTable pointer = OffloadedAttribute.pointerOf(item.get(field.getName()));
+                    if(pointer != null) referenced.add(OffloadedAttribute.keyOf(pointer));
+                }
+            }
+            lastEvaluatedKey = page.getLastEvaluatedKey();
+        } while(lastEvaluatedKey != null && !lastEvaluatedKey.isEmpty());
+
+        long threshold = System.currentTimeMillis() - graceMillis;
+        int countOfDeleted = 0;
+        for(Field field: fields) {
+            String bucketName = OffloadedAttribute.bucketOf(field);
+            String directoryPath = OffloadedAttribute.directoryOf(field, tableModel);
+            for(S3ObjectSummary summary: S3CrudFacade.listObjects(bucketName, directoryPath)) {
+                if(referenced.contains(bucketName + "/" + summary.getKey())
+                        || summary.getLastModified() == null || summary.getLastModified().getTime() > threshold) {
+                    continue;
+                }
+                S3CrudFacade.deleteObject(new S3ObjectInfoTable(bucketName, directoryPath,
+                        summary.getKey().substring(directoryPath.length())));
+                countOfDeleted++;
+            }
+        }
+        System.out.println("[LAAAS/DDB(Offload)] SWEPT " + countOfDeleted + " OBJECTS OF " + tableName);
+        return countOfDeleted;
+    }
+
     public static Boolean isExistsTable(Class<? extends IGenericDynamoDbTable> tableModel)
             throws InvalidParametersInDynamoDbException, IllegalAccessException {
         TableDefinition def = new TableDefinition(tableModel);
         try {
-            dynamoDB.getTable(def.tableName).describe();
+            DynamoMetrics.record("DescribeTable", def.tableName, null,
+                    () -> DynamoClientProvider.getDynamoDB().getTable(def.tableName).describe(), null);
         } catch (ResourceNotFoundException e) {
             return false;
         }
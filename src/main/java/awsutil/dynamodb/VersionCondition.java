@@ -0,0 +1,141 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import awsutil.dynamodb.exceptions.VersionConflictException;
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.document.spec.PutItemSpec;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Condition of writing for record that has Version field ( Optimistic locking )
+ * Version of record is incremented at creating condition, so item of record should be created after this.
+ * When writing is failed, version of record is restored by rollback.
+ */
+class VersionCondition {
+
+    private static final String nameOfVersion = "#version";
+    private static final String valueOfVersion = ":expectedVersion";
+
+    private final IGenericDynamoDbTable record;
+    private final Field field;
+    private final String tableName;
+    private final String keys;
+    // Version in table ( Null means new record )
+    private final Integer expectedVersion;
+
+    private VersionCondition(IGenericDynamoDbTable record, Field field, TableDefinition def, Integer expectedVersion) {
+        this.record = record;
+        this.field = field;
+        this.tableName = def.tableName;
+        this.keys = def.partitionKey + (def.sortKey != null ? ", " + def.sortKey : "");
+        this.expectedVersion = expectedVersion;
+    }
+
+    /**
+     * Create condition and increment version of record
+     * @param record record to writing
+     * @return condition, or null when record has not Version field
+     * @throws InvalidParametersInDynamoDbException Throws when data model is not annotated by DynamoDBTable
+     * @throws IllegalAccessException Throws when can not be get or set field value
+     * @throws InstantiationException Throws when failed create new instance
+     */
+    static VersionCondition of(IGenericDynamoDbTable record)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException {
+        TableDefinition def = record.toTableDefinition();
+        if (def.version == null) {
+            return null;
+        }
+        Field field;
+        try {
+            field = record.getClass().getDeclaredField(def.version.getKey());
+        } catch (NoSuchFieldException e) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Version)] Version field is not found: " + e.getMessage());
+        }
+        if (!field.getType().equals(Integer.class)) {
+            throw new InvalidParametersInDynamoDbException("[LAAAS/DDB(Version)] Version should be Integer: " + field.getName());
+        }
+        Integer expectedVersion = (Integer) def.version.getValue();
+        field.set(record, expectedVersion == null ? 1 : expectedVersion + 1);
+        return new VersionCondition(record, field, def, expectedVersion);
+    }
+
+    /**
+     * @param spec put request of document API
+     * @return given request with condition
+     */
+    PutItemSpec applyTo(PutItemSpec spec) {
+        spec.withConditionExpression(expression()).withNameMap(Collections.singletonMap(nameOfVersion, field.getName()));
+        if (expectedVersion != null) {
+            spec.withValueMap(Collections.<String, Object>singletonMap(valueOfVersion, expectedVersion));
+        }
+        return spec;
+    }
+
+    /**
+     * @param put put action of transaction
+     * @return given action with condition
+     */
+    Put applyTo(Put put) {
+        put.withConditionExpression(expression())
+                .withExpressionAttributeNames(Collections.singletonMap(nameOfVersion, field.getName()));
+        if (expectedVersion != null) {
+            put.withExpressionAttributeValues(Collections.singletonMap(valueOfVersion,
+                    new AttributeValue().withN(String.valueOf(expectedVersion))));
+        }
+        return put;
+    }
+
+    /**
+     * Restore version of record ( Call this when writing is failed )
+     */
+    void rollback() {
+        try {
+            field.set(record, expectedVersion);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Restore version and create exception for failed writing
+     * @return exception of conflict
+     */
+    VersionConflictException toConflict() {
+        rollback();
+        return new VersionConflictException(tableName, keys, expectedVersion);
+    }
+
+    /**
+     * Restore versions of records in cancelled transaction and find conflict of version
+     * @param e exception of transaction
+     * @param conditionsOfActions conditions of each action in transaction ( Null for action without version )
+     * @return exception of conflict, or null when transaction is not cancelled by version
+     */
+    static VersionConflictException conflictOf(TransactionCanceledException e, List<VersionCondition> conditionsOfActions) {
+        VersionConflictException conflict = null;
+        List<CancellationReason> reasons = e.getCancellationReasons();
+        for (int index = 0; index < conditionsOfActions.size(); index++) {
+            VersionCondition condition = conditionsOfActions.get(index);
+            if (condition == null) continue;
+            condition.rollback();
+            if (conflict == null && reasons != null && index < reasons.size()
+                    && "ConditionalCheckFailed".equals(reasons.get(index).getCode())) {
+                conflict = condition.toConflict();
+            }
+        }
+        return conflict;
+    }
+
+    private String expression() {
+        return expectedVersion == null ?
+                "attribute_not_exists(" + nameOfVersion + ")" : nameOfVersion + " = " + valueOfVersion;
+    }
+}
@@ -0,0 +1,36 @@
+package awsutil.dynamodb.exceptions;
+
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+
+/**
+ * Throw this exception when version of record in table is different from version of writing record
+ * Record should be read again and retried by caller.
+ */
+public class VersionConflictException extends ConditionalCheckFailedException {
+
+    private final String tableName;
+    private final Object keys;
+    // Null when record was written as new record
+    private final Integer expectedVersion;
+
+    public VersionConflictException(String tableName, Object keys, Integer expectedVersion) {
+        super("Version of record is conflicted in " + tableName + " " + keys + " ( Expected: " + expectedVersion + " )");
+        this.tableName = tableName;
+        this.keys = keys;
+        this.expectedVersion = expectedVersion;
+        this.setErrorCode("ConditionalCheckFailedException");
+        this.setStatusCode(400);
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Object getKeys() {
+        return keys;
+    }
+
+    public Integer getExpectedVersion() {
+        return expectedVersion;
+    }
+}
@@ -0,0 +1,21 @@
+package awsutil.dynamodb.tabledefinition;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Setting of autoscaling for capacity of table or GSI ( Used in DynamoDBTable and GlobalSI )
+ * Autoscaling is registered to Application Auto Scaling after creating table by TableCrudFacade.
+ * Max capacity of 0 means autoscaling is disabled.
+ */
+@Target({})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AutoScaling {
+    // Min capacity unit
+    public long minCapacity() default 1L;
+    // Max capacity unit ( 0 disables autoscaling )
+    public long maxCapacity() default 0L;
+    // Target of consumed capacity / provisioned capacity in percent ( 20 - 90 )
+    public double targetUtilization() default 70.0;
+}
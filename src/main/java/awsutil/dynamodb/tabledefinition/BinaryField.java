@@ -6,8 +6,14 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 /**
  * Set field that be set as binary field
- * Filed type should be set String
+ * Filed type should be set String. Value is stored as B attribute, and is compressed when its size is over threshold.
+ * Can not be set to table keys and index keys.
  */
-@Target({ElementType.LOCAL_VARIABLE})
+@Target({ElementType.FIELD})
 @Retention(RetentionPolicy.RUNTIME)
-public @interface BinaryField { }
+public @interface BinaryField {
+    // Compression of value
+    public ECompressionType compress() default ECompressionType.DEFLATE;
+    // Value is compressed when size of UTF-8 bytes is this or more
+    public int threshold() default 1024;
+}
@@ -0,0 +1,134 @@
+package awsutil.dynamodb.tabledefinition;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Convert value of BinaryField to B attribute and back
+ * First byte is header of format ( 0: UTF-8 bytes, 1: Deflate ), and following bytes are value.
+ * Deflater, Inflater and working buffer are kept for each thread, so only bytes of result are allocated for each value.
+ */
+public class BinaryFieldCodec {
+
+    static final byte formatRaw = 0;
+    static final byte formatDeflate = 1;
+    // Initial size of working buffer for each thread
+    private static final int initialBufferSize = 8 * 1024;
+
+    private static final ThreadLocal<Deflater> defaultDeflaters =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Deflater> fastDeflaters =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[initialBufferSize]);
+
+    /**
+     * @param field field of table model
+     * @return whether field is stored as binary
+     */
+    public static boolean isBinaryField(Field field) {
+        return field.isAnnotationPresent(BinaryField.class) && field.getType() == String.class;
+    }
+
+    /**
+     * @param value value of field
+     * @param setting annotation of field
+     * @return bytes to storing as B attribute
+     */
+    public static byte[] encode(String value, BinaryField setting) {
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        if (setting.compress() != ECompressionType.NONE && raw.length >= setting.threshold()) {
+            Deflater deflater = setting.compress() == ECompressionType.DEFLATE_FAST ? fastDeflaters.get() : defaultDeflaters.get();
+            try {
+                deflater.setInput(raw);
+                deflater.finish();
+                byte[] buffer = buffers.get();
+                int length = 0;
+                while (!deflater.finished()) {
+                    if (length == buffer.length) {
+                        buffer = grow(buffer);
+                    }
+                    length += deflater.deflate(buffer, length, buffer.length - length);
+                }
+                // Store compressed bytes only when they are smaller
+                if (length < raw.length) {
+                    byte[] encoded = new byte[length + 1];
+                    encoded[0] = formatDeflate;
+                    System.arraycopy(buffer, 0, encoded, 1, length);
+                    return encoded;
+                }
+            } finally {
+                deflater.reset();
+            }
+        }
+        byte[] encoded = new byte[raw.length + 1];
+        encoded[0] = formatRaw;
+        System.arraycopy(raw, 0, encoded, 1, raw.length);
+        return encoded;
+    }
+
+    /**
+     * @param encoded value of B attribute
+     * @return value of field
+     * @throws IllegalArgumentException Throws when header or compressed bytes are invalid
+     */
+    public static String decode(ByteBuffer encoded) {
+        ByteBuffer source = encoded.duplicate();
+        if (!source.hasRemaining()) {
+            return "";
+        }
+        byte format = source.get();
+        byte[] bytes;
+        int offset;
+        int length = source.remaining();
+        if (source.hasArray()) {
+            bytes = source.array();
+            offset = source.arrayOffset() + source.position();
+        } else {
+            bytes = new byte[length];
+            source.get(bytes);
+            offset = 0;
+        }
+
+        if (format == formatRaw) {
+            return new String(bytes, offset, length, StandardCharsets.UTF_8);
+        } else if (format == formatDeflate) {
+            Inflater inflater = inflaters.get();
+            try {
+                inflater.setInput(bytes, offset, length);
+                byte[] buffer = buffers.get();
+                int size = 0;
+                while (!inflater.finished()) {
+                    if (size == buffer.length) {
+                        buffer = grow(buffer);
+                    }
+                    int inflated = inflater.inflate(buffer, size, buffer.length - size);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IllegalArgumentException("[LAAAS/DDB(Binary field)] Compressed value is truncated");
+                    }
+                    size += inflated;
+                }
+                return new String(buffer, 0, size, StandardCharsets.UTF_8);
+            } catch (DataFormatException e) {
+                throw new IllegalArgumentException("[LAAAS/DDB(Binary field)] Invalid compressed value", e);
+            } finally {
+                inflater.reset();
+            }
+        }
+        throw new IllegalArgumentException("[LAAAS/DDB(Binary field)] Unknown format of binary field: " + format);
+    }
+
+    /**
+     * Double working buffer of current thread
+     */
+    private static byte[] grow(byte[] buffer) {
+        byte[] grown = Arrays.copyOf(buffer, buffer.length * 2);
+        buffers.set(grown);
+        return grown;
+    }
+}
@@ -1,5 +1,7 @@
 package awsutil.dynamodb.tabledefinition;
 
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -13,8 +15,18 @@ import java.lang.annotation.Target;
 public @interface DynamoDBTable {
     // Name of table name
     public String tableName() default "";
+    // PROVISIONED uses capacity units below, PAY_PER_REQUEST ignores them ( Also GSI follows this )
+    public BillingMode billingMode() default BillingMode.PROVISIONED;
     // read capacity unit for table
     public long readCapacityUnit() default 10L;
     // write capacity unit for table
     public long writeCapacityUnit() default 5L;
+    // Autoscaling of read capacity ( Only for PROVISIONED, Disabled by default )
+    public AutoScaling readAutoScaling() default @AutoScaling;
+    // Autoscaling of write capacity ( Only for PROVISIONED, Disabled by default )
+    public AutoScaling writeAutoScaling() default @AutoScaling;
+    // Time to live of cached record read by table keys in milliseconds ( 0 disables caching )
+    public long cacheTtlMillis() default 0L;
+    // Max count of cached records for table, The least recently used record is evicted at over
+    public int cacheMaxSize() default 1024;
 }
@@ -0,0 +1,11 @@
+package awsutil.dynamodb.tabledefinition;
+
+/**
+ * Compression of BinaryField
+ *  NONE: Stored as UTF-8 bytes
+ *  DEFLATE: Deflate by default level ( Smaller )
+ *  DEFLATE_FAST: Deflate by level of best speed ( Faster )
+ */
+public enum ECompressionType {
+    NONE, DEFLATE, DEFLATE_FAST;
+}
@@ -0,0 +1,10 @@
+package awsutil.dynamodb.tabledefinition;
+
+/**
+ * Selection of shard suffix for sharded key
+ *  DETERMINISTIC: By hash of table keys of record ( Same record is always written into same shard )
+ *  RANDOM: Random shard on each writing ( Only for GSI )
+ */
+public enum EShardingType {
+    DETERMINISTIC, RANDOM;
+}
@@ -0,0 +1,23 @@
+package awsutil.dynamodb.tabledefinition;
+
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Size of bucket for time-series table ( Suffix of partition key in UTC )
+ *  HOUR: entity#yyyy-MM-ddTHH
+ *  DAY: entity#yyyy-MM-dd
+ */
+public enum ETimeBucket {
+    HOUR(ChronoUnit.HOURS, "yyyy-MM-dd'T'HH"),
+    DAY(ChronoUnit.DAYS, "yyyy-MM-dd");
+
+    final ChronoUnit unit;
+    final DateTimeFormatter format;
+
+    ETimeBucket(ChronoUnit unit, String pattern) {
+        this.unit = unit;
+        this.format = DateTimeFormatter.ofPattern(pattern).withZone(ZoneOffset.UTC);
+    }
+}
@@ -1,6 +1,7 @@
 package awsutil.dynamodb.tabledefinition;
 
 import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -17,4 +18,14 @@ public @interface GlobalSI {
     public KeyType keyType();
     public long readCapacity() default 5L;
     public long writeCapacity() default 2L;
+    // Autoscaling of index ( Only when table is PROVISIONED, Disabled by default )
+    public AutoScaling readAutoScaling() default @AutoScaling;
+    public AutoScaling writeAutoScaling() default @AutoScaling;
+    // Attributes copied into index ( Table keys and index keys are always copied )
+    public ProjectionType projectionType() default ProjectionType.ALL;
+    // Field names copied into index on INCLUDE
+    public String[] nonKeyAttributes() default {};
+    // Count of shards of HASH key ( Field type should be String, Value is stored with suffix of shard as "value#n" )
+    public int shards() default 1;
+    public EShardingType sharding() default EShardingType.DETERMINISTIC;
 }
@@ -3,9 +3,7 @@ package awsutil.dynamodb.tabledefinition;
 import com.amazonaws.services.dynamodbv2.model.*;
 import lombok.AllArgsConstructor;
 
-import java.util.AbstractMap;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @AllArgsConstructor
@@ -15,33 +13,101 @@ public class GlobalSecondlyIndexStructure {
     public List<AbstractMap.SimpleEntry<String, KeyType>> keyAndAttributes;
     Long readCapacity;
     Long writeCapacity;
+    AutoScaling readAutoScaling;
+    AutoScaling writeAutoScaling;
+    ProjectionType projectionType;
+    String[] nonKeyAttributes;
 
     public GlobalSecondaryIndex toKeySchemeElement() {
+        return toKeySchemeElement(BillingMode.PROVISIONED);
+    }
+
+    /**
+     * @param billingMode billing mode of table ( Throughput is not set on PAY_PER_REQUEST )
+     * @return GSI to creating table, or null when keys are invalid
+     */
+    public GlobalSecondaryIndex toKeySchemeElement(BillingMode billingMode) {
+        GlobalSecondaryIndex index;
         if(isOnlyHashKey()) {
             AbstractMap.SimpleEntry<String, KeyType> gsi = this.keyAndAttributes.get(0);
             // GSI has only Hash key
-            return new GlobalSecondaryIndex().withIndexName(this.indexName).withKeySchema(
+            index = new GlobalSecondaryIndex().withIndexName(this.indexName).withKeySchema(
                     new KeySchemaElement().withAttributeName(gsi.getKey()).withKeyType(gsi.getValue()))
-                    .withProjection(new Projection().withProjectionType(ProjectionType.ALL))
-                    .withProvisionedThroughput(new ProvisionedThroughput()
-                            .withReadCapacityUnits(this.readCapacity)
-                            .withWriteCapacityUnits(this.writeCapacity)
-                    );
+                    .withProjection(toProjection(this.projectionType, this.nonKeyAttributes));
 
         } else if(hasSortKey()) {
             // GSI has hash and sort key
             List<AbstractMap.SimpleEntry<String, KeyType>> sortedList =
                     this.keyAndAttributes.stream().sorted(Comparator.comparing(AbstractMap.SimpleEntry::getValue)).collect(Collectors.toList());
-            return new GlobalSecondaryIndex().withIndexName(this.indexName).withKeySchema(
+            index = new GlobalSecondaryIndex().withIndexName(this.indexName).withKeySchema(
                     new KeySchemaElement().withAttributeName(sortedList.get(0).getKey()).withKeyType(sortedList.get(0).getValue()),
                     new KeySchemaElement().withAttributeName(sortedList.get(1).getKey()).withKeyType(sortedList.get(1).getValue()))
-                    .withProjection(new Projection().withProjectionType(ProjectionType.ALL))
-                    .withProvisionedThroughput(new ProvisionedThroughput()
-                            .withReadCapacityUnits(this.readCapacity)
-                            .withWriteCapacityUnits(this.writeCapacity)
-                    );
+                    .withProjection(toProjection(this.projectionType, this.nonKeyAttributes));
+        } else {
+            return null;
+        }
+        if(billingMode != BillingMode.PAY_PER_REQUEST) {
+            index.setProvisionedThroughput(new ProvisionedThroughput()
+                    .withReadCapacityUnits(this.readCapacity)
+                    .withWriteCapacityUnits(this.writeCapacity));
+        }
+        return index;
+    }
+
+    /**
+     * Projection of index
+     * @param projectionType type of projection ( Null means ALL )
+     * @param nonKeyAttributes attributes to copy on INCLUDE
+     * @return projection to creating index
+     */
+    public static Projection toProjection(ProjectionType projectionType, String[] nonKeyAttributes) {
+        Projection projection = new Projection().withProjectionType(projectionType != null ? projectionType : ProjectionType.ALL);
+        if(projectionType == ProjectionType.INCLUDE) {
+            projection.setNonKeyAttributes(Arrays.asList(nonKeyAttributes));
+        }
+        return projection;
+    }
+
+    /**
+     * Attributes that can be read from index
+     * @param partitionKey name of partition key of table
+     * @param sortKey name of sort key of table ( Nullable )
+     * @return attribute names, or null when index has all attributes
+     */
+    public Set<String> getProjectedAttributes(String partitionKey, String sortKey) {
+        if(this.projectionType == null || this.projectionType == ProjectionType.ALL) {
+            return null;
+        }
+        Set<String> attributes = new HashSet<>();
+        attributes.add(partitionKey);
+        if(sortKey != null) {
+            attributes.add(sortKey);
+        }
+        this.keyAndAttributes.forEach(key -> attributes.add(key.getKey()));
+        if(this.projectionType == ProjectionType.INCLUDE) {
+            attributes.addAll(Arrays.asList(this.nonKeyAttributes));
         }
-        return null;
+        return attributes;
+    }
+
+    public ProjectionType getProjectionType() {
+        return this.projectionType;
+    }
+
+    public Long getReadCapacity() {
+        return this.readCapacity;
+    }
+
+    public Long getWriteCapacity() {
+        return this.writeCapacity;
+    }
+
+    public AutoScaling getReadAutoScaling() {
+        return this.readAutoScaling;
+    }
+
+    public AutoScaling getWriteAutoScaling() {
+        return this.writeAutoScaling;
     }
 
     public void addNewKey(String fieldName, KeyType keyType) {
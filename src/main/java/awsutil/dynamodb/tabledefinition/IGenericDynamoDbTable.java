@@ -11,6 +11,7 @@ import utils.Randomizer;
 
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public interface IGenericDynamoDbTable {
@@ -18,6 +19,7 @@ public interface IGenericDynamoDbTable {
     /**
      * Create list of relation between each table as tree
      * When this method find circular reference, throw exception
+     * Relation is evaluated once for each class by RelationGraph, and cached graph is used after that.
      * @param primaryList be passed info of all parent if exist parent
      * @param tableRank be passed rank# if exist parent. root table is 0
      * @param parentTable parent obj that is passed above info
@@ -29,46 +31,25 @@ public interface IGenericDynamoDbTable {
     default List<TableRelation> toRelationTree(List<TableRelation> primaryList,
                                                Integer tableRank, Class<? extends IGenericDynamoDbTable> parentTable)
             throws InstantiationException, IllegalAccessException, ExistsCircularReferenceException {
-        // Init relational info for this table
-        TableRelation currentTableInfo = new TableRelation(tableRank != null ? tableRank: 0, this.getClass());
-        currentTableInfo.rankOfTable = tableRank;
-
         // At root table, Init primary list
         List<TableRelation> listOfRelation = primaryList == null || primaryList.isEmpty() ? new ArrayList<>(): primaryList;
-        // Add parent
-        if(parentTable != null) {
-            currentTableInfo.parentTables.add(parentTable);
-        }
-        listOfRelation.add(currentTableInfo);
-
-        // inquiry current table for finding child table
-        // If exists children, Pass family tree to child to updating
-        for(Field field: this.getClass().getDeclaredFields()) {
-
-            if(field.isAnnotationPresent(ExternalRelation.class)) {
-                // If child table does not exist on list of THIS parent, register child table
-                // Checking parent whether this contains child of this table
-                Class<?> child  = field.getAnnotation(ExternalRelation.class).relationTo();
-
-                // Inquiry parent whether be not contain same class as child
-                List<TableRelation>listOfParent = new ArrayList<>();
-                for(int rank = currentTableInfo.rankOfTable - 1; rank >= 0; rank--) {
-                    listOfParent.addAll(listOfRelation.stream().filter(
-                            p -> p.typeOfTable == child
-                    ).collect(Collectors.toList()));
-                }
+        List<TableRelation> relationsOfThis = RelationGraph.of(this.getClass()).toTableRelations(tableRank != null ? tableRank : 0);
 
-                // If this find circular reference, throw exception
-                if(!listOfParent.isEmpty()) {
-                    // throw Exception
-                    throw new ExistsCircularReferenceException(listOfParent, this.getClass(), tableRank);
-                } else {
-                    listOfRelation = (((IGenericDynamoDbTable) child.newInstance()).toRelationTree(
-                            listOfRelation, currentTableInfo.rankOfTable + 1, this.getClass()
-                    ));
-                }
+        // If this find table of parents in children, throw exception
+        if(!listOfRelation.isEmpty()) {
+            Set<Class<?>> tablesOfThis = relationsOfThis.stream().map(relation -> relation.typeOfTable).collect(Collectors.toSet());
+            List<TableRelation> listOfParent = listOfRelation.stream().filter(
+                    relation -> tablesOfThis.contains(relation.typeOfTable)
+            ).collect(Collectors.toList());
+            if(!listOfParent.isEmpty()) {
+                throw new ExistsCircularReferenceException(listOfParent, this.getClass(), tableRank);
             }
         }
+        // Add parent
+        if(parentTable != null) {
+            relationsOfThis.get(0).parentTables.add(parentTable);
+        }
+        listOfRelation.addAll(relationsOfThis);
         return listOfRelation;
     }
 
@@ -83,27 +64,15 @@ public interface IGenericDynamoDbTable {
             throws IllegalAccessException, InvalidParametersInDynamoDbException, InstantiationException {
         // All relationship info
         List<ExternalRelationDetails> relationDetails = new ArrayList<>();
-        // For ignoring checking same child class
-        List<Class<? extends IGenericDynamoDbTable>> checkedClass = new ArrayList<>();
-        for(Field field: this.getClass().getDeclaredFields()) {
-            if(field.isAnnotationPresent(ExternalRelation.class))
-            {
-                // Add relation info
-                relationDetails.add(new ExternalRelationDetails(
-                        field.getAnnotation(ExternalRelation.class).relationKeyType(),
-                        field.getAnnotation(ExternalRelation.class).indexName(),
-                        field.getAnnotation(ExternalRelation.class).gsiKeyType(),
-                        field.getAnnotation(ExternalRelation.class).relationTo(),
-                        field.getAnnotation(ExternalRelation.class).relationTo().newInstance().getTableName(),
-                        field.get(this)
-                ));
-            }
+        for(RelationGraph.Edge edge: RelationGraph.edgesOf(this.getClass())) {
+            relationDetails.add(edge.detailsOf(this));
         }
         return relationDetails;
     }
 
     /**
      * Create new instance to query relation table from this instance ( This should be result of query )
+     * Relations and fields of children to set conditions are taken from RelationGraph
      * @return Queries for relation tables
      * @throws InvalidParametersInDynamoDbException Throws when table model has not annotated by DynamoDBTable
      * @throws IllegalAccessException Throws when can not be get field value
@@ -111,94 +80,39 @@ public interface IGenericDynamoDbTable {
      */
     default List<IGenericDynamoDbTable> issueNewQueryToRelation()
             throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException {
+        return issueNewQueryToRelation(edge -> true);
+    }
+
+    /**
+     * Create new instance to query relation table only by selected relations
+     * @param selector returns true for relation to follow
+     * @return Queries for relation tables
+     * @throws InvalidParametersInDynamoDbException Throws when table model has not annotated by DynamoDBTable
+     * @throws IllegalAccessException Throws when can not be get field value
+     * @throws InstantiationException Throws when can not create new table instance to inserting result
+     */
+    default List<IGenericDynamoDbTable> issueNewQueryToRelation(Predicate<RelationGraph.Edge> selector)
+            throws InvalidParametersInDynamoDbException, IllegalAccessException, InstantiationException {
         System.out.println("[LAAAS/DDB(IGenDDBTable - issue new query)] Start creating new query - Current table is:"
                 + this.getTableName());
-        // Extracted relation info from this instance
-        List<ExternalRelationDetails> externalRelationDetails = this.getExternalRelationDetails();
-        // Relational child tables
-        Set<Class<? extends IGenericDynamoDbTable>> childrenTables = externalRelationDetails.stream().map(
-                detail -> detail.destinationClass
-        ).collect(Collectors.toSet());
-        System.out.println("[LAAAS/DDB(IGenDDBTable - issue new query)] Relation ship:" + childrenTables);
-
-        // All queries for each children tables
-        List<IGenericDynamoDbTable> queries = new ArrayList<>();
-
-        // Set conditions into child table
-        for(Class<? extends IGenericDynamoDbTable> childTable: childrenTables) {
-            // Get conditions for child table
-            List<ExternalRelationDetails> conditions = externalRelationDetails.stream().filter(
-                    details -> details.destinationClass == childTable
-            ).collect(Collectors.toList());
-
-            // Set conditions into fields from result of parent
-            IGenericDynamoDbTable queryCondition = childTable.newInstance();
-            for(ExternalRelationDetails details: conditions) {
-                System.out.println("[LAAAS/DDB(IGenDDBTable - issue new query)] Class of child:" + details.destinationClass);
-                System.out.println("[LAAAS/DDB(IGenDDBTable - issue new query)] Child table:" + details.destinationTableName);
-                System.out.println("[LAAAS/DDB(IGenDDBTable - issue new query)] KeyType:" + details.keyType);
-
-                // Set condition into field
-                switch (details.keyType) {
-                    case PARTITION_KEY:
-                        System.out.println("[LAAAS/DDB(IGenDDBTable - issue new query)] ======== RELATION TYPE: PARTITION KEY ========");
-                        List<Field> partitionKeyField = Arrays.stream(queryCondition.getClass().getDeclaredFields()).filter(
-                                field -> field.isAnnotationPresent(PartitionKey.class)
-                        ).collect(Collectors.toList());
-                        if(partitionKeyField.size() == 1) {
-                            System.out.println(">>> CONDITION OF PARTITION KEY <<< \n" +
-                                    "Value: " + details.expectedObjectBetweenEachTables);
-                            partitionKeyField.get(0).set(queryCondition, details.expectedObjectBetweenEachTables);
-                        }
-                        break;
 
-                    case SORT_KEY:
-                        System.out.println("[LAAAS/DDB(IGenDDBTable - issue new query)] ======== RELATION TYPE: SORT KEY ========");
-                        List<Field> sortKeyField = Arrays.stream(queryCondition.getClass().getDeclaredFields()).filter(
-                                field -> field.isAnnotationPresent(SortKey.class)
-                        ).collect(Collectors.toList());
-                        if(sortKeyField.size() == 1) {
-                            System.out.println(">>> CONDITION OF SORT KEY <<< \n" +
-                                    "Value: " + details.expectedObjectBetweenEachTables);
-                            sortKeyField.get(0).set(queryCondition, details.expectedObjectBetweenEachTables);
-                        }
-                        break;
-
-                    case GLOBAL_SECONDLY_INDEX:
-                        System.out.println("[LAAAS/DDB(IGenDDBTable - issue new query)] ======== RELATION TYPE: GSI ========");
-                        List<Field> gsiField = Arrays.stream(queryCondition.getClass().getDeclaredFields()).filter(
-                                field -> field.isAnnotationPresent(GlobalSI.class)
-                                        && field.getAnnotation(GlobalSI.class).indexName().equals(details.indexName)
-                                        && field.getAnnotation(GlobalSI.class).keyType() == details.relationKeyType
-                        ).collect(Collectors.toList());
-                        if(gsiField.size() == 1) {
-                            Field field = gsiField.get(0);
-                            System.out.println(">>> CONDITION OF GSI RELATIONSHIP <<< \n" +
-                                    "Index name: " + field.getAnnotation(GlobalSI.class).indexName() +
-                                    "GSI key type: " + field.getAnnotation(GlobalSI.class).keyType() +
-                                    "Value: " + details.expectedObjectBetweenEachTables);
-                            field.set(queryCondition, details.expectedObjectBetweenEachTables);
-                        }
-                        break;
-
-                    case LOCAL_SECONDLY_INDEX:
-                        System.out.println("[LAAAS/DDB(IGenDDBTable - issue new query)] ======== RELATION TYPE: LSI ========");
-                        List<Field> lsiField = Arrays.stream(queryCondition.getClass().getDeclaredFields()).filter(
-                                field -> field.isAnnotationPresent(LocalSI.class)
-                        ).collect(Collectors.toList());
-                        if(lsiField.size() == 1) {
-                            Field field = lsiField.get(0);
-                            System.out.println(">>> CONDITION OF LSI RELATIONSHIP <<<\n" +
-                                    "Index name: " + field.getAnnotation(LocalSI.class).indexName() +
-                                    "Value: " + details.expectedObjectBetweenEachTables);
-                            field.set(queryCondition, details.expectedObjectBetweenEachTables);
-                        }
-                        break;
-                }
+        // Queries for each children tables in order of relation
+        Map<Class<? extends IGenericDynamoDbTable>, IGenericDynamoDbTable> queries = new LinkedHashMap<>();
+        for(RelationGraph.Edge edge: RelationGraph.edgesOf(this.getClass())) {
+            if(!selector.test(edge)) continue;
+            IGenericDynamoDbTable queryCondition = queries.get(edge.to);
+            if(queryCondition == null) {
+                queryCondition = edge.to.newInstance();
+                queries.put(edge.to, queryCondition);
+            }
+            // Set condition into field of child
+            if(edge.targetField != null) {
+                Object expected = edge.sourceField.get(this);
+                System.out.println("[LAAAS/DDB(IGenDDBTable - issue new query)] " + edge + " Value: " + expected);
+                edge.targetField.set(queryCondition, expected);
             }
-            queries.add(queryCondition);
         }
-        return queries;
+        return new ArrayList<>(queries.values());
     }
 
     /**
@@ -365,6 +279,54 @@ public interface IGenericDynamoDbTable {
 
         // Generate Item from this table
         for(Field field: this.getClass().getDeclaredFields()) {
+            // Binary field is converted before identifying type of field
+            if(BinaryFieldCodec.isBinaryField(field)) {
+                if(field.get(this) != null) {
+                    record.withBinary(field.getName(),
+                            BinaryFieldCodec.encode((String) field.get(this), field.getAnnotation(BinaryField.class)));
+                }
+                continue;
+            }
+            // Offloaded field is stored as value or location of object in S3
+            if(OffloadedAttribute.isOffloadField(field)) {
+                Object offloaded = OffloadedAttribute.toItemValue(field, this);
+                if(offloaded != null) {
+                    record.with(field.getName(), offloaded);
+                }
+                continue;
+            }
+            // Set of String or Integer is stored as SS or NS
+            if(NativeSetCodec.isNativeSetField(field)) {
+                Set<?> elements = NativeSetCodec.toItemValue((Set<?>) field.get(this));
+                if(elements != null) {
+                    record.with(field.getName(), elements);
+                }
+                continue;
+            }
+            // Key of time-series table is stored with bucket and fixed format timestamp
+            if(TimeSeriesKeys.isTimeSeriesKey(field)) {
+                String stored = TimeSeriesKeys.toStoredValue(field, this);
+                if(stored != null) {
+                    if(field.isAnnotationPresent(PartitionKey.class)) {
+                        record.withPrimaryKey(field.getName(), stored);
+                    } else {
+                        record.withString(field.getName(), stored);
+                    }
+                }
+                continue;
+            }
+            // Sharded key is stored with suffix of shard
+            if(KeySharding.isShardedField(field)) {
+                String stored = KeySharding.toStoredValue(field, this);
+                if(stored != null) {
+                    if(field.isAnnotationPresent(PartitionKey.class)) {
+                        record.withPrimaryKey(field.getName(), stored);
+                    } else {
+                        record.withString(field.getName(), stored);
+                    }
+                }
+                continue;
+            }
             FieldIdentifier<AbstractMap.SimpleEntry<String, Object>, HashMap<String, Item>> identifier =
                     new FieldIdentifier<>(field, this, functions);
             // Get function by field type
@@ -499,6 +461,28 @@ public interface IGenericDynamoDbTable {
 
         // Convert all field to Map
         for(Field field: this.getClass().getDeclaredFields()) {
+            // Binary field is converted before identifying type of field
+            if(BinaryFieldCodec.isBinaryField(field)) {
+                if(field.get(this) != null) {
+                    mappedInstanceField.put(field.getName(),
+                            BinaryFieldCodec.encode((String) field.get(this), field.getAnnotation(BinaryField.class)));
+                }
+                continue;
+            }
+            if(OffloadedAttribute.isOffloadField(field)) {
+                Object offloaded = OffloadedAttribute.toItemValue(field, this);
+                if(offloaded != null) {
+                    mappedInstanceField.put(field.getName(), offloaded);
+                }
+                continue;
+            }
+            if(NativeSetCodec.isNativeSetField(field)) {
+                Set<?> elements = NativeSetCodec.toItemValue((Set<?>) field.get(this));
+                if(elements != null) {
+                    mappedInstanceField.put(field.getName(), elements);
+                }
+                continue;
+            }
             // Relation field and function to converting current field
             FieldIdentifier<AbstractMap.SimpleEntry<String, Object>, HashMap<String, Object>> identifier =
                     new FieldIdentifier<AbstractMap.SimpleEntry<String, Object>, HashMap<String, Object>>(field, this, functions);
@@ -672,6 +656,34 @@ public interface IGenericDynamoDbTable {
 
         // Set results into new instance
         for(Field field: resultOfTable.getClass().getDeclaredFields()) {
+            // Binary field ( Value stored as S before adding BinaryField is also read )
+            if(BinaryFieldCodec.isBinaryField(field)) {
+                AttributeValue binary = result.get(field.getName());
+                field.set(resultOfTable, binary == null ? null
+                        : binary.getB() != null ? BinaryFieldCodec.decode(binary.getB()) : binary.getS());
+                continue;
+            }
+            // Offloaded field is got from S3 at accessing to value
+            if(OffloadedAttribute.isOffloadField(field)) {
+                field.set(resultOfTable, OffloadedAttribute.fromItemValue(result.get(field.getName())));
+                continue;
+            }
+            if(NativeSetCodec.isNativeSetField(field)) {
+                field.set(resultOfTable, NativeSetCodec.fromAttributeValue(field, result.get(field.getName())));
+                continue;
+            }
+            // Suffix of bucket is removed from partition key of time-series table
+            if(TimeSeriesKeys.isTimeSeriesKey(field) && field.isAnnotationPresent(PartitionKey.class)) {
+                AttributeValue stored = result.get(field.getName());
+                field.set(resultOfTable, stored == null ? null : TimeSeriesKeys.toLogicalValue(stored.getS()));
+                continue;
+            }
+            // Suffix of shard is removed from sharded key
+            if(KeySharding.isShardedField(field)) {
+                AttributeValue stored = result.get(field.getName());
+                field.set(resultOfTable, stored == null ? null : KeySharding.toLogicalValue(stored.getS()));
+                continue;
+            }
             // Result has the field of data model
             FieldIdentifier<AbstractMap.SimpleEntry<String, Map<String, AttributeValue>>, Object> identifier
                     = new FieldIdentifier<>(field, resultOfTable, functions);
@@ -0,0 +1,134 @@
+package awsutil.dynamodb.tabledefinition;
+
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Suffix of shard for hot keys ( PartitionKey#shards and GlobalSI#shards )
+ * Value is stored as "value#n" ( n is 0 to shards - 1 ), and suffix is removed at reading into model.
+ * Sharded partition key is selected by hash of sort key, so record can be got by table keys without scattering,
+ * and query by partition key only is scattered across all shards.
+ * Sharded GSI HASH key is selected by hash of table keys or at random, and query is scattered across all shards.
+ */
+public class KeySharding {
+
+    static final char separator = '#';
+
+    /**
+     * @param field field of table model
+     * @return count of shards ( 1 when field is not sharded )
+     */
+    public static int shardsOf(Field field) {
+        if (field.getType() != String.class) {
+            return 1;
+        }
+        if (field.isAnnotationPresent(PartitionKey.class)) {
+            return Math.max(1, field.getAnnotation(PartitionKey.class).shards());
+        }
+        if (field.isAnnotationPresent(GlobalSI.class) && field.getAnnotation(GlobalSI.class).keyType() == KeyType.HASH) {
+            return Math.max(1, field.getAnnotation(GlobalSI.class).shards());
+        }
+        return 1;
+    }
+
+    /**
+     * @param field field of table model
+     * @return whether value of field is stored with suffix of shard
+     */
+    public static boolean isShardedField(Field field) {
+        return shardsOf(field) > 1;
+    }
+
+    /**
+     * Value with suffix of shard to writing into table
+     * @param field sharded field
+     * @param record record that has value of field
+     * @return stored value, or null when value of field is null
+     * @throws IllegalAccessException Throws when can not be get field value
+     * @throws IllegalArgumentException Throws when sort key is not set to select shard of partition key
+     */
+    public static String toStoredValue(Field field, IGenericDynamoDbTable record) throws IllegalAccessException {
+        Object value = field.get(record);
+        if (value == null) {
+            return null;
+        }
+        if (field.isAnnotationPresent(PartitionKey.class) && sortKeyOf(record) == null) {
+            // Shard can not be selected ( Query by partition key only is scattered by RecordCrudFacade.queryRecords )
+            throw new IllegalArgumentException("[LAAAS/DDB(Sharding)] Sort key is required to select shard of "
+                    + field.getName() + ": " + value);
+        }
+        return toStoredValue((String) value, shardOf(field, record));
+    }
+
+    /**
+     * @param value value of field
+     * @param shard number of shard
+     * @return value with suffix of shard
+     */
+    public static String toStoredValue(String value, int shard) {
+        return value + separator + shard;
+    }
+
+    /**
+     * @param value value of field
+     * @param shards count of shards
+     * @return stored values of all shards ( For scattering query )
+     */
+    public static List<String> allStoredValuesOf(String value, int shards) {
+        List<String> values = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            values.add(toStoredValue(value, shard));
+        }
+        return values;
+    }
+
+    /**
+     * @param stored value in table
+     * @return value without suffix of shard
+     */
+    public static String toLogicalValue(String stored) {
+        if (stored == null) {
+            return null;
+        }
+        int position = stored.lastIndexOf(separator);
+        if (position < 0 || position == stored.length() - 1) {
+            return stored;
+        }
+        for (int index = position + 1; index < stored.length(); index++) {
+            if (!Character.isDigit(stored.charAt(index))) return stored;
+        }
+        return stored.substring(0, position);
+    }
+
+    private static Object sortKeyOf(IGenericDynamoDbTable record) throws IllegalAccessException {
+        for (Field modelsField: record.getClass().getDeclaredFields()) {
+            if (modelsField.isAnnotationPresent(SortKey.class)) {
+                return modelsField.get(record);
+            }
+        }
+        return null;
+    }
+
+    private static int shardOf(Field field, IGenericDynamoDbTable record) throws IllegalAccessException {
+        int shards = shardsOf(field);
+        if (field.isAnnotationPresent(GlobalSI.class)
+                && field.getAnnotation(GlobalSI.class).sharding() == EShardingType.RANDOM) {
+            return ThreadLocalRandom.current().nextInt(shards);
+        }
+        // Hash of sort key for partition key, and hash of table keys for GSI
+        StringBuilder source = new StringBuilder();
+        for (Field modelsField: record.getClass().getDeclaredFields()) {
+            boolean isSource = field.isAnnotationPresent(PartitionKey.class) ?
+                    modelsField.isAnnotationPresent(SortKey.class) :
+                    modelsField.isAnnotationPresent(PartitionKey.class) || modelsField.isAnnotationPresent(SortKey.class);
+            if (isSource) {
+                source.append(modelsField.get(record)).append(separator);
+            }
+        }
+        return Math.floorMod(source.toString().hashCode(), shards);
+    }
+}
@@ -1,6 +1,6 @@
 package awsutil.dynamodb.tabledefinition;
 
-import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -14,4 +14,8 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface LocalSI {
     public String indexName();
+    // Attributes copied into index ( Table keys and index keys are always copied )
+    public ProjectionType projectionType() default ProjectionType.ALL;
+    // Field names copied into index on INCLUDE
+    public String[] nonKeyAttributes() default {};
 }
@@ -0,0 +1,133 @@
+package awsutil.dynamodb.tabledefinition;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Convert HashSet field to native set of DynamoDB and back
+ * HashSet<String> is stored as SS, and HashSet<Integer> is stored as NS.
+ * Element type is got from generic type of field, so empty or null set is also identified.
+ * DynamoDB does not allow empty set, so empty set is not written and null is read for missing attribute.
+ * Set that was stored as list ( L ) by older version is also read, and it is stored as native set at next writing.
+ */
+public class NativeSetCodec {
+
+    /**
+     * @param field field of table model
+     * @return element type of set ( String or Integer ), or null when field is not native set
+     */
+    public static Class<?> elementTypeOf(Field field) {
+        if (field.getType() != HashSet.class || !(field.getGenericType() instanceof ParameterizedType)) {
+            return null;
+        }
+        Type element = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+        return element == String.class || element == Integer.class ? (Class<?>) element : null;
+    }
+
+    /**
+     * @param field field of table model
+     * @return whether field is stored as SS or NS
+     */
+    public static boolean isNativeSetField(Field field) {
+        return elementTypeOf(field) != null;
+    }
+
+    /**
+     * @param value value of set field
+     * @return Set of String for SS, Set of BigDecimal for NS, or null when set is null or empty
+     */
+    public static Set<?> toItemValue(Set<?> value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        if (value.iterator().next() instanceof Number) {
+            return value.stream().map(number -> new BigDecimal(number.toString())).collect(Collectors.toSet());
+        }
+        return value.stream().map(String::valueOf).collect(Collectors.toSet());
+    }
+
+    /**
+     * @param values elements of set ( All elements are String or all elements are Integer )
+     * @return SS or NS attribute value
+     * @throws IllegalArgumentException Throws when values are empty, or types of elements are mixed or not supported
+     */
+    public static AttributeValue toAttributeValue(Collection<?> values) {
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("[LAAAS/DDB(Native set)] Set should have one or more elements");
+        }
+        if (values.stream().allMatch(value -> value instanceof String)) {
+            return new AttributeValue().withSS(values.stream().map(String.class::cast).collect(Collectors.toList()));
+        }
+        // Only HashSet<Integer> is stored as NS, so other numbers ( e.g. Long, Double ) can not be read back
+        if (values.stream().allMatch(value -> value instanceof Integer)) {
+            return new AttributeValue().withNS(values.stream().map(Object::toString).collect(Collectors.toList()));
+        }
+        throw new IllegalArgumentException("[LAAAS/DDB(Native set)] Elements should be all String or all Integer: " + values);
+    }
+
+    /**
+     * @param numbers values of NS
+     * @return whether all values are in range of Integer without fraction
+     */
+    public static boolean isIntegers(Collection<String> numbers) {
+        try {
+            numbers.forEach(NativeSetCodec::toInteger);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param field set field of table model
+     * @param value attribute value in item ( SS, NS, or L of older version )
+     * @return value of field, or null when attribute is not exists
+     * @throws IllegalArgumentException Throws when attribute is not set nor list, or element does not match type of field
+     */
+    public static HashSet<?> fromAttributeValue(Field field, AttributeValue value) {
+        if (value == null || Boolean.TRUE.equals(value.getNULL())) {
+            return null;
+        }
+        boolean isIntegerSet = elementTypeOf(field) == Integer.class;
+        if (value.getL() != null) {
+            // Stored as list by older version
+            HashSet<Object> elements = new HashSet<>();
+            for (AttributeValue element: value.getL()) {
+                String stored = element.getS() != null ? element.getS() : element.getN();
+                if (stored == null) {
+                    throw new IllegalArgumentException("[LAAAS/DDB(Native set)] Element of "
+                            + field.getName() + " should be String or Number: " + element);
+                }
+                elements.add(isIntegerSet ? toInteger(stored) : stored);
+            }
+            return elements;
+        }
+        if (isIntegerSet && value.getNS() != null) {
+            return value.getNS().stream().map(NativeSetCodec::toInteger).collect(Collectors.toCollection(HashSet::new));
+        }
+        if (!isIntegerSet && value.getSS() != null) {
+            return new HashSet<>(value.getSS());
+        }
+        throw new IllegalArgumentException("[LAAAS/DDB(Native set)] " + field.getName()
+                + " should be " + (isIntegerSet ? "NS" : "SS") + " or L: " + value);
+    }
+
+    /**
+     * @param number value of N
+     * @return value as Integer
+     * @throws IllegalArgumentException Throws when value has fraction or is out of range of Integer
+     */
+    private static Integer toInteger(String number) {
+        try {
+            return new BigDecimal(number).intValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("[LAAAS/DDB(Native set)] Value should be Integer: " + number);
+        }
+    }
+}
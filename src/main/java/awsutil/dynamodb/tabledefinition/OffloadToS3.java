@@ -0,0 +1,24 @@
+package awsutil.dynamodb.tabledefinition;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Set field that value is stored in S3 when it is large
+ * Filed type should be set OffloadedAttribute. Value over threshold is put into S3 by S3CrudFacade,
+ * and pointer to the object ( S3ObjectInfoTable ) is stored in item instead of value.
+ * Object is put just before writing item. Replaced or deleted object is not deleted at writing item
+ * ( Other readers may have its location ), and is deleted by TableCrudFacade.sweepOffloadedObjects.
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OffloadToS3 {
+    // Bucket of objects ( Env LAAAS_DDB_OFFLOAD_BUCKET is used when this is empty )
+    public String bucketName() default "";
+    // Directory of objects in bucket ( Table name and field name are added )
+    public String directoryPath() default "laaas-offload/";
+    // Value is put into S3 when size of UTF-8 bytes is this or more
+    public int thresholdBytes() default 100 * 1024;
+}
@@ -0,0 +1,353 @@
+package awsutil.dynamodb.tabledefinition;
+
+import awsutil.dynamodb.exceptions.DoesNotExistsFunctionException;
+import awsutil.s3.S3CrudFacade;
+import awsutil.s3.S3ObjectInfoTable;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Value of field annotated by OffloadToS3
+ * Value that is stored in S3 is got at first calling of get(), or by loadAll for all records of result at once.
+ * Location of object is assigned at converting to item, but object is put just before writing item ( See PendingObject ),
+ * so object is not put when record is invalid. Object is deleted when writing item is failed.
+ * Object that is replaced or deleted is not deleted at writing, because other readers may still have its location
+ * ( It is deleted by TableCrudFacade#sweepOffloadedObjects after grace period ).
+ */
+public class OffloadedAttribute {
+
+    static final String envNameOfBucket = "LAAAS_DDB_OFFLOAD_BUCKET";
+
+    /**
+     * Object that is assigned to value at converting to item, and is put into S3 before writing item
+     */
+    public static class PendingObject {
+        private final OffloadedAttribute attribute;
+        private final S3ObjectInfoTable pointer;
+        // Value at converting ( Value of attribute may be changed after converting )
+        private final String value;
+        private volatile boolean isUploaded;
+
+        private PendingObject(OffloadedAttribute attribute, S3ObjectInfoTable pointer, String value) {
+            this.attribute = attribute;
+            this.pointer = pointer;
+            this.value = value;
+        }
+
+        public S3ObjectInfoTable getPointer() {
+            return pointer;
+        }
+
+        public boolean isUploaded() {
+            return isUploaded;
+        }
+    }
+
+    // Location of object that is written in item ( Null when value is stored in item )
+    private S3ObjectInfoTable pointer;
+    private String value;
+    private boolean isLoaded;
+    // Value is changed after reading, so it must be written again
+    private boolean isModified;
+    // Object of modified value that is not written in item yet
+    private PendingObject pending;
+
+    private OffloadedAttribute() {
+    }
+
+    /**
+     * @param value value of field
+     * @return attribute to writing
+     */
+    public static OffloadedAttribute of(String value) {
+        OffloadedAttribute attribute = new OffloadedAttribute();
+        attribute.set(value);
+        return attribute;
+    }
+
+    /**
+     * @param pointer location of object in S3
+     * @return attribute that is not loaded yet
+     */
+    public static OffloadedAttribute ofPointer(S3ObjectInfoTable pointer) {
+        OffloadedAttribute attribute = new OffloadedAttribute();
+        attribute.pointer = pointer;
+        return attribute;
+    }
+
+    /**
+     * @return value ( Got from S3 at first calling when value is stored in S3 )
+     */
+    public synchronized String get() {
+        if (!isLoaded) {
+            load(S3CrudFacade.getString(pointer));
+        }
+        return value;
+    }
+
+    /**
+     * @param value new value
+     */
+    public synchronized void set(String value) {
+        this.value = value;
+        this.isLoaded = true;
+        this.isModified = true;
+    }
+
+    public synchronized boolean isLoaded() {
+        return isLoaded;
+    }
+
+    /**
+     * @return location of object, or null when value is stored in item
+     */
+    public synchronized S3ObjectInfoTable getPointer() {
+        return pointer;
+    }
+
+    private synchronized void load(String loadedValue) {
+        if (!isLoaded) {
+            this.value = loadedValue;
+            this.isLoaded = true;
+        }
+    }
+
+    /**
+     * Get values of all offloaded fields in records from S3 in parallel
+     * @param records records of query result
+     * @throws IllegalAccessException Throws when can not access to field of record
+     */
+    public static void loadAll(Collection<? extends IGenericDynamoDbTable> records) throws IllegalAccessException {
+        List<OffloadedAttribute> notLoaded = new ArrayList<>();
+        for (IGenericDynamoDbTable record: records) {
+            if (record == null) continue;
+            for (Field field: record.getClass().getDeclaredFields()) {
+                if (isOffloadField(field) && field.get(record) != null) {
+                    OffloadedAttribute attribute = (OffloadedAttribute) field.get(record);
+                    if (!attribute.isLoaded()) notLoaded.add(attribute);
+                }
+            }
+        }
+        if (notLoaded.isEmpty()) {
+            return;
+        }
+        List<S3ObjectInfoTable> pointers = new ArrayList<>();
+        notLoaded.forEach(attribute -> pointers.add(attribute.getPointer()));
+        List<String> values = S3CrudFacade.getStrings(pointers);
+        for (int index = 0; index < notLoaded.size(); index++) {
+            notLoaded.get(index).load(values.get(index));
+        }
+        System.out.println("[LAAAS/DDB(Offload)] LOADED " + notLoaded.size() + " OBJECTS");
+    }
+
+    /**
+     * @param field field of table model
+     * @return whether value of field is offloaded to S3
+     */
+    public static boolean isOffloadField(Field field) {
+        return field.isAnnotationPresent(OffloadToS3.class) && field.getType() == OffloadedAttribute.class;
+    }
+
+    /**
+     * Convert value of field to value of item
+     * Value over threshold is put into S3 when it is modified, and is replaced by its location.
+     * @param field field annotated by OffloadToS3
+     * @param record record that has field
+     * @return String value, Map of S3ObjectInfoTable, or null when field has no value
+     * @throws IllegalAccessException Throws when can not access to field of record
+     */
+    static Object toItemValue(Field field, IGenericDynamoDbTable record) throws IllegalAccessException {
+        OffloadedAttribute attribute = (OffloadedAttribute) field.get(record);
+        if (attribute == null) {
+            return null;
+        }
+        synchronized (attribute) {
+            if (!attribute.isModified && attribute.pointer != null) {
+                // Object in S3 is not changed
+                return pointerToMap(attribute.pointer);
+            }
+            if (attribute.value == null) {
+                return null;
+            }
+            OffloadToS3 setting = field.getAnnotation(OffloadToS3.class);
+            if (attribute.value.getBytes(StandardCharsets.UTF_8).length < setting.thresholdBytes()) {
+                return attribute.value;
+            }
+            // Same location is used until value is changed ( Same item for retrying )
+            if (attribute.pending == null || !attribute.pending.value.equals(attribute.value)) {
+                attribute.pending = new PendingObject(attribute, new S3ObjectInfoTable(bucketOf(field),
+                        directoryOf(field, record.getClass()), UUID.randomUUID().toString()), attribute.value);
+            }
+            return pointerToMap(attribute.pending.pointer);
+        }
+    }
+
+    /**
+     * @param field field annotated by OffloadToS3
+     * @return bucket of objects
+     * @throws IllegalStateException Throws when bucket is not set in annotation nor env
+     */
+    public static String bucketOf(Field field) {
+        OffloadToS3 setting = field.getAnnotation(OffloadToS3.class);
+        String bucketName = !setting.bucketName().isEmpty() ? setting.bucketName() : System.getenv(envNameOfBucket);
+        if (bucketName == null || bucketName.isEmpty()) {
+            throw new IllegalStateException("[LAAAS/DDB(Offload)] Bucket is not set for " + field.getName()
+                    + ": Set bucketName of OffloadToS3 or env " + envNameOfBucket);
+        }
+        return bucketName;
+    }
+
+    /**
+     * @param field field annotated by OffloadToS3
+     * @param model table model that has field
+     * @return directory of objects ( {directoryPath}{Table name}/{Field name}/ )
+     */
+    public static String directoryOf(Field field, Class<?> model) {
+        DynamoDBTable table = model.getAnnotation(DynamoDBTable.class);
+        return field.getAnnotation(OffloadToS3.class).directoryPath()
+                + (table != null ? table.tableName() : model.getSimpleName()) + "/" + field.getName() + "/";
+    }
+
+    /**
+     * @param records records that are converted to items
+     * @return objects that are assigned to values of records and not written in item yet
+     * @throws IllegalAccessException Throws when can not access to field of record
+     */
+    public static List<PendingObject> pendingObjectsOf(Collection<? extends IGenericDynamoDbTable> records)
+            throws IllegalAccessException {
+        List<PendingObject> objects = new ArrayList<>();
+        for (IGenericDynamoDbTable record: records) {
+            if (record == null) continue;
+            for (Field field: record.getClass().getDeclaredFields()) {
+                if (isOffloadField(field) && field.get(record) != null) {
+                    OffloadedAttribute attribute = (OffloadedAttribute) field.get(record);
+                    synchronized (attribute) {
+                        if (attribute.pending != null) objects.add(attribute.pending);
+                    }
+                }
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * Put objects into S3 ( Call this after validating records, just before writing items )
+     * @param objects objects of records to writing
+     */
+    public static void upload(List<PendingObject> objects) {
+        for (PendingObject object: objects) {
+            if (object.isUploaded) continue;
+            S3CrudFacade.putString(object.pointer, object.value);
+            object.isUploaded = true;
+            System.out.println("[LAAAS/DDB(Offload)] PUT OBJECT: " + keyOf(object.pointer));
+        }
+    }
+
+    /**
+     * Mark objects as written in items
+     * Objects that were written in items before are left for sweeping ( Readers may have their locations yet ).
+     * @param objects objects of written records
+     */
+    public static void commit(List<PendingObject> objects) {
+        for (PendingObject object: objects) {
+            OffloadedAttribute attribute = object.attribute;
+            synchronized (attribute) {
+                attribute.pointer = object.pointer;
+                if (attribute.pending == object) attribute.pending = null;
+                if (object.value.equals(attribute.value)) attribute.isModified = false;
+            }
+        }
+    }
+
+    /**
+     * Delete objects that are put for items that are not written
+     * @param objects objects of records that are failed to writing
+     */
+    public static void abort(List<PendingObject> objects) {
+        List<S3ObjectInfoTable> uploaded = new ArrayList<>();
+        for (PendingObject object: objects) {
+            synchronized (object.attribute) {
+                if (object.attribute.pending == object) object.attribute.pending = null;
+            }
+            if (object.isUploaded) {
+                uploaded.add(object.pointer);
+                object.isUploaded = false;
+            }
+        }
+        deleteObjects(uploaded);
+    }
+
+    /**
+     * @param value value of offloaded field in item
+     * @return location of object, or null when value is stored in item
+     */
+    public static S3ObjectInfoTable pointerOf(AttributeValue value) {
+        if (value == null || value.getM() == null) {
+            return null;
+        }
+        Map<String, AttributeValue> map = value.getM();
+        return new S3ObjectInfoTable(map.get("bucketName").getS(), map.get("directoryPath").getS(), map.get("objectName").getS());
+    }
+
+    /**
+     * @param pointer location of object
+     * @return {Bucket}/{Key of object}
+     */
+    public static String keyOf(S3ObjectInfoTable pointer) {
+        return pointer.bucketName + "/" + pointer.directoryPath + pointer.objectName;
+    }
+
+    /**
+     * Delete objects that are never referenced by items ( Failure is only logged, objects are left for sweeping )
+     * @param pointers locations of objects
+     */
+    private static void deleteObjects(List<S3ObjectInfoTable> pointers) {
+        Map<String, S3ObjectInfoTable> distinct = new LinkedHashMap<>();
+        pointers.forEach(pointer -> distinct.putIfAbsent(keyOf(pointer), pointer));
+        for (Map.Entry<String, S3ObjectInfoTable> pointer: distinct.entrySet()) {
+            try {
+                S3CrudFacade.deleteObject(pointer.getValue());
+                System.out.println("[LAAAS/DDB(Offload)] DELETE OBJECT: " + pointer.getKey());
+            } catch (RuntimeException e) {
+                System.out.println("[LAAAS/DDB(Offload)] FAILED DELETING OBJECT: " + pointer.getKey() + " " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @param value value of item
+     * @return attribute of field, or null when item has no value
+     * @throws IllegalAccessException Throws when can not access to field of pointer
+     * @throws InstantiationException Throws when can not create pointer
+     * @throws DoesNotExistsFunctionException Throws when can not convert pointer
+     */
+    static OffloadedAttribute fromItemValue(AttributeValue value) throws IllegalAccessException, InstantiationException,
+            DoesNotExistsFunctionException {
+        if (value == null) {
+            return null;
+        }
+        if (value.getM() != null) {
+            return ofPointer((S3ObjectInfoTable) new S3ObjectInfoTable().insertResultIntoModel(value.getM()));
+        }
+        OffloadedAttribute attribute = new OffloadedAttribute();
+        attribute.value = value.getS();
+        attribute.isLoaded = true;
+        return attribute;
+    }
+
+    private static Map<String, Object> pointerToMap(S3ObjectInfoTable pointer) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("bucketName", pointer.bucketName);
+        map.put("directoryPath", pointer.directoryPath);
+        map.put("objectName", pointer.objectName);
+        return map;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return isLoaded ? String.valueOf(value) : "S3(" + pointer.bucketName + "/" + pointer.directoryPath + pointer.objectName + ")";
+    }
+}
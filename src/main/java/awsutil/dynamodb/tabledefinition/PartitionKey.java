@@ -11,4 +11,6 @@ import java.lang.annotation.Target;
 public @interface PartitionKey {
     public boolean isAutoGen() default false;
     public int range() default 32;
+    // Count of shards ( Field type should be String and SortKey is required, Shard is selected by hash of sort key )
+    public int shards() default 1;
 }
@@ -0,0 +1,265 @@
+package awsutil.dynamodb.tabledefinition;
+
+import awsutil.dynamodb.exceptions.ExistsCircularReferenceException;
+import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Graph of relation by ExternalRelation from root table model
+ * Graph is built once for each root class and cached, and it is immutable after building.
+ * Circular reference is detected by DFS with colouring, so same table can be related from multiple parents ( DAG ).
+ * Tables are leveled by longest path from root, so parent table is always in lower level than its children.
+ */
+public class RelationGraph {
+
+    // Map<Class of root, Graph>
+    private static final ConcurrentHashMap<Class<? extends IGenericDynamoDbTable>, RelationGraph> graphs = new ConcurrentHashMap<>();
+    // Map<Class of table, Relations from table>
+    private static final ConcurrentHashMap<Class<? extends IGenericDynamoDbTable>, List<Edge>> edgesOfTables = new ConcurrentHashMap<>();
+
+    /**
+     * Relation from field of parent table to key of child table
+     */
+    public static class Edge {
+        // Field annotated by ExternalRelation in parent
+        public final Field sourceField;
+        public final Class<? extends IGenericDynamoDbTable> from;
+        public final Class<? extends IGenericDynamoDbTable> to;
+        public final ERelationKeyType keyType;
+        public final String indexName;
+        public final KeyType gsiKeyType;
+        // Field of child to set value of parent ( Null when child does not have single field for key type )
+        public final Field targetField;
+
+        private volatile String destinationTableName;
+
+        Edge(Field sourceField, Class<? extends IGenericDynamoDbTable> from) {
+            ExternalRelation relation = sourceField.getAnnotation(ExternalRelation.class);
+            this.sourceField = sourceField;
+            this.from = from;
+            this.to = relation.relationTo();
+            this.keyType = relation.relationKeyType();
+            this.indexName = relation.indexName();
+            this.gsiKeyType = relation.gsiKeyType();
+            this.targetField = targetFieldOf(this.to, this.keyType, this.indexName, this.gsiKeyType);
+        }
+
+        /**
+         * @return name of child table
+         * @throws InvalidParametersInDynamoDbException Throws when child is not annotated by DynamoDBTable
+         * @throws IllegalAccessException Throws when can not be get field value
+         */
+        public String getDestinationTableName() throws InvalidParametersInDynamoDbException, IllegalAccessException {
+            String tableName = this.destinationTableName;
+            if (tableName == null) {
+                tableName = new TableDefinition(this.to).tableName;
+                this.destinationTableName = tableName;
+            }
+            return tableName;
+        }
+
+        /**
+         * Relation info with value of given record
+         * @param record record of parent table
+         * @return relation info
+         * @throws InvalidParametersInDynamoDbException Throws when child is not annotated by DynamoDBTable
+         * @throws IllegalAccessException Throws when can not be get field value
+         */
+        public ExternalRelationDetails detailsOf(IGenericDynamoDbTable record)
+                throws InvalidParametersInDynamoDbException, IllegalAccessException {
+            return new ExternalRelationDetails(this.keyType, this.indexName, this.gsiKeyType, this.to,
+                    getDestinationTableName(), this.sourceField.get(record));
+        }
+
+        private static Field targetFieldOf(Class<? extends IGenericDynamoDbTable> child, ERelationKeyType keyType,
+                                           String indexName, KeyType gsiKeyType) {
+            List<Field> candidates = Arrays.stream(child.getDeclaredFields()).filter(field -> {
+                switch (keyType) {
+                    case PARTITION_KEY:
+                        return field.isAnnotationPresent(PartitionKey.class);
+                    case SORT_KEY:
+                        return field.isAnnotationPresent(SortKey.class);
+                    case GLOBAL_SECONDLY_INDEX:
+                        return field.isAnnotationPresent(GlobalSI.class)
+                                && field.getAnnotation(GlobalSI.class).indexName().equals(indexName)
+                                && field.getAnnotation(GlobalSI.class).keyType() == gsiKeyType;
+                    case LOCAL_SECONDLY_INDEX:
+                        return field.isAnnotationPresent(LocalSI.class);
+                    default:
+                        return false;
+                }
+            }).collect(Collectors.toList());
+            return candidates.size() == 1 ? candidates.get(0) : null;
+        }
+
+        @Override
+        public String toString() {
+            return from.getSimpleName() + "." + sourceField.getName() + " -> " + to.getSimpleName() + " (" + keyType
+                    + (indexName.isEmpty() ? "" : " " + indexName) + ")";
+        }
+    }
+
+    public final Class<? extends IGenericDynamoDbTable> root;
+    // Tables in topological order ( Root is first )
+    private final List<Class<? extends IGenericDynamoDbTable>> tables;
+    private final Map<Class<? extends IGenericDynamoDbTable>, Integer> levels;
+    private final Map<Class<? extends IGenericDynamoDbTable>, Set<Class<? extends IGenericDynamoDbTable>>> parents;
+
+    private RelationGraph(Class<? extends IGenericDynamoDbTable> root,
+                          List<Class<? extends IGenericDynamoDbTable>> tables,
+                          Map<Class<? extends IGenericDynamoDbTable>, Integer> levels,
+                          Map<Class<? extends IGenericDynamoDbTable>, Set<Class<? extends IGenericDynamoDbTable>>> parents) {
+        this.root = root;
+        this.tables = Collections.unmodifiableList(tables);
+        this.levels = Collections.unmodifiableMap(levels);
+        this.parents = Collections.unmodifiableMap(parents);
+    }
+
+    /**
+     * Get graph of relation from root ( Built at first calling )
+     * @param root class of root table
+     * @return graph
+     * @throws ExistsCircularReferenceException Throws when relation from root has circular reference
+     */
+    public static RelationGraph of(Class<? extends IGenericDynamoDbTable> root) throws ExistsCircularReferenceException {
+        RelationGraph graph = graphs.get(root);
+        if (graph == null) {
+            graph = build(root);
+            RelationGraph existing = graphs.putIfAbsent(root, graph);
+            if (existing != null) graph = existing;
+        }
+        return graph;
+    }
+
+    /**
+     * Relations from table
+     * @param table class of table
+     * @return relations in order of declared fields
+     */
+    public static List<Edge> edgesOf(Class<? extends IGenericDynamoDbTable> table) {
+        return edgesOfTables.computeIfAbsent(table, key -> Collections.unmodifiableList(
+                Arrays.stream(key.getDeclaredFields())
+                        .filter(field -> field.isAnnotationPresent(ExternalRelation.class))
+                        .map(field -> new Edge(field, key))
+                        .collect(Collectors.toList())));
+    }
+
+    private static RelationGraph build(Class<? extends IGenericDynamoDbTable> root) throws ExistsCircularReferenceException {
+        // Gray: on current path of DFS, Black: all descendants are checked
+        Set<Class<? extends IGenericDynamoDbTable>> gray = new HashSet<>();
+        Set<Class<? extends IGenericDynamoDbTable>> black = new HashSet<>();
+        Deque<Class<? extends IGenericDynamoDbTable>> path = new ArrayDeque<>();
+        List<Class<? extends IGenericDynamoDbTable>> postOrder = new ArrayList<>();
+        visit(root, gray, black, path, postOrder);
+
+        List<Class<? extends IGenericDynamoDbTable>> topologicalOrder = new ArrayList<>(postOrder);
+        Collections.reverse(topologicalOrder);
+
+        // Level is longest path from root
+        Map<Class<? extends IGenericDynamoDbTable>, Integer> levels = new HashMap<>();
+        Map<Class<? extends IGenericDynamoDbTable>, Set<Class<? extends IGenericDynamoDbTable>>> parents = new HashMap<>();
+        topologicalOrder.forEach(table -> parents.put(table, new LinkedHashSet<>()));
+        levels.put(root, 0);
+        for (Class<? extends IGenericDynamoDbTable> table: topologicalOrder) {
+            int level = levels.get(table);
+            for (Edge edge: edgesOf(table)) {
+                levels.merge(edge.to, level + 1, Math::max);
+                parents.get(edge.to).add(table);
+            }
+        }
+        parents.replaceAll((table, set) -> Collections.unmodifiableSet(set));
+        return new RelationGraph(root, topologicalOrder, levels, parents);
+    }
+
+    private static void visit(Class<? extends IGenericDynamoDbTable> table,
+                              Set<Class<? extends IGenericDynamoDbTable>> gray,
+                              Set<Class<? extends IGenericDynamoDbTable>> black,
+                              Deque<Class<? extends IGenericDynamoDbTable>> path,
+                              List<Class<? extends IGenericDynamoDbTable>> postOrder) throws ExistsCircularReferenceException {
+        gray.add(table);
+        path.addLast(table);
+        for (Edge edge: edgesOf(table)) {
+            if (gray.contains(edge.to)) {
+                // Tables on path from root to current table
+                List<TableRelation> relationsOnPath = new ArrayList<>();
+                Class<? extends IGenericDynamoDbTable> parent = null;
+                int rank = 0;
+                for (Class<? extends IGenericDynamoDbTable> onPath: path) {
+                    TableRelation relation = new TableRelation(rank++, onPath);
+                    if (parent != null) relation.parentTables.add(parent);
+                    relationsOnPath.add(relation);
+                    parent = onPath;
+                }
+                throw new ExistsCircularReferenceException(relationsOnPath, table, path.size() - 1);
+            }
+            if (!black.contains(edge.to)) {
+                visit(edge.to, gray, black, path, postOrder);
+            }
+        }
+        path.removeLast();
+        gray.remove(table);
+        black.add(table);
+        postOrder.add(table);
+    }
+
+    /**
+     * @return tables in topological order ( Root is first, and parents are always before their children )
+     */
+    public List<Class<? extends IGenericDynamoDbTable>> getTables() {
+        return tables;
+    }
+
+    /**
+     * @param table class of table
+     * @return level of table ( Root is 0 ), or null when table is not in graph
+     */
+    public Integer levelOf(Class<?> table) {
+        return levels.get(table);
+    }
+
+    /**
+     * @param table class of table
+     * @return whether table is in graph
+     */
+    public boolean contains(Class<?> table) {
+        return levels.containsKey(table);
+    }
+
+    /**
+     * @param table class of table
+     * @return parent tables in graph
+     */
+    public Set<Class<? extends IGenericDynamoDbTable>> parentsOf(Class<?> table) {
+        Set<Class<? extends IGenericDynamoDbTable>> parentsOfTable = parents.get(table);
+        return parentsOfTable != null ? parentsOfTable : Collections.emptySet();
+    }
+
+    /**
+     * @return all relations in graph in topological order of parent
+     */
+    public List<Edge> getEdges() {
+        List<Edge> edges = new ArrayList<>();
+        tables.forEach(table -> edges.addAll(edgesOf(table)));
+        return edges;
+    }
+
+    /**
+     * Convert to list of TableRelation
+     * @param baseRank rank of root
+     * @return relation info of each table
+     */
+    public List<TableRelation> toTableRelations(int baseRank) {
+        List<TableRelation> relations = new ArrayList<>();
+        for (Class<? extends IGenericDynamoDbTable> table: tables) {
+            TableRelation relation = new TableRelation(baseRank + levels.get(table), table);
+            relation.parentTables.addAll(parentsOf(table));
+            relations.add(relation);
+        }
+        return relations;
+    }
+}
@@ -0,0 +1,17 @@
+package awsutil.dynamodb.tabledefinition;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Store all records of relation graph from this table model into single physical table ( Adjacency list )
+ * Add this to root table model of ExternalRelation with DynamoDBTable. See SingleTableFacade for layout of items.
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SingleTable {
+    // Name of physical table ( Bundler identifier is added to head as same as DynamoDBTable )
+    public String tableName();
+}
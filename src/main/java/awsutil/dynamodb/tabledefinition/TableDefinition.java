@@ -1,7 +1,9 @@
 package awsutil.dynamodb.tabledefinition;
 
 import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
 import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
 import lombok.AllArgsConstructor;
 
 import java.lang.reflect.Field;
@@ -27,12 +29,20 @@ public class TableDefinition {
     public AbstractMap.SimpleEntry<String, Object> sortKey;
     // List<AbstractMap.SimpleEntry<Name of Local secondly index, Be set value>>
     public List<AbstractMap.SimpleEntry<String, Object>> localSecondlyIndexes = new ArrayList<>();
+    // AbstractMap.SimpleEntry<Name of version field, Be set value> ( Null when model has not Version )
+    public AbstractMap.SimpleEntry<String, Object> version;
     // Values of GSI <field name, <KeyType, Value>>
     public List<GsiValueStructure> gsiValue = new ArrayList<>();
     // HashMap<Index name HashMap<KeyType, be set value>>
     public HashMap<String, GlobalSecondlyIndexStructure> gsiStructures = new HashMap<>();
     public Long readCapacityUnit;
     public Long writeCapacityUnit;
+    public BillingMode billingMode;
+    public AutoScaling readAutoScaling;
+    public AutoScaling writeAutoScaling;
+    // Record cache settings ( cacheTtlMillis is 0 when cache is disabled )
+    public Long cacheTtlMillis;
+    public Integer cacheMaxSize;
     // Class info
     Class<?> modelClass;
 
@@ -60,9 +70,14 @@ public class TableDefinition {
         if(modelClass != null && modelClass.isAnnotationPresent(DynamoDBTable.class)) {
             // Basic parameters
             String tableNameAsEntity = this.modelClass.getAnnotation(DynamoDBTable.class).tableName();
-            this.tableName = getBundlerIdentifier() != null ? getBundlerIdentifier() + tableNameAsEntity : tableNameAsEntity;
+            this.tableName = toPhysicalTableName(tableNameAsEntity);
             this.readCapacityUnit = this.modelClass.getAnnotation(DynamoDBTable.class).readCapacityUnit();
             this.writeCapacityUnit = this.modelClass.getAnnotation(DynamoDBTable.class).writeCapacityUnit();
+            this.billingMode = this.modelClass.getAnnotation(DynamoDBTable.class).billingMode();
+            this.readAutoScaling = this.modelClass.getAnnotation(DynamoDBTable.class).readAutoScaling();
+            this.writeAutoScaling = this.modelClass.getAnnotation(DynamoDBTable.class).writeAutoScaling();
+            this.cacheTtlMillis = this.modelClass.getAnnotation(DynamoDBTable.class).cacheTtlMillis();
+            this.cacheMaxSize = this.modelClass.getAnnotation(DynamoDBTable.class).cacheMaxSize();
 
             // Field information
             for(Field modelsField: this.modelClass.getDeclaredFields()) {
@@ -79,6 +94,10 @@ public class TableDefinition {
                     this.sortKey = new AbstractMap.SimpleEntry<>(modelsField.getName(), value);
 
                 }
+                // Checking version for optimistic locking
+                if(modelsField.isAnnotationPresent(Version.class)) {
+                    this.version = new AbstractMap.SimpleEntry<>(modelsField.getName(), value);
+                }
                 // Checking LSI
                 if(modelsField.isAnnotationPresent(LocalSI.class)) {
                     // Get Local secondly indexes
@@ -92,6 +111,10 @@ public class TableDefinition {
                     KeyType keyType = modelsField.getAnnotation(GlobalSI.class).keyType();
                     long readCapacity = modelsField.getAnnotation(GlobalSI.class).readCapacity();
                     long writeCapacity = modelsField.getAnnotation(GlobalSI.class).writeCapacity();
+                    AutoScaling readAutoScaling = modelsField.getAnnotation(GlobalSI.class).readAutoScaling();
+                    AutoScaling writeAutoScaling = modelsField.getAnnotation(GlobalSI.class).writeAutoScaling();
+                    ProjectionType projectionType = modelsField.getAnnotation(GlobalSI.class).projectionType();
+                    String[] nonKeyAttributes = modelsField.getAnnotation(GlobalSI.class).nonKeyAttributes();
                     // Set be set value
                     this.gsiValue.add(new GsiValueStructure(
                             modelsField.getName(), indexName, value, keyType
@@ -106,7 +129,8 @@ public class TableDefinition {
                                 indexName, new ArrayList<AbstractMap.SimpleEntry<String, KeyType>>() {{
                                     add(new AbstractMap.SimpleEntry<>(modelsField.getName(), keyType));
                                 }},
-                        readCapacity, writeCapacity));
+                        readCapacity, writeCapacity, readAutoScaling, writeAutoScaling,
+                        projectionType, nonKeyAttributes));
                     }
                 }
             }
@@ -155,6 +179,14 @@ public class TableDefinition {
         initTableDefinition(null, record);
     }
 
+    /**
+     * @param tableNameAsEntity table name that is set in annotation
+     * @return table name with bundler identifier in head ( When env of bundler identifier is set )
+     */
+    public static String toPhysicalTableName(String tableNameAsEntity) {
+        return getBundlerIdentifier() != null ? getBundlerIdentifier() + tableNameAsEntity : tableNameAsEntity;
+    }
+
     static private String getBundlerIdentifier() {
         return System.getenv(bundlerIdentifier);
     }
@@ -0,0 +1,18 @@
+package awsutil.dynamodb.tabledefinition;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Set table model as time-series table
+ * PartitionKey field is value of entity ( e.g. Device ID ) and is stored as "entity#bucket",
+ * SortKey field is timestamp ( ISO-8601 ) and is stored as fixed format of UTC in nanoseconds ( yyyy-MM-ddTHH:mm:ss.SSSSSSSSSZ ).
+ * Both fields should be String. Records in time range are queried by RecordCrudFacade.queryTimeRange.
+ */
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TimeSeries {
+    ETimeBucket bucket() default ETimeBucket.DAY;
+}
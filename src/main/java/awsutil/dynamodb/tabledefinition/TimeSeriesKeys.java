@@ -0,0 +1,128 @@
+package awsutil.dynamodb.tabledefinition;
+
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keys of time-series table ( Table model annotated by TimeSeries )
+ * Partition key is stored as "entity#bucket" and sort key is stored as fixed format timestamp of UTC,
+ * so records in single bucket are sorted by time and buckets in time range can be computed without scanning.
+ * Bucket suffix is removed from partition key at reading into model.
+ */
+public class TimeSeriesKeys {
+
+    static final char separator = '#';
+    // Fixed width, so order of strings is same as order of time
+    // Nanoseconds are kept, so records in same millisecond are not overwritten by each other
+    private static final DateTimeFormatter timestampFormat =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSSSS'Z'").withZone(ZoneOffset.UTC);
+
+    /**
+     * @param field field of table model
+     * @return whether field is partition key or sort key of time-series table
+     */
+    public static boolean isTimeSeriesKey(Field field) {
+        return field.getDeclaringClass().isAnnotationPresent(TimeSeries.class)
+                && (field.isAnnotationPresent(PartitionKey.class) || field.isAnnotationPresent(SortKey.class));
+    }
+
+    /**
+     * Value of key to writing into table
+     * @param field partition key or sort key of time-series table
+     * @param record record that has entity and timestamp
+     * @return stored value, or null when value of field is null
+     * @throws IllegalAccessException Throws when can not be get field value
+     * @throws IllegalArgumentException Throws when timestamp is not ISO-8601 instant
+     */
+    public static String toStoredValue(Field field, IGenericDynamoDbTable record) throws IllegalAccessException {
+        Object value = field.get(record);
+        if (value == null) {
+            return null;
+        }
+        if (field.isAnnotationPresent(SortKey.class)) {
+            return format(parse((String) value));
+        }
+        String timestamp = null;
+        for (Field modelsField: record.getClass().getDeclaredFields()) {
+            if (modelsField.isAnnotationPresent(SortKey.class)) {
+                timestamp = (String) modelsField.get(record);
+            }
+        }
+        if (timestamp == null) {
+            throw new IllegalArgumentException("[LAAAS/DDB(Time series)] Timestamp is required to select bucket: " + value);
+        }
+        return toStoredValue((String) value, bucketOf(record.getClass()), parse(timestamp));
+    }
+
+    /**
+     * @param entity value of entity
+     * @param bucket size of bucket
+     * @param time time in bucket
+     * @return partition key of bucket
+     */
+    public static String toStoredValue(String entity, ETimeBucket bucket, Instant time) {
+        return entity + separator + bucket.format.format(time);
+    }
+
+    /**
+     * @param entity value of entity
+     * @param bucket size of bucket
+     * @param from start of range ( Inclusive )
+     * @param to end of range ( Inclusive )
+     * @return partition keys of all buckets that cover range, in order of time
+     */
+    public static List<String> bucketsBetween(String entity, ETimeBucket bucket, Instant from, Instant to) {
+        List<String> buckets = new ArrayList<>();
+        Instant end = to.truncatedTo(bucket.unit);
+        for (Instant head = from.truncatedTo(bucket.unit); !head.isAfter(end); head = head.plus(1, bucket.unit)) {
+            buckets.add(toStoredValue(entity, bucket, head));
+        }
+        return buckets;
+    }
+
+    /**
+     * @param stored partition key in table
+     * @return value of entity without suffix of bucket
+     */
+    public static String toLogicalValue(String stored) {
+        if (stored == null) {
+            return null;
+        }
+        int position = stored.lastIndexOf(separator);
+        return position < 0 ? stored : stored.substring(0, position);
+    }
+
+    /**
+     * @param model class of time-series table
+     * @return size of bucket
+     */
+    public static ETimeBucket bucketOf(Class<?> model) {
+        return model.getAnnotation(TimeSeries.class).bucket();
+    }
+
+    /**
+     * @param time time of record
+     * @return timestamp as stored in sort key
+     */
+    public static String format(Instant time) {
+        return timestampFormat.format(time);
+    }
+
+    /**
+     * @param timestamp ISO-8601 instant ( e.g. 2022-01-01T10:15:30Z )
+     * @return parsed time
+     * @throws IllegalArgumentException Throws when timestamp is invalid
+     */
+    public static Instant parse(String timestamp) {
+        try {
+            return Instant.parse(timestamp);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("[LAAAS/DDB(Time series)] Invalid timestamp: " + timestamp, e);
+        }
+    }
+}
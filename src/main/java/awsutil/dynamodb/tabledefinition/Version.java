@@ -0,0 +1,15 @@
+package awsutil.dynamodb.tabledefinition;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+/**
+ * Set field that be used for optimistic locking
+ * Filed type should be set Integer. Value is checked at writing record, and is incremented on every put / update.
+ * When value in table is different from value of record, VersionConflictException is thrown.
+ * Null value means new record ( Writing is failed when record already exists ).
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Version { }
@@ -4,8 +4,11 @@ import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.Bucket;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
 import utils.GeneralIO;
 
 import java.io.File;
@@ -14,12 +17,39 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 public class S3CrudFacade {
 
+    // Client for objects that are given as S3ObjectInfoTable ( Created at first use, when not set by code )
+    private static volatile AmazonS3 client;
+    // Max count of objects that are got at the same time
+    private static final int defaultMaxConcurrency = 16;
+
+    /**
+     * Threads to getting objects in parallel
+     * This is created at first access to holder
+     */
+    private static class ExecutorHolder {
+        static final ExecutorService executor = Executors.newFixedThreadPool(maxConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "laaas-s3-get-object");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private static int maxConcurrency() {
+            String value = System.getenv("LAAAS_S3_MAX_CONCURRENCY");
+            return value != null && !value.isEmpty() ? Math.max(1, Integer.parseInt(value)) : defaultMaxConcurrency;
+        }
+    }
+
     /**
      * Get clients for each region
      * @param regions AWS region as Region
@@ -29,6 +59,93 @@ public class S3CrudFacade {
         return AmazonS3ClientBuilder.standard().withRegion(regions).build();
     }
 
+    /**
+     * Use given client for objects that are given as S3ObjectInfoTable ( e.g. Stand-in of S3 for testing )
+     * @param newClient S3 client
+     */
+    public static void setClient(AmazonS3 newClient) {
+        client = newClient;
+    }
+
+    /**
+     * @return shared client by default region of environment
+     */
+    public static AmazonS3 getClient() {
+        AmazonS3 current = client;
+        if(current == null) {
+            synchronized (S3CrudFacade.class) {
+                if(client == null) {
+                    client = AmazonS3ClientBuilder.defaultClient();
+                }
+                current = client;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Put string as object without temporary file
+     * @param objectInfo location of object
+     * @param value value of object ( Written as UTF-8 )
+     */
+    static public void putString(S3ObjectInfoTable objectInfo, String value) {
+        getClient().putObject(objectInfo.bucketName, objectInfo.directoryPath + objectInfo.objectName, value);
+    }
+
+    /**
+     * Delete object
+     * @param objectInfo location of object
+     */
+    static public void deleteObject(S3ObjectInfoTable objectInfo) {
+        getClient().deleteObject(objectInfo.bucketName, objectInfo.directoryPath + objectInfo.objectName);
+    }
+
+    /**
+     * List all objects in directory ( All pages )
+     * @param bucketName bucket of objects
+     * @param directoryPath prefix of keys of objects
+     * @return summaries of objects
+     */
+    static public List<S3ObjectSummary> listObjects(String bucketName, String directoryPath) {
+        List<S3ObjectSummary> summaries = new ArrayList<>();
+        ListObjectsV2Request request = new ListObjectsV2Request().withBucketName(bucketName).withPrefix(directoryPath);
+        ListObjectsV2Result result;
+        do {
+            result = getClient().listObjectsV2(request);
+            summaries.addAll(result.getObjectSummaries());
+            request.setContinuationToken(result.getNextContinuationToken());
+        } while (result.isTruncated());
+        return summaries;
+    }
+
+    /**
+     * Get object as string without temporary file
+     * @param objectInfo location of object
+     * @return value of object
+     */
+    static public String getString(S3ObjectInfoTable objectInfo) {
+        return getClient().getObjectAsString(objectInfo.bucketName, objectInfo.directoryPath + objectInfo.objectName);
+    }
+
+    /**
+     * Get objects as string in parallel ( Up to LAAAS_S3_MAX_CONCURRENCY objects at the same time, 16 by default )
+     * @param objectInfos locations of objects
+     * @return values of objects in same order as given locations
+     */
+    static public List<String> getStrings(List<S3ObjectInfoTable> objectInfos) {
+        if(objectInfos.size() <= 1) {
+            return objectInfos.stream().map(S3CrudFacade::getString).collect(Collectors.toList());
+        }
+        List<CompletableFuture<String>> futures = objectInfos.stream()
+                .map(objectInfo -> CompletableFuture.supplyAsync(() -> getString(objectInfo), ExecutorHolder.executor))
+                .collect(Collectors.toList());
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
     /**
      * Upload file into s3 bucket
      * @param s3ObjectModel to mapping by Java object
@@ -0,0 +1,66 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.AutoScalingTable;
+import samples.OnDemandTable;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing billing mode and autoscaling of created tables
+ */
+public class BillingModeTest {
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    private LocalAutoScalingRegistrar registrar;
+
+    @Before
+    public void setUp() {
+        registrar = new LocalAutoScalingRegistrar();
+        TableCrudFacade.setAutoScalingRegistrar(registrar);
+    }
+
+    @After
+    public void tearDown() {
+        TableCrudFacade.setAutoScalingRegistrar(null);
+    }
+
+    @Test
+    public void billingModeTest() throws Exception {
+        TableCrudFacade.create(OnDemandTable.class);
+        TableDescription onDemand = dynamoDb.get().describeTable(new DescribeTableRequest()
+                .withTableName(new TableDefinition(OnDemandTable.class).tableName)).getTable();
+        assertEquals(BillingMode.PAY_PER_REQUEST.toString(), onDemand.getBillingModeSummary().getBillingMode());
+        assertNull(onDemand.getProvisionedThroughput());
+        assertNull(onDemand.getGlobalSecondaryIndexes().get(0).getProvisionedThroughput());
+        assertSame(CapacityRateLimiter.unlimited, CapacityRateLimiter.forWrite(new TableDefinition(OnDemandTable.class)));
+        assertTrue(registrar.getRegistrations().isEmpty());
+
+        TableCrudFacade.create(AutoScalingTable.class);
+        List<LocalAutoScalingRegistrar.Registration> registrations = registrar.getRegistrations();
+        System.out.println("[(TEST)::billingModeTest] " + registrations.size());
+        assertEquals(3, registrations.size());
+        assertEquals("table/" + new TableDefinition(AutoScalingTable.class).tableName + "/index/auto-scaling-gsi",
+                registrations.get(2).resourceId);
+        assertEquals(100.0, CapacityRateLimiter.forRead(new TableDefinition(AutoScalingTable.class), null).getRate(), 0.0);
+    }
+
+    @Test
+    public void registrarSettingsTest() {
+        // Registrar uses same settings as DynamoDB client
+        DynamoClientProvider.configure(new DynamoClientProvider.Settings().withRegion("ap-northeast-1"));
+        assertEquals("ap-northeast-1", DynamoClientProvider.getSettings().region);
+        assertNotNull(AwsAutoScalingRegistrar.buildClient(DynamoClientProvider.getSettings()));
+    }
+}
@@ -0,0 +1,63 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.BinaryField;
+import awsutil.dynamodb.tabledefinition.BinaryFieldCodec;
+import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.Test;
+import samples.BinaryFieldTable;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing compressed binary attributes by BinaryField
+ */
+public class BinaryFieldTest {
+
+    private static String documentOf(int repeat) {
+        StringBuilder document = new StringBuilder();
+        for (int index = 0; index < repeat; index++) {
+            document.append("{\"index\":").append(index).append(",\"text\":\"lorem ipsum dolor sit amet\"},");
+        }
+        return document.toString();
+    }
+
+    @Test
+    public void roundTripTest() throws Exception {
+        String document = documentOf(500);
+        BinaryFieldTable record = new BinaryFieldTable("b1", document, "short note");
+        Item item = record.toItem().getValue();
+        Map<String, AttributeValue> attributes = ItemUtils.toAttributeValues(item);
+
+        // Large value is compressed, small value is stored as it is
+        assertNotNull(attributes.get("document").getB());
+        assertTrue(attributes.get("document").getB().remaining() < document.length() / 4);
+        assertEquals("short note".length() + 1, attributes.get("note").getB().remaining());
+        System.out.println("[(TEST)::roundTripTest] " + document.length() + " -> " + attributes.get("document").getB().remaining());
+
+        BinaryFieldTable result = (BinaryFieldTable) new BinaryFieldTable().insertResultIntoModel(attributes);
+        assertEquals(document, result.document);
+        assertEquals("short note", result.note);
+    }
+
+    @Test
+    public void legacyAndNullTest() throws Exception {
+        Map<String, AttributeValue> attributes = ItemUtils.toAttributeValues(new BinaryFieldTable("b2", null, null).toItem().getValue());
+        assertFalse(attributes.containsKey("document"));
+
+        // Value that was stored as S before adding BinaryField
+        attributes.put("document", new AttributeValue("plain"));
+        BinaryFieldTable result = (BinaryFieldTable) new BinaryFieldTable().insertResultIntoModel(attributes);
+        assertEquals("plain", result.document);
+        assertNull(result.note);
+
+        // Working buffer grows for value larger than initial size
+        String large = documentOf(5000);
+        BinaryField setting = BinaryFieldTable.class.getField("document").getAnnotation(BinaryField.class);
+        assertEquals(large, BinaryFieldCodec.decode(ByteBuffer.wrap(BinaryFieldCodec.encode(large, setting))));
+    }
+}
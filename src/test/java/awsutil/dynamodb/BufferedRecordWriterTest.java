@@ -0,0 +1,108 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.OnDemandTable;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing write-behind writer by BatchWriteItem
+ */
+public class BufferedRecordWriterTest {
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    private String onDemandTableName;
+
+    @Before
+    public void setUp() throws Exception {
+        onDemandTableName = new TableDefinition(OnDemandTable.class).tableName;
+    }
+
+    private Map<String, AttributeValue> itemOf(String id) {
+        return dynamoDb.get().getItem(onDemandTableName, Collections.singletonMap("id", new AttributeValue(id))).getItem();
+    }
+
+    @Test
+    public void bufferedWriterTest() throws Exception {
+        try (BufferedRecordWriter writer = new BufferedRecordWriter(new BufferedRecordWriter.Settings(100, 100, 60000))) {
+            TableCrudFacade.create(OnDemandTable.class);
+
+            // Writes to same keys are coalesced into last one
+            for (int round = 0; round < 2; round++) {
+                for (int index = 0; index < 30; index++) {
+                    writer.put(new OnDemandTable("w" + index, "round-" + round));
+                }
+            }
+            assertEquals(30, writer.getBufferedCount());
+
+            long requests = dynamoDb.get().getRequestCount();
+            writer.flush();
+            assertEquals(2, dynamoDb.get().getRequestCount() - requests);
+            assertEquals(0, writer.getBufferedCount());
+            assertEquals("round-1", itemOf("w29").get("gsiHash").getS());
+
+            // Unprocessed items by throttling are retried
+            dynamoDb.get().withThrottling(2);
+            for (int index = 0; index < 10; index++) {
+                writer.delete(new OnDemandTable("w" + index, null));
+            }
+            writer.flush();
+            dynamoDb.get().withThrottling(0);
+            assertNull(itemOf("w9"));
+            System.out.println("[(TEST)::bufferedWriterTest] " + (dynamoDb.get().getRequestCount() - requests) + " requests");
+        }
+    }
+
+    @Test
+    public void failedFlushTest() throws Exception {
+        try (BufferedRecordWriter writer = new BufferedRecordWriter(new BufferedRecordWriter.Settings(100, 100, 60000))) {
+            writer.put(new OnDemandTable("f1", "first"));
+            writer.put(new OnDemandTable("f2", "first"));
+
+            // Writes are kept in buffer when writing is failed ( Table is not created )
+            try {
+                writer.flush();
+                fail();
+            } catch (RuntimeException e) {
+                System.out.println("[(TEST)::failedFlushTest] " + e.getMessage());
+            }
+            assertEquals(2, writer.getBufferedCount());
+
+            // Failed write is replaced by newer write of same item
+            writer.put(new OnDemandTable("f2", "second"));
+            assertEquals(2, writer.getBufferedCount());
+            TableCrudFacade.create(OnDemandTable.class);
+            writer.flush();
+            assertEquals(0, writer.getBufferedCount());
+            assertEquals("first", itemOf("f1").get("gsiHash").getS());
+            assertEquals("second", itemOf("f2").get("gsiHash").getS());
+        }
+    }
+
+    @Test
+    public void settingsTest() {
+        new BufferedRecordWriter.Settings(25, 25, 1000);
+        try {
+            // Flushing is never started by size when it is over buffer
+            new BufferedRecordWriter.Settings(100, 1000, 60000);
+            fail();
+        } catch (IllegalArgumentException e) {
+            System.out.println("[(TEST)::settingsTest] " + e.getMessage());
+        }
+        try {
+            new BufferedRecordWriter.Settings(0, 0, 1000);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("positive"));
+        }
+    }
+}
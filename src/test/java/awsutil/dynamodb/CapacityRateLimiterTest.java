@@ -0,0 +1,122 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.GlobalSecondlyIndexStructure;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import org.junit.After;
+import org.junit.Test;
+import samples.SimpleGsiTable;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing client side rate limiter by capacity units
+ */
+public class CapacityRateLimiterTest {
+
+    @After
+    public void tearDown() {
+        CapacityRateLimiter.setEnabled(false);
+    }
+
+    @Test
+    public void refillTest() {
+        CapacityRateLimiter.TokenBucket bucket = new CapacityRateLimiter.TokenBucket("refill", 10);
+        assertEquals(10.0, bucket.getTokens(), 0.01);
+
+        // Tokens become negative by debiting, and next request waits until refilled
+        bucket.debit(15);
+        assertTrue(bucket.getTokens() < 0);
+        long started = System.nanoTime();
+        bucket.acquire();
+        long waitedMillis = (System.nanoTime() - started) / 1000000;
+        System.out.println("[(TEST)::refillTest] waited(ms): " + waitedMillis);
+        assertTrue(waitedMillis >= 400);
+        assertTrue(bucket.getTokens() > 0);
+    }
+
+    @Test
+    public void aimdTest() {
+        CapacityRateLimiter.TokenBucket bucket = new CapacityRateLimiter.TokenBucket("aimd", 10);
+        // Multiplicative decrease
+        bucket.onThrottled();
+        assertEquals(5.0, bucket.getRate(), 0.0);
+        bucket.onThrottled();
+        assertEquals(2.5, bucket.getRate(), 0.0);
+        assertTrue(bucket.getTokens() <= bucket.getRate());
+
+        // Additive increase up to declared capacity
+        bucket.debit(0);
+        assertEquals(3.0, bucket.getRate(), 0.0001);
+        for (int count = 0; count < 100; count++) {
+            bucket.debit(0);
+        }
+        assertEquals(10.0, bucket.getRate(), 0.0);
+
+        // Rate is not decreased under lower limit
+        for (int count = 0; count < 100; count++) {
+            bucket.onThrottled();
+        }
+        assertEquals(0.5, bucket.getRate(), 0.0);
+    }
+
+    @Test
+    public void disabledTest() {
+        if (System.getenv(CapacityRateLimiter.envNameOfSwitch) == null) {
+            assertFalse(CapacityRateLimiter.isEnabled());
+        }
+        CapacityRateLimiter.setEnabled(false);
+        CapacityRateLimiter.TokenBucket bucket = new CapacityRateLimiter.TokenBucket("disabled", 10);
+        assertEquals("result", CapacityRateLimiter.execute(bucket, () -> "result", result -> 100));
+        try {
+            CapacityRateLimiter.execute(bucket, () -> {
+                throw new ProvisionedThroughputExceededException("throttled");
+            }, result -> 1);
+            fail();
+        } catch (ProvisionedThroughputExceededException e) {
+            // Bucket is not touched
+            assertEquals(10.0, bucket.getRate(), 0.0);
+            assertEquals(10.0, bucket.getTokens(), 0.01);
+        }
+    }
+
+    @Test
+    public void throttledAttemptTest() {
+        CapacityRateLimiter.setEnabled(true);
+        CapacityRateLimiter.TokenBucket bucket = new CapacityRateLimiter.TokenBucket("attempt", 8);
+        try {
+            CapacityRateLimiter.execute(bucket, () -> {
+                // Each throttled attempt is reported by request handler before retrying
+                CapacityRateLimiter.onThrottledAttempt();
+                assertEquals(4.0, bucket.getRate(), 0.0);
+                CapacityRateLimiter.onThrottledAttempt();
+                throw new ProvisionedThroughputExceededException("throttled");
+            }, result -> 1);
+            fail();
+        } catch (ProvisionedThroughputExceededException e) {
+            // Last attempt is not decreased twice
+            assertEquals(2.0, bucket.getRate(), 0.0);
+        }
+        // Attempt out of request is ignored
+        CapacityRateLimiter.onThrottledAttempt();
+        assertEquals(2.0, bucket.getRate(), 0.0);
+    }
+
+    @Test
+    public void indexCapacityTest() throws Exception {
+        TableDefinition def = new TableDefinition(SimpleGsiTable.class);
+        CapacityRateLimiter.TokenBucket write = CapacityRateLimiter.forWrite(def);
+        assertEquals(1, write.indexBuckets.size());
+        CapacityRateLimiter.TokenBucket indexWrite = write.indexBuckets.get(0);
+        double indexTokens = indexWrite.getTokens();
+        write.debit(3);
+        assertTrue(indexWrite.getTokens() < indexTokens - 2);
+
+        // Capacity of table is used when capacity of GSI is not declared
+        def.gsiStructures.put("undeclared-index", new GlobalSecondlyIndexStructure("undeclared-index",
+                Collections.emptyList(), null, null, null, null, null, null));
+        assertEquals(2.0, CapacityRateLimiter.forRead(def, "undeclared-index").getRate(), 0.0);
+    }
+}
@@ -0,0 +1,60 @@
+package awsutil.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.document.DynamoDB;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing retiring replaced client by DynamoClientProvider
+ */
+public class DynamoClientProviderTest {
+
+    private final long defaultGraceMillis = DynamoClientProvider.retireGraceMillis;
+
+    @After
+    public void tearDown() {
+        DynamoClientProvider.retireGraceMillis = defaultGraceMillis;
+    }
+
+    @Test
+    public void retireTest() throws Exception {
+        CountDownLatch shutdown = new CountDownLatch(1);
+        DynamoDB previous = new DynamoDB(new InMemoryDynamoDb() {
+            @Override
+            public void shutdown() {
+                shutdown.countDown();
+            }
+        });
+        DynamoClientProvider.retireGraceMillis = 100L;
+        DynamoClientProvider.InFlightRequests inFlight = new DynamoClientProvider.InFlightRequests();
+        // Request of other thread is in flight on replaced client
+        inFlight.beforeRequest(null);
+        DynamoClientProvider.retire(previous, inFlight);
+        assertFalse(shutdown.await(500, TimeUnit.MILLISECONDS));
+
+        // Client is shut down after request is finished
+        inFlight.afterResponse(null, null);
+        assertTrue(shutdown.await(1000, TimeUnit.MILLISECONDS));
+        System.out.println("[(TEST)::retireTest] " + inFlight.count.get());
+    }
+
+    @Test
+    public void injectedTest() throws Exception {
+        CountDownLatch shutdown = new CountDownLatch(1);
+        DynamoDB previous = new DynamoDB(new InMemoryDynamoDb() {
+            @Override
+            public void shutdown() {
+                shutdown.countDown();
+            }
+        });
+        DynamoClientProvider.retireGraceMillis = 100L;
+        // Injected client is not shut down by provider
+        DynamoClientProvider.retire(previous, null);
+        assertFalse(shutdown.await(500, TimeUnit.MILLISECONDS));
+    }
+}
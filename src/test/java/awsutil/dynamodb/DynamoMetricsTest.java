@@ -0,0 +1,102 @@
+package awsutil.dynamodb;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing metrics of DynamoDB operations
+ */
+public class DynamoMetricsTest {
+
+    private DynamoMetrics.Snapshot snapshotOf(String operation, String tableName) {
+        return DynamoMetrics.snapshot().stream()
+                .filter(snapshot -> snapshot.operation.equals(operation) && snapshot.tableName.equals(tableName))
+                .findFirst().orElseThrow(IllegalStateException::new);
+    }
+
+    @Test
+    public void recordingTest() {
+        for (int count = 0; count < 10; count++) {
+            DynamoMetrics.record("GetItem", "metrics-table", null, () -> "result", (metrics, result) -> {
+                metrics.addItems(1);
+                metrics.addReadUnits(0.5);
+            });
+        }
+        try {
+            DynamoMetrics.record("GetItem", "metrics-table", null, () -> {
+                throw new IllegalStateException("failed");
+            }, null);
+        } catch (IllegalStateException ignored) {
+        }
+
+        DynamoMetrics.Snapshot snapshot = snapshotOf("GetItem", "metrics-table");
+        System.out.println("[(TEST)::recordingTest] " + snapshot);
+        assertEquals(11, snapshot.count);
+        assertEquals(1, snapshot.errorCount);
+        assertEquals(10, snapshot.itemCount);
+        assertEquals(5.0, snapshot.consumedReadUnits, 0.001);
+    }
+
+    @Test
+    public void retryTest() {
+        DynamoMetrics.AttemptCounter counter = new DynamoMetrics.AttemptCounter();
+        ProvisionedThroughputExceededException throttled = new ProvisionedThroughputExceededException("throttled");
+        throttled.setErrorCode("ProvisionedThroughputExceededException");
+        // Query of 2 pages, first page is throttled once and succeeds by retry of SDK
+        DynamoMetrics.record("Query", "retry-table", null, () -> {
+            Request<?> firstPage = new DefaultRequest<>("DynamoDB");
+            counter.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(firstPage).build());
+            counter.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(firstPage).withException(throttled).build());
+            counter.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(firstPage).build());
+            counter.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(firstPage).build());
+            counter.afterResponse(firstPage, null);
+            Request<?> secondPage = new DefaultRequest<>("DynamoDB");
+            counter.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(secondPage).build());
+            counter.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(secondPage).build());
+            counter.afterResponse(secondPage, null);
+            return "result";
+        }, null);
+
+        // Request that is throttled until retries are exhausted
+        try {
+            DynamoMetrics.record("Query", "retry-table", null, () -> {
+                Request<?> page = new DefaultRequest<>("DynamoDB");
+                for (int attempt = 0; attempt < 3; attempt++) {
+                    counter.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(page).build());
+                    counter.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(page).withException(throttled).build());
+                }
+                counter.afterError(page, null, throttled);
+                throw throttled;
+            }, null);
+        } catch (ProvisionedThroughputExceededException ignored) {
+        }
+
+        DynamoMetrics.Snapshot snapshot = snapshotOf("Query", "retry-table");
+        System.out.println("[(TEST)::retryTest] " + snapshot);
+        assertEquals(2, snapshot.count);
+        assertEquals(3, snapshot.retryCount);
+        assertEquals(4, snapshot.throttleCount);
+        assertEquals(1, snapshot.errorCount);
+    }
+
+    @Test
+    public void histogramTest() {
+        DynamoMetrics.LatencyHistogram histogram = new DynamoMetrics.LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros);
+        }
+        long[] buckets = histogram.copyBuckets();
+        long p50 = DynamoMetrics.LatencyHistogram.percentileOf(buckets, 1000, 50);
+        long p99 = DynamoMetrics.LatencyHistogram.percentileOf(buckets, 1000, 99);
+        // Error of each bucket is less than 12.5%
+        assertTrue(p50 >= 500 && p50 <= 500 * 1.125);
+        assertTrue(p99 >= 990 && p99 <= 990 * 1.125);
+    }
+}
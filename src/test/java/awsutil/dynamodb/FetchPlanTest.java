@@ -0,0 +1,53 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.RelationGraph;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import org.junit.Test;
+import samples.GlobalRelationChild;
+import samples.GlobalRelationHashChild;
+import samples.GlobalRelationParent;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing selection of relations and attributes by FetchPlan
+ */
+public class FetchPlanTest {
+
+    @Test
+    public void selectionTest() throws Exception {
+        List<RelationGraph.Edge> edges = RelationGraph.edgesOf(GlobalRelationParent.class);
+
+        FetchPlan onlyHashChild = FetchPlan.all().include(GlobalRelationHashChild.class);
+        assertEquals(2, edges.stream().filter(onlyHashChild::follows).count());
+        List<IGenericDynamoDbTable> queries = new GlobalRelationParent().issueNewQueryToRelation(onlyHashChild::follows);
+        assertEquals(1, queries.size());
+        assertEquals(GlobalRelationHashChild.class, queries.get(0).getClass());
+
+        FetchPlan excluded = FetchPlan.all()
+                .include(GlobalRelationChild.class)
+                .exclude(GlobalRelationParent.class, "gsiChildSortKey");
+        assertEquals(1, edges.stream().filter(excluded::follows).count());
+
+        assertTrue(FetchPlan.all().isInDepth(10));
+        assertFalse(FetchPlan.rootOnly().isInDepth(0));
+    }
+
+    @Test
+    public void projectionTest() throws Exception {
+        TableDefinition def = new TableDefinition(GlobalRelationParent.class);
+        assertNull(FetchPlan.all().projectionOf(GlobalRelationParent.class, def));
+
+        // Keys and fields of relation are added to given attributes
+        Set<String> projection = FetchPlan.all().project(GlobalRelationParent.class)
+                .projectionOf(GlobalRelationParent.class, def);
+        System.out.println("[(TEST)::projectionTest] " + projection);
+        assertTrue(projection.contains("id"));
+        assertTrue(projection.contains("childHashKey"));
+        assertEquals(5, projection.size());
+    }
+}
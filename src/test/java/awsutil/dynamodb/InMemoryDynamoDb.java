@@ -0,0 +1,1682 @@
+package awsutil.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * In-process stand-in of DynamoDB for tests and benchmarks
+ * Items of each table are kept in concurrent sorted map by table keys, and GSI/LSI are maintained at each writing.
+ * Inject this by DynamoClientProvider#setClient to run facades without AWS account.
+ * Supported: CreateTable, DescribeTable, DeleteTable, ListTables, GetItem, PutItem, UpdateItem, DeleteItem,
+ * Query, Scan, BatchGetItem, BatchWriteItem and TransactWriteItems with condition, filter, update and projection
+ * expressions ( Projection is applied to top-level attributes ). Legacy parameters ( KeyConditions, QueryFilter,
+ * Expected, AttributeUpdates ) are also supported because document API uses them.
+ */
+public class InMemoryDynamoDb extends AbstractAmazonDynamoDB {
+
+    // Max count of items in single batch request
+    private static final int maxBatchGetItems = 100;
+    private static final int maxBatchWriteItems = 25;
+    private static final int maxTransactItems = 100;
+
+    // Map<Table name, Table>
+    private final ConcurrentHashMap<String, TableState> tables = new ConcurrentHashMap<>();
+    // Tokens of applied transactions for idempotency
+    private final Set<String> appliedTokens = ConcurrentHashMap.newKeySet();
+    // Count of requests to data plane
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private volatile long latencyMillis = 0L;
+    private volatile int throttleEvery = 0;
+    private volatile int maxPageBytes = 1024 * 1024;
+
+    /**
+     * Key of item in table or index
+     * Key in index has key of table to identify items that have same index keys.
+     */
+    static class ItemKey implements Comparable<ItemKey> {
+        final AttributeValue hash;
+        final AttributeValue range;
+        final ItemKey tableKey;
+
+        ItemKey(AttributeValue hash, AttributeValue range, ItemKey tableKey) {
+            this.hash = hash;
+            this.range = range;
+            this.tableKey = tableKey;
+        }
+
+        @Override
+        public int compareTo(ItemKey other) {
+            int compared = compareValues(this.hash, other.hash);
+            if (compared != 0) return compared;
+            compared = compareValues(this.range, other.range);
+            if (compared != 0) return compared;
+            if (this.tableKey == null || other.tableKey == null) {
+                return this.tableKey == null ? (other.tableKey == null ? 0 : -1) : 1;
+            }
+            return this.tableKey.compareTo(other.tableKey);
+        }
+    }
+
+    /**
+     * GSI or LSI
+     */
+    static class IndexState {
+        final String name;
+        final String hashKey;
+        final String rangeKey;
+        final Projection projection;
+        final ConcurrentSkipListMap<ItemKey, Map<String, AttributeValue>> entries = new ConcurrentSkipListMap<>();
+
+        IndexState(String name, List<KeySchemaElement> keySchema, Projection projection) {
+            this.name = name;
+            this.hashKey = keyNameOf(keySchema, KeyType.HASH);
+            this.rangeKey = keyNameOf(keySchema, KeyType.RANGE);
+            this.projection = projection;
+        }
+
+        /**
+         * @return key in index, or null when item does not have index keys ( Sparse index )
+         */
+        ItemKey keyOf(Map<String, AttributeValue> item, ItemKey tableKey) {
+            AttributeValue hash = item.get(this.hashKey);
+            AttributeValue range = this.rangeKey != null ? item.get(this.rangeKey) : null;
+            if (hash == null || (this.rangeKey != null && range == null)) return null;
+            return new ItemKey(hash, range, tableKey);
+        }
+    }
+
+    /**
+     * Table and its indexes
+     */
+    static class TableState {
+        final TableDescription description;
+        final String hashKey;
+        final String rangeKey;
+        final ConcurrentSkipListMap<ItemKey, Map<String, AttributeValue>> items = new ConcurrentSkipListMap<>();
+        final Map<String, IndexState> indexes = new HashMap<>();
+        // Writing of item and its indexes is serialized for each table
+        final ReentrantLock lock = new ReentrantLock();
+
+        TableState(TableDescription description) {
+            this.description = description;
+            this.hashKey = keyNameOf(description.getKeySchema(), KeyType.HASH);
+            this.rangeKey = keyNameOf(description.getKeySchema(), KeyType.RANGE);
+        }
+
+        ItemKey keyOf(Map<String, AttributeValue> item) {
+            AttributeValue hash = item != null ? item.get(this.hashKey) : null;
+            AttributeValue range = item != null && this.rangeKey != null ? item.get(this.rangeKey) : null;
+            if (hash == null || (this.rangeKey != null && range == null)) {
+                throw validation("One of the required keys was not given a value: " + description.getTableName());
+            }
+            return new ItemKey(hash, range, null);
+        }
+
+        /**
+         * Write item into table and indexes ( Must be called in lock )
+         * @param key key of item
+         * @param item new item, or null to deleting
+         */
+        void write(ItemKey key, Map<String, AttributeValue> item) {
+            Map<String, AttributeValue> old = item != null ? this.items.put(key, item) : this.items.remove(key);
+            for (IndexState index: this.indexes.values()) {
+                if (old != null) {
+                    ItemKey oldKey = index.keyOf(old, key);
+                    if (oldKey != null) index.entries.remove(oldKey);
+                }
+                if (item != null) {
+                    ItemKey newKey = index.keyOf(item, key);
+                    if (newKey != null) index.entries.put(newKey, item);
+                }
+            }
+        }
+
+        Map<String, AttributeValue> lastKeyOf(IndexState index, Map<String, AttributeValue> item) {
+            Map<String, AttributeValue> lastKey = new HashMap<>();
+            lastKey.put(this.hashKey, item.get(this.hashKey));
+            if (this.rangeKey != null) lastKey.put(this.rangeKey, item.get(this.rangeKey));
+            if (index != null) {
+                lastKey.put(index.hashKey, item.get(index.hashKey));
+                if (index.rangeKey != null) lastKey.put(index.rangeKey, item.get(index.rangeKey));
+            }
+            return lastKey;
+        }
+
+        ItemKey startKeyOf(IndexState index, Map<String, AttributeValue> exclusiveStartKey) {
+            ItemKey tableKey = keyOf(exclusiveStartKey);
+            if (index == null) return tableKey;
+            ItemKey indexKey = index.keyOf(exclusiveStartKey, tableKey);
+            if (indexKey == null) throw validation("The provided starting key is invalid");
+            return indexKey;
+        }
+    }
+
+    /**
+     * Result of reading single page by Query or Scan
+     */
+    static class PageOfItems {
+        final List<Map<String, AttributeValue>> items = new ArrayList<>();
+        int scannedCount = 0;
+        long bytes = 0;
+        Map<String, AttributeValue> lastEvaluatedKey;
+    }
+
+    /**
+     * Wait given time at each request
+     * @param latencyMillis artificial latency
+     * @return this
+     */
+    public InMemoryDynamoDb withLatency(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * Throttle every N-th request to data plane
+     * Single item request throws ProvisionedThroughputExceededException, and batch request returns unprocessed items.
+     * @param everyRequests interval of throttling ( 0 to disable )
+     * @return this
+     */
+    public InMemoryDynamoDb withThrottling(int everyRequests) {
+        this.throttleEvery = everyRequests;
+        return this;
+    }
+
+    /**
+     * Max size of single page of Query and Scan
+     * @param maxPageBytes size in bytes ( 1MB as same as DynamoDB by default )
+     * @return this
+     */
+    public InMemoryDynamoDb withMaxPageBytes(int maxPageBytes) {
+        this.maxPageBytes = maxPageBytes;
+        return this;
+    }
+
+    /**
+     * @return Count of requests to data plane
+     */
+    public long getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    /* ---------------------------------------- Tables ---------------------------------------- */
+
+    @Override
+    public CreateTableResult createTable(CreateTableRequest request) {
+        delay();
+        TableDescription description = new TableDescription()
+                .withTableName(request.getTableName())
+                .withTableArn("arn:aws:dynamodb:local:000000000000:table/" + request.getTableName())
+                .withKeySchema(request.getKeySchema())
+                .withAttributeDefinitions(request.getAttributeDefinitions())
+                .withTableStatus(TableStatus.ACTIVE)
+                .withCreationDateTime(new Date())
+                .withItemCount(0L)
+                .withTableSizeBytes(0L);
+        if (request.getProvisionedThroughput() != null) {
+            description.setProvisionedThroughput(throughputOf(request.getProvisionedThroughput()));
+        }
+        if (request.getBillingMode() != null) {
+            description.setBillingModeSummary(new BillingModeSummary().withBillingMode(request.getBillingMode()));
+        }
+        TableState state = new TableState(description);
+
+        if (request.getGlobalSecondaryIndexes() != null) {
+            List<GlobalSecondaryIndexDescription> descriptions = new ArrayList<>();
+            for (GlobalSecondaryIndex gsi: request.getGlobalSecondaryIndexes()) {
+                GlobalSecondaryIndexDescription gsiDescription = new GlobalSecondaryIndexDescription()
+                        .withIndexName(gsi.getIndexName())
+                        .withKeySchema(gsi.getKeySchema())
+                        .withProjection(gsi.getProjection())
+                        .withIndexStatus(IndexStatus.ACTIVE);
+                if (gsi.getProvisionedThroughput() != null) {
+                    gsiDescription.setProvisionedThroughput(throughputOf(gsi.getProvisionedThroughput()));
+                }
+                descriptions.add(gsiDescription);
+                state.indexes.put(gsi.getIndexName(), new IndexState(gsi.getIndexName(), gsi.getKeySchema(), gsi.getProjection()));
+            }
+            description.setGlobalSecondaryIndexes(descriptions);
+        }
+        if (request.getLocalSecondaryIndexes() != null) {
+            List<LocalSecondaryIndexDescription> descriptions = new ArrayList<>();
+            for (LocalSecondaryIndex lsi: request.getLocalSecondaryIndexes()) {
+                descriptions.add(new LocalSecondaryIndexDescription()
+                        .withIndexName(lsi.getIndexName())
+                        .withKeySchema(lsi.getKeySchema())
+                        .withProjection(lsi.getProjection()));
+                state.indexes.put(lsi.getIndexName(), new IndexState(lsi.getIndexName(), lsi.getKeySchema(), lsi.getProjection()));
+            }
+            description.setLocalSecondaryIndexes(descriptions);
+        }
+
+        if (this.tables.putIfAbsent(request.getTableName(), state) != null) {
+            throw new ResourceInUseException("Table already exists: " + request.getTableName());
+        }
+        return new CreateTableResult().withTableDescription(description);
+    }
+
+    @Override
+    public DescribeTableResult describeTable(DescribeTableRequest request) {
+        delay();
+        TableState state = tableOf(request.getTableName());
+        state.description.setItemCount((long) state.items.size());
+        return new DescribeTableResult().withTable(state.description);
+    }
+
+    @Override
+    public DescribeTableResult describeTable(String tableName) {
+        return describeTable(new DescribeTableRequest().withTableName(tableName));
+    }
+
+    @Override
+    public DeleteTableResult deleteTable(DeleteTableRequest request) {
+        delay();
+        TableState state = this.tables.remove(request.getTableName());
+        if (state == null) {
+            throw new ResourceNotFoundException("Requested resource not found: Table: " + request.getTableName() + " not found");
+        }
+        return new DeleteTableResult().withTableDescription(state.description.withTableStatus(TableStatus.DELETING));
+    }
+
+    @Override
+    public DeleteTableResult deleteTable(String tableName) {
+        return deleteTable(new DeleteTableRequest().withTableName(tableName));
+    }
+
+    @Override
+    public ListTablesResult listTables(ListTablesRequest request) {
+        delay();
+        int limit = request.getLimit() != null ? request.getLimit() : 100;
+        List<String> names = this.tables.keySet().stream().sorted()
+                .filter(name -> request.getExclusiveStartTableName() == null
+                        || name.compareTo(request.getExclusiveStartTableName()) > 0)
+                .collect(Collectors.toList());
+        ListTablesResult result = new ListTablesResult().withTableNames(names.subList(0, Math.min(limit, names.size())));
+        if (names.size() > limit) {
+            result.setLastEvaluatedTableName(names.get(limit - 1));
+        }
+        return result;
+    }
+
+    @Override
+    public ListTablesResult listTables() {
+        return listTables(new ListTablesRequest());
+    }
+
+    /* ---------------------------------------- Items ---------------------------------------- */
+
+    @Override
+    public GetItemResult getItem(GetItemRequest request) {
+        beforeRequest();
+        TableState state = tableOf(request.getTableName());
+        Map<String, AttributeValue> item = state.items.get(state.keyOf(request.getKey()));
+        GetItemResult result = new GetItemResult()
+                .withConsumedCapacity(capacityOf(request.getTableName(), request.getReturnConsumedCapacity(),
+                        readUnits(sizeOf(item), Boolean.TRUE.equals(request.getConsistentRead()))));
+        if (item != null) {
+            result.setItem(project(item, request.getProjectionExpression(), request.getAttributesToGet(),
+                    request.getExpressionAttributeNames()));
+        }
+        return result;
+    }
+
+    @Override
+    public GetItemResult getItem(String tableName, Map<String, AttributeValue> key) {
+        return getItem(new GetItemRequest().withTableName(tableName).withKey(key));
+    }
+
+    @Override
+    public PutItemResult putItem(PutItemRequest request) {
+        beforeRequest();
+        TableState state = tableOf(request.getTableName());
+        Map<String, AttributeValue> item = copyItem(request.getItem());
+        ItemKey key = state.keyOf(item);
+        Map<String, AttributeValue> old;
+        state.lock.lock();
+        try {
+            old = state.items.get(key);
+            checkCondition(old, request.getConditionExpression(), request.getExpressionAttributeNames(),
+                    request.getExpressionAttributeValues(), request.getExpected(), request.getConditionalOperator());
+            state.write(key, item);
+        } finally {
+            state.lock.unlock();
+        }
+        PutItemResult result = new PutItemResult()
+                .withConsumedCapacity(capacityOf(request.getTableName(), request.getReturnConsumedCapacity(),
+                        writeUnits(Math.max(sizeOf(old), sizeOf(item)))));
+        if (ReturnValue.ALL_OLD.toString().equals(request.getReturnValues()) && old != null) {
+            result.setAttributes(new HashMap<>(old));
+        }
+        return result;
+    }
+
+    @Override
+    public PutItemResult putItem(String tableName, Map<String, AttributeValue> item) {
+        return putItem(new PutItemRequest().withTableName(tableName).withItem(item));
+    }
+
+    @Override
+    public UpdateItemResult updateItem(UpdateItemRequest request) {
+        beforeRequest();
+        TableState state = tableOf(request.getTableName());
+        ItemKey key = state.keyOf(request.getKey());
+        Expressions.UpdatePlan plan = request.getUpdateExpression() != null ?
+                Expressions.parseUpdate(request.getUpdateExpression(), request.getExpressionAttributeNames(),
+                        request.getExpressionAttributeValues()) :
+                Expressions.legacyUpdate(request.getAttributeUpdates());
+        Map<String, AttributeValue> old;
+        Map<String, AttributeValue> updated;
+        state.lock.lock();
+        try {
+            old = state.items.get(key);
+            checkCondition(old, request.getConditionExpression(), request.getExpressionAttributeNames(),
+                    request.getExpressionAttributeValues(), request.getExpected(), request.getConditionalOperator());
+            updated = applyUpdate(state, key, old, request.getKey(), plan);
+            state.write(key, updated);
+        } finally {
+            state.lock.unlock();
+        }
+
+        UpdateItemResult result = new UpdateItemResult()
+                .withConsumedCapacity(capacityOf(request.getTableName(), request.getReturnConsumedCapacity(),
+                        writeUnits(Math.max(sizeOf(old), sizeOf(updated)))));
+        String returnValues = request.getReturnValues() != null ? request.getReturnValues() : ReturnValue.NONE.toString();
+        if (ReturnValue.ALL_OLD.toString().equals(returnValues) && old != null) {
+            result.setAttributes(new HashMap<>(old));
+        } else if (ReturnValue.ALL_NEW.toString().equals(returnValues)) {
+            result.setAttributes(new HashMap<>(updated));
+        } else if (ReturnValue.UPDATED_OLD.toString().equals(returnValues) && old != null) {
+            result.setAttributes(selectAttributes(old, plan.updatedNames));
+        } else if (ReturnValue.UPDATED_NEW.toString().equals(returnValues)) {
+            result.setAttributes(selectAttributes(updated, plan.updatedNames));
+        }
+        return result;
+    }
+
+    @Override
+    public DeleteItemResult deleteItem(DeleteItemRequest request) {
+        beforeRequest();
+        TableState state = tableOf(request.getTableName());
+        ItemKey key = state.keyOf(request.getKey());
+        Map<String, AttributeValue> old;
+        state.lock.lock();
+        try {
+            old = state.items.get(key);
+            checkCondition(old, request.getConditionExpression(), request.getExpressionAttributeNames(),
+                    request.getExpressionAttributeValues(), request.getExpected(), request.getConditionalOperator());
+            if (old != null) state.write(key, null);
+        } finally {
+            state.lock.unlock();
+        }
+        DeleteItemResult result = new DeleteItemResult()
+                .withConsumedCapacity(capacityOf(request.getTableName(), request.getReturnConsumedCapacity(),
+                        writeUnits(sizeOf(old))));
+        if (ReturnValue.ALL_OLD.toString().equals(request.getReturnValues()) && old != null) {
+            result.setAttributes(new HashMap<>(old));
+        }
+        return result;
+    }
+
+    @Override
+    public DeleteItemResult deleteItem(String tableName, Map<String, AttributeValue> key) {
+        return deleteItem(new DeleteItemRequest().withTableName(tableName).withKey(key));
+    }
+
+    /* ---------------------------------------- Query and Scan ---------------------------------------- */
+
+    @Override
+    public QueryResult query(QueryRequest request) {
+        beforeRequest();
+        TableState state = tableOf(request.getTableName());
+        IndexState index = indexOf(state, request.getIndexName());
+        String hashKey = index != null ? index.hashKey : state.hashKey;
+        Map<String, String> names = request.getExpressionAttributeNames();
+        Map<String, AttributeValue> values = request.getExpressionAttributeValues();
+
+        // Value of partition key and condition for sort key
+        AttributeValue hashValue;
+        Predicate<Map<String, AttributeValue>> keyCondition;
+        if (request.getKeyConditionExpression() != null) {
+            hashValue = Expressions.hashValueOf(request.getKeyConditionExpression(), hashKey, names, values);
+            keyCondition = Expressions.parseCondition(request.getKeyConditionExpression(), names, values);
+        } else if (request.getKeyConditions() != null && request.getKeyConditions().get(hashKey) != null) {
+            hashValue = request.getKeyConditions().get(hashKey).getAttributeValueList().get(0);
+            keyCondition = Expressions.legacyConditions(request.getKeyConditions(), ConditionalOperator.AND.toString());
+        } else {
+            throw validation("Query condition missed key schema element: " + hashKey);
+        }
+        Predicate<Map<String, AttributeValue>> filter = filterOf(request.getFilterExpression(), request.getQueryFilter(),
+                request.getConditionalOperator(), names, values);
+
+        // Items in partition ordered by sort key
+        ConcurrentSkipListMap<ItemKey, Map<String, AttributeValue>> source = index != null ? index.entries : state.items;
+        List<Map.Entry<ItemKey, Map<String, AttributeValue>>> partition = new ArrayList<>();
+        for (Map.Entry<ItemKey, Map<String, AttributeValue>> entry:
+                source.tailMap(new ItemKey(hashValue, null, null), true).entrySet()) {
+            if (compareValues(entry.getKey().hash, hashValue) != 0) break;
+            if (keyCondition.test(entry.getValue())) partition.add(entry);
+        }
+        boolean descending = Boolean.FALSE.equals(request.getScanIndexForward());
+        if (descending) Collections.reverse(partition);
+
+        PageOfItems page = readPage(state, index, partition,
+                request.getExclusiveStartKey() != null ? state.startKeyOf(index, request.getExclusiveStartKey()) : null,
+                descending, request.getLimit(), filter, request.getProjectionExpression(), request.getAttributesToGet(), names);
+        QueryResult result = new QueryResult()
+                .withCount(page.items.size())
+                .withScannedCount(page.scannedCount)
+                .withLastEvaluatedKey(page.lastEvaluatedKey)
+                .withConsumedCapacity(capacityOf(request.getTableName(), request.getReturnConsumedCapacity(),
+                        readUnits(page.bytes, Boolean.TRUE.equals(request.getConsistentRead()))));
+        if (!Select.COUNT.toString().equals(request.getSelect())) {
+            result.setItems(page.items);
+        }
+        return result;
+    }
+
+    @Override
+    public ScanResult scan(ScanRequest request) {
+        beforeRequest();
+        TableState state = tableOf(request.getTableName());
+        IndexState index = indexOf(state, request.getIndexName());
+        Predicate<Map<String, AttributeValue>> filter = filterOf(request.getFilterExpression(), request.getScanFilter(),
+                request.getConditionalOperator(), request.getExpressionAttributeNames(),
+                request.getExpressionAttributeValues());
+
+        ConcurrentSkipListMap<ItemKey, Map<String, AttributeValue>> source = index != null ? index.entries : state.items;
+        Iterable<Map.Entry<ItemKey, Map<String, AttributeValue>>> candidates = source.entrySet();
+        if (request.getTotalSegments() != null && request.getSegment() != null) {
+            // Separate items to segments by hash of partition key
+            int totalSegments = request.getTotalSegments();
+            int segment = request.getSegment();
+            candidates = source.entrySet().stream()
+                    .filter(entry -> Math.floorMod(Expressions.textOf(entry.getKey().hash).hashCode(), totalSegments) == segment)
+                    .collect(Collectors.toList());
+        }
+
+        PageOfItems page = readPage(state, index, candidates,
+                request.getExclusiveStartKey() != null ? state.startKeyOf(index, request.getExclusiveStartKey()) : null,
+                false, request.getLimit(), filter, request.getProjectionExpression(), request.getAttributesToGet(),
+                request.getExpressionAttributeNames());
+        ScanResult result = new ScanResult()
+                .withCount(page.items.size())
+                .withScannedCount(page.scannedCount)
+                .withLastEvaluatedKey(page.lastEvaluatedKey)
+                .withConsumedCapacity(capacityOf(request.getTableName(), request.getReturnConsumedCapacity(),
+                        readUnits(page.bytes, Boolean.TRUE.equals(request.getConsistentRead()))));
+        if (!Select.COUNT.toString().equals(request.getSelect())) {
+            result.setItems(page.items);
+        }
+        return result;
+    }
+
+    /* ---------------------------------------- Batch ---------------------------------------- */
+
+    @Override
+    public BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+        boolean throttled = delayAndCheckThrottle();
+        int countOfKeys = request.getRequestItems().values().stream().mapToInt(keys -> keys.getKeys().size()).sum();
+        if (countOfKeys > maxBatchGetItems) {
+            throw validation("Too many items requested for the BatchGetItem call");
+        }
+
+        Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+        Map<String, KeysAndAttributes> unprocessedKeys = new HashMap<>();
+        List<ConsumedCapacity> capacities = new ArrayList<>();
+        boolean isFirst = true;
+        for (Map.Entry<String, KeysAndAttributes> entry: request.getRequestItems().entrySet()) {
+            TableState state = tableOf(entry.getKey());
+            KeysAndAttributes keysAndAttributes = entry.getValue();
+            List<Map<String, AttributeValue>> found = new ArrayList<>();
+            List<Map<String, AttributeValue>> unprocessed = new ArrayList<>();
+            long bytes = 0;
+            for (Map<String, AttributeValue> key: keysAndAttributes.getKeys()) {
+                // Only first key is processed at throttling
+                if (throttled && !isFirst) {
+                    unprocessed.add(key);
+                    continue;
+                }
+                isFirst = false;
+                Map<String, AttributeValue> item = state.items.get(state.keyOf(key));
+                if (item != null) {
+                    bytes += sizeOf(item);
+                    found.add(project(item, keysAndAttributes.getProjectionExpression(),
+                            keysAndAttributes.getAttributesToGet(), keysAndAttributes.getExpressionAttributeNames()));
+                }
+            }
+            responses.put(entry.getKey(), found);
+            if (!unprocessed.isEmpty()) {
+                unprocessedKeys.put(entry.getKey(), new KeysAndAttributes()
+                        .withKeys(unprocessed)
+                        .withProjectionExpression(keysAndAttributes.getProjectionExpression())
+                        .withAttributesToGet(keysAndAttributes.getAttributesToGet())
+                        .withExpressionAttributeNames(keysAndAttributes.getExpressionAttributeNames())
+                        .withConsistentRead(keysAndAttributes.getConsistentRead()));
+            }
+            ConsumedCapacity capacity = capacityOf(entry.getKey(), request.getReturnConsumedCapacity(),
+                    readUnits(bytes, Boolean.TRUE.equals(keysAndAttributes.getConsistentRead())));
+            if (capacity != null) capacities.add(capacity);
+        }
+        BatchGetItemResult result = new BatchGetItemResult()
+                .withResponses(responses)
+                .withUnprocessedKeys(unprocessedKeys);
+        if (!capacities.isEmpty()) result.setConsumedCapacity(capacities);
+        return result;
+    }
+
+    @Override
+    public BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+        boolean throttled = delayAndCheckThrottle();
+        int countOfItems = request.getRequestItems().values().stream().mapToInt(List::size).sum();
+        if (countOfItems > maxBatchWriteItems) {
+            throw validation("Too many items requested for the BatchWriteItem call");
+        }
+
+        Map<String, List<WriteRequest>> unprocessedItems = new HashMap<>();
+        List<ConsumedCapacity> capacities = new ArrayList<>();
+        boolean isFirst = true;
+        for (Map.Entry<String, List<WriteRequest>> entry: request.getRequestItems().entrySet()) {
+            TableState state = tableOf(entry.getKey());
+            long bytes = 0;
+            for (WriteRequest writeRequest: entry.getValue()) {
+                // Only first item is processed at throttling
+                if (throttled && !isFirst) {
+                    unprocessedItems.computeIfAbsent(entry.getKey(), name -> new ArrayList<>()).add(writeRequest);
+                    continue;
+                }
+                isFirst = false;
+                state.lock.lock();
+                try {
+                    if (writeRequest.getPutRequest() != null) {
+                        Map<String, AttributeValue> item = copyItem(writeRequest.getPutRequest().getItem());
+                        state.write(state.keyOf(item), item);
+                        bytes += writeUnits(sizeOf(item));
+                    } else if (writeRequest.getDeleteRequest() != null) {
+                        ItemKey key = state.keyOf(writeRequest.getDeleteRequest().getKey());
+                        bytes += writeUnits(sizeOf(state.items.get(key)));
+                        state.write(key, null);
+                    }
+                } finally {
+                    state.lock.unlock();
+                }
+            }
+            ConsumedCapacity capacity = capacityOf(entry.getKey(), request.getReturnConsumedCapacity(), bytes);
+            if (capacity != null) capacities.add(capacity);
+        }
+        BatchWriteItemResult result = new BatchWriteItemResult().withUnprocessedItems(unprocessedItems);
+        if (!capacities.isEmpty()) result.setConsumedCapacity(capacities);
+        return result;
+    }
+
+    /* ---------------------------------------- Transaction ---------------------------------------- */
+
+    @Override
+    public TransactWriteItemsResult transactWriteItems(TransactWriteItemsRequest request) {
+        beforeRequest();
+        List<TransactWriteItem> actions = request.getTransactItems();
+        if (actions.size() > maxTransactItems) {
+            throw validation("Member must have length less than or equal to " + maxTransactItems);
+        }
+        String token = request.getClientRequestToken();
+        if (token != null && this.appliedTokens.contains(token)) {
+            return new TransactWriteItemsResult();
+        }
+
+        // Target table and key of each action
+        List<TableState> targetTables = new ArrayList<>();
+        List<ItemKey> targetKeys = new ArrayList<>();
+        Set<String> targets = new HashSet<>();
+        for (TransactWriteItem action: actions) {
+            TableState state;
+            ItemKey key;
+            if (action.getPut() != null) {
+                state = tableOf(action.getPut().getTableName());
+                key = state.keyOf(action.getPut().getItem());
+            } else if (action.getUpdate() != null) {
+                state = tableOf(action.getUpdate().getTableName());
+                key = state.keyOf(action.getUpdate().getKey());
+            } else if (action.getDelete() != null) {
+                state = tableOf(action.getDelete().getTableName());
+                key = state.keyOf(action.getDelete().getKey());
+            } else if (action.getConditionCheck() != null) {
+                state = tableOf(action.getConditionCheck().getTableName());
+                key = state.keyOf(action.getConditionCheck().getKey());
+            } else {
+                throw validation("TransactItems can only contain one of Put, Update, Delete or ConditionCheck");
+            }
+            if (!targets.add(state.description.getTableName() + ":" + Expressions.textOf(key.hash) + ":"
+                    + (key.range != null ? Expressions.textOf(key.range) : ""))) {
+                throw validation("Transaction request cannot include multiple operations on one item");
+            }
+            targetTables.add(state);
+            targetKeys.add(key);
+        }
+
+        // Lock tables in order of name to avoid dead lock
+        List<TableState> lockedTables = targetTables.stream().distinct()
+                .sorted(Comparator.comparing(state -> state.description.getTableName())).collect(Collectors.toList());
+        lockedTables.forEach(state -> state.lock.lock());
+        Map<String, Double> unitsOfTables = new HashMap<>();
+        try {
+            if (token != null && this.appliedTokens.contains(token)) {
+                return new TransactWriteItemsResult();
+            }
+            // Check all conditions before writing
+            List<CancellationReason> reasons = new ArrayList<>();
+            List<Map<String, AttributeValue>> nextItems = new ArrayList<>();
+            boolean isCanceled = false;
+            for (int position = 0; position < actions.size(); position++) {
+                TransactWriteItem action = actions.get(position);
+                TableState state = targetTables.get(position);
+                Map<String, AttributeValue> current = state.items.get(targetKeys.get(position));
+                try {
+                    Map<String, AttributeValue> next = current;
+                    if (action.getPut() != null) {
+                        Put put = action.getPut();
+                        checkCondition(current, put.getConditionExpression(), put.getExpressionAttributeNames(),
+                                put.getExpressionAttributeValues(), null, null);
+                        next = copyItem(put.getItem());
+                    } else if (action.getUpdate() != null) {
+                        Update update = action.getUpdate();
+                        checkCondition(current, update.getConditionExpression(), update.getExpressionAttributeNames(),
+                                update.getExpressionAttributeValues(), null, null);
+                        next = applyUpdate(state, targetKeys.get(position), current, update.getKey(),
+                                Expressions.parseUpdate(update.getUpdateExpression(),
+                                        update.getExpressionAttributeNames(), update.getExpressionAttributeValues()));
+                    } else if (action.getDelete() != null) {
+                        Delete delete = action.getDelete();
+                        checkCondition(current, delete.getConditionExpression(), delete.getExpressionAttributeNames(),
+                                delete.getExpressionAttributeValues(), null, null);
+                        next = null;
+                    } else {
+                        ConditionCheck check = action.getConditionCheck();
+                        checkCondition(current, check.getConditionExpression(), check.getExpressionAttributeNames(),
+                                check.getExpressionAttributeValues(), null, null);
+                    }
+                    nextItems.add(next);
+                    reasons.add(new CancellationReason().withCode("None"));
+                } catch (ConditionalCheckFailedException e) {
+                    nextItems.add(current);
+                    reasons.add(new CancellationReason().withCode("ConditionalCheckFailed").withMessage(e.getErrorMessage()));
+                    isCanceled = true;
+                }
+            }
+            if (isCanceled) {
+                TransactionCanceledException exception = new TransactionCanceledException(
+                        "Transaction cancelled, please refer cancellation reasons for specific reasons ["
+                                + reasons.stream().map(CancellationReason::getCode).collect(Collectors.joining(", ")) + "]");
+                exception.setCancellationReasons(reasons);
+                exception.setErrorCode("TransactionCanceledException");
+                exception.setStatusCode(400);
+                throw exception;
+            }
+
+            // Write all
+            for (int position = 0; position < actions.size(); position++) {
+                TableState state = targetTables.get(position);
+                Map<String, AttributeValue> current = state.items.get(targetKeys.get(position));
+                if (actions.get(position).getConditionCheck() == null) {
+                    state.write(targetKeys.get(position), nextItems.get(position));
+                }
+                // Transactional request consumes twice of capacity
+                unitsOfTables.merge(state.description.getTableName(),
+                        2 * writeUnits(Math.max(sizeOf(current), sizeOf(nextItems.get(position)))), Double::sum);
+            }
+            if (token != null) this.appliedTokens.add(token);
+        } finally {
+            for (int position = lockedTables.size() - 1; position >= 0; position--) {
+                lockedTables.get(position).lock.unlock();
+            }
+        }
+
+        TransactWriteItemsResult result = new TransactWriteItemsResult();
+        if (request.getReturnConsumedCapacity() != null
+                && !ReturnConsumedCapacity.NONE.toString().equals(request.getReturnConsumedCapacity())) {
+            result.setConsumedCapacity(unitsOfTables.entrySet().stream()
+                    .map(entry -> new ConsumedCapacity().withTableName(entry.getKey()).withCapacityUnits(entry.getValue()))
+                    .collect(Collectors.toList()));
+        }
+        return result;
+    }
+
+    /* ---------------------------------------- Internal ---------------------------------------- */
+
+    private void delay() {
+        long latency = this.latencyMillis;
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean delayAndCheckThrottle() {
+        delay();
+        long count = this.requestCount.incrementAndGet();
+        int every = this.throttleEvery;
+        return every > 0 && count % every == 0;
+    }
+
+    private void beforeRequest() {
+        if (delayAndCheckThrottle()) {
+            ProvisionedThroughputExceededException exception = new ProvisionedThroughputExceededException(
+                    "The level of configured provisioned throughput for the table was exceeded");
+            exception.setErrorCode("ProvisionedThroughputExceededException");
+            exception.setStatusCode(400);
+            throw exception;
+        }
+    }
+
+    private TableState tableOf(String tableName) {
+        TableState state = tableName != null ? this.tables.get(tableName) : null;
+        if (state == null) {
+            throw new ResourceNotFoundException("Requested resource not found: Table: " + tableName + " not found");
+        }
+        return state;
+    }
+
+    private static IndexState indexOf(TableState state, String indexName) {
+        if (indexName == null) return null;
+        IndexState index = state.indexes.get(indexName);
+        if (index == null) {
+            throw validation("The table does not have the specified index: " + indexName);
+        }
+        return index;
+    }
+
+    private PageOfItems readPage(TableState state, IndexState index,
+                                 Iterable<Map.Entry<ItemKey, Map<String, AttributeValue>>> candidates,
+                                 ItemKey startKey, boolean descending, Integer limit,
+                                 Predicate<Map<String, AttributeValue>> filter, String projectionExpression,
+                                 List<String> attributesToGet, Map<String, String> names) {
+        PageOfItems page = new PageOfItems();
+        Iterator<Map.Entry<ItemKey, Map<String, AttributeValue>>> iterator = candidates.iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ItemKey, Map<String, AttributeValue>> entry = iterator.next();
+            // Skip items until exclusive start key
+            if (startKey != null) {
+                int compared = entry.getKey().compareTo(startKey);
+                if (descending ? compared >= 0 : compared <= 0) continue;
+            }
+            Map<String, AttributeValue> item = entry.getValue();
+            page.scannedCount++;
+            page.bytes += sizeOf(item);
+            if (filter.test(item)) {
+                Map<String, AttributeValue> projected = project(item, projectionExpression, attributesToGet, names);
+                page.items.add(index != null ? projectForIndex(state, index, projected) : projected);
+            }
+            if ((limit != null && page.scannedCount >= limit) || page.bytes >= this.maxPageBytes) {
+                if (iterator.hasNext()) {
+                    page.lastEvaluatedKey = state.lastKeyOf(index, item);
+                }
+                break;
+            }
+        }
+        return page;
+    }
+
+    private static Map<String, AttributeValue> projectForIndex(TableState state, IndexState index,
+                                                               Map<String, AttributeValue> item) {
+        if (index.projection == null || index.projection.getProjectionType() == null
+                || ProjectionType.ALL.toString().equals(index.projection.getProjectionType())) {
+            return item;
+        }
+        Set<String> projected = new HashSet<>(state.lastKeyOf(index, item).keySet());
+        if (index.projection.getNonKeyAttributes() != null) {
+            projected.addAll(index.projection.getNonKeyAttributes());
+        }
+        return selectAttributes(item, projected);
+    }
+
+    private static Map<String, AttributeValue> applyUpdate(TableState state, ItemKey key, Map<String, AttributeValue> old,
+                                                           Map<String, AttributeValue> keyOfItem,
+                                                           Expressions.UpdatePlan plan) {
+        Map<String, AttributeValue> base = old != null ? old : copyItem(keyOfItem);
+        Map<String, AttributeValue> updated = copyItem(base);
+        plan.apply(base, updated);
+        if (state.keyOf(updated).compareTo(key) != 0) {
+            throw validation("Cannot update attribute of key");
+        }
+        return updated;
+    }
+
+    private static void checkCondition(Map<String, AttributeValue> current, String conditionExpression,
+                                       Map<String, String> names, Map<String, AttributeValue> values,
+                                       Map<String, ExpectedAttributeValue> expected, String conditionalOperator) {
+        Map<String, AttributeValue> item = current != null ? current : Collections.emptyMap();
+        boolean isSatisfied = true;
+        if (conditionExpression != null) {
+            isSatisfied = Expressions.parseCondition(conditionExpression, names, values).test(item);
+        } else if (expected != null && !expected.isEmpty()) {
+            isSatisfied = Expressions.legacyExpected(expected, conditionalOperator).test(item);
+        }
+        if (!isSatisfied) {
+            throw new ConditionalCheckFailedException("The conditional request failed");
+        }
+    }
+
+    private static Predicate<Map<String, AttributeValue>> filterOf(String filterExpression, Map<String, Condition> legacyFilter,
+                                                                   String conditionalOperator, Map<String, String> names,
+                                                                   Map<String, AttributeValue> values) {
+        if (filterExpression != null) {
+            return Expressions.parseCondition(filterExpression, names, values);
+        }
+        if (legacyFilter != null && !legacyFilter.isEmpty()) {
+            return Expressions.legacyConditions(legacyFilter, conditionalOperator);
+        }
+        return item -> true;
+    }
+
+    private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, String projectionExpression,
+                                                       List<String> attributesToGet, Map<String, String> names) {
+        if (projectionExpression != null) {
+            return selectAttributes(item, Expressions.parseProjection(projectionExpression, names));
+        }
+        if (attributesToGet != null && !attributesToGet.isEmpty()) {
+            return selectAttributes(item, new HashSet<>(attributesToGet));
+        }
+        return new HashMap<>(item);
+    }
+
+    private static Map<String, AttributeValue> selectAttributes(Map<String, AttributeValue> item, Set<String> names) {
+        Map<String, AttributeValue> selected = new HashMap<>();
+        for (String name: names) {
+            if (item.containsKey(name)) selected.put(name, item.get(name));
+        }
+        return selected;
+    }
+
+    private static ConsumedCapacity capacityOf(String tableName, String returnConsumedCapacity, double units) {
+        if (returnConsumedCapacity == null || ReturnConsumedCapacity.NONE.toString().equals(returnConsumedCapacity)) {
+            return null;
+        }
+        return new ConsumedCapacity().withTableName(tableName).withCapacityUnits(units);
+    }
+
+    private static ProvisionedThroughputDescription throughputOf(ProvisionedThroughput throughput) {
+        return new ProvisionedThroughputDescription()
+                .withReadCapacityUnits(throughput.getReadCapacityUnits())
+                .withWriteCapacityUnits(throughput.getWriteCapacityUnits());
+    }
+
+    private static String keyNameOf(List<KeySchemaElement> keySchema, KeyType keyType) {
+        if (keySchema == null) return null;
+        return keySchema.stream().filter(element -> keyType.toString().equals(element.getKeyType()))
+                .map(KeySchemaElement::getAttributeName).findFirst().orElse(null);
+    }
+
+    static AmazonDynamoDBException validation(String message) {
+        AmazonDynamoDBException exception = new AmazonDynamoDBException(message);
+        exception.setErrorCode("ValidationException");
+        exception.setStatusCode(400);
+        return exception;
+    }
+
+    static double readUnits(long bytes, boolean isConsistent) {
+        double units = Math.max(1, Math.ceil(bytes / 4096.0));
+        return isConsistent ? units : units / 2;
+    }
+
+    static double writeUnits(long bytes) {
+        return Math.max(1, Math.ceil(bytes / 1024.0));
+    }
+
+    /* ---------------------------------------- Attribute values ---------------------------------------- */
+
+    static Map<String, AttributeValue> copyItem(Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> copied = new HashMap<>();
+        if (item != null) item.forEach((name, value) -> copied.put(name, copyValue(value)));
+        return copied;
+    }
+
+    static AttributeValue copyValue(AttributeValue value) {
+        if (value.getM() != null) {
+            return new AttributeValue().withM(copyItem(value.getM()));
+        }
+        if (value.getL() != null) {
+            return new AttributeValue().withL(value.getL().stream().map(InMemoryDynamoDb::copyValue).collect(Collectors.toList()));
+        }
+        return value.clone();
+    }
+
+    static long sizeOf(Map<String, AttributeValue> item) {
+        if (item == null) return 0;
+        long size = 0;
+        for (Map.Entry<String, AttributeValue> entry: item.entrySet()) {
+            size += entry.getKey().getBytes(StandardCharsets.UTF_8).length + sizeOf(entry.getValue());
+        }
+        return size;
+    }
+
+    static long sizeOf(AttributeValue value) {
+        if (value == null) return 0;
+        if (value.getS() != null) return value.getS().getBytes(StandardCharsets.UTF_8).length;
+        if (value.getN() != null) return value.getN().length() / 2 + 1;
+        if (value.getB() != null) return value.getB().remaining();
+        if (value.getM() != null) return 3 + sizeOf(value.getM());
+        if (value.getL() != null) return 3 + value.getL().stream().mapToLong(InMemoryDynamoDb::sizeOf).sum();
+        if (value.getSS() != null) return value.getSS().stream().mapToLong(text -> text.getBytes(StandardCharsets.UTF_8).length).sum();
+        if (value.getNS() != null) return value.getNS().stream().mapToLong(number -> number.length() / 2 + 1).sum();
+        if (value.getBS() != null) return value.getBS().stream().mapToLong(ByteBuffer::remaining).sum();
+        return 1;
+    }
+
+    static String typeOf(AttributeValue value) {
+        if (value == null) return null;
+        if (value.getS() != null) return "S";
+        if (value.getN() != null) return "N";
+        if (value.getB() != null) return "B";
+        if (value.getBOOL() != null) return "BOOL";
+        if (value.getNULL() != null) return "NULL";
+        if (value.getM() != null) return "M";
+        if (value.getL() != null) return "L";
+        if (value.getSS() != null) return "SS";
+        if (value.getNS() != null) return "NS";
+        if (value.getBS() != null) return "BS";
+        return "NULL";
+    }
+
+    static boolean isComparable(AttributeValue left, AttributeValue right) {
+        String type = typeOf(left);
+        return type != null && type.equals(typeOf(right)) && ("S".equals(type) || "N".equals(type) || "B".equals(type));
+    }
+
+    /**
+     * Compare values for ordering ( Null is first )
+     */
+    static int compareValues(AttributeValue left, AttributeValue right) {
+        if (left == null || right == null) {
+            return left == null ? (right == null ? 0 : -1) : 1;
+        }
+        String type = typeOf(left);
+        if (!type.equals(typeOf(right))) return type.compareTo(typeOf(right));
+        switch (type) {
+            case "S":
+                return left.getS().compareTo(right.getS());
+            case "N":
+                return new BigDecimal(left.getN()).compareTo(new BigDecimal(right.getN()));
+            case "B":
+                return compareBytes(left.getB(), right.getB());
+            default:
+                return Expressions.textOf(left).compareTo(Expressions.textOf(right));
+        }
+    }
+
+    static int compareBytes(ByteBuffer left, ByteBuffer right) {
+        ByteBuffer leftBytes = left.duplicate();
+        ByteBuffer rightBytes = right.duplicate();
+        while (leftBytes.hasRemaining() && rightBytes.hasRemaining()) {
+            int compared = Integer.compare(leftBytes.get() & 0xff, rightBytes.get() & 0xff);
+            if (compared != 0) return compared;
+        }
+        return Integer.compare(leftBytes.remaining(), rightBytes.remaining());
+    }
+
+    static boolean equalsValue(AttributeValue left, AttributeValue right) {
+        if (left == null || right == null) return left == right;
+        String type = typeOf(left);
+        if (!type.equals(typeOf(right))) return false;
+        switch (type) {
+            case "N":
+                return new BigDecimal(left.getN()).compareTo(new BigDecimal(right.getN())) == 0;
+            case "SS":
+                return new HashSet<>(left.getSS()).equals(new HashSet<>(right.getSS()));
+            case "NS":
+                return normalizedNumbers(left.getNS()).equals(normalizedNumbers(right.getNS()));
+            case "BS":
+                return new HashSet<>(left.getBS()).equals(new HashSet<>(right.getBS()));
+            default:
+                return left.equals(right);
+        }
+    }
+
+    static Set<BigDecimal> normalizedNumbers(Collection<String> numbers) {
+        return numbers.stream().map(number -> new BigDecimal(number).stripTrailingZeros()).collect(Collectors.toSet());
+    }
+
+    /**
+     * Parser and evaluator of expressions
+     */
+    static class Expressions {
+
+        /**
+         * Actions of update expression
+         * Values are evaluated by item before updating, and written into updating item.
+         */
+        static class UpdatePlan {
+            final List<BiConsumer<Map<String, AttributeValue>, Map<String, AttributeValue>>> actions = new ArrayList<>();
+            // Top-level attribute names that are updated
+            final Set<String> updatedNames = new HashSet<>();
+
+            void apply(Map<String, AttributeValue> before, Map<String, AttributeValue> updating) {
+                this.actions.forEach(action -> action.accept(before, updating));
+            }
+        }
+
+        static Predicate<Map<String, AttributeValue>> parseCondition(String expression, Map<String, String> names,
+                                                                     Map<String, AttributeValue> values) {
+            Parser parser = new Parser(expression, names, values);
+            Predicate<Map<String, AttributeValue>> condition = parser.parseOr();
+            parser.expectEnd();
+            return condition;
+        }
+
+        static Set<String> parseProjection(String expression, Map<String, String> names) {
+            Parser parser = new Parser(expression, names, null);
+            Set<String> attributeNames = new LinkedHashSet<>();
+            do {
+                attributeNames.add((String) parser.parsePath().get(0));
+            } while (parser.accept(","));
+            parser.expectEnd();
+            return attributeNames;
+        }
+
+        static UpdatePlan parseUpdate(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+            Parser parser = new Parser(expression, names, values);
+            UpdatePlan plan = new UpdatePlan();
+            while (!parser.isEnd()) {
+                String clause = parser.next().toUpperCase();
+                do {
+                    List<Object> path = parser.parsePath();
+                    plan.updatedNames.add((String) path.get(0));
+                    switch (clause) {
+                        case "SET":
+                            parser.expect("=");
+                            Function<Map<String, AttributeValue>, AttributeValue> value = parser.parseSetValue();
+                            plan.actions.add((before, updating) -> {
+                                AttributeValue result = value.apply(before);
+                                if (result == null) {
+                                    throw validation("The provided expression refers to an attribute that does not exist in the item");
+                                }
+                                setPath(updating, path, result);
+                            });
+                            break;
+                        case "REMOVE":
+                            plan.actions.add((before, updating) -> removePath(updating, path));
+                            break;
+                        case "ADD":
+                            Function<Map<String, AttributeValue>, AttributeValue> added = parser.parseOperand();
+                            plan.actions.add((before, updating) ->
+                                    setPath(updating, path, addValue(getPath(updating, path), added.apply(before))));
+                            break;
+                        case "DELETE":
+                            Function<Map<String, AttributeValue>, AttributeValue> deleted = parser.parseOperand();
+                            plan.actions.add((before, updating) -> {
+                                AttributeValue remaining = deleteValue(getPath(updating, path), deleted.apply(before));
+                                if (remaining != null) setPath(updating, path, remaining);
+                                else removePath(updating, path);
+                            });
+                            break;
+                        default:
+                            throw validation("Invalid UpdateExpression: " + clause);
+                    }
+                } while (parser.accept(","));
+            }
+            return plan;
+        }
+
+        static UpdatePlan legacyUpdate(Map<String, AttributeValueUpdate> attributeUpdates) {
+            UpdatePlan plan = new UpdatePlan();
+            if (attributeUpdates == null) return plan;
+            attributeUpdates.forEach((name, update) -> {
+                List<Object> path = Collections.singletonList(name);
+                plan.updatedNames.add(name);
+                String action = update.getAction() != null ? update.getAction() : AttributeAction.PUT.toString();
+                plan.actions.add((before, updating) -> {
+                    if (AttributeAction.ADD.toString().equals(action)) {
+                        setPath(updating, path, addValue(updating.get(name), update.getValue()));
+                    } else if (AttributeAction.DELETE.toString().equals(action)) {
+                        AttributeValue remaining = update.getValue() != null ?
+                                deleteValue(updating.get(name), update.getValue()) : null;
+                        if (remaining != null) updating.put(name, remaining);
+                        else updating.remove(name);
+                    } else {
+                        updating.put(name, update.getValue());
+                    }
+                });
+            });
+            return plan;
+        }
+
+        /**
+         * Find value of partition key in key condition expression ( e.g. #pk = :pk )
+         */
+        static AttributeValue hashValueOf(String expression, String hashKey, Map<String, String> names,
+                                          Map<String, AttributeValue> values) {
+            List<String> tokens = tokenize(expression);
+            for (int position = 1; position < tokens.size() - 1; position++) {
+                if (!tokens.get(position).equals("=")) continue;
+                String left = tokens.get(position - 1);
+                String right = tokens.get(position + 1);
+                if (hashKey.equals(resolveName(left, names)) && right.startsWith(":")) return valueOf(right, values);
+                if (hashKey.equals(resolveName(right, names)) && left.startsWith(":")) return valueOf(left, values);
+            }
+            throw validation("Query condition missed key schema element: " + hashKey);
+        }
+
+        static Predicate<Map<String, AttributeValue>> legacyConditions(Map<String, Condition> conditions, String operator) {
+            List<Predicate<Map<String, AttributeValue>>> predicates = new ArrayList<>();
+            conditions.forEach((name, condition) -> predicates.add(item ->
+                    matches(item.get(name), condition.getComparisonOperator(), condition.getAttributeValueList())));
+            return combine(predicates, operator);
+        }
+
+        static Predicate<Map<String, AttributeValue>> legacyExpected(Map<String, ExpectedAttributeValue> expected, String operator) {
+            List<Predicate<Map<String, AttributeValue>>> predicates = new ArrayList<>();
+            expected.forEach((name, condition) -> predicates.add(item -> {
+                AttributeValue value = item.get(name);
+                if (condition.getComparisonOperator() != null) {
+                    List<AttributeValue> arguments = condition.getAttributeValueList() != null ?
+                            condition.getAttributeValueList() :
+                            (condition.getValue() != null ? Collections.singletonList(condition.getValue()) : null);
+                    return matches(value, condition.getComparisonOperator(), arguments);
+                }
+                if (Boolean.FALSE.equals(condition.getExists())) return value == null;
+                return equalsValue(value, condition.getValue());
+            }));
+            return combine(predicates, operator);
+        }
+
+        private static Predicate<Map<String, AttributeValue>> combine(List<Predicate<Map<String, AttributeValue>>> predicates,
+                                                                      String operator) {
+            boolean isOr = ConditionalOperator.OR.toString().equalsIgnoreCase(operator);
+            return item -> isOr ? predicates.stream().anyMatch(predicate -> predicate.test(item)) :
+                    predicates.stream().allMatch(predicate -> predicate.test(item));
+        }
+
+        static boolean matches(AttributeValue value, String operator, List<AttributeValue> arguments) {
+            AttributeValue first = arguments != null && !arguments.isEmpty() ? arguments.get(0) : null;
+            switch (ComparisonOperator.fromValue(operator)) {
+                case EQ: return equalsValue(value, first);
+                case NE: return !equalsValue(value, first);
+                case LE: return isComparable(value, first) && compareValues(value, first) <= 0;
+                case LT: return isComparable(value, first) && compareValues(value, first) < 0;
+                case GE: return isComparable(value, first) && compareValues(value, first) >= 0;
+                case GT: return isComparable(value, first) && compareValues(value, first) > 0;
+                case NOT_NULL: return value != null;
+                case NULL: return value == null;
+                case CONTAINS: return value != null && contains(value, first);
+                case NOT_CONTAINS: return value != null && !contains(value, first);
+                case BEGINS_WITH: return beginsWith(value, first);
+                case IN: return arguments != null && arguments.stream().anyMatch(argument -> equalsValue(value, argument));
+                case BETWEEN: return isComparable(value, first) && isComparable(value, arguments.get(1))
+                        && compareValues(value, first) >= 0 && compareValues(value, arguments.get(1)) <= 0;
+                default: throw validation("Unsupported comparison operator: " + operator);
+            }
+        }
+
+        static boolean beginsWith(AttributeValue value, AttributeValue prefix) {
+            if (value == null || prefix == null) return false;
+            if (value.getS() != null && prefix.getS() != null) return value.getS().startsWith(prefix.getS());
+            if (value.getB() != null && prefix.getB() != null) {
+                ByteBuffer bytes = value.getB().duplicate();
+                ByteBuffer head = prefix.getB().duplicate();
+                if (bytes.remaining() < head.remaining()) return false;
+                bytes.limit(bytes.position() + head.remaining());
+                return bytes.equals(head);
+            }
+            return false;
+        }
+
+        static boolean contains(AttributeValue value, AttributeValue operand) {
+            if (value == null || operand == null) return false;
+            if (value.getS() != null && operand.getS() != null) return value.getS().contains(operand.getS());
+            if (value.getSS() != null && operand.getS() != null) return value.getSS().contains(operand.getS());
+            if (value.getNS() != null && operand.getN() != null) {
+                return normalizedNumbers(value.getNS()).contains(new BigDecimal(operand.getN()).stripTrailingZeros());
+            }
+            if (value.getBS() != null && operand.getB() != null) return value.getBS().contains(operand.getB());
+            if (value.getL() != null) return value.getL().stream().anyMatch(element -> equalsValue(element, operand));
+            return false;
+        }
+
+        static AttributeValue addValue(AttributeValue current, AttributeValue operand) {
+            if (current == null) return operand;
+            if (current.getN() != null && operand.getN() != null) {
+                return new AttributeValue().withN(new BigDecimal(current.getN()).add(new BigDecimal(operand.getN()))
+                        .stripTrailingZeros().toPlainString());
+            }
+            if (current.getSS() != null && operand.getSS() != null) {
+                Set<String> union = new LinkedHashSet<>(current.getSS());
+                union.addAll(operand.getSS());
+                return new AttributeValue().withSS(union);
+            }
+            if (current.getNS() != null && operand.getNS() != null) {
+                Set<BigDecimal> existing = normalizedNumbers(current.getNS());
+                List<String> union = new ArrayList<>(current.getNS());
+                operand.getNS().stream().filter(number -> existing.add(new BigDecimal(number).stripTrailingZeros()))
+                        .forEach(union::add);
+                return new AttributeValue().withNS(union);
+            }
+            if (current.getBS() != null && operand.getBS() != null) {
+                Set<ByteBuffer> union = new LinkedHashSet<>(current.getBS());
+                union.addAll(operand.getBS());
+                return new AttributeValue().withBS(union);
+            }
+            throw validation("An operand in the update expression has an incorrect data type");
+        }
+
+        static AttributeValue deleteValue(AttributeValue current, AttributeValue operand) {
+            if (current == null) return null;
+            if (current.getSS() != null && operand.getSS() != null) {
+                List<String> remaining = current.getSS().stream().filter(text -> !operand.getSS().contains(text))
+                        .collect(Collectors.toList());
+                return remaining.isEmpty() ? null : new AttributeValue().withSS(remaining);
+            }
+            if (current.getNS() != null && operand.getNS() != null) {
+                Set<BigDecimal> deleting = normalizedNumbers(operand.getNS());
+                List<String> remaining = current.getNS().stream()
+                        .filter(number -> !deleting.contains(new BigDecimal(number).stripTrailingZeros()))
+                        .collect(Collectors.toList());
+                return remaining.isEmpty() ? null : new AttributeValue().withNS(remaining);
+            }
+            if (current.getBS() != null && operand.getBS() != null) {
+                List<ByteBuffer> remaining = current.getBS().stream().filter(bytes -> !operand.getBS().contains(bytes))
+                        .collect(Collectors.toList());
+                return remaining.isEmpty() ? null : new AttributeValue().withBS(remaining);
+            }
+            throw validation("An operand in the update expression has an incorrect data type");
+        }
+
+        static AttributeValue getPath(Map<String, AttributeValue> item, List<Object> path) {
+            AttributeValue current = item.get((String) path.get(0));
+            for (Object segment: path.subList(1, path.size())) {
+                if (current == null) return null;
+                if (segment instanceof Integer) {
+                    int index = (Integer) segment;
+                    current = current.getL() != null && index < current.getL().size() ? current.getL().get(index) : null;
+                } else {
+                    current = current.getM() != null ? current.getM().get(segment) : null;
+                }
+            }
+            return current;
+        }
+
+        static void setPath(Map<String, AttributeValue> item, List<Object> path, AttributeValue value) {
+            if (path.size() == 1) {
+                item.put((String) path.get(0), value);
+                return;
+            }
+            AttributeValue parent = getPath(item, path.subList(0, path.size() - 1));
+            Object last = path.get(path.size() - 1);
+            if (parent != null && last instanceof Integer && parent.getL() != null) {
+                int index = (Integer) last;
+                if (index < parent.getL().size()) parent.getL().set(index, value);
+                else parent.getL().add(value);
+            } else if (parent != null && last instanceof String && parent.getM() != null) {
+                parent.getM().put((String) last, value);
+            } else {
+                throw validation("The document path provided in the update expression is invalid for update");
+            }
+        }
+
+        static void removePath(Map<String, AttributeValue> item, List<Object> path) {
+            if (path.size() == 1) {
+                item.remove((String) path.get(0));
+                return;
+            }
+            AttributeValue parent = getPath(item, path.subList(0, path.size() - 1));
+            Object last = path.get(path.size() - 1);
+            if (parent != null && last instanceof Integer && parent.getL() != null) {
+                if ((Integer) last < parent.getL().size()) parent.getL().remove((int) (Integer) last);
+            } else if (parent != null && last instanceof String && parent.getM() != null) {
+                parent.getM().remove(last);
+            }
+        }
+
+        static String textOf(AttributeValue value) {
+            if (value.getS() != null) return value.getS();
+            if (value.getN() != null) return new BigDecimal(value.getN()).stripTrailingZeros().toPlainString();
+            if (value.getB() != null) return Base64.getEncoder().encodeToString(copyBytes(value.getB()));
+            return value.toString();
+        }
+
+        private static byte[] copyBytes(ByteBuffer buffer) {
+            ByteBuffer duplicated = buffer.duplicate();
+            byte[] bytes = new byte[duplicated.remaining()];
+            duplicated.get(bytes);
+            return bytes;
+        }
+
+        static String resolveName(String token, Map<String, String> names) {
+            if (!token.startsWith("#")) return token;
+            String name = names != null ? names.get(token) : null;
+            if (name == null) {
+                throw validation("An expression attribute name used in the document path is not defined: " + token);
+            }
+            return name;
+        }
+
+        static AttributeValue valueOf(String token, Map<String, AttributeValue> values) {
+            AttributeValue value = values != null ? values.get(token) : null;
+            if (value == null) {
+                throw validation("An expression attribute value used in expression is not defined: " + token);
+            }
+            return value;
+        }
+
+        static List<String> tokenize(String expression) {
+            List<String> tokens = new ArrayList<>();
+            int position = 0;
+            while (position < expression.length()) {
+                char current = expression.charAt(position);
+                if (Character.isWhitespace(current)) {
+                    position++;
+                } else if (current == '<' || current == '>') {
+                    char following = position + 1 < expression.length() ? expression.charAt(position + 1) : ' ';
+                    if (following == '=' || (current == '<' && following == '>')) {
+                        tokens.add(expression.substring(position, position + 2));
+                        position += 2;
+                    } else {
+                        tokens.add(String.valueOf(current));
+                        position++;
+                    }
+                } else if ("=(),.[]+-".indexOf(current) >= 0) {
+                    tokens.add(String.valueOf(current));
+                    position++;
+                } else {
+                    int start = position;
+                    while (position < expression.length() && (Character.isLetterOrDigit(expression.charAt(position))
+                            || "_#:".indexOf(expression.charAt(position)) >= 0)) {
+                        position++;
+                    }
+                    if (start == position) throw validation("Invalid expression: " + expression);
+                    tokens.add(expression.substring(start, position));
+                }
+            }
+            return tokens;
+        }
+
+        /**
+         * Recursive descent parser that builds functions to evaluate expression for each item
+         */
+        static class Parser {
+            private final String expression;
+            private final List<String> tokens;
+            private final Map<String, String> names;
+            private final Map<String, AttributeValue> values;
+            private int position = 0;
+
+            Parser(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+                this.expression = expression;
+                this.tokens = tokenize(expression);
+                this.names = names;
+                this.values = values;
+            }
+
+            boolean isEnd() {
+                return this.position >= this.tokens.size();
+            }
+
+            String peek(int offset) {
+                return this.position + offset < this.tokens.size() ? this.tokens.get(this.position + offset) : "";
+            }
+
+            String next() {
+                if (isEnd()) throw validation("Invalid expression: Unexpected end: " + this.expression);
+                return this.tokens.get(this.position++);
+            }
+
+            boolean accept(String token) {
+                if (!isEnd() && this.tokens.get(this.position).equalsIgnoreCase(token)) {
+                    this.position++;
+                    return true;
+                }
+                return false;
+            }
+
+            void expect(String token) {
+                if (!accept(token)) throw validation("Invalid expression: Expected " + token + ": " + this.expression);
+            }
+
+            void expectEnd() {
+                if (!isEnd()) throw validation("Invalid expression: Unexpected token " + peek(0) + ": " + this.expression);
+            }
+
+            Predicate<Map<String, AttributeValue>> parseOr() {
+                Predicate<Map<String, AttributeValue>> condition = parseAnd();
+                while (accept("OR")) {
+                    Predicate<Map<String, AttributeValue>> left = condition;
+                    Predicate<Map<String, AttributeValue>> right = parseAnd();
+                    condition = item -> left.test(item) || right.test(item);
+                }
+                return condition;
+            }
+
+            Predicate<Map<String, AttributeValue>> parseAnd() {
+                Predicate<Map<String, AttributeValue>> condition = parseNot();
+                while (accept("AND")) {
+                    Predicate<Map<String, AttributeValue>> left = condition;
+                    Predicate<Map<String, AttributeValue>> right = parseNot();
+                    condition = item -> left.test(item) && right.test(item);
+                }
+                return condition;
+            }
+
+            Predicate<Map<String, AttributeValue>> parseNot() {
+                if (accept("NOT")) {
+                    Predicate<Map<String, AttributeValue>> condition = parseNot();
+                    return item -> !condition.test(item);
+                }
+                return parsePrimary();
+            }
+
+            Predicate<Map<String, AttributeValue>> parsePrimary() {
+                if (accept("(")) {
+                    Predicate<Map<String, AttributeValue>> condition = parseOr();
+                    expect(")");
+                    return condition;
+                }
+                if (peek(1).equals("(")) {
+                    String function = peek(0).toLowerCase();
+                    switch (function) {
+                        case "attribute_exists": {
+                            next(); expect("(");
+                            List<Object> path = parsePath();
+                            expect(")");
+                            return item -> getPath(item, path) != null;
+                        }
+                        case "attribute_not_exists": {
+                            next(); expect("(");
+                            List<Object> path = parsePath();
+                            expect(")");
+                            return item -> getPath(item, path) == null;
+                        }
+                        case "attribute_type": {
+                            next(); expect("(");
+                            List<Object> path = parsePath();
+                            expect(",");
+                            Function<Map<String, AttributeValue>, AttributeValue> type = parseOperand();
+                            expect(")");
+                            return item -> {
+                                AttributeValue value = getPath(item, path);
+                                return value != null && typeOf(value).equals(type.apply(item).getS());
+                            };
+                        }
+                        case "begins_with": {
+                            next(); expect("(");
+                            Function<Map<String, AttributeValue>, AttributeValue> value = parseOperand();
+                            expect(",");
+                            Function<Map<String, AttributeValue>, AttributeValue> prefix = parseOperand();
+                            expect(")");
+                            return item -> beginsWith(value.apply(item), prefix.apply(item));
+                        }
+                        case "contains": {
+                            next(); expect("(");
+                            Function<Map<String, AttributeValue>, AttributeValue> value = parseOperand();
+                            expect(",");
+                            Function<Map<String, AttributeValue>, AttributeValue> operand = parseOperand();
+                            expect(")");
+                            return item -> contains(value.apply(item), operand.apply(item));
+                        }
+                        default:
+                            break;
+                    }
+                }
+
+                Function<Map<String, AttributeValue>, AttributeValue> left = parseOperand();
+                if (accept("BETWEEN")) {
+                    Function<Map<String, AttributeValue>, AttributeValue> low = parseOperand();
+                    expect("AND");
+                    Function<Map<String, AttributeValue>, AttributeValue> high = parseOperand();
+                    return item -> {
+                        AttributeValue value = left.apply(item);
+                        return matches(value, ComparisonOperator.BETWEEN.toString(),
+                                Arrays.asList(low.apply(item), high.apply(item)));
+                    };
+                }
+                if (accept("IN")) {
+                    expect("(");
+                    List<Function<Map<String, AttributeValue>, AttributeValue>> candidates = new ArrayList<>();
+                    do {
+                        candidates.add(parseOperand());
+                    } while (accept(","));
+                    expect(")");
+                    return item -> {
+                        AttributeValue value = left.apply(item);
+                        return candidates.stream().anyMatch(candidate -> equalsValue(value, candidate.apply(item)));
+                    };
+                }
+                String comparator = next();
+                Function<Map<String, AttributeValue>, AttributeValue> right = parseOperand();
+                switch (comparator) {
+                    case "=": return item -> equalsValue(left.apply(item), right.apply(item));
+                    case "<>": return item -> !equalsValue(left.apply(item), right.apply(item));
+                    case "<": return item -> matches(left.apply(item), ComparisonOperator.LT.toString(),
+                            Collections.singletonList(right.apply(item)));
+                    case "<=": return item -> matches(left.apply(item), ComparisonOperator.LE.toString(),
+                            Collections.singletonList(right.apply(item)));
+                    case ">": return item -> matches(left.apply(item), ComparisonOperator.GT.toString(),
+                            Collections.singletonList(right.apply(item)));
+                    case ">=": return item -> matches(left.apply(item), ComparisonOperator.GE.toString(),
+                            Collections.singletonList(right.apply(item)));
+                    default: throw validation("Invalid expression: Unknown comparator " + comparator + ": " + this.expression);
+                }
+            }
+
+            Function<Map<String, AttributeValue>, AttributeValue> parseSetValue() {
+                Function<Map<String, AttributeValue>, AttributeValue> left = parseOperand();
+                if (accept("+")) {
+                    Function<Map<String, AttributeValue>, AttributeValue> right = parseOperand();
+                    return item -> arithmetic(left.apply(item), right.apply(item), false);
+                }
+                if (accept("-")) {
+                    Function<Map<String, AttributeValue>, AttributeValue> right = parseOperand();
+                    return item -> arithmetic(left.apply(item), right.apply(item), true);
+                }
+                return left;
+            }
+
+            Function<Map<String, AttributeValue>, AttributeValue> parseOperand() {
+                String token = peek(0);
+                if (token.startsWith(":")) {
+                    AttributeValue value = valueOf(next(), this.values);
+                    return item -> value;
+                }
+                if (peek(1).equals("(")) {
+                    switch (token.toLowerCase()) {
+                        case "size": {
+                            next(); expect("(");
+                            List<Object> path = parsePath();
+                            expect(")");
+                            return item -> {
+                                AttributeValue value = getPath(item, path);
+                                long size = sizeOfOperand(value);
+                                return size >= 0 ? new AttributeValue().withN(String.valueOf(size)) : null;
+                            };
+                        }
+                        case "if_not_exists": {
+                            next(); expect("(");
+                            List<Object> path = parsePath();
+                            expect(",");
+                            Function<Map<String, AttributeValue>, AttributeValue> fallback = parseOperand();
+                            expect(")");
+                            return item -> {
+                                AttributeValue value = getPath(item, path);
+                                return value != null ? value : fallback.apply(item);
+                            };
+                        }
+                        case "list_append": {
+                            next(); expect("(");
+                            Function<Map<String, AttributeValue>, AttributeValue> first = parseOperand();
+                            expect(",");
+                            Function<Map<String, AttributeValue>, AttributeValue> second = parseOperand();
+                            expect(")");
+                            return item -> {
+                                AttributeValue head = first.apply(item);
+                                AttributeValue tail = second.apply(item);
+                                if (head == null || tail == null || head.getL() == null || tail.getL() == null) {
+                                    throw validation("An operand in the update expression has an incorrect data type");
+                                }
+                                List<AttributeValue> appended = new ArrayList<>(head.getL());
+                                appended.addAll(tail.getL());
+                                return new AttributeValue().withL(appended);
+                            };
+                        }
+                        default:
+                            break;
+                    }
+                }
+                List<Object> path = parsePath();
+                return item -> getPath(item, path);
+            }
+
+            List<Object> parsePath() {
+                List<Object> path = new ArrayList<>();
+                path.add(resolveName(next(), this.names));
+                while (true) {
+                    if (accept(".")) {
+                        path.add(resolveName(next(), this.names));
+                    } else if (accept("[")) {
+                        path.add(Integer.valueOf(next()));
+                        expect("]");
+                    } else {
+                        return path;
+                    }
+                }
+            }
+
+            private static long sizeOfOperand(AttributeValue value) {
+                if (value == null) return -1;
+                if (value.getS() != null) return value.getS().length();
+                if (value.getB() != null) return value.getB().remaining();
+                if (value.getSS() != null) return value.getSS().size();
+                if (value.getNS() != null) return value.getNS().size();
+                if (value.getBS() != null) return value.getBS().size();
+                if (value.getL() != null) return value.getL().size();
+                if (value.getM() != null) return value.getM().size();
+                return -1;
+            }
+
+            private static AttributeValue arithmetic(AttributeValue left, AttributeValue right, boolean isSubtraction) {
+                if (left == null || right == null || left.getN() == null || right.getN() == null) {
+                    throw validation("An operand in the update expression has an incorrect data type");
+                }
+                BigDecimal leftNumber = new BigDecimal(left.getN());
+                BigDecimal rightNumber = new BigDecimal(right.getN());
+                BigDecimal result = isSubtraction ? leftNumber.subtract(rightNumber) : leftNumber.add(rightNumber);
+                return new AttributeValue().withN(result.stripTrailingZeros().toPlainString());
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package awsutil.dynamodb;
+
+import org.junit.rules.ExternalResource;
+
+/**
+ * Rule to run each test on new InMemoryDynamoDb
+ * Stand-in is injected by DynamoClientProvider#setClient and records cached by previous test are cleared before test.
+ * Provider is reset to settings of environment variables after test.
+ */
+public class InMemoryDynamoDbRule extends ExternalResource {
+
+    private InMemoryDynamoDb dynamoDb;
+
+    @Override
+    protected void before() {
+        dynamoDb = new InMemoryDynamoDb();
+        DynamoClientProvider.setClient(dynamoDb);
+        RecordCache.clear();
+    }
+
+    @Override
+    protected void after() {
+        DynamoClientProvider.configure(null);
+    }
+
+    /**
+     * @return stand-in of DynamoDB for running test
+     */
+    public InMemoryDynamoDb get() {
+        return dynamoDb;
+    }
+}
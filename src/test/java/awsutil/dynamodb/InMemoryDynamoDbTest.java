@@ -0,0 +1,168 @@
+package awsutil.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.model.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing in-memory stand-in of DynamoDB
+ */
+public class InMemoryDynamoDbTest {
+
+    private static final String tableName = "in-memory-table";
+    private static final String indexName = "in-memory-gsi";
+
+    private InMemoryDynamoDb dynamoDb;
+
+    @Before
+    public void setUp() {
+        dynamoDb = new InMemoryDynamoDb();
+        dynamoDb.createTable(new CreateTableRequest()
+                .withTableName(tableName)
+                .withAttributeDefinitions(
+                        new AttributeDefinition("pk", ScalarAttributeType.S),
+                        new AttributeDefinition("sk", ScalarAttributeType.N),
+                        new AttributeDefinition("gsiHash", ScalarAttributeType.S))
+                .withKeySchema(new KeySchemaElement("pk", KeyType.HASH), new KeySchemaElement("sk", KeyType.RANGE))
+                .withGlobalSecondaryIndexes(new GlobalSecondaryIndex()
+                        .withIndexName(indexName)
+                        .withKeySchema(new KeySchemaElement("gsiHash", KeyType.HASH))
+                        .withProjection(new Projection().withProjectionType(ProjectionType.KEYS_ONLY)))
+                .withProvisionedThroughput(new ProvisionedThroughput(5L, 5L)));
+    }
+
+    private Map<String, AttributeValue> itemOf(String pk, int sk) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("pk", new AttributeValue(pk));
+        item.put("sk", new AttributeValue().withN(String.valueOf(sk)));
+        return item;
+    }
+
+    @Test
+    public void putAndConditionTest() {
+        Map<String, AttributeValue> item = itemOf("user", 1);
+        item.put("name", new AttributeValue("first"));
+        dynamoDb.putItem(tableName, item);
+        assertEquals("first", dynamoDb.getItem(tableName, itemOf("user", 1)).getItem().get("name").getS());
+
+        try {
+            dynamoDb.putItem(new PutItemRequest().withTableName(tableName).withItem(item)
+                    .withConditionExpression("attribute_not_exists(pk)"));
+            fail();
+        } catch (ConditionalCheckFailedException e) {
+            System.out.println("[(TEST)::putAndConditionTest] " + e.getErrorMessage());
+        }
+    }
+
+    @Test
+    public void updateTest() {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":one", new AttributeValue().withN("1"));
+        values.put(":zero", new AttributeValue().withN("0"));
+        values.put(":tags", new AttributeValue().withL(new AttributeValue("a")));
+        values.put(":empty", new AttributeValue().withL(Collections.emptyList()));
+        UpdateItemRequest request = new UpdateItemRequest().withTableName(tableName).withKey(itemOf("counter", 1))
+                .withUpdateExpression("SET #c = if_not_exists(#c, :zero) + :one, tags = list_append(if_not_exists(tags, :empty), :tags)")
+                .withExpressionAttributeNames(Collections.singletonMap("#c", "count"))
+                .withExpressionAttributeValues(values)
+                .withReturnValues(ReturnValue.ALL_NEW);
+        dynamoDb.updateItem(request);
+        Map<String, AttributeValue> updated = dynamoDb.updateItem(request).getAttributes();
+        assertEquals("2", updated.get("count").getN());
+        assertEquals(2, updated.get("tags").getL().size());
+
+        Map<String, AttributeValue> added = dynamoDb.updateItem(new UpdateItemRequest().withTableName(tableName)
+                .withKey(itemOf("counter", 1))
+                .withUpdateExpression("ADD #c :one REMOVE tags")
+                .withExpressionAttributeNames(Collections.singletonMap("#c", "count"))
+                .withExpressionAttributeValues(Collections.singletonMap(":one", new AttributeValue().withN("1")))
+                .withReturnValues(ReturnValue.ALL_NEW)).getAttributes();
+        assertEquals("3", added.get("count").getN());
+        assertFalse(added.containsKey("tags"));
+    }
+
+    @Test
+    public void queryPaginationTest() {
+        for (int sk = 0; sk < 10; sk++) {
+            Map<String, AttributeValue> item = itemOf("partition", sk);
+            item.put("gsiHash", new AttributeValue(sk % 2 == 0 ? "even" : "odd"));
+            dynamoDb.putItem(tableName, item);
+        }
+        dynamoDb.putItem(tableName, itemOf("other", 0));
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Map<String, AttributeValue> lastKey = null;
+        int pages = 0;
+        do {
+            QueryResult result = dynamoDb.query(new QueryRequest().withTableName(tableName)
+                    .withKeyConditionExpression("pk = :pk AND sk >= :from")
+                    .withExpressionAttributeValues(new HashMap<String, AttributeValue>() {{
+                        put(":pk", new AttributeValue("partition"));
+                        put(":from", new AttributeValue().withN("2"));
+                    }})
+                    .withScanIndexForward(false)
+                    .withLimit(3)
+                    .withExclusiveStartKey(lastKey));
+            items.addAll(result.getItems());
+            lastKey = result.getLastEvaluatedKey();
+            pages++;
+        } while (lastKey != null);
+        System.out.println("[(TEST)::queryPaginationTest] pages: " + pages);
+        assertEquals(8, items.size());
+        assertEquals(3, pages);
+        assertEquals("9", items.get(0).get("sk").getN());
+        assertEquals("2", items.get(7).get("sk").getN());
+
+        QueryResult indexResult = dynamoDb.query(new QueryRequest().withTableName(tableName).withIndexName(indexName)
+                .withKeyConditions(Collections.singletonMap("gsiHash", new Condition()
+                        .withComparisonOperator(ComparisonOperator.EQ)
+                        .withAttributeValueList(new AttributeValue("even")))));
+        assertEquals(5, indexResult.getCount().intValue());
+    }
+
+    @Test
+    public void transactionTest() {
+        dynamoDb.putItem(tableName, itemOf("existing", 1));
+        try {
+            dynamoDb.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(
+                    new TransactWriteItem().withPut(new Put().withTableName(tableName).withItem(itemOf("new", 1))),
+                    new TransactWriteItem().withPut(new Put().withTableName(tableName).withItem(itemOf("existing", 1))
+                            .withConditionExpression("attribute_not_exists(pk)"))));
+            fail();
+        } catch (TransactionCanceledException e) {
+            assertEquals("None", e.getCancellationReasons().get(0).getCode());
+            assertEquals("ConditionalCheckFailed", e.getCancellationReasons().get(1).getCode());
+        }
+        assertNull(dynamoDb.getItem(tableName, itemOf("new", 1)).getItem());
+    }
+
+    @Test
+    public void batchAndThrottlingTest() {
+        List<WriteRequest> writes = new ArrayList<>();
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        for (int sk = 0; sk < 5; sk++) {
+            writes.add(new WriteRequest().withPutRequest(new PutRequest().withItem(itemOf("batch", sk))));
+            keys.add(itemOf("batch", sk));
+        }
+        dynamoDb.batchWriteItem(new BatchWriteItemRequest().withRequestItems(Collections.singletonMap(tableName, writes)));
+        BatchGetItemResult result = dynamoDb.batchGetItem(new BatchGetItemRequest()
+                .withRequestItems(Collections.singletonMap(tableName, new KeysAndAttributes().withKeys(keys))));
+        assertEquals(5, result.getResponses().get(tableName).size());
+
+        dynamoDb.withThrottling(1);
+        BatchGetItemResult throttled = dynamoDb.batchGetItem(new BatchGetItemRequest()
+                .withRequestItems(Collections.singletonMap(tableName, new KeysAndAttributes().withKeys(keys))));
+        assertEquals(1, throttled.getResponses().get(tableName).size());
+        assertEquals(4, throttled.getUnprocessedKeys().get(tableName).getKeys().size());
+        try {
+            dynamoDb.getItem(tableName, itemOf("batch", 0));
+            fail();
+        } catch (ProvisionedThroughputExceededException e) {
+            System.out.println("[(TEST)::batchAndThrottlingTest] " + e.getErrorCode());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.GlobalRelationHashChild;
+import samples.GlobalRelationParent;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing inserting relation graph by TransactWriteItems
+ */
+public class InsertGraphTest {
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    private String childTableName;
+
+    @Before
+    public void setUp() throws Exception {
+        TableCrudFacade.createAll(GlobalRelationParent.class);
+        childTableName = new TableDefinition(GlobalRelationHashChild.class).tableName;
+    }
+
+    private Map<String, AttributeValue> childKeyOf(String hashKey, String sortKey) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("hashKey", new AttributeValue(hashKey));
+        key.put("sortKey", new AttributeValue(sortKey));
+        return key;
+    }
+
+    @Test
+    public void insertGraphTest() throws Exception {
+        List<IGenericDynamoDbTable> inserted = RecordCrudFacade.insertGraph(
+                new GlobalRelationParent("p1", null, null, "c1", "1"),
+                Arrays.asList(new GlobalRelationHashChild("c1", "1", "first"), new GlobalRelationHashChild("c1", "2", "second")));
+        assertEquals(3, inserted.size());
+        assertEquals("second", dynamoDb.get().getItem(childTableName, childKeyOf("c1", "2")).getItem().get("hashChildValue01").getS());
+
+        // Same keys can not be written twice in single graph
+        try {
+            RecordCrudFacade.insertGraph(new GlobalRelationParent("p2", null, null, null, null),
+                    Arrays.asList(new GlobalRelationHashChild("c2", "1", "a"), new GlobalRelationHashChild("c2", "1", "b")));
+            fail();
+        } catch (Exception e) {
+            System.out.println("[(TEST)::insertGraphTest] " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void requiredRecordsTest() throws Exception {
+        RecordCrudFacade.insertSingleRecord(new GlobalRelationHashChild("owner", "1", "exists"));
+        RecordCrudFacade.insertGraph(new GlobalRelationParent("p1", null, null, null, null),
+                Collections.singletonList(new GlobalRelationHashChild("c1", "1", "first")),
+                Collections.singletonList(new GlobalRelationHashChild("owner", "1", null)));
+        assertNotNull(dynamoDb.get().getItem(childTableName, childKeyOf("c1", "1")).getItem());
+
+        // Graph over 100 actions is separated, but nothing is written when required record is not exists
+        List<GlobalRelationHashChild> children = new ArrayList<>();
+        for (int index = 0; index < 120; index++) {
+            children.add(new GlobalRelationHashChild("c2", String.valueOf(index), "value-" + index));
+        }
+        try {
+            RecordCrudFacade.insertGraph(new GlobalRelationParent("p2", null, null, null, null), children,
+                    Collections.singletonList(new GlobalRelationHashChild("missing", "1", null)));
+            fail();
+        } catch (TransactionCanceledException e) {
+            System.out.println("[(TEST)::requiredRecordsTest] " + e.getCancellationReasons().get(0).getCode());
+        }
+        assertNull(dynamoDb.get().getItem(childTableName, childKeyOf("c2", "0")).getItem());
+        assertNull(dynamoDb.get().getItem(childTableName, childKeyOf("c2", "119")).getItem());
+    }
+
+    @Test
+    public void idempotencyTokenTest() {
+        // Token of caller is used for each transaction with its position
+        assertEquals(RecordCrudFacade.tokenOf("order-1", 0), RecordCrudFacade.tokenOf("order-1", 0));
+        assertNotEquals(RecordCrudFacade.tokenOf("order-1", 0), RecordCrudFacade.tokenOf("order-1", 100));
+        assertNotEquals(RecordCrudFacade.tokenOf("order-1", 0), RecordCrudFacade.tokenOf("order-2", 0));
+        assertTrue(RecordCrudFacade.tokenOf("order-1", 0).length() <= 36);
+    }
+
+    @Test
+    public void repeatedGraphTest() throws Exception {
+        // Same graph written again without token is not ignored as retrying
+        RecordCrudFacade.insertGraph(new GlobalRelationParent("p1", null, null, null, null),
+                Collections.singletonList(new GlobalRelationHashChild("c1", "1", "A")));
+        RecordCrudFacade.insertGraph(new GlobalRelationParent("p1", null, null, null, null),
+                Collections.singletonList(new GlobalRelationHashChild("c1", "1", "B")));
+        RecordCrudFacade.insertGraph(new GlobalRelationParent("p1", null, null, null, null),
+                Collections.singletonList(new GlobalRelationHashChild("c1", "1", "A")));
+        assertEquals("A", dynamoDb.get().getItem(childTableName, childKeyOf("c1", "1")).getItem().get("hashChildValue01").getS());
+
+        // Retrying with same token is ignored
+        RecordCrudFacade.insertGraph(new GlobalRelationParent("p1", null, null, null, null),
+                Collections.singletonList(new GlobalRelationHashChild("c1", "1", "C")), Collections.emptyList(), "order-1");
+        RecordCrudFacade.insertGraph(new GlobalRelationParent("p1", null, null, null, null),
+                Collections.singletonList(new GlobalRelationHashChild("c1", "1", "D")), Collections.emptyList(), "order-1");
+        System.out.println("[(TEST)::repeatedGraphTest] " + dynamoDb.get().getItem(childTableName, childKeyOf("c1", "1")).getItem());
+        assertEquals("C", dynamoDb.get().getItem(childTableName, childKeyOf("c1", "1")).getItem().get("hashChildValue01").getS());
+    }
+}
@@ -0,0 +1,132 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import awsutil.dynamodb.tabledefinition.NativeSetCodec;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.CounterTable;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing atomic mutations by UpdateItem and native sets
+ */
+public class MutationTest {
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    private String counterTableName;
+
+    @Before
+    public void setUp() throws Exception {
+        TableCrudFacade.create(CounterTable.class);
+        counterTableName = new TableDefinition(CounterTable.class).tableName;
+    }
+
+    private CounterTable keyOf(String id) {
+        return new CounterTable(id, null, null, null, null, null);
+    }
+
+    @Test
+    public void mutateTest() throws Exception {
+        // Concurrent increments are not lost
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            threads.add(new Thread(() -> {
+                for (int count = 0; count < 10; count++) {
+                    try {
+                        RecordCrudFacade.mutate(keyOf("c1"), Mutation.increment("views", 1));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread: threads) thread.join();
+
+        CounterTable mutated = (CounterTable) RecordCrudFacade.mutate(keyOf("c1"),
+                Mutation.addToSet("tags", "hot", "new"),
+                Mutation.addToSet("scores", 3, 5),
+                Mutation.appendToList("events", "viewed"),
+                Mutation.setIfNotExists("createdBy", "first"));
+        System.out.println("[(TEST)::mutateTest] " + mutated);
+        assertEquals(40, mutated.views.intValue());
+        assertEquals(new HashSet<>(Arrays.asList("hot", "new")), mutated.tags);
+        assertEquals(new HashSet<>(Arrays.asList(3, 5)), mutated.scores);
+        assertEquals(Collections.singletonList("viewed"), mutated.events);
+
+        mutated = (CounterTable) RecordCrudFacade.mutate(keyOf("c1"),
+                Mutation.removeFromSet("tags", "new"),
+                Mutation.appendToList("events", "liked"),
+                Mutation.setIfNotExists("createdBy", "second"));
+        assertEquals(Collections.singleton("hot"), mutated.tags);
+        assertEquals(Arrays.asList("viewed", "liked"), mutated.events);
+        assertEquals("first", mutated.createdBy);
+        // Stored as native sets
+        Map<String, AttributeValue> item = dynamoDb.get().getItem(counterTableName,
+                Collections.singletonMap("id", new AttributeValue("c1"))).getItem();
+        assertEquals(Collections.singletonList("hot"), item.get("tags").getSS());
+        assertEquals(2, item.get("scores").getNS().size());
+        assertEquals(mutated, RecordCrudFacade.queryByTableKeys(keyOf("c1")));
+    }
+
+    @Test
+    public void validationTest() throws Exception {
+        // Key can not be mutated, and type of value should match field
+        try {
+            RecordCrudFacade.mutate(keyOf("c1"), Mutation.set("id", "c2"));
+            fail();
+        } catch (InvalidParametersInDynamoDbException e) {
+            System.out.println("[(TEST)::validationTest] " + e.getMessage());
+        }
+        try {
+            RecordCrudFacade.mutate(keyOf("c1"), Mutation.addToSet("tags", 1));
+            fail();
+        } catch (InvalidParametersInDynamoDbException e) {
+            System.out.println("[(TEST)::validationTest] " + e.getMessage());
+        }
+        // Numbers other than Integer can not be read back into HashSet<Integer>
+        try {
+            Mutation.addToSet("scores", 1.5);
+            fail();
+        } catch (IllegalArgumentException e) {
+            System.out.println("[(TEST)::validationTest] " + e.getMessage());
+        }
+        assertTrue(NativeSetCodec.isIntegers(Arrays.asList("1", "-2", "2147483647")));
+        assertFalse(NativeSetCodec.isIntegers(Arrays.asList("1", "1.5")));
+        assertFalse(NativeSetCodec.isIntegers(Collections.singletonList("2147483648")));
+    }
+
+    @Test
+    public void legacyListTest() throws Exception {
+        // Set that was stored as list by older version is read
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("id", new AttributeValue("legacy"));
+        item.put("tags", new AttributeValue().withL(new AttributeValue("hot"), new AttributeValue("new")));
+        item.put("scores", new AttributeValue().withL(new AttributeValue().withN("3"), new AttributeValue("5")));
+        dynamoDb.get().putItem(new PutItemRequest().withTableName(counterTableName).withItem(item));
+        CounterTable legacy = (CounterTable) RecordCrudFacade.queryByTableKeys(keyOf("legacy"));
+        System.out.println("[(TEST)::legacyListTest] " + legacy);
+        assertEquals(new HashSet<>(Arrays.asList("hot", "new")), legacy.tags);
+        assertEquals(new HashSet<>(Arrays.asList(3, 5)), legacy.scores);
+
+        // Other type fails loudly instead of being read as null
+        item.put("id", new AttributeValue("broken"));
+        item.put("scores", new AttributeValue("3,5"));
+        dynamoDb.get().putItem(new PutItemRequest().withTableName(counterTableName).withItem(item));
+        try {
+            RecordCrudFacade.queryByTableKeys(keyOf("broken"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            System.out.println("[(TEST)::legacyListTest] " + e.getMessage());
+        }
+    }
+}
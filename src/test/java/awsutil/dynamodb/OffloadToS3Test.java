@@ -0,0 +1,201 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.OffloadedAttribute;
+import awsutil.s3.S3CrudFacade;
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
+import com.amazonaws.services.dynamodbv2.document.Table;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.OffloadTable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing offloading large values to S3 by OffloadToS3
+ */
+public class OffloadToS3Test {
+
+    /**
+     * Stand-in of S3 that keeps objects in memory
+     */
+    static class InMemoryS3 extends AbstractAmazonS3 {
+        final Map<String, String> objects = new ConcurrentHashMap<>();
+        final Map<String, Date> modified = new ConcurrentHashMap<>();
+        final AtomicInteger getCount = new AtomicInteger();
+
+        @Override
+        public PutObjectResult putObject(String bucketName, String key, String content) {
+            objects.put(bucketName + "/" + key, content);
+            modified.put(bucketName + "/" + key, new Date());
+            return new PutObjectResult();
+        }
+
+        @Override
+        public void deleteObject(String bucketName, String key) {
+            objects.remove(bucketName + "/" + key);
+            modified.remove(bucketName + "/" + key);
+        }
+
+        @Override
+        public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+            ListObjectsV2Result result = new ListObjectsV2Result();
+            String prefix = request.getBucketName() + "/" + request.getPrefix();
+            for (String key: objects.keySet()) {
+                if (!key.startsWith(prefix)) continue;
+                S3ObjectSummary summary = new S3ObjectSummary();
+                summary.setBucketName(request.getBucketName());
+                summary.setKey(key.substring(request.getBucketName().length() + 1));
+                summary.setLastModified(modified.get(key));
+                result.getObjectSummaries().add(summary);
+            }
+            return result;
+        }
+
+        @Override
+        public String getObjectAsString(String bucketName, String key) {
+            getCount.incrementAndGet();
+            return objects.get(bucketName + "/" + key);
+        }
+    }
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    private InMemoryS3 s3;
+
+    @Before
+    public void setUp() {
+        s3 = new InMemoryS3();
+        S3CrudFacade.setClient(s3);
+    }
+
+    @After
+    public void tearDown() {
+        S3CrudFacade.setClient(null);
+    }
+
+    private Map<String, AttributeValue> toUploadedItem(OffloadTable record) throws Exception {
+        Map<String, AttributeValue> item = ItemUtils.toAttributeValues(record.toItem().getValue());
+        OffloadedAttribute.upload(OffloadedAttribute.pendingObjectsOf(Collections.singletonList(record)));
+        return item;
+    }
+
+    @Test
+    public void offloadTest() throws Exception {
+        String large = "large value that is over threshold";
+        OffloadTable record = new OffloadTable("o1", OffloadedAttribute.of(large));
+        record.toItem();
+        // Object is not put until item is written
+        assertEquals(0, s3.objects.size());
+        Map<String, AttributeValue> item = toUploadedItem(record);
+        assertNotNull(item.get("body").getM());
+        assertEquals(1, s3.objects.size());
+
+        // Small value is stored in item
+        Map<String, AttributeValue> smallItem = ItemUtils.toAttributeValues(
+                new OffloadTable("o2", OffloadedAttribute.of("small")).toItem().getValue());
+        assertEquals("small", smallItem.get("body").getS());
+
+        // Object is got at first access
+        OffloadTable result = (OffloadTable) new OffloadTable().insertResultIntoModel(item);
+        assertFalse(result.body.isLoaded());
+        assertEquals(large, result.body.get());
+        assertEquals(large, result.body.get());
+        assertEquals(1, s3.getCount.get());
+
+        // Not modified object is not put again
+        OffloadTable notModified = new OffloadTable("o1", result.body);
+        notModified.toItem();
+        assertTrue(OffloadedAttribute.pendingObjectsOf(Collections.singletonList(notModified)).isEmpty());
+    }
+
+    @Test
+    public void loadAllTest() throws Exception {
+        List<IGenericDynamoDbTable> results = new ArrayList<>();
+        for (int index = 0; index < 10; index++) {
+            results.add(new OffloadTable().insertResultIntoModel(
+                    toUploadedItem(new OffloadTable("o" + index, OffloadedAttribute.of("large value of record " + index)))));
+        }
+        OffloadedAttribute.loadAll(results);
+        assertEquals(10, s3.getCount.get());
+        assertTrue(results.stream().allMatch(record -> ((OffloadTable) record).body.isLoaded()));
+        assertEquals("large value of record 3", ((OffloadTable) results.get(3)).body.get());
+        System.out.println("[(TEST)::loadAllTest] " + results.get(3));
+    }
+
+    @Test
+    public void lifecycleTest() throws Exception {
+        TableCrudFacade.create(OffloadTable.class);
+        RecordCrudFacade.insertSingleRecord(new OffloadTable("o1", OffloadedAttribute.of("large value of first version")));
+        assertEquals(1, s3.objects.size());
+
+        OffloadTable firstVersion = (OffloadTable) RecordCrudFacade.queryByTableKeys(new OffloadTable("o1", null));
+
+        // Object of replaced item is kept, so reader that has old pointer can get it
+        RecordCrudFacade.insertSingleRecord(new OffloadTable("o1", OffloadedAttribute.of("large value of second version")));
+        assertEquals(2, s3.objects.size());
+        assertEquals("large value of first version", firstVersion.body.get());
+
+        // Object of deleted item is kept too
+        RecordCrudFacade.deleteSingleRecord(new OffloadTable("o1", null));
+        System.out.println("[(TEST)::lifecycleTest] " + s3.objects);
+        assertEquals(2, s3.objects.size());
+
+        // Objects that are not referenced are deleted by sweeping after grace period
+        assertEquals(0, TableCrudFacade.sweepOffloadedObjects(OffloadTable.class, 60000));
+        assertEquals(2, TableCrudFacade.sweepOffloadedObjects(OffloadTable.class, -1000));
+        assertEquals(0, s3.objects.size());
+    }
+
+    @Test
+    public void failureTest() throws Exception {
+        Table table = TableCrudFacade.create(OffloadTable.class);
+        // Object is not put when graph is invalid ( Same keys are duplicated )
+        try {
+            RecordCrudFacade.insertGraph(new OffloadTable("o1", OffloadedAttribute.of("large value of root record")),
+                    Collections.singletonList(new OffloadTable("o1", OffloadedAttribute.of("large value of same keys"))));
+            fail();
+        } catch (Exception e) {
+            System.out.println("[(TEST)::failureTest] " + e.getMessage());
+        }
+        assertEquals(0, s3.objects.size());
+
+        // Object is deleted when writing item is failed ( Table is dropped )
+        TableCrudFacade.drop(table);
+        try {
+            RecordCrudFacade.insertSingleRecord(new OffloadTable("o1", OffloadedAttribute.of("large value of root record")));
+            fail();
+        } catch (Exception e) {
+            System.out.println("[(TEST)::failureTest] " + e.getMessage());
+        }
+        assertEquals(0, s3.objects.size());
+    }
+
+    @Test
+    public void sweepTest() throws Exception {
+        TableCrudFacade.create(OffloadTable.class);
+        RecordCrudFacade.insertSingleRecord(new OffloadTable("o1", OffloadedAttribute.of("large value that is referenced")));
+        // Object that is left by stopped process
+        s3.putObject("offload-bucket", "laaas-offload/sample-offload-table/body/orphan", "large value that is not referenced");
+
+        // New object is kept in grace period
+        assertEquals(0, TableCrudFacade.sweepOffloadedObjects(OffloadTable.class, 60000));
+        assertEquals(2, s3.objects.size());
+        assertEquals(1, TableCrudFacade.sweepOffloadedObjects(OffloadTable.class, -1000));
+        assertEquals(1, s3.objects.size());
+        assertTrue(s3.objects.containsValue("large value that is referenced"));
+    }
+}
@@ -0,0 +1,44 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.ProjectedGsiTable;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing attributes that are not projected into GSI are got from table
+ */
+public class ProjectionFetchBackTest {
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    @Test
+    public void projectionFetchBackTest() throws Exception {
+        TableCrudFacade.create(ProjectedGsiTable.class);
+        String projectedTableName = new TableDefinition(ProjectedGsiTable.class).tableName;
+        TableDescription description = dynamoDb.get().describeTable(new DescribeTableRequest()
+                .withTableName(projectedTableName)).getTable();
+        assertTrue(description.getGlobalSecondaryIndexes().stream().anyMatch(index ->
+                ProjectionType.INCLUDE.toString().equals(index.getProjection().getProjectionType())));
+
+        RecordCrudFacade.insertSingleRecord(new ProjectedGsiTable("p1", "alice", "title-1", "body-1"));
+        RecordCrudFacade.insertSingleRecord(new ProjectedGsiTable("p2", "bob", "title-2", "body-2"));
+
+        // Attribute that is not in INCLUDE index is got from table
+        List<IGenericDynamoDbTable> byOwner = RecordCrudFacade.queryByGlobalSecondlyIndex(
+                new ProjectedGsiTable(null, "alice", null, null));
+        System.out.println("[(TEST)::projectionFetchBackTest] " + byOwner);
+        assertEquals(1, byOwner.size());
+        assertEquals("title-1", ((ProjectedGsiTable) byOwner.get(0)).title);
+        assertEquals("body-1", ((ProjectedGsiTable) byOwner.get(0)).body);
+    }
+}
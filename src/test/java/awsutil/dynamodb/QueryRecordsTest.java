@@ -0,0 +1,81 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.*;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing querying records and records of relation tables
+ */
+public class QueryRecordsTest {
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    private long countOf(List<IGenericDynamoDbTable> records, Class<?> table) {
+        return records.stream().filter(record -> record.getClass() == table).count();
+    }
+
+    @Test
+    public void diamondDepthTest() throws Exception {
+        // Root -> Left -> Shared -> Leaf, and Root -> Shared -> Leaf
+        TableCrudFacade.createAll(DiamondRoot.class);
+        RecordCrudFacade.insertSingleRecord(new DiamondRoot("r1", "l1", "s1"));
+        RecordCrudFacade.insertSingleRecord(new DiamondLeft("l1", "s1"));
+        RecordCrudFacade.insertSingleRecord(new DiamondShared("s1", "f1"));
+        RecordCrudFacade.insertSingleRecord(new DiamondLeaf("f1", "leaf"));
+
+        // Shared is looked up at depth 2 via Left before depth 1 via Root, but Leaf in depth 2 is got
+        List<IGenericDynamoDbTable> records = RecordCrudFacade.queryRecords(new DiamondRoot("r1", null, null),
+                FetchPlan.all().maxDepth(2));
+        System.out.println("[(TEST)::diamondDepthTest] " + records);
+        assertEquals(1, countOf(records, DiamondLeft.class));
+        assertEquals(1, countOf(records, DiamondShared.class));
+        assertEquals(1, countOf(records, DiamondLeaf.class));
+
+        records = RecordCrudFacade.queryRecords(new DiamondRoot("r1", null, null), FetchPlan.all().maxDepth(1));
+        assertEquals(1, countOf(records, DiamondShared.class));
+        assertEquals(0, countOf(records, DiamondLeaf.class));
+        records = RecordCrudFacade.queryRecords(new DiamondRoot("r1", null, null));
+        assertEquals(1, countOf(records, DiamondLeaf.class));
+    }
+
+    @Test
+    public void limitTest() throws Exception {
+        TableCrudFacade.create(MultiGsiTable.class);
+        for (int index = 1; index <= 7; index++) {
+            RecordCrudFacade.insertSingleRecord(new MultiGsiTable("m" + index,
+                    index <= 5 ? "alice" : "bob", index >= 3 ? "book" : "food"));
+        }
+        // Limit is applied in total of both GSI
+        List<IGenericDynamoDbTable> records = RecordCrudFacade.queryRecords(new MultiGsiTable(null, "alice", "book"),
+                FetchPlan.all().limit(MultiGsiTable.class, 3));
+        System.out.println("[(TEST)::limitTest] " + records);
+        assertEquals(3, countOf(records, MultiGsiTable.class));
+        assertEquals(7, countOf(RecordCrudFacade.queryRecords(new MultiGsiTable(null, "alice", "book")), MultiGsiTable.class));
+    }
+
+    @Test
+    public void lookupKeyTest() throws Exception {
+        GlobalRelationHashChild query = new GlobalRelationHashChild();
+        String ofNull = RecordCrudFacade.lookupKeyOf(
+                new GlobalRelationParent("p1", null, null, null, "1"), query, FetchPlan.all());
+        String ofNullString = RecordCrudFacade.lookupKeyOf(
+                new GlobalRelationParent("p2", null, null, "null", "1"), query, FetchPlan.all());
+        System.out.println("[(TEST)::lookupKeyTest] " + ofNull + " / " + ofNullString);
+        assertNotEquals(ofNull, ofNullString);
+
+        // Separators in value do not make same key
+        assertNotEquals(
+                RecordCrudFacade.lookupKeyOf(new GlobalRelationParent("p3", null, null, "a|sortKey=b", "c"), query, FetchPlan.all()),
+                RecordCrudFacade.lookupKeyOf(new GlobalRelationParent("p4", null, null, "a", "b|sortKey=c"), query, FetchPlan.all()));
+        // Same values of other parents make same key
+        assertEquals(ofNullString, RecordCrudFacade.lookupKeyOf(
+                new GlobalRelationParent("p5", "other", 1, "null", "1"), query, FetchPlan.all()));
+    }
+}
@@ -0,0 +1,103 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.Test;
+import samples.SimpleGsiTable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing cache for records by table keys
+ */
+public class RecordCacheTest {
+
+    private Map<String, AttributeValue> toItem(String id) {
+        return new HashMap<String, AttributeValue>() {{
+            put("id", new AttributeValue(id));
+        }};
+    }
+
+    @Test
+    public void hitAndInvalidateTest() throws InvalidParametersInDynamoDbException, IllegalAccessException,
+            InstantiationException {
+        TableDefinition def = new SimpleGsiTable("cache01", null, null).toTableDefinition();
+        RecordCache.configure(def.tableName, 60_000L, 8);
+
+        assertNull(RecordCache.get(def));
+        RecordCache.put(def, toItem("cache01"), RecordCache.generationOf(def));
+        assertEquals("cache01", RecordCache.get(def).get("id").getS());
+
+        RecordCache.invalidate(def);
+        assertNull(RecordCache.get(def));
+
+        RecordCache.Statistics statistics = RecordCache.getStatistics(def.tableName);
+        System.out.println("[(TEST)::hitAndInvalidateTest] " + statistics);
+        assertEquals(1, statistics.hitCount);
+        assertEquals(2, statistics.missCount);
+    }
+
+    @Test
+    public void evictionTest() throws InvalidParametersInDynamoDbException, IllegalAccessException,
+            InstantiationException {
+        TableDefinition first = new SimpleGsiTable("evict01", null, null).toTableDefinition();
+        TableDefinition second = new SimpleGsiTable("evict02", null, null).toTableDefinition();
+        TableDefinition third = new SimpleGsiTable("evict03", null, null).toTableDefinition();
+        RecordCache.configure(first.tableName, 60_000L, 2);
+
+        RecordCache.put(first, toItem("evict01"), RecordCache.generationOf(first));
+        RecordCache.put(second, toItem("evict02"), RecordCache.generationOf(second));
+        // Touch first record to be kept as recently used
+        assertNotNull(RecordCache.get(first));
+        RecordCache.put(third, toItem("evict03"), RecordCache.generationOf(third));
+
+        assertNotNull(RecordCache.get(first));
+        assertNull(RecordCache.get(second));
+        assertNotNull(RecordCache.get(third));
+        assertEquals(1, RecordCache.getStatistics(first.tableName).evictionCount);
+    }
+
+    @Test
+    public void expirationTest() throws InvalidParametersInDynamoDbException, IllegalAccessException,
+            InstantiationException, InterruptedException {
+        TableDefinition def = new SimpleGsiTable("expire01", null, null).toTableDefinition();
+        RecordCache.configure(def.tableName, 10L, 8);
+
+        RecordCache.put(def, toItem("expire01"), RecordCache.generationOf(def));
+        Thread.sleep(50L);
+        assertNull(RecordCache.get(def));
+    }
+
+    @Test
+    public void disabledCacheTest() throws InvalidParametersInDynamoDbException, IllegalAccessException,
+            InstantiationException {
+        TableDefinition def = new SimpleGsiTable("disabled01", null, null).toTableDefinition();
+        RecordCache.configure(def.tableName, 0L, 8);
+
+        RecordCache.put(def, toItem("disabled01"), RecordCache.generationOf(def));
+        assertNull(RecordCache.get(def));
+        assertNull(RecordCache.getStatistics(def.tableName));
+    }
+
+    @Test
+    public void stalePutTest() throws InvalidParametersInDynamoDbException, IllegalAccessException,
+            InstantiationException {
+        TableDefinition def = new SimpleGsiTable("stale01", null, null).toTableDefinition();
+        RecordCache.configure(def.tableName, 60_000L, 8);
+
+        // Reader misses cache and reads old record, then writer writes and invalidates before reader puts it
+        assertNull(RecordCache.get(def));
+        long generationOfReader = RecordCache.generationOf(def);
+        RecordCache.invalidate(def);
+        RecordCache.put(def, toItem("old"), generationOfReader);
+        assertNull(RecordCache.get(def));
+
+        // Record read after invalidation is cached
+        RecordCache.put(def, toItem("new"), RecordCache.generationOf(def));
+        assertEquals("new", RecordCache.get(def).get("id").getS());
+    }
+}
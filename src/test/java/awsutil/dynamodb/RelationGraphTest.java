@@ -0,0 +1,40 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.exceptions.ExistsCircularReferenceException;
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.RelationGraph;
+import org.junit.Test;
+import samples.*;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing graph of relation between tables
+ */
+public class RelationGraphTest {
+
+    @Test
+    public void graphTest() throws Exception {
+        RelationGraph graph = RelationGraph.of(GlobalRelationParent.class);
+        System.out.println("[(TEST)::graphTest] " + graph.getEdges());
+
+        assertSame(graph, RelationGraph.of(GlobalRelationParent.class));
+        assertEquals(GlobalRelationParent.class, graph.getTables().get(0));
+        assertEquals(3, graph.getTables().size());
+        assertEquals(0, graph.levelOf(GlobalRelationParent.class).intValue());
+        assertEquals(1, graph.levelOf(GlobalRelationChild.class).intValue());
+        assertEquals(4, graph.getEdges().size());
+        assertFalse(graph.contains(SampleRelationalTable.class));
+
+        // Two relations to same child are merged into single query
+        List<IGenericDynamoDbTable> queries = new GlobalRelationParent().issueNewQueryToRelation();
+        assertEquals(2, queries.size());
+    }
+
+    @Test(expected = ExistsCircularReferenceException.class)
+    public void circularReferenceTest() throws Exception {
+        RelationGraph.of(CircularReferenceParent.class);
+    }
+}
@@ -0,0 +1,87 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.ShardedEventTable;
+import samples.ShardedStatusTable;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing sharded keys and scatter-gather queries
+ */
+public class ShardingTest {
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    @Test
+    public void shardingTest() throws Exception {
+        TableCrudFacade.create(ShardedStatusTable.class);
+        String shardedTableName = new TableDefinition(ShardedStatusTable.class).tableName;
+        for (int index = 0; index < 12; index++) {
+            RecordCrudFacade.insertSingleRecord(new ShardedStatusTable("s" + index, "open", 12 - index));
+        }
+        RecordCrudFacade.insertSingleRecord(new ShardedStatusTable("c1", "closed", 1));
+
+        // Writes of same status are spread across shards
+        Set<String> storedStatuses = new HashSet<>();
+        for (int index = 0; index < 12; index++) {
+            storedStatuses.add(dynamoDb.get().getItem(shardedTableName, Collections.singletonMap("id",
+                    new AttributeValue("s" + index))).getItem().get("status").getS());
+        }
+        System.out.println("[(TEST)::shardingTest] " + storedStatuses);
+        assertTrue(storedStatuses.size() > 1);
+
+        // Query is scattered across all shards and merged in order of range key
+        long requests = dynamoDb.get().getRequestCount();
+        List<IGenericDynamoDbTable> open = RecordCrudFacade.queryByGlobalSecondlyIndex(new ShardedStatusTable(null, "open", null));
+        assertEquals(4, dynamoDb.get().getRequestCount() - requests);
+        assertEquals(12, open.size());
+        for (int index = 0; index < open.size(); index++) {
+            assertEquals("open", ((ShardedStatusTable) open.get(index)).status);
+            assertEquals(index + 1, ((ShardedStatusTable) open.get(index)).createdAt.intValue());
+        }
+        assertEquals("open", ((ShardedStatusTable) RecordCrudFacade.queryByTableKeys(
+                new ShardedStatusTable("s0", null, null))).status);
+    }
+
+    @Test
+    public void partitionKeyTest() throws Exception {
+        TableCrudFacade.create(ShardedEventTable.class);
+        for (int index = 0; index < 10; index++) {
+            RecordCrudFacade.insertSingleRecord(new ShardedEventTable("tenant", "e" + index, "detail-" + index));
+        }
+        RecordCrudFacade.insertSingleRecord(new ShardedEventTable("other", "e0", "other"));
+
+        // Record is got from single shard by table keys
+        assertEquals("detail-3", ((ShardedEventTable) RecordCrudFacade.queryByTableKeys(
+                new ShardedEventTable("tenant", "e3", null))).detail);
+
+        // Query by partition key only is scattered across all shards and merged in order of sort key
+        long requests = dynamoDb.get().getRequestCount();
+        List<IGenericDynamoDbTable> events = RecordCrudFacade.queryRecords(new ShardedEventTable("tenant", null, null));
+        System.out.println("[(TEST)::partitionKeyTest] " + events);
+        assertEquals(4, dynamoDb.get().getRequestCount() - requests);
+        assertEquals(10, events.size());
+        for (int index = 0; index < events.size(); index++) {
+            assertEquals("tenant", ((ShardedEventTable) events.get(index)).tenantId);
+            assertEquals("e" + index, ((ShardedEventTable) events.get(index)).eventId);
+        }
+        assertEquals(3, RecordCrudFacade.queryRecords(new ShardedEventTable("tenant", null, null),
+                FetchPlan.all().limit(ShardedEventTable.class, 3)).size());
+
+        // Shard can not be selected without sort key ( Not hashed as null )
+        try {
+            RecordCrudFacade.getTableKeysForCondition(new ShardedEventTable("tenant", null, null));
+            fail();
+        } catch (IllegalArgumentException e) {
+            System.out.println("[(TEST)::partitionKeyTest] " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import org.junit.Test;
+import samples.SimpleGsiTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Testing request coalescing for concurrent identical reads
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void sharingResultTest() throws InterruptedException, ExecutionException {
+        AtomicInteger executed = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // First caller holds request until other callers are waiting
+        Future<String> first = executor.submit(() -> SingleFlight.execute("sharingResultTest", () -> {
+            executed.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return "result";
+        }));
+        started.await();
+
+        List<Future<String>> followers = new ArrayList<>();
+        for (int count = 0; count < 7; count++) {
+            followers.add(executor.submit(() -> SingleFlight.execute("sharingResultTest", () -> {
+                executed.incrementAndGet();
+                return "other result";
+            })));
+        }
+        Thread.sleep(100L);
+        release.countDown();
+
+        assertEquals("result", first.get());
+        for (Future<String> follower: followers) {
+            assertEquals("result", follower.get());
+        }
+        assertEquals(1, executed.get());
+        executor.shutdown();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sharingExceptionTest() {
+        SingleFlight.execute("sharingExceptionTest", () -> {
+            throw new IllegalStateException("failed");
+        });
+    }
+
+    @Test
+    public void sharingErrorTest() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<String> first = executor.submit(() -> SingleFlight.execute("sharingErrorTest", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            throw new AssertionError("failed");
+        }));
+        started.await();
+        Future<String> follower = executor.submit(() -> SingleFlight.execute("sharingErrorTest", () -> "other result"));
+        Thread.sleep(100L);
+        release.countDown();
+
+        for (Future<String> future: Arrays.asList(first, follower)) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                System.out.println("[(TEST)::sharingErrorTest] " + e.getCause());
+                assertTrue(e.getCause() instanceof AssertionError);
+            } catch (TimeoutException e) {
+                fail("Waiting caller is blocked");
+            }
+        }
+        // Entry is removed, so next calling executes request again
+        assertEquals("next result", SingleFlight.execute("sharingErrorTest", () -> "next result"));
+        executor.shutdown();
+    }
+
+    @Test
+    public void readAfterWritingTest() throws Exception {
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger heldReads = new AtomicInteger(1);
+        // GetItem that is held after reading item, as request in flight while writing
+        DynamoClientProvider.setClient(new InMemoryDynamoDb() {
+            @Override
+            public GetItemResult getItem(GetItemRequest request) {
+                GetItemResult result = super.getItem(request);
+                if (heldReads.getAndDecrement() > 0) {
+                    read.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return result;
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            TableCrudFacade.create(SimpleGsiTable.class);
+            RecordCache.configure(new TableDefinition(SimpleGsiTable.class).tableName, 60_000L, 8);
+            heldReads.set(0);
+            RecordCrudFacade.insertSingleRecord(new SimpleGsiTable("flight01", "first", "1"));
+            // Next read misses cache and is held
+            RecordCache.clear();
+            heldReads.set(1);
+
+            Future<?> reading = executor.submit(() ->
+                    RecordCrudFacade.queryByTableKeys(new SimpleGsiTable("flight01", null, null)));
+            assertTrue(read.await(5, TimeUnit.SECONDS));
+            // Confirming read after writing does not wait read that started before writing
+            Future<?> writing = executor.submit(() ->
+                    RecordCrudFacade.insertSingleRecord(new SimpleGsiTable("flight01", "second", "1")));
+            SimpleGsiTable written = (SimpleGsiTable) writing.get(5, TimeUnit.SECONDS);
+            System.out.println("[(TEST)::readAfterWritingTest] " + written);
+            assertEquals("second", written.gsiHash);
+            release.countDown();
+            reading.get(5, TimeUnit.SECONDS);
+            // Record that is read before writing is not cached
+            assertEquals("second", ((SimpleGsiTable) RecordCrudFacade.queryByTableKeys(
+                    new SimpleGsiTable("flight01", null, null))).gsiHash);
+        } catch (TimeoutException e) {
+            fail("Read after writing waits request in flight");
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            DynamoClientProvider.configure(null);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.exceptions.InvalidParametersInDynamoDbException;
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.SingleTableOrder;
+import samples.SingleTableOrderLine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing records of relation graph in single physical table
+ */
+public class SingleTableFacadeTest {
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    @Before
+    public void setUp() throws Exception {
+        SingleTableFacade.createTable(SingleTableOrder.class);
+    }
+
+    @Test
+    public void singleTableTest() throws Exception {
+        RecordCrudFacade.insertGraph(new SingleTableOrder("o1", "o1", "alice"), Arrays.asList(
+                new SingleTableOrderLine("o1", "1", "apple"),
+                new SingleTableOrderLine("o1", "2", "banana")));
+        RecordCrudFacade.insertGraph(new SingleTableOrder("o2", "o2", "bob"),
+                Collections.singletonList(new SingleTableOrderLine("o2", "1", "cherry")));
+
+        // Root and children are got by single Query on partition of root
+        long requests = dynamoDb.get().getRequestCount();
+        List<IGenericDynamoDbTable> graph = RecordCrudFacade.queryRecords(new SingleTableOrder("o1", null, null));
+        System.out.println("[(TEST)::singleTableTest] " + graph);
+        assertEquals(1, dynamoDb.get().getRequestCount() - requests);
+        assertEquals(3, graph.size());
+        assertEquals("alice", ((SingleTableOrder) graph.get(0)).customer);
+        assertTrue(graph.stream().skip(1).allMatch(record -> "o1".equals(((SingleTableOrderLine) record).orderId)));
+
+        assertEquals(1, RecordCrudFacade.queryRecords(new SingleTableOrder("o2", null, null), FetchPlan.rootOnly()).size());
+    }
+
+    @Test
+    public void relatedPartitionTest() throws Exception {
+        // Line of other order is not put into partition of root
+        try {
+            RecordCrudFacade.insertGraph(new SingleTableOrder("o1", "o1", "alice"),
+                    Collections.singletonList(new SingleTableOrderLine("o2", "1", "apple")));
+            fail();
+        } catch (InvalidParametersInDynamoDbException e) {
+            System.out.println("[(TEST)::relatedPartitionTest] " + e.getMessage());
+        }
+        assertNull(RecordCrudFacade.queryByTableKeys(new SingleTableOrder("o1", null, null)));
+    }
+
+    @Test
+    public void singleRecordTest() throws Exception {
+        RecordCrudFacade.insertGraph(new SingleTableOrder("o1", "o1", "alice"),
+                Collections.singletonList(new SingleTableOrderLine("o1", "1", "apple")));
+
+        // Root is got, updated and mutated in single table
+        SingleTableOrder root = (SingleTableOrder) RecordCrudFacade.queryByTableKeys(new SingleTableOrder("o1", null, null));
+        assertEquals("alice", root.customer);
+        RecordCrudFacade.updateSingleRecord(new SingleTableOrder("o1", "o1", "bob"));
+        SingleTableOrder mutated = (SingleTableOrder) RecordCrudFacade.mutate(new SingleTableOrder("o1", null, null),
+                Mutation.set("customer", "carol"));
+        assertEquals("carol", mutated.customer);
+        assertEquals("o1", mutated.id);
+        assertNull(RecordCrudFacade.updateSingleRecord(new SingleTableOrder("o9", "o9", "nobody")));
+
+        List<IGenericDynamoDbTable> graph = RecordCrudFacade.queryRecords(new SingleTableOrder("o1", null, null));
+        System.out.println("[(TEST)::singleRecordTest] " + graph);
+        assertEquals(2, graph.size());
+        assertEquals("carol", ((SingleTableOrder) graph.get(0)).customer);
+
+        // Root created by inserting single record and mutation is in graph
+        RecordCrudFacade.insertSingleRecord(new SingleTableOrder("o2", "o2", "dave"));
+        RecordCrudFacade.mutate(new SingleTableOrder("o3", null, null), Mutation.set("customer", "erin"));
+        assertEquals("dave", ((SingleTableOrder) RecordCrudFacade.queryRecords(new SingleTableOrder("o2", null, null)).get(0)).customer);
+        assertEquals("erin", ((SingleTableOrder) RecordCrudFacade.queryRecords(new SingleTableOrder("o3", null, null)).get(0)).customer);
+
+        // Deleting single record deletes only root, and deleting graph deletes all records in partition
+        assertNotNull(RecordCrudFacade.deleteSingleRecord(new SingleTableOrder("o2", null, null)));
+        assertNull(RecordCrudFacade.queryByTableKeys(new SingleTableOrder("o2", null, null)));
+        assertEquals(2, SingleTableFacade.deleteGraph(new SingleTableOrder("o1", null, null)));
+        assertTrue(RecordCrudFacade.queryRecords(new SingleTableOrder("o1", null, null)).isEmpty());
+    }
+
+    @Test
+    public void requiredRecordsTest() throws Exception {
+        RecordCrudFacade.insertSingleRecord(new SingleTableOrder("o1", "o1", "alice"));
+        RecordCrudFacade.insertGraph(new SingleTableOrder("o2", "o2", "bob"),
+                Collections.singletonList(new SingleTableOrderLine("o2", "1", "apple")),
+                Collections.singletonList(new SingleTableOrder("o1", null, null)));
+        assertEquals(2, RecordCrudFacade.queryRecords(new SingleTableOrder("o2", null, null)).size());
+
+        // Nothing is written when required root is not exists
+        try {
+            RecordCrudFacade.insertGraph(new SingleTableOrder("o3", "o3", "carol"),
+                    Collections.singletonList(new SingleTableOrderLine("o3", "1", "banana")),
+                    Collections.singletonList(new SingleTableOrder("missing", null, null)));
+            fail();
+        } catch (TransactionCanceledException e) {
+            System.out.println("[(TEST)::requiredRecordsTest] " + e.getCancellationReasons().get(0).getCode());
+        }
+        assertTrue(RecordCrudFacade.queryRecords(new SingleTableOrder("o3", null, null)).isEmpty());
+    }
+}
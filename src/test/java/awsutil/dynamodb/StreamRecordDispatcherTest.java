@@ -0,0 +1,76 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import org.junit.Test;
+import samples.OnDemandTable;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing dispatching of DynamoDB Streams events into table models
+ */
+public class StreamRecordDispatcherTest {
+
+    private static DynamodbEvent.DynamodbStreamRecord recordOf(String tableName, String eventName, String sequenceNumber,
+                                                               String id, String newGsiHash, String oldGsiHash) {
+        StreamRecord streamRecord = new StreamRecord();
+        streamRecord.setSequenceNumber(sequenceNumber);
+        if (newGsiHash != null) {
+            streamRecord.addNewImageEntry("id", new AttributeValue(id)).addNewImageEntry("gsiHash", new AttributeValue(newGsiHash));
+        }
+        if (oldGsiHash != null) {
+            streamRecord.addOldImageEntry("id", new AttributeValue(id)).addOldImageEntry("gsiHash", new AttributeValue(oldGsiHash));
+        }
+        DynamodbEvent.DynamodbStreamRecord record = new DynamodbEvent.DynamodbStreamRecord();
+        record.setEventName(eventName);
+        record.setEventSourceARN("arn:aws:dynamodb:ap-northeast-1:123456789012:table/" + tableName + "/stream/2022-01-01T00:00:00.000");
+        record.setDynamodb(streamRecord);
+        return record;
+    }
+
+    private static DynamodbEvent eventOf(String tableName) {
+        DynamodbEvent event = new DynamodbEvent();
+        event.setRecords(Arrays.asList(
+                recordOf(tableName, "INSERT", "100", "s1", "first", null),
+                recordOf("other-table", "INSERT", "101", "x1", "other", null),
+                recordOf(tableName, "MODIFY", "102", "s1", "second", "first"),
+                recordOf(tableName, "REMOVE", "103", "s1", null, "second")));
+        return event;
+    }
+
+    @Test
+    public void dispatchTest() throws Exception {
+        String tableName = new TableDefinition(OnDemandTable.class).tableName;
+        List<StreamRecordDispatcher.Change<OnDemandTable>> received = new ArrayList<>();
+        StreamRecordDispatcher dispatcher = new StreamRecordDispatcher().register(OnDemandTable.class, received::addAll);
+
+        StreamsEventResponse response = dispatcher.dispatch(eventOf(tableName));
+        System.out.println("[(TEST)::dispatchTest] " + received);
+        assertTrue(response.getBatchItemFailures().isEmpty());
+        // Records of other table are not passed to handler
+        assertEquals(3, received.size());
+        assertEquals("first", received.get(0).newImage.gsiHash);
+        assertNull(received.get(0).oldImage);
+        assertEquals("first", received.get(1).oldImage.gsiHash);
+        assertEquals("REMOVE", received.get(2).eventName);
+        assertNull(received.get(2).newImage);
+    }
+
+    @Test
+    public void partialFailureTest() throws Exception {
+        String tableName = new TableDefinition(OnDemandTable.class).tableName;
+        StreamRecordDispatcher dispatcher = new StreamRecordDispatcher().register(OnDemandTable.class, changes -> {
+            throw new IllegalStateException("projection is not available");
+        });
+
+        StreamsEventResponse response = dispatcher.dispatch(eventOf(tableName));
+        assertEquals(3, response.getBatchItemFailures().size());
+        assertEquals("100", response.getBatchItemFailures().get(0).getItemIdentifier());
+    }
+}
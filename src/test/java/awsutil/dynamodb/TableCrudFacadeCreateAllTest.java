@@ -0,0 +1,30 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.document.Table;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.GlobalRelationParent;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Testing creating all tables of relation graph
+ */
+public class TableCrudFacadeCreateAllTest {
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    @Test
+    public void createAllTest() throws Exception {
+        List<Table> tables = TableCrudFacade.createAll(GlobalRelationParent.class);
+        assertEquals(3, tables.size());
+        assertEquals(new TableDefinition(GlobalRelationParent.class).tableName, tables.get(0).getTableName());
+        // Existing tables are only waited for active
+        assertEquals(3, TableCrudFacade.createAll(GlobalRelationParent.class).size());
+        assertEquals(3, dynamoDb.get().listTables().getTableNames().size());
+    }
+}
@@ -0,0 +1,92 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.MetricTable;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing time-series table that is bucketed by time
+ */
+public class TimeSeriesTest {
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    @Before
+    public void setUp() throws Exception {
+        TableCrudFacade.create(MetricTable.class);
+    }
+
+    @Test
+    public void timeSeriesTest() throws Exception {
+        // Inserted in random order over 3 hours
+        RecordCrudFacade.insertSingleRecord(new MetricTable("d1", "2022-01-01T11:30:00Z", 3));
+        RecordCrudFacade.insertSingleRecord(new MetricTable("d1", "2022-01-01T09:59:59.999Z", 0));
+        RecordCrudFacade.insertSingleRecord(new MetricTable("d1", "2022-01-01T10:45:00Z", 2));
+        RecordCrudFacade.insertSingleRecord(new MetricTable("d1", "2022-01-01T10:15:00Z", 1));
+        RecordCrudFacade.insertSingleRecord(new MetricTable("d2", "2022-01-01T10:20:00Z", 9));
+
+        // Stored as entity#bucket and fixed format timestamp
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("deviceId", new AttributeValue("d1#2022-01-01T10"));
+        key.put("recordedAt", new AttributeValue("2022-01-01T10:15:00.000000000Z"));
+        assertNotNull(dynamoDb.get().getItem(new TableDefinition(MetricTable.class).tableName, key).getItem());
+
+        List<MetricTable> records = RecordCrudFacade.queryTimeRange(MetricTable.class, "d1",
+                Instant.parse("2022-01-01T10:00:00Z"), Instant.parse("2022-01-01T11:59:59Z"))
+                .collect(Collectors.toList());
+        System.out.println("[(TEST)::timeSeriesTest] " + records);
+        assertEquals(Arrays.asList(1, 2, 3), records.stream().map(record -> record.value).collect(Collectors.toList()));
+        assertEquals("d1", records.get(0).deviceId);
+
+        // Record can be got by entity and timestamp
+        MetricTable got = (MetricTable) RecordCrudFacade.queryByTableKeys(new MetricTable("d1", "2022-01-01T11:30:00Z", null));
+        assertEquals(3, got.value.intValue());
+    }
+
+    @Test
+    public void sameMillisecondTest() throws Exception {
+        // Records in same millisecond have different keys
+        RecordCrudFacade.insertSingleRecord(new MetricTable("d1", "2022-01-01T10:15:00.123456Z", 1));
+        RecordCrudFacade.insertSingleRecord(new MetricTable("d1", "2022-01-01T10:15:00.123789Z", 2));
+        RecordCrudFacade.insertSingleRecord(new MetricTable("d1", "2022-01-01T10:15:00.123000001Z", 3));
+
+        List<MetricTable> records = RecordCrudFacade.queryTimeRange(MetricTable.class, "d1",
+                Instant.parse("2022-01-01T10:15:00.123Z"), Instant.parse("2022-01-01T10:15:00.123999Z"))
+                .collect(Collectors.toList());
+        System.out.println("[(TEST)::sameMillisecondTest] " + records);
+        assertEquals(Arrays.asList(3, 1, 2), records.stream().map(record -> record.value).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void windowTest() throws Exception {
+        RecordCrudFacade.insertSingleRecord(new MetricTable("d1", "2022-01-01T00:30:00Z", 1));
+        RecordCrudFacade.insertSingleRecord(new MetricTable("d1", "2022-01-05T23:30:00Z", 2));
+
+        // 120 buckets of 5 days are not queried at once, and buckets are not queried after closing stream
+        long requests = dynamoDb.get().getRequestCount();
+        try (Stream<MetricTable> stream = RecordCrudFacade.queryTimeRange(MetricTable.class, "d1",
+                Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-01-05T23:59:59Z"))) {
+            assertEquals(1, stream.findFirst().get().value.intValue());
+        }
+        Thread.sleep(200);
+        long queried = dynamoDb.get().getRequestCount() - requests;
+        System.out.println("[(TEST)::windowTest] " + queried + " buckets are queried");
+        assertTrue(queried < 120);
+
+        // All buckets are queried when stream is consumed to the end
+        assertEquals(Arrays.asList(1, 2), RecordCrudFacade.queryTimeRange(MetricTable.class, "d1",
+                Instant.parse("2022-01-01T00:00:00Z"), Instant.parse("2022-01-05T23:59:59Z"))
+                .map(record -> record.value).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,117 @@
+package awsutil.dynamodb;
+
+import awsutil.dynamodb.exceptions.VersionConflictException;
+import awsutil.dynamodb.tabledefinition.TableDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.Rule;
+import org.junit.Test;
+import samples.SimpleGsiTable;
+import samples.VersionedTable;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing optimistic locking by Version field
+ */
+public class VersionConditionTest {
+
+    @Rule
+    public final InMemoryDynamoDbRule dynamoDb = new InMemoryDynamoDbRule();
+
+    @Test
+    public void versionTest() throws Exception {
+        TableCrudFacade.create(VersionedTable.class);
+        VersionedTable created = new VersionedTable("v1", "first", null);
+        RecordCrudFacade.insertSingleRecord(created);
+        assertEquals(1, created.version.intValue());
+
+        // New record can not overwrite existing record
+        VersionedTable duplicated = new VersionedTable("v1", "duplicated", null);
+        try {
+            RecordCrudFacade.insertSingleRecord(duplicated);
+            fail();
+        } catch (VersionConflictException e) {
+            System.out.println("[(TEST)::versionTest] " + e.getErrorMessage());
+            assertNull(duplicated.version);
+        }
+
+        // Only first updater of same version succeeds
+        VersionedTable first = (VersionedTable) RecordCrudFacade.queryByTableKeys(new VersionedTable("v1", null, null));
+        VersionedTable second = (VersionedTable) RecordCrudFacade.queryByTableKeys(new VersionedTable("v1", null, null));
+        first.value = "updated";
+        second.value = "clobbered";
+        VersionedTable updated = (VersionedTable) RecordCrudFacade.updateSingleRecord(first);
+        assertEquals(2, updated.version.intValue());
+        try {
+            RecordCrudFacade.updateSingleRecord(second);
+            fail();
+        } catch (VersionConflictException e) {
+            assertEquals(1, e.getExpectedVersion().intValue());
+            assertEquals(1, second.version.intValue());
+        }
+        assertEquals("updated", ((VersionedTable) RecordCrudFacade.queryByTableKeys(
+                new VersionedTable("v1", null, null))).value);
+    }
+
+    @Test
+    public void rollbackTest() throws Exception {
+        // Version is restored when writing is failed by other than condition ( Table is not created )
+        VersionedTable single = new VersionedTable("v1", "first", 3);
+        try {
+            RecordCrudFacade.insertSingleRecord(single);
+            fail();
+        } catch (RuntimeException e) {
+            System.out.println("[(TEST)::rollbackTest] " + e.getMessage());
+        }
+        assertEquals(3, single.version.intValue());
+
+        VersionedTable root = new VersionedTable("v2", "root", null);
+        VersionedTable related = new VersionedTable("v3", "related", 5);
+        try {
+            RecordCrudFacade.insertGraph(root, Collections.singletonList(related));
+            fail();
+        } catch (RuntimeException e) {
+            System.out.println("[(TEST)::rollbackTest] " + e.getMessage());
+        }
+        assertNull(root.version);
+        assertEquals(5, related.version.intValue());
+
+        // Versions of records before invalid record are restored too
+        VersionedTable valid = new VersionedTable("v4", "valid", 1);
+        try {
+            RecordCrudFacade.insertGraph(valid, Arrays.asList(new VersionedTable("v5", "other", 2),
+                    new VersionedTable("v4", "duplicated", 1)));
+            fail();
+        } catch (Exception e) {
+            System.out.println("[(TEST)::rollbackTest] " + e.getMessage());
+        }
+        assertEquals(1, valid.version.intValue());
+    }
+
+    @Test
+    public void existenceTest() throws Exception {
+        TableCrudFacade.create(SimpleGsiTable.class);
+        String tableName = new TableDefinition(SimpleGsiTable.class).tableName;
+        RecordCache.configure(tableName, 60_000L, 8);
+
+        // Record that does not exist is not created by updating
+        assertNull(RecordCrudFacade.updateSingleRecord(new SimpleGsiTable("c1", "first", "updater")));
+        assertNull(dynamoDb.get().getItem(tableName, Collections.singletonMap("id", new AttributeValue("c1"))).getItem());
+
+        RecordCrudFacade.insertSingleRecord(new SimpleGsiTable("c1", "first", "creator"));
+        SimpleGsiTable updated = (SimpleGsiTable) RecordCrudFacade.updateSingleRecord(
+                new SimpleGsiTable("c1", "second", "updater"));
+        assertEquals("second", updated.gsiHash);
+
+        // Record that is deleted by other process is not created again, even if it is in cache
+        assertNotNull(RecordCrudFacade.queryByTableKeys(new SimpleGsiTable("c1", null, null)));
+        dynamoDb.get().deleteItem(tableName, Collections.singletonMap("id", new AttributeValue("c1")));
+        assertNull(RecordCrudFacade.updateSingleRecord(new SimpleGsiTable("c1", "third", "updater")));
+        System.out.println("[(TEST)::existenceTest] " + dynamoDb.get().getItem(tableName, Collections.singletonMap("id", new AttributeValue("c1"))));
+        assertNull(dynamoDb.get().getItem(tableName, Collections.singletonMap("id", new AttributeValue("c1"))).getItem());
+        RecordCache.configure(tableName, 0L, 8);
+    }
+}
@@ -0,0 +1,29 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "sample-auto-scaling-table",
+        readCapacityUnit = 5L,
+        writeCapacityUnit = 5L,
+        readAutoScaling = @AutoScaling(minCapacity = 5L, maxCapacity = 100L),
+        writeAutoScaling = @AutoScaling(minCapacity = 5L, maxCapacity = 50L, targetUtilization = 50.0)
+)
+public class AutoScalingTable implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    @GlobalSI(
+            indexName = "auto-scaling-gsi",
+            keyType = KeyType.HASH,
+            readAutoScaling = @AutoScaling(minCapacity = 1L, maxCapacity = 20L)
+    )
+    public String gsiHash;
+}
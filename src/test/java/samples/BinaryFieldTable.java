@@ -0,0 +1,23 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "sample-binary-field-table"
+)
+public class BinaryFieldTable implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    @BinaryField
+    public String document;
+
+    @BinaryField(compress = ECompressionType.NONE)
+    public String note;
+}
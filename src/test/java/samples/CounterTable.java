@@ -0,0 +1,30 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "sample-counter-table"
+)
+public class CounterTable implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    public Integer views;
+
+    public HashSet<String> tags;
+
+    public HashSet<Integer> scores;
+
+    public ArrayList<String> events;
+
+    public String createdBy;
+}
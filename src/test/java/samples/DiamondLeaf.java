@@ -0,0 +1,21 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "diamond-leaf",
+        billingMode = BillingMode.PAY_PER_REQUEST
+)
+public class DiamondLeaf implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    public String value;
+}
@@ -0,0 +1,25 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "diamond-left",
+        billingMode = BillingMode.PAY_PER_REQUEST
+)
+public class DiamondLeft implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    @ExternalRelation(
+            relationTo = DiamondShared.class,
+            relationKeyType = ERelationKeyType.PARTITION_KEY
+    )
+    public String sharedId;
+}
@@ -0,0 +1,23 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "sample-metric-table"
+)
+@TimeSeries(bucket = ETimeBucket.HOUR)
+public class MetricTable implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String deviceId;
+
+    @SortKey
+    public String recordedAt;
+
+    public Integer value;
+}
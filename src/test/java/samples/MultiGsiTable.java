@@ -0,0 +1,32 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "multi-gsi-table",
+        billingMode = BillingMode.PAY_PER_REQUEST
+)
+public class MultiGsiTable implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    @GlobalSI(
+            indexName = "owner-gsi",
+            keyType = KeyType.HASH
+    )
+    public String owner;
+
+    @GlobalSI(
+            indexName = "category-gsi",
+            keyType = KeyType.HASH
+    )
+    public String category;
+}
@@ -0,0 +1,20 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "sample-offload-table"
+)
+public class OffloadTable implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    @OffloadToS3(bucketName = "offload-bucket", thresholdBytes = 16)
+    public OffloadedAttribute body;
+}
@@ -0,0 +1,26 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "sample-on-demand-table",
+        billingMode = BillingMode.PAY_PER_REQUEST
+)
+public class OnDemandTable implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    @GlobalSI(
+            indexName = "on-demand-gsi",
+            keyType = KeyType.HASH
+    )
+    public String gsiHash;
+}
@@ -0,0 +1,31 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "sample-projected-gsi-table"
+)
+public class ProjectedGsiTable implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    @GlobalSI(
+            indexName = "include-gsi",
+            keyType = KeyType.HASH,
+            projectionType = ProjectionType.INCLUDE,
+            nonKeyAttributes = {"title"}
+    )
+    public String owner;
+
+    public String title;
+
+    public String body;
+}
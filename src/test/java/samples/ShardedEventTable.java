@@ -0,0 +1,22 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "sample-sharded-event-table"
+)
+public class ShardedEventTable implements IGenericDynamoDbTable {
+    @PartitionKey(shards = 4)
+    public String tenantId;
+
+    @SortKey
+    public String eventId;
+
+    public String detail;
+}
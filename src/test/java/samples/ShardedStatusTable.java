@@ -0,0 +1,31 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "sample-sharded-status-table"
+)
+public class ShardedStatusTable implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    @GlobalSI(
+            indexName = "sharded-status-gsi",
+            keyType = KeyType.HASH,
+            shards = 4
+    )
+    public String status;
+
+    @GlobalSI(
+            indexName = "sharded-status-gsi",
+            keyType = KeyType.RANGE
+    )
+    public Integer createdAt;
+}
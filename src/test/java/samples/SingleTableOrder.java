@@ -0,0 +1,26 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@SingleTable(tableName = "sample-single-table")
+@DynamoDBTable(
+        tableName = "single-table-order"
+)
+public class SingleTableOrder implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    @ExternalRelation(
+            relationTo = SingleTableOrderLine.class,
+            relationKeyType = ERelationKeyType.PARTITION_KEY
+    )
+    public String lineOrderId;
+
+    public String customer;
+}
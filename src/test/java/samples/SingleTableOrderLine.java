@@ -0,0 +1,25 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.DynamoDBTable;
+import awsutil.dynamodb.tabledefinition.IGenericDynamoDbTable;
+import awsutil.dynamodb.tabledefinition.PartitionKey;
+import awsutil.dynamodb.tabledefinition.SortKey;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "single-table-order-line"
+)
+public class SingleTableOrderLine implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String orderId;
+
+    @SortKey
+    public String lineNo;
+
+    public String product;
+}
@@ -0,0 +1,22 @@
+package samples;
+
+import awsutil.dynamodb.tabledefinition.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(
+        tableName = "sample-versioned-table"
+)
+public class VersionedTable implements IGenericDynamoDbTable {
+    @PartitionKey
+    public String id;
+
+    public String value;
+
+    @Version
+    public Integer version;
+}